@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkCropAppProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.dingtalk.api.response.OapiSnsGetuserinfoBycodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	基准测试共用的数据与内存桩：登录请求体、钉钉用户信息与不发起网络请求的 {@link DingTalkRemoteInvoker}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkBenchmarkFixtures {
+
+	public static final String APP_KEY = "dingbenchmarkappkey";
+	public static final String APP_SECRET = "benchmark-app-secret-0123456789abcdef";
+	public static final String ACCESS_TOKEN = "2f0e8b1c5d7a4e3f9b6c1d0a8e7f6b5c";
+	public static final String UNIONID = "7Huu46kkBenchmark";
+	public static final String OPENID = "liSii8KCBenchmark";
+	public static final String HOST = "10.0.0.1";
+
+	public static final byte[] MA_BODY = utf8("{\"key\":\"" + APP_KEY + "\",\"token\":\"\",\"authCode\":\"b0f6c8e2d4a1937f\"}");
+	public static final byte[] SCAN_CODE_BODY = utf8("{\"key\":\"" + APP_KEY + "\",\"token\":\"\",\"loginTmpCode\":\"4c9e2a7b1f3d8e60\"}");
+	public static final byte[] TMP_CODE_BODY = utf8("{\"key\":\"" + APP_KEY + "\",\"token\":\"\",\"code\":\"9a3b5c7d1e2f4a6b\"}");
+
+	private DingTalkBenchmarkFixtures() {
+	}
+
+	public static ObjectMapper objectMapper() {
+		return new ObjectMapper();
+	}
+
+	/**
+	 * 创建 JSON 登录请求：MockHttpServletRequest 的输入流只能读取一次，每次调用都需要新的请求
+	 * @param body 请求体
+	 * @return 登录请求
+	 */
+	public static MockHttpServletRequest loginRequest(byte[] body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+		request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		request.setRemoteAddr(HOST);
+		request.setContent(body);
+		return request;
+	}
+
+	/**
+	 * @return 只包含 {@link #APP_KEY} 的应用凭证索引
+	 */
+	public static DingTalkAppCredentialRegistry credentialRegistry() {
+		ShiroDingTalkCropAppProperties app = new ShiroDingTalkCropAppProperties();
+		app.setAppKey(APP_KEY);
+		app.setAppSecret(APP_SECRET);
+		app.setAgentId("1000000001");
+		ShiroDingTalkProperties properties = new ShiroDingTalkProperties();
+		properties.setCropApps(Collections.singletonList(app));
+		return new DingTalkAppCredentialRegistry(properties);
+	}
+
+	/**
+	 * @return 字段齐全的钉钉用户身份，与生产环境中会话内保存的对象大小相当
+	 */
+	public static ShiroDingTalkPrincipal principal() {
+		ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+		principal.setUserid("manager4220");
+		principal.setUnionid(UNIONID);
+		principal.setName("张三");
+		principal.setTel("010-12345678");
+		principal.setWorkPlace("杭州市余杭区文一西路969号");
+		principal.setRemark("");
+		principal.setMobile("13800000000");
+		principal.setEmail("zhangsan@example.com");
+		principal.setOrgEmail("zhangsan@corp.example.com");
+		principal.setActive("true");
+		principal.setOrderInDepts("{1:71738366882504}");
+		principal.setAdmin(false);
+		principal.setBoss(false);
+		principal.setLeaderInDepts(false);
+		principal.setHide(false);
+		principal.setDepartment("[1,2]");
+		principal.setPosition("工程师");
+		principal.setAvatar("https://static.dingtalk.com/media/lADPDgQ9qXYzR8DNAeLNAeI_482_482.jpg");
+		principal.setHiredDate("1520265600000");
+		principal.setJobnumber("001");
+		principal.setExtattr("{\"爱好\":\"旅游\",\"年龄\":\"24\"}");
+		principal.setSenior(false);
+		principal.setStateCode("86");
+		return principal;
+	}
+
+	/**
+	 * @return 扫码登录成功时钉钉返回的用户信息
+	 */
+	public static OapiSnsGetuserinfoBycodeResponse userInfoResponse() {
+		OapiSnsGetuserinfoBycodeResponse.UserInfo userInfo = new OapiSnsGetuserinfoBycodeResponse.UserInfo();
+		userInfo.setNick("张三");
+		userInfo.setOpenid(OPENID);
+		userInfo.setUnionid(UNIONID);
+		OapiSnsGetuserinfoBycodeResponse response = new OapiSnsGetuserinfoBycodeResponse();
+		response.setErrcode(0L);
+		response.setErrmsg("ok");
+		response.setUserInfo(userInfo);
+		return response;
+	}
+
+	/**
+	 * 内存中的钉钉远程调用：不执行调用本身，按调用类型直接返回预先构造的结果
+	 */
+	public static final class StubDingTalkRemoteInvoker implements DingTalkRemoteInvoker {
+
+		private final OapiSnsGetuserinfoBycodeResponse userInfoResponse = userInfoResponse();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) {
+			switch (operation) {
+			case GET_ACCESS_TOKEN:
+				return (T) ACCESS_TOKEN;
+			case GET_USERINFO_BY_TMP_CODE:
+				return (T) userInfoResponse;
+			default:
+				throw new UnsupportedOperationException(operation.name());
+			}
+		}
+
+	}
+
+	private static byte[] utf8(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.biz.authz.principal.ShiroPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	会话中钉钉用户身份的序列化：{@link ShiroDingTalkPrincipalCodec} 紧凑编码的 Java 序列化（会话持久化、分布式会话）、
+ * 	引入紧凑编码前的默认 Java 序列化（{@link LegacyPrincipal}，字段相同）与 JSON 序列化；
+ * 	启动时打印各方式的序列化大小，以及 JOL 统计的身份对象与序列化结果的堆占用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShiroDingTalkPrincipalBenchmark {
+
+	private ObjectMapper objectMapper;
+	private ShiroDingTalkPrincipal principal;
+	private LegacyPrincipal legacyPrincipal;
+	private byte[] serialized;
+	private byte[] legacySerialized;
+
+	@Setup
+	public void setup() throws IOException {
+		objectMapper = DingTalkBenchmarkFixtures.objectMapper();
+		principal = DingTalkBenchmarkFixtures.principal();
+		legacyPrincipal = new LegacyPrincipal(principal);
+		serialized = javaSerialize();
+		legacySerialized = legacyJavaSerialize();
+		System.out.println("Java serialized size: " + serialized.length + " bytes (default serialization: " + legacySerialized.length
+				+ " bytes), JSON size: " + jsonSerialize().length + " bytes");
+		System.out.println("Heap footprint (JOL): principal " + GraphLayout.parseInstance(principal).totalSize()
+				+ " bytes, serialized " + GraphLayout.parseInstance((Object) serialized).totalSize()
+				+ " bytes, default serialized " + GraphLayout.parseInstance((Object) legacySerialized).totalSize() + " bytes");
+	}
+
+	@Benchmark
+	public byte[] javaSerialize() throws IOException {
+		return serialize(principal);
+	}
+
+	@Benchmark
+	public Object javaDeserialize() throws IOException, ClassNotFoundException {
+		return deserialize(serialized);
+	}
+
+	@Benchmark
+	public byte[] legacyJavaSerialize() throws IOException {
+		return serialize(legacyPrincipal);
+	}
+
+	@Benchmark
+	public Object legacyJavaDeserialize() throws IOException, ClassNotFoundException {
+		return deserialize(legacySerialized);
+	}
+
+	@Benchmark
+	public byte[] jsonSerialize() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(principal);
+	}
+
+	static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	static Object deserialize(byte[] serialized) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return input.readObject();
+		}
+	}
+
+	/**
+	 * 与 {@link ShiroDingTalkPrincipal} 字段相同、按默认方式序列化的对照类
+	 */
+	@SuppressWarnings("serial")
+	static class LegacyPrincipal extends ShiroPrincipal {
+
+		String userid;
+		String unionid;
+		String name;
+		String tel;
+		String workPlace;
+		String remark;
+		String mobile;
+		String email;
+		String orgEmail;
+		String active;
+		String orderInDepts;
+		boolean admin;
+		boolean boss;
+		boolean leaderInDepts;
+		boolean hide;
+		String department;
+		String position;
+		String avatar;
+		String hiredDate;
+		String jobnumber;
+		String extattr;
+		boolean senior;
+		String stateCode;
+
+		LegacyPrincipal(ShiroDingTalkPrincipal principal) {
+			this.userid = principal.getUserid();
+			this.unionid = principal.getUnionid();
+			this.name = principal.getName();
+			this.tel = principal.getTel();
+			this.workPlace = principal.getWorkPlace();
+			this.remark = principal.getRemark();
+			this.mobile = principal.getMobile();
+			this.email = principal.getEmail();
+			this.orgEmail = principal.getOrgEmail();
+			this.active = principal.getActive();
+			this.orderInDepts = principal.getOrderInDepts();
+			this.admin = principal.isAdmin();
+			this.boss = principal.isBoss();
+			this.leaderInDepts = principal.isLeaderInDepts();
+			this.hide = principal.isHide();
+			this.department = principal.getDepartment();
+			this.position = principal.getPosition();
+			this.avatar = principal.getAvatar();
+			this.hiredDate = principal.getHiredDate();
+			this.jobnumber = principal.getJobnumber();
+			this.extattr = principal.getExtattr();
+			this.senior = principal.isSenior();
+			this.stateCode = principal.getStateCode();
+		}
+
+	}
+
+}
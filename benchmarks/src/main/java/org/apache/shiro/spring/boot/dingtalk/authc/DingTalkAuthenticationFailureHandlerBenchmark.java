@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_KEY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.HOST;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.biz.authc.AuthcResponse;
+import org.apache.shiro.biz.web.servlet.http.HttpStatus;
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	登录失败响应：{@link DingTalkAuthenticationFailureHandler} 写入缓存的响应体；
+ * 	对照组 objectMapperBaseline 使用同样不带堆栈的异常，每次经 ObjectMapper 序列化 AuthcResponse，两者之差即缓存响应体的收益，
+ * 	objectMapperPerFailure 另外包含创建带堆栈异常的开销
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DingTalkAuthenticationFailureHandlerBenchmark {
+
+	static final String MESSAGE = "Invalid Code.";
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+	private ObjectMapper objectMapper;
+	private DingTalkAuthenticationFailureHandler failureHandler;
+	private DingTalkTmpCodeAuthenticationToken token;
+
+	@Setup
+	public void setup() {
+		objectMapper = DingTalkBenchmarkFixtures.objectMapper();
+		failureHandler = new DingTalkAuthenticationFailureHandler(objectMapper);
+		token = new DingTalkTmpCodeAuthenticationToken(new DingTalkTmpCodeLoginRequest(APP_KEY, "", "9a3b5c7d1e2f4a6b"), HOST);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse baseline() {
+		return new MockHttpServletResponse();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse cachedBody() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		failureHandler.onAuthenticationFailure(token, request, response, DingTalkCodeIncorrectException.stackless(MESSAGE));
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse objectMapperBaseline() throws IOException {
+		DingTalkCodeIncorrectException e = DingTalkCodeIncorrectException.stackless(MESSAGE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus(HttpStatus.SC_OK);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+		objectMapper.writeValue(response.getOutputStream(), AuthcResponse.fail(HttpStatus.SC_UNAUTHORIZED, e.getMessage()));
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse objectMapperPerFailure() throws IOException {
+		DingTalkCodeIncorrectException e = new DingTalkCodeIncorrectException(MESSAGE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus(HttpStatus.SC_OK);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+		objectMapper.writeValue(response.getWriter(), AuthcResponse.fail(HttpStatus.SC_UNAUTHORIZED, e.getMessage()));
+		return response;
+	}
+
+}
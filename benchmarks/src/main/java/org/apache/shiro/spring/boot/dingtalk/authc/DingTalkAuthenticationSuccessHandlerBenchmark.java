@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_KEY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.HOST;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtIssuer;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtIssuerProperties;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.jwt.JwtPayloadRepository;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.support.DelegatingSubject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * 	登录成功响应：{@link DingTalkAuthenticationSuccessHandler#onAuthenticationSuccess} 生成并序列化响应内容；
+ * 	JWT 签发由固定返回值的内存桩代替，只衡量响应内容的组装与序列化；
+ * 	issuer* 方法启用 {@link DingTalkJwtIssuer}，衡量 HS256 签发以及流式写出精简响应的完整耗时
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DingTalkAuthenticationSuccessHandlerBenchmark {
+
+	static final String JWT = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiI3SHV1NDZra0JlbmNobWFyayIsImV4cCI6NDEwMjQ0NDgwMH0."
+			+ "qH2u1r7mS3v9l0bYc8QfJx5pN4tZ6wK1eD7gA2oR3sU";
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+	private DingTalkAuthenticationSuccessHandler successHandler;
+	private DingTalkAuthenticationSuccessHandler issuerSuccessHandler;
+	private DingTalkJwtIssuer jwtIssuer;
+	private ShiroDingTalkPrincipal principal;
+	private DingTalkScanCodeAuthenticationToken token;
+	private Subject subject;
+
+	@Setup
+	public void setup() {
+		successHandler = new DingTalkAuthenticationSuccessHandler(DingTalkBenchmarkFixtures.objectMapper(), jwtPayloadRepository(), false);
+		token = new DingTalkScanCodeAuthenticationToken(new DingTalkScanCodeLoginRequest(APP_KEY, "", "4c9e2a7b1f3d8e60"), HOST);
+		principal = DingTalkBenchmarkFixtures.principal();
+		subject = new DelegatingSubject(new SimplePrincipalCollection(principal, "DingTalkScanCodeAuthorizingRealm"),
+				true, HOST, null, new DefaultSecurityManager());
+		ShiroDingTalkJwtIssuerProperties issuerProperties = new ShiroDingTalkJwtIssuerProperties();
+		issuerProperties.setSecret("4f1b0c9d2e7a6b3c8d5e0f1a2b3c4d5e");
+		issuerProperties.setIssuer("benchmark");
+		jwtIssuer = new DingTalkJwtIssuer(DingTalkBenchmarkFixtures.objectMapper().getFactory(), issuerProperties);
+		issuerSuccessHandler = new DingTalkAuthenticationSuccessHandler(DingTalkBenchmarkFixtures.objectMapper(), jwtPayloadRepository(), false);
+		issuerSuccessHandler.setJwtIssuer(jwtIssuer);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse baseline() {
+		return new MockHttpServletResponse();
+	}
+
+	@Benchmark
+	public Map<String, Object> tokenMap() {
+		return successHandler.tokenMap(token, subject);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse onAuthenticationSuccess() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		successHandler.onAuthenticationSuccess(token, request, response, subject);
+		return response;
+	}
+
+	@Benchmark
+	public String issuerIssue() {
+		return jwtIssuer.issue(principal);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse issuerOnAuthenticationSuccess() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		issuerSuccessHandler.onAuthenticationSuccess(token, request, response, subject);
+		return response;
+	}
+
+	/**
+	 * 只实现 issueJwt 的 JwtPayloadRepository，其余方法返回 null
+	 */
+	static JwtPayloadRepository jwtPayloadRepository() {
+		return (JwtPayloadRepository) Proxy.newProxyInstance(JwtPayloadRepository.class.getClassLoader(),
+				new Class<?>[] { JwtPayloadRepository.class },
+				(proxy, method, args) -> "issueJwt".equals(method.getName()) ? JWT : null);
+	}
+
+}
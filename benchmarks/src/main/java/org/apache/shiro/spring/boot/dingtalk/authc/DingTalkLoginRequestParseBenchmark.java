@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.MA_BODY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.SCAN_CODE_BODY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.TMP_CODE_BODY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.loginRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	三种登录过滤器的请求解析：{@link AbstractDingTalkAuthenticatingFilter#createToken} 从 JSON 请求体到认证 Token；
+ * 	baseline 为创建模拟请求本身的开销，objectMapperReadValue 为每次按类型查找反序列化器的旧解析方式
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DingTalkLoginRequestParseBenchmark {
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private ObjectMapper objectMapper;
+	private DingTalkMaAuthenticatingFilter maFilter;
+	private DingTalkScanCodeAuthenticatingFilter scanCodeFilter;
+	private DingTalkTmpCodeAuthenticatingFilter tmpCodeFilter;
+
+	@Setup
+	public void setup() {
+		objectMapper = DingTalkBenchmarkFixtures.objectMapper();
+		maFilter = new DingTalkMaAuthenticatingFilter(objectMapper);
+		scanCodeFilter = new DingTalkScanCodeAuthenticatingFilter(objectMapper);
+		tmpCodeFilter = new DingTalkTmpCodeAuthenticatingFilter(objectMapper);
+	}
+
+	@Benchmark
+	public MockHttpServletRequest baseline() {
+		return loginRequest(MA_BODY);
+	}
+
+	@Benchmark
+	public AuthenticationToken ma() {
+		return maFilter.createToken(loginRequest(MA_BODY), response);
+	}
+
+	@Benchmark
+	public AuthenticationToken scanCode() {
+		return scanCodeFilter.createToken(loginRequest(SCAN_CODE_BODY), response);
+	}
+
+	@Benchmark
+	public AuthenticationToken tmpCode() {
+		return tmpCodeFilter.createToken(loginRequest(TMP_CODE_BODY), response);
+	}
+
+	@Benchmark
+	public DingTalkMaLoginRequest objectMapperReadValue() throws IOException {
+		return objectMapper.readValue(loginRequest(MA_BODY).getInputStream(), DingTalkMaLoginRequest.class);
+	}
+
+}
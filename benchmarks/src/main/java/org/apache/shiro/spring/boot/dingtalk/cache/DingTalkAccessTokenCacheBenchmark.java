@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_KEY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_SECRET;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAccessTokenProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	多线程争用下的 AccessToken 获取：缓存命中路径与 {@link DingTalkSingleFlight} 合并调用的开销；
+ * 	500 线程并发未命中时每个 AppKey 只远程获取一次由 DingTalkAccessTokenCacheTest 校验，结束时打印实际远程获取次数
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class DingTalkAccessTokenCacheBenchmark {
+
+	private DingTalkAccessTokenCache accessTokenCache;
+	private DingTalkSingleFlight<String, String> singleFlight;
+
+	@Setup
+	public void setup() throws ApiException {
+		accessTokenCache = new DingTalkAccessTokenCache(null, new ShiroDingTalkAccessTokenProperties());
+		accessTokenCache.setRemoteInvoker(new DingTalkBenchmarkFixtures.StubDingTalkRemoteInvoker());
+		// 预热：首次获取经由内存桩加载，之后均为缓存命中
+		accessTokenCache.getAccessToken(APP_KEY, APP_SECRET);
+		singleFlight = new DingTalkSingleFlight<>();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println("Remote fetches: " + accessTokenCache.getFetchCount() + ", loads: " + accessTokenCache.getLoadCount()
+				+ ", shared loads: " + accessTokenCache.getLoadSharedCount());
+		accessTokenCache.destroy();
+	}
+
+	@Benchmark
+	public String cacheHit() throws ApiException {
+		return accessTokenCache.getAccessToken(APP_KEY, APP_SECRET);
+	}
+
+	@Benchmark
+	public String singleFlight() throws Exception {
+		return singleFlight.execute(APP_KEY, () -> DingTalkBenchmarkFixtures.ACCESS_TOKEN, 1, TimeUnit.SECONDS);
+	}
+
+}
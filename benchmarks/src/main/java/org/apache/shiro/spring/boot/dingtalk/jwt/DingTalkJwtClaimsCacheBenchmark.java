@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_KEY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.HOST;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtCacheProperties;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkScanCodeAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 	无状态模式下已签发 JWT 的声明缓存：命中路径（摘要计算 + 缓存查找）与签发后写入缓存的开销；
+ * 	uncached 为未启用缓存时的对照路径，经由 Realm 完成认证，钉钉远程调用由内存桩返回、Repository 返回预先构造的认证信息，
+ * 	实际部署中未命中的代价还要加上钉钉接口的网络往返
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DingTalkJwtClaimsCacheBenchmark {
+
+	private DingTalkJwtClaimsCache claimsCache;
+	private PrincipalCollection principals;
+	private String jwt;
+	private DingTalkScanCodeAuthorizingRealm realm;
+	private DingTalkScanCodeAuthenticationToken token;
+
+	@Setup
+	public void setup() {
+		claimsCache = new DingTalkJwtClaimsCache(DingTalkBenchmarkFixtures.objectMapper(), new ShiroDingTalkJwtCacheProperties());
+		principals = new SimplePrincipalCollection(DingTalkBenchmarkFixtures.principal(), "DingTalk");
+		long exp = System.currentTimeMillis() / 1000L + 3600L;
+		String payload = "{\"sub\":\"" + DingTalkBenchmarkFixtures.UNIONID + "\",\"iat\":" + (exp - 3600L) + ",\"exp\":" + exp + "}";
+		jwt = "eyJhbGciOiJIUzI1NiJ9."
+				+ Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+				+ ".qH2u1r7mS3v9l0bYc8QfJx5pN4tZ6wK1eD7gA2oR3sU";
+		claimsCache.put(jwt, principals);
+
+		AuthenticationInfo info = new SimpleAuthenticationInfo(DingTalkBenchmarkFixtures.principal(), null, "DingTalk");
+		realm = new DingTalkScanCodeAuthorizingRealm(null) {
+			@Override
+			protected AuthenticationInfo lookupRepository(AuthenticationToken token) {
+				return info;
+			}
+		};
+		realm.setName("DingTalkScanCodeAuthorizingRealm");
+		realm.setCredentialsMatcher(new AllowAllCredentialsMatcher());
+		realm.setCredentialRegistry(DingTalkBenchmarkFixtures.credentialRegistry());
+		realm.setRemoteInvoker(new DingTalkBenchmarkFixtures.StubDingTalkRemoteInvoker());
+		token = new DingTalkScanCodeAuthenticationToken(new DingTalkScanCodeLoginRequest(APP_KEY, "", "4c9e2a7b1f3d8e60"), HOST);
+	}
+
+	@Benchmark
+	public DingTalkJwtClaims cacheHit() {
+		return claimsCache.get(jwt);
+	}
+
+	@Benchmark
+	public AuthenticationInfo uncached() {
+		return realm.getAuthenticationInfo(token);
+	}
+
+	@Benchmark
+	public void put() {
+		claimsCache.put(jwt, principals);
+
+		AuthenticationInfo info = new SimpleAuthenticationInfo(DingTalkBenchmarkFixtures.principal(), null, "DingTalk");
+		realm = new DingTalkScanCodeAuthorizingRealm(null) {
+			@Override
+			protected AuthenticationInfo lookupRepository(AuthenticationToken token) {
+				return info;
+			}
+		};
+		realm.setName("DingTalkScanCodeAuthorizingRealm");
+		realm.setCredentialsMatcher(new AllowAllCredentialsMatcher());
+		realm.setCredentialRegistry(DingTalkBenchmarkFixtures.credentialRegistry());
+		realm.setRemoteInvoker(new DingTalkBenchmarkFixtures.StubDingTalkRemoteInvoker());
+		token = new DingTalkScanCodeAuthenticationToken(new DingTalkScanCodeLoginRequest(APP_KEY, "", "4c9e2a7b1f3d8e60"), HOST);
+	}
+
+}
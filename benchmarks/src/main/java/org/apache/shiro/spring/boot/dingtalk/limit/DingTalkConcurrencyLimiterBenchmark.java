@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 	自适应并发限制的许可申请与释放：线程数超过并发上限时同时包含拒绝路径
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class DingTalkConcurrencyLimiterBenchmark {
+
+	private DingTalkConcurrencyLimiter limiter;
+
+	@Setup
+	public void setup() {
+		ShiroDingTalkConcurrencyLimitProperties properties = new ShiroDingTalkConcurrencyLimitProperties();
+		properties.setInitialLimit(4);
+		properties.setMinLimit(4);
+		properties.setMaxLimit(4);
+		limiter = new DingTalkConcurrencyLimiter(properties);
+	}
+
+	@Benchmark
+	public boolean acquireRelease() {
+		DingTalkConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+		if (permit == null) {
+			return false;
+		}
+		permit.release();
+		return true;
+	}
+
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 	登录压测驱动：固定数量的工作线程循环提交登录请求，每个请求使用新的授权码，按权重混合三种登录方式。
+ * 	未设置目标速率时为闭环压测（上一个请求完成后立即发起下一个）；设置目标速率时按计划发送时间计算延迟，
+ * 	服务端变慢导致的排队时间计入延迟，避免协调遗漏（coordinated omission）低估尾延迟
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoadDriver {
+
+	/** 登录结果响应头，由压测应用的登录过滤器写入 */
+	public static final String RESULT_HEADER = "X-DingTalk-Login";
+
+	/**
+	 * 登录方式：登录地址与请求体中授权码字段
+	 */
+	public enum Flow {
+
+		SCAN_CODE(DingTalkLoadTestApplication.SCAN_CODE_URL, "loginTmpCode"),
+		MA(DingTalkLoadTestApplication.MA_URL, "authCode"),
+		TMP_CODE(DingTalkLoadTestApplication.TMP_CODE_URL, "code");
+
+		private final String path;
+		private final String codeField;
+
+		Flow(String path, String codeField) {
+			this.path = path;
+			this.codeField = codeField;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @param name scan-code、ma 或 tmp-code
+		 * @return 登录方式
+		 */
+		public static Flow of(String name) {
+			return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+		}
+
+	}
+
+	private final String baseUrl;
+	private final List<String> appKeys;
+	private final Map<Flow, Integer> mix;
+	private int concurrency = 64;
+	private Duration duration = Duration.ofSeconds(30);
+	private Duration warmup = Duration.ofSeconds(5);
+	/** 全部工作线程合计的目标速率（次/秒），0 表示闭环压测 */
+	private double rate;
+	private int connectTimeoutMillis = 2000;
+	private int readTimeoutMillis = 30000;
+
+	private final Map<Flow, Recorder> recorders = new EnumMap<>(Flow.class);
+	private final Map<Flow, LongAdder[]> outcomes = new EnumMap<>(Flow.class);
+	private volatile boolean recording;
+
+	/**
+	 * @param baseUrl 压测应用地址，如 http://127.0.0.1:8080
+	 * @param appKeys 登录请求轮流使用的 AppKey
+	 * @param mix 各登录方式的权重
+	 */
+	public DingTalkLoadDriver(String baseUrl, List<String> appKeys, Map<Flow, Integer> mix) {
+		this.baseUrl = baseUrl;
+		this.appKeys = new ArrayList<>(appKeys);
+		this.mix = new EnumMap<>(mix);
+		for (Flow flow : Flow.values()) {
+			recorders.put(flow, new Recorder(3));
+			outcomes.put(flow, new LongAdder[] { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() });
+		}
+	}
+
+	/**
+	 * 执行压测：预热阶段的结果不计入报告
+	 * @return 压测报告
+	 * @throws InterruptedException 等待工作线程时被中断
+	 */
+	public Report run() throws InterruptedException {
+		Flow[] schedule = schedule();
+		long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * concurrency / rate) : 0;
+		long start = System.nanoTime();
+		long measureStart = start + warmup.toNanos();
+		long end = measureStart + duration.toNanos();
+		CountDownLatch done = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			int worker = i;
+			// 目标速率下错开各线程的首次发送时间
+			long first = start + (intervalNanos == 0 ? 0 : intervalNanos * worker / concurrency);
+			Thread thread = new Thread(() -> {
+				try {
+					work(worker, schedule, first, intervalNanos, end);
+				} finally {
+					done.countDown();
+				}
+			}, "dingtalk-load-" + worker);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		sleepUntil(measureStart);
+		for (Recorder recorder : recorders.values()) {
+			recorder.reset();
+		}
+		for (LongAdder[] counters : outcomes.values()) {
+			for (LongAdder counter : counters) {
+				counter.reset();
+			}
+		}
+		recording = true;
+		sleepUntil(end);
+		recording = false;
+		long measuredNanos = System.nanoTime() - measureStart;
+		Report report = new Report(measuredNanos, intervalNanos > 0);
+		for (Flow flow : Flow.values()) {
+			LongAdder[] counters = outcomes.get(flow);
+			report.add(flow, recorders.get(flow).getIntervalHistogram(), counters[0].sum(), counters[1].sum(), counters[2].sum(), counters[3].sum());
+		}
+		done.await(readTimeoutMillis + 1000L, TimeUnit.MILLISECONDS);
+		return report;
+	}
+
+	private void work(int worker, Flow[] schedule, long first, long intervalNanos, long end) {
+		long next = first;
+		long sequence = 0;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (true) {
+			long intended;
+			if (intervalNanos > 0) {
+				sleepUntil(next);
+				intended = next;
+				next += intervalNanos;
+			} else {
+				intended = System.nanoTime();
+			}
+			if (intended - end >= 0) {
+				return;
+			}
+			Flow flow = schedule[random.nextInt(schedule.length)];
+			String appKey = appKeys.get((int) (sequence % appKeys.size()));
+			String code = Integer.toHexString(worker) + "x" + Long.toHexString(sequence++) + "x" + Long.toHexString(random.nextLong());
+			int outcome = execute(flow, appKey, code);
+			long latency = System.nanoTime() - intended;
+			if (recording) {
+				recorders.get(flow).recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+				outcomes.get(flow)[outcome].increment();
+			}
+		}
+	}
+
+	/**
+	 * 提交一次登录请求，完整读取响应以便复用连接
+	 * @return 0：成功；1：认证失败；2：被限流（503）；3：HTTP 或网络错误
+	 */
+	protected int execute(Flow flow, String appKey, String code) {
+		byte[] body = ("{\"key\":\"" + appKey + "\",\"token\":\"\",\"" + flow.codeField + "\":\"" + code + "\"}")
+				.getBytes(StandardCharsets.UTF_8);
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(baseUrl + flow.getPath()).openConnection();
+			connection.setConnectTimeout(connectTimeoutMillis);
+			connection.setReadTimeout(readTimeoutMillis);
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(body.length);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream output = connection.getOutputStream()) {
+				output.write(body);
+			}
+			int status = connection.getResponseCode();
+			drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+			if (status == 503) {
+				return 2;
+			}
+			if (status != 200) {
+				return 3;
+			}
+			return "success".equals(connection.getHeaderField(RESULT_HEADER)) ? 0 : 1;
+		} catch (IOException e) {
+			if (connection != null) {
+				connection.disconnect();
+			}
+			return 3;
+		}
+	}
+
+	private Flow[] schedule() {
+		List<Flow> schedule = new ArrayList<>();
+		mix.forEach((flow, weight) -> schedule.addAll(Collections.nCopies(Math.max(0, weight), flow)));
+		if (schedule.isEmpty()) {
+			throw new IllegalArgumentException("DingTalk load mix must contain at least one positive weight.");
+		}
+		return schedule.toArray(new Flow[0]);
+	}
+
+	private static void drain(InputStream input) throws IOException {
+		if (input == null) {
+			return;
+		}
+		try (InputStream in = input) {
+			byte[] buffer = new byte[1024];
+			while (in.read(buffer) != -1) {
+				// 读取完整响应后连接才会回到 keep-alive 连接池
+			}
+		}
+	}
+
+	private static void sleepUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+	public void setDuration(Duration duration) {
+		this.duration = duration;
+	}
+
+	public Duration getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(Duration warmup) {
+		this.warmup = warmup;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	public void setReadTimeoutMillis(int readTimeoutMillis) {
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	/**
+	 * 压测报告：按登录方式与合计输出吞吐量及延迟分位数（毫秒）
+	 */
+	public static class Report {
+
+		private final long measuredNanos;
+		private final boolean openLoop;
+		private final Map<Flow, Histogram> histograms = new EnumMap<>(Flow.class);
+		private final Map<Flow, long[]> counts = new EnumMap<>(Flow.class);
+		private final Histogram total = new Histogram(3);
+
+		Report(long measuredNanos, boolean openLoop) {
+			this.measuredNanos = measuredNanos;
+			this.openLoop = openLoop;
+		}
+
+		void add(Flow flow, Histogram histogram, long success, long failure, long shed, long error) {
+			histograms.put(flow, histogram);
+			counts.put(flow, new long[] { success, failure, shed, error });
+			total.add(histogram);
+		}
+
+		public Histogram getHistogram(Flow flow) {
+			return histograms.get(flow);
+		}
+
+		public Histogram getTotalHistogram() {
+			return total;
+		}
+
+		public long getSuccessCount() {
+			return counts.values().stream().mapToLong(count -> count[0]).sum();
+		}
+
+		public double getThroughput() {
+			return total.getTotalCount() * 1e9 / measuredNanos;
+		}
+
+		public void print(PrintStream out) {
+			out.printf("%nDingTalk login load test: %.1f s measured, %s%n", measuredNanos / 1e9,
+					openLoop ? "open loop (latency from intended send time)" : "closed loop (service time, coordinated omission not corrected)");
+			out.printf("%-10s %10s %10s %8s %8s %8s %9s %9s %9s %9s %9s%n", "flow", "requests", "req/s", "fail", "shed",
+					"error", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "mean ms");
+			for (Flow flow : Flow.values()) {
+				Histogram histogram = histograms.get(flow);
+				if (histogram.getTotalCount() > 0) {
+					long[] count = counts.get(flow);
+					line(out, flow.name().toLowerCase(Locale.ROOT).replace('_', '-'), histogram, count[1], count[2], count[3]);
+				}
+			}
+			long[] sum = new long[4];
+			counts.values().forEach(count -> {
+				for (int i = 0; i < sum.length; i++) {
+					sum[i] += count[i];
+				}
+			});
+			line(out, "total", total, sum[1], sum[2], sum[3]);
+			out.printf("successful logins: %d (%.1f/s)%n", sum[0], sum[0] * 1e9 / measuredNanos);
+		}
+
+		private void line(PrintStream out, String name, Histogram histogram, long failure, long shed, long error) {
+			out.printf("%-10s %10d %10.1f %8d %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+					histogram.getTotalCount() * 1e9 / measuredNanos, failure, shed, error, millis(histogram.getValueAtPercentile(50)),
+					millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+					millis(histogram.getMaxValue()), histogram.getMean() / 1000d);
+		}
+
+		private static double millis(long micros) {
+			return micros / 1000d;
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 	端到端登录压测入口：启动 {@link DingTalkStubServer} 与 {@link DingTalkLoadTestApplication}，
+ * 	由 {@link DingTalkLoadDriver} 压测并输出吞吐量与 p50/p99/p99.9 延迟。
+ * 	参数形如 --duration=30s --concurrency=64 --mix=scan-code:2,ma:1,tmp-code:1 --latency=lognormal:20ms-200ms；
+ * 	以 --shiro.dingtalk. 开头的参数原样传给 Spring Boot 应用，如 --shiro.dingtalk.retry.enabled=true
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkLoadTest {
+
+	private static final String APP_KEY_PREFIX = "dingloadtest";
+
+	private DingTalkLoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		List<String> springArgs = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--shiro.") || arg.startsWith("--server.") || arg.startsWith("--logging.")) {
+				springArgs.add(arg);
+			} else if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+				options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			} else {
+				throw new IllegalArgumentException("Unrecognized argument: " + arg);
+			}
+		}
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+		int apps = Integer.parseInt(options.getOrDefault("apps", "1"));
+		// HttpURLConnection 默认每个目标只保持 5 个空闲连接
+		System.setProperty("http.maxConnections", String.valueOf(Math.max(5, concurrency)));
+
+		try (DingTalkStubServer stub = new DingTalkStubServer(0, Integer.parseInt(options.getOrDefault("stub-threads", "8")))) {
+			stub.setLatency(DingTalkStubLatency.parse(options.getOrDefault("latency", "none")));
+			stub.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+			stub.setErrorCode(Long.parseLong(options.getOrDefault("error-code", String.valueOf(DingTalkStubServer.ERRCODE_SYSTEM_BUSY))));
+			stub.setHttpErrorRate(Double.parseDouble(options.getOrDefault("http-error-rate", "0")));
+			stub.setQpsLimit(Integer.parseInt(options.getOrDefault("qps", "0")));
+			stub.setUsers(Integer.parseInt(options.getOrDefault("users", "10000")));
+
+			List<String> appKeys = new ArrayList<>();
+			List<String> properties = new ArrayList<>();
+			properties.add("server.port=0");
+			properties.add("dingtalk.stub.base-url=" + stub.getBaseUrl());
+			for (int i = 0; i < apps; i++) {
+				String appKey = APP_KEY_PREFIX + i;
+				String appSecret = "load-test-secret-" + i;
+				stub.registerApp(appKey, appSecret);
+				appKeys.add(appKey);
+				properties.add("shiro.dingtalk.crop-apps[" + i + "].app-key=" + appKey);
+				properties.add("shiro.dingtalk.crop-apps[" + i + "].app-secret=" + appSecret);
+				properties.add("shiro.dingtalk.crop-apps[" + i + "].agent-id=" + (1000000000L + i));
+			}
+			stub.start();
+
+			try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DingTalkLoadTestApplication.class)
+					.web(WebApplicationType.SERVLET)
+					.bannerMode(Banner.Mode.OFF)
+					.logStartupInfo(false)
+					.properties(properties.toArray(new String[0]))
+					.run(springArgs.toArray(new String[0]))) {
+
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				DingTalkLoadDriver driver = new DingTalkLoadDriver("http://127.0.0.1:" + port, appKeys,
+						mix(options.getOrDefault("mix", "scan-code:1,ma:1,tmp-code:1")));
+				driver.setConcurrency(concurrency);
+				driver.setDuration(DingTalkStubLatency.duration(options.getOrDefault("duration", "30s")));
+				driver.setWarmup(DingTalkStubLatency.duration(options.getOrDefault("warmup", "5s")));
+				driver.setRate(Double.parseDouble(options.getOrDefault("rate", "0")));
+
+				System.out.printf("Stub %s, latency %s, error rate %s, qps limit %s; app http://127.0.0.1:%d, %d workers%s%n",
+						stub.getBaseUrl(), options.getOrDefault("latency", "none"), stub.getErrorRate(), stub.getQpsLimit(), port,
+						concurrency, driver.getRate() > 0 ? ", target " + driver.getRate() + " req/s" : "");
+				DingTalkLoadDriver.Report report = driver.run();
+				report.print(System.out);
+
+				DingTalkAccessTokenCache accessTokenCache = context.getBean(DingTalkAccessTokenCache.class);
+				System.out.printf("stub requests %d, injected errors %d, throttled %d, rejected codes %d; access token hits %d, misses %d%n",
+						stub.getRequestCount(), stub.getInjectedErrorCount(), stub.getThrottledCount(), stub.getRejectedCodeCount(),
+						accessTokenCache.getHitCount(), accessTokenCache.getMissCount());
+			}
+		}
+	}
+
+	/**
+	 * @param spec 如 scan-code:2,ma:1,tmp-code:1，省略权重时为 1
+	 */
+	static Map<DingTalkLoadDriver.Flow, Integer> mix(String spec) {
+		Map<DingTalkLoadDriver.Flow, Integer> mix = new EnumMap<>(DingTalkLoadDriver.Flow.class);
+		for (String part : spec.split(",")) {
+			int colon = part.indexOf(':');
+			DingTalkLoadDriver.Flow flow = DingTalkLoadDriver.Flow.of(colon < 0 ? part : part.substring(0, colon));
+			mix.put(flow, colon < 0 ? 1 : Integer.parseInt(part.substring(colon + 1).trim()));
+		}
+		return mix;
+	}
+
+}
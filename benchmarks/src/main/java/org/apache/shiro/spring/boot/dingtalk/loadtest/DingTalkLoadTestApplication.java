@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.Executor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.pam.ModularRealmAuthenticator;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.mgt.SubjectFactory;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationSuccessHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkCompositeAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.concurrent.DingTalkExecutors;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkFlightRecorder;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.realm.AbstractDingTalkAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRetryPolicy;
+import org.apache.shiro.spring.boot.dingtalk.remote.HedgingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.ResilientDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.RetryingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.jwt.JwtPayloadRepository;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.SubjectContext;
+import org.apache.shiro.web.filter.mgt.DefaultFilterChainManager;
+import org.apache.shiro.web.filter.mgt.PathMatchingFilterChainResolver;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.apache.shiro.web.mgt.DefaultWebSubjectFactory;
+import org.apache.shiro.web.servlet.AbstractShiroFilter;
+import org.apache.shiro.web.util.WebUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.taobao.api.ApiException;
+
+/**
+ * 	端到端压测使用的 Spring Boot 应用：内嵌 Tomcat，Shiro 无状态过滤器链挂载 starter 的钉钉登录过滤器，
+ * 	登录过程经过真实的请求解析、Realm、AccessToken 缓存、远程调用策略与成功/失败处理器；
+ * 	钉钉远程调用经由 {@link DingTalkStubClient} 访问 {@link DingTalkStubServer}。
+ * 	远程调用策略、异步认证与并发限制通过 shiro.dingtalk.* 配置开启，与生产环境的配置项一致
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportAutoConfiguration({ PropertyPlaceholderAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class })
+@EnableConfigurationProperties(ShiroDingTalkProperties.class)
+public class DingTalkLoadTestApplication {
+
+	public static final String SCAN_CODE_URL = "/login/dingtalk/scan-code";
+	public static final String MA_URL = "/login/dingtalk/ma";
+	public static final String TMP_CODE_URL = "/login/dingtalk/tmp-code";
+
+	@Bean
+	public ObjectMapper objectMapper() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		return objectMapper;
+	}
+
+	/**
+	 * Shiro 按 servletPath 匹配过滤器链，应用中没有 DispatcherServlet 时需注册映射到 / 的默认 Servlet
+	 */
+	@Bean
+	public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> defaultServletCustomizer() {
+		return factory -> factory.setRegisterDefaultServlet(true);
+	}
+
+	@Bean
+	public DingTalkStubClient dingTalkStubClient(@Value("${dingtalk.stub.base-url}") String baseUrl) {
+		return new DingTalkStubClient(baseUrl);
+	}
+
+	@Bean
+	public DingTalkAppCredentialRegistry dingTalkAppCredentialRegistry(ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkAppCredentialRegistry(dingtalkProperties);
+	}
+
+	/**
+	 * 与 ShiroDingTalkWebAutoConfiguration 相同的组合顺序：隔离熔断、对冲、重试由内向外
+	 */
+	@Bean
+	public DingTalkRemoteInvoker dingTalkRemoteInvoker(ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkRetryPolicy retryPolicy = new DingTalkRetryPolicy(dingtalkProperties.getRetry());
+		DingTalkRemoteInvoker remoteInvoker = DingTalkRemoteInvoker.DIRECT;
+		if (dingtalkProperties.getResilience().isEnabled()) {
+			ResilientDingTalkRemoteInvoker resilientInvoker = new ResilientDingTalkRemoteInvoker(remoteInvoker, dingtalkProperties.getResilience());
+			resilientInvoker.setRetryPolicy(retryPolicy);
+			remoteInvoker = resilientInvoker;
+		}
+		if (dingtalkProperties.getHedging().isEnabled()) {
+			remoteInvoker = new HedgingDingTalkRemoteInvoker(remoteInvoker, dingtalkProperties.getHedging());
+		}
+		if (dingtalkProperties.getRetry().isEnabled()) {
+			remoteInvoker = new RetryingDingTalkRemoteInvoker(remoteInvoker, retryPolicy, dingtalkProperties.getRetry());
+		}
+		return remoteInvoker;
+	}
+
+	@Bean
+	public DingTalkAccessTokenCache dingTalkAccessTokenCache(DingTalkStubClient client, DingTalkRemoteInvoker remoteInvoker,
+			ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkAccessTokenCache accessTokenCache = new DingTalkAccessTokenCache(null, dingtalkProperties.getAccessToken()) {
+
+			@Override
+			protected String fetch(String appKey, String appSecret) throws ApiException {
+				return getRemoteInvoker().invoke(appKey, DingTalkRemoteOperation.GET_ACCESS_TOKEN, DingTalkFlightRecorder.record(appKey,
+						DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> client.getAccessToken(appKey, appSecret)));
+			}
+
+		};
+		accessTokenCache.setRemoteInvoker(remoteInvoker);
+		return accessTokenCache;
+	}
+
+	@Bean
+	public DefaultWebSecurityManager securityManager(DingTalkStubClient client, DingTalkAppCredentialRegistry credentialRegistry,
+			DingTalkAccessTokenCache accessTokenCache, DingTalkRemoteInvoker remoteInvoker) {
+		AbstractDingTalkAuthorizingRealm[] realms = { new DingTalkStubRealms.ScanCode(client), new DingTalkStubRealms.Ma(client),
+				new DingTalkStubRealms.TmpCode(client) };
+		for (AbstractDingTalkAuthorizingRealm realm : realms) {
+			realm.setCredentialRegistry(credentialRegistry);
+			realm.setAccessTokenCache(accessTokenCache);
+			realm.setRemoteInvoker(remoteInvoker);
+		}
+		// 只有支持该 Token 的 Realm 参与认证，直接抛出其认证异常，由失败处理器按异常类型响应
+		ModularRealmAuthenticator authenticator = new ModularRealmAuthenticator() {
+
+			@Override
+			protected AuthenticationInfo doAuthenticate(AuthenticationToken token) throws AuthenticationException {
+				for (Realm realm : getRealms()) {
+					if (realm.supports(token)) {
+						return doSingleRealmAuthentication(realm, token);
+					}
+				}
+				return super.doAuthenticate(token);
+			}
+
+		};
+		DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager();
+		securityManager.setAuthenticator(authenticator);
+		securityManager.setRealms(Arrays.<Realm>asList(realms));
+		// 无状态：不创建、不写入会话，不使用 RememberMe
+		securityManager.setRememberMeManager(null);
+		DefaultSessionStorageEvaluator sessionStorageEvaluator = new DefaultSessionStorageEvaluator();
+		sessionStorageEvaluator.setSessionStorageEnabled(false);
+		((DefaultSubjectDAO) securityManager.getSubjectDAO()).setSessionStorageEvaluator(sessionStorageEvaluator);
+		securityManager.setSubjectFactory(statelessSubjectFactory());
+		return securityManager;
+	}
+
+	/**
+	 * 与 ShiroDingTalkWebAutoConfiguration 相同：shiro.dingtalk.async.virtual-threads=true 时使用虚拟线程
+	 */
+	@Bean(name = "dingTalkAuthcExecutor")
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".async", value = "enabled", havingValue = "true")
+	public Executor dingTalkAuthcExecutor(ShiroDingTalkProperties dingtalkProperties) {
+		return DingTalkExecutors.newAuthcExecutor(dingtalkProperties.getAsync());
+	}
+
+	@Bean
+	public FilterRegistrationBean<AbstractShiroFilter> shiroFilter(DefaultWebSecurityManager securityManager, ObjectMapper objectMapper,
+			@Qualifier("dingTalkAuthcExecutor") ObjectProvider<Executor> authcExecutorProvider, ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkAuthenticationSuccessHandler successHandler = new DingTalkAuthenticationSuccessHandler(objectMapper, jwtPayloadRepository(), false);
+		DingTalkAuthenticationFailureHandler failureHandler = new DingTalkAuthenticationFailureHandler(objectMapper);
+
+		StatelessLoginFilter loginFilter = new StatelessLoginFilter(objectMapper, successHandler);
+		loginFilter.setFailureHandler(failureHandler);
+		loginFilter.addLoginFilter(SCAN_CODE_URL, new DingTalkScanCodeAuthenticatingFilter(objectMapper));
+		loginFilter.addLoginFilter(MA_URL, new DingTalkMaAuthenticatingFilter(objectMapper));
+		loginFilter.addLoginFilter(TMP_CODE_URL, new DingTalkTmpCodeAuthenticatingFilter(objectMapper));
+		loginFilter.setAsyncExecutor(authcExecutorProvider.getIfAvailable());
+		loginFilter.setAsyncTimeout(dingtalkProperties.getAsync().getTimeout().toMillis());
+		if (dingtalkProperties.getConcurrencyLimit().isEnabled()) {
+			loginFilter.setConcurrencyLimiter(new DingTalkConcurrencyLimiter(dingtalkProperties.getConcurrencyLimit()));
+		}
+
+		DefaultFilterChainManager filterChainManager = new DefaultFilterChainManager();
+		filterChainManager.addFilter("dingtalk", loginFilter);
+		filterChainManager.createChain("/login/dingtalk/**", "dingtalk");
+		PathMatchingFilterChainResolver filterChainResolver = new PathMatchingFilterChainResolver();
+		filterChainResolver.setFilterChainManager(filterChainManager);
+
+		AbstractShiroFilter shiroFilter = new AbstractShiroFilter() {
+		};
+		shiroFilter.setSecurityManager(securityManager);
+		shiroFilter.setFilterChainResolver(filterChainResolver);
+
+		FilterRegistrationBean<AbstractShiroFilter> registration = new FilterRegistrationBean<>(shiroFilter);
+		registration.addUrlPatterns("/*");
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		// 异步认证要求 ShiroFilter 开启 asyncSupported
+		registration.setAsyncSupported(true);
+		return registration;
+	}
+
+	private static SubjectFactory statelessSubjectFactory() {
+		return new DefaultWebSubjectFactory() {
+
+			@Override
+			public Subject createSubject(SubjectContext context) {
+				context.setSessionCreationEnabled(false);
+				return super.createSubject(context);
+			}
+
+		};
+	}
+
+	/**
+	 * 以 HS256 签发只含 sub、iat、exp 的 JWT，签名开销与 shiro-jwt 的默认配置相当
+	 */
+	private static JwtPayloadRepository jwtPayloadRepository() {
+		byte[] secret = "dingtalk-load-test-jwt-secret-0123456789".getBytes(StandardCharsets.UTF_8);
+		String header = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+		ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance("HmacSHA256");
+				mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+				return mac;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		return (token, subject) -> {
+			long now = System.currentTimeMillis() / 1000L;
+			ShiroDingTalkPrincipal principal = (ShiroDingTalkPrincipal) subject.getPrincipal();
+			String payload = "{\"sub\":\"" + principal.getUserid() + "\",\"iat\":" + now + ",\"exp\":" + (now + 7200) + "}";
+			String content = header + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+			byte[] signature = hmac.get().doFinal(content.getBytes(StandardCharsets.US_ASCII));
+			return content + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+		};
+	}
+
+	/**
+	 * 无状态登录过滤器：认证成功时交给 {@link DingTalkAuthenticationSuccessHandler} 写入 JWT 响应，不再继续执行过滤器链；
+	 * 登录结果写入 {@link DingTalkLoadDriver#RESULT_HEADER} 响应头，压测驱动不依赖响应体格式区分成功与失败
+	 */
+	static class StatelessLoginFilter extends DingTalkCompositeAuthenticatingFilter {
+
+		private final DingTalkAuthenticationSuccessHandler successHandler;
+
+		StatelessLoginFilter(ObjectMapper objectMapper, DingTalkAuthenticationSuccessHandler successHandler) {
+			super(objectMapper);
+			this.successHandler = successHandler;
+		}
+
+		@Override
+		protected boolean onAccessSuccess(AuthenticationToken token, Subject subject, ServletRequest request, ServletResponse response) {
+			super.onAccessSuccess(token, subject, request, response);
+			if (!response.isCommitted()) {
+				WebUtils.toHttp(response).setHeader(DingTalkLoadDriver.RESULT_HEADER, "success");
+				successHandler.onAuthenticationSuccess(token, request, response, subject);
+			}
+			return false;
+		}
+
+		@Override
+		protected boolean onAccessFailure(AuthenticationToken token, AuthenticationException e, ServletRequest request, ServletResponse response) {
+			WebUtils.toHttp(response).setHeader(DingTalkLoadDriver.RESULT_HEADER, "failure");
+			return super.onAccessFailure(token, e, request, response);
+		}
+
+		@Override
+		protected boolean onLoginSuccess(AuthenticationToken token, Subject subject, ServletRequest request, ServletResponse response) {
+			return onAccessSuccess(token, subject, request, response);
+		}
+
+		@Override
+		protected boolean onLoginFailure(AuthenticationToken token, AuthenticationException e, ServletRequest request, ServletResponse response) {
+			return onAccessFailure(token, e, request, response);
+		}
+
+	}
+
+}
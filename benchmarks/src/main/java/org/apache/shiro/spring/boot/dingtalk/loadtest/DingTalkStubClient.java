@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import com.dingtalk.api.DefaultDingTalkClient;
+import com.dingtalk.api.request.OapiGettokenRequest;
+import com.dingtalk.api.request.OapiSnsGetuserinfoBycodeRequest;
+import com.dingtalk.api.request.OapiUserGetbyunionidRequest;
+import com.dingtalk.api.request.OapiV2UserGetRequest;
+import com.dingtalk.api.request.OapiV2UserGetuserinfoRequest;
+import com.dingtalk.api.response.OapiGettokenResponse;
+import com.dingtalk.api.response.OapiSnsGetuserinfoBycodeResponse;
+import com.dingtalk.api.response.OapiUserGetbyunionidResponse;
+import com.dingtalk.api.response.OapiV2UserGetResponse;
+import com.dingtalk.api.response.OapiV2UserGetuserinfoResponse;
+import com.taobao.api.ApiException;
+import com.taobao.api.TaobaoResponse;
+
+/**
+ * 	使用钉钉 SDK 的 {@link DefaultDingTalkClient} 访问 {@link DingTalkStubServer}，
+ * 	请求的编码、签名与响应解析与访问 https://oapi.dingtalk.com 时完全一致；
+ * 	钉钉返回错误码时以错误码抛出 {@link ApiException}，与 Realm 的约定一致，便于重试策略区分暂时性错误
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkStubClient {
+
+	private final DefaultDingTalkClient tokenClient;
+	private final DefaultDingTalkClient snsClient;
+	private final DefaultDingTalkClient userInfoClient;
+	private final DefaultDingTalkClient unionidClient;
+	private final DefaultDingTalkClient userClient;
+
+	public DingTalkStubClient(String baseUrl) {
+		this.tokenClient = client(baseUrl + "/gettoken");
+		this.snsClient = client(baseUrl + "/sns/getuserinfo_bycode");
+		this.userInfoClient = client(baseUrl + "/topapi/v2/user/getuserinfo");
+		this.unionidClient = client(baseUrl + "/topapi/user/getbyunionid");
+		this.userClient = client(baseUrl + "/topapi/v2/user/get");
+	}
+
+	public String getAccessToken(String appKey, String appSecret) throws ApiException {
+		OapiGettokenRequest request = new OapiGettokenRequest();
+		request.setAppkey(appKey);
+		request.setAppsecret(appSecret);
+		request.setHttpMethod("GET");
+		OapiGettokenResponse response = tokenClient.execute(request);
+		check(response, response.getErrcode(), response.getErrmsg());
+		return response.getAccessToken();
+	}
+
+	public OapiSnsGetuserinfoBycodeResponse getUserinfoByTmpCode(String tmpAuthCode, String appKey, String appSecret) throws ApiException {
+		OapiSnsGetuserinfoBycodeRequest request = new OapiSnsGetuserinfoBycodeRequest();
+		request.setTmpAuthCode(tmpAuthCode);
+		OapiSnsGetuserinfoBycodeResponse response = snsClient.execute(request, appKey, appSecret);
+		check(response, response.getErrcode(), response.getErrmsg());
+		return response;
+	}
+
+	public OapiV2UserGetuserinfoResponse getUserInfoByCode(String code, String accessToken) throws ApiException {
+		OapiV2UserGetuserinfoRequest request = new OapiV2UserGetuserinfoRequest();
+		request.setCode(code);
+		OapiV2UserGetuserinfoResponse response = userInfoClient.execute(request, accessToken);
+		check(response, response.getErrcode(), response.getErrmsg());
+		return response;
+	}
+
+	public OapiUserGetbyunionidResponse getByUnionid(String unionid, String accessToken) throws ApiException {
+		OapiUserGetbyunionidRequest request = new OapiUserGetbyunionidRequest();
+		request.setUnionid(unionid);
+		OapiUserGetbyunionidResponse response = unionidClient.execute(request, accessToken);
+		check(response, response.getErrcode(), response.getErrmsg());
+		return response;
+	}
+
+	public OapiV2UserGetResponse getUser(String userid, String accessToken) throws ApiException {
+		OapiV2UserGetRequest request = new OapiV2UserGetRequest();
+		request.setUserid(userid);
+		request.setLanguage("zh_CN");
+		OapiV2UserGetResponse response = userClient.execute(request, accessToken);
+		check(response, response.getErrcode(), response.getErrmsg());
+		return response;
+	}
+
+	private static DefaultDingTalkClient client(String serverUrl) {
+		DefaultDingTalkClient client = new DefaultDingTalkClient(serverUrl);
+		client.setConnectTimeout(2000);
+		client.setReadTimeout(10000);
+		return client;
+	}
+
+	private static void check(TaobaoResponse response, Long errcode, String errmsg) throws ApiException {
+		if (!response.isSuccess()) {
+			throw new ApiException(String.valueOf(errcode), errmsg);
+		}
+	}
+
+}
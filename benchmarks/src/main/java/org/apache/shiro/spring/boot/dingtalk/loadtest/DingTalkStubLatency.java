@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 	钉钉桩服务的响应延迟分布
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@FunctionalInterface
+public interface DingTalkStubLatency {
+
+	DingTalkStubLatency NONE = () -> 0L;
+
+	/**
+	 * @return 下一次响应的延迟（纳秒）
+	 */
+	long nextNanos();
+
+	/**
+	 * 固定延迟
+	 * @param latency 延迟
+	 * @return 延迟分布
+	 */
+	static DingTalkStubLatency fixed(Duration latency) {
+		long nanos = latency.toNanos();
+		return () -> nanos;
+	}
+
+	/**
+	 * 均匀分布
+	 * @param min 最小延迟
+	 * @param max 最大延迟
+	 * @return 延迟分布
+	 */
+	static DingTalkStubLatency uniform(Duration min, Duration max) {
+		long minNanos = min.toNanos();
+		long maxNanos = Math.max(minNanos + 1, max.toNanos());
+		return () -> ThreadLocalRandom.current().nextLong(minNanos, maxNanos);
+	}
+
+	/**
+	 * 对数正态分布：由中位数与 p99 确定参数，接近真实远程调用的长尾形态
+	 * @param p50 中位延迟
+	 * @param p99 99 分位延迟，不小于 p50
+	 * @return 延迟分布
+	 */
+	static DingTalkStubLatency logNormal(Duration p50, Duration p99) {
+		double mu = Math.log(Math.max(1, p50.toNanos()));
+		// 标准正态分布的 99 分位点
+		double sigma = Math.max(0, Math.log(Math.max(1, p99.toNanos())) - mu) / 2.326348;
+		return () -> (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+	}
+
+	/**
+	 * 解析命令行中的延迟分布：none、fixed:20ms、uniform:10ms-50ms、lognormal:20ms-200ms（p50-p99）
+	 * @param spec 延迟分布描述
+	 * @return 延迟分布
+	 */
+	static DingTalkStubLatency parse(String spec) {
+		if (spec == null || spec.isEmpty() || "none".equalsIgnoreCase(spec)) {
+			return NONE;
+		}
+		int colon = spec.indexOf(':');
+		String type = colon < 0 ? spec : spec.substring(0, colon);
+		String args = colon < 0 ? "" : spec.substring(colon + 1);
+		String[] bounds = args.split("-");
+		switch (type.toLowerCase()) {
+		case "fixed":
+			return fixed(duration(bounds[0]));
+		case "uniform":
+			return uniform(duration(bounds[0]), duration(bounds[1]));
+		case "lognormal":
+			return logNormal(duration(bounds[0]), duration(bounds[1]));
+		default:
+			throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+		}
+	}
+
+	/**
+	 * 解析 20ms、1s、500us 形式的时长
+	 */
+	static Duration duration(String value) {
+		String text = value.trim().toLowerCase();
+		if (text.endsWith("ms")) {
+			return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+		}
+		if (text.endsWith("us")) {
+			return Duration.ofNanos(Long.parseLong(text.substring(0, text.length() - 2)) * 1000L);
+		}
+		if (text.endsWith("s")) {
+			return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+		}
+		return Duration.ofMillis(Long.parseLong(text));
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.realm.AbstractDingTalkAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkMaAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkScanCodeAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkTempCodeAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+
+import com.dingtalk.api.response.OapiV2UserGetResponse;
+import com.taobao.api.ApiException;
+
+/**
+ * 	访问 {@link DingTalkStubServer} 的 Realm：认证流程、凭证查找、AccessToken 缓存与远程调用策略均使用 starter 本身的实现，
+ * 	只将 DingTalkTemplate 发起的钉钉调用替换为 {@link DingTalkStubClient}，将 Repository 替换为按 userid 查询钉钉通讯录
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkStubRealms {
+
+	private DingTalkStubRealms() {
+	}
+
+	/**
+	 * 扫码登录：临时授权码换取用户信息经由 {@link #invoke} 访问桩服务，再以 unionid 查询用户详情
+	 */
+	public static class ScanCode extends DingTalkScanCodeAuthorizingRealm {
+
+		private static final ThreadLocal<DingTalkScanCodeLoginRequest> LOGIN_REQUEST = new ThreadLocal<>();
+		private final DingTalkStubClient client;
+
+		public ScanCode(DingTalkStubClient client) {
+			super(null);
+			this.client = client;
+			configure(this);
+		}
+
+		@Override
+		protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+			LOGIN_REQUEST.set((DingTalkScanCodeLoginRequest) token.getPrincipal());
+			try {
+				return super.doGetAuthenticationInfo(token);
+			} finally {
+				LOGIN_REQUEST.remove();
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+			DingTalkScanCodeLoginRequest loginRequest = LOGIN_REQUEST.get();
+			if (operation != DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE || loginRequest == null) {
+				return super.invoke(appKey, operation, call);
+			}
+			String appSecret = getAppCredential(appKey).getAppSecret();
+			return super.invoke(appKey, operation, () -> (T) client.getUserinfoByTmpCode(loginRequest.getLoginTmpCode(), appKey, appSecret));
+		}
+
+		@Override
+		protected AuthenticationInfo lookupRepository(AuthenticationToken token) throws AuthenticationException {
+			DingTalkScanCodeAuthenticationToken dingTalkToken = (DingTalkScanCodeAuthenticationToken) token;
+			DingTalkScanCodeLoginRequest loginRequest = (DingTalkScanCodeLoginRequest) dingTalkToken.getPrincipal();
+			DingTalkAppCredential credential = getAppCredential(loginRequest.getKey());
+			try {
+				String accessToken = getAccessToken(credential.getAppKey(), credential.getAppSecret());
+				String userid = client.getByUnionid(dingTalkToken.getUnionid(), accessToken).getResult().getUserid();
+				return authenticationInfo(client.getUser(userid, accessToken).getResult(), getName());
+			} catch (ApiException e) {
+				throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
+			}
+		}
+
+	}
+
+	/**
+	 * 小程序免登：以 authCode 与 Realm 获取的 AccessToken 查询 userid 与用户详情
+	 */
+	public static class Ma extends DingTalkMaAuthorizingRealm {
+
+		private final DingTalkStubClient client;
+
+		public Ma(DingTalkStubClient client) {
+			super(null);
+			this.client = client;
+			configure(this);
+		}
+
+		@Override
+		protected AuthenticationInfo lookupRepository(AuthenticationToken token) throws AuthenticationException {
+			DingTalkMaLoginRequest loginRequest = (DingTalkMaLoginRequest) ((DingTalkMaAuthenticationToken) token).getPrincipal();
+			return lookupByCode(client, loginRequest.getAuthCode(), loginRequest.getAccessToken(), getName());
+		}
+
+	}
+
+	/**
+	 * 企业内部应用免登：以 code 与 Realm 获取的 AccessToken 查询 userid 与用户详情
+	 */
+	public static class TmpCode extends DingTalkTempCodeAuthorizingRealm {
+
+		private final DingTalkStubClient client;
+
+		public TmpCode(DingTalkStubClient client) {
+			super(null);
+			this.client = client;
+			configure(this);
+		}
+
+		@Override
+		protected AuthenticationInfo lookupRepository(AuthenticationToken token) throws AuthenticationException {
+			DingTalkTmpCodeLoginRequest loginRequest = (DingTalkTmpCodeLoginRequest) ((DingTalkTmpCodeAuthenticationToken) token).getPrincipal();
+			return lookupByCode(client, loginRequest.getCode(), loginRequest.getAccessToken(), getName());
+		}
+
+	}
+
+	/**
+	 * Repository 返回的认证信息不含凭证，不做凭证比对；无状态登录不需要授权缓存
+	 */
+	private static void configure(AbstractDingTalkAuthorizingRealm realm) {
+		realm.setName(realm.getClass().getSuperclass().getSimpleName());
+		realm.setCredentialsMatcher(new AllowAllCredentialsMatcher());
+		realm.setAuthorizationCachingEnabled(false);
+	}
+
+	private static AuthenticationInfo lookupByCode(DingTalkStubClient client, String code, String accessToken, String realmName) {
+		try {
+			String userid = client.getUserInfoByCode(code, accessToken).getResult().getUserid();
+			return authenticationInfo(client.getUser(userid, accessToken).getResult(), realmName);
+		} catch (ApiException e) {
+			throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
+		}
+	}
+
+	private static AuthenticationInfo authenticationInfo(OapiV2UserGetResponse.UserGetResponse user, String realmName) {
+		ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+		principal.setUserid(user.getUserid());
+		principal.setUnionid(user.getUnionid());
+		principal.setName(user.getName());
+		principal.setAvatar(user.getAvatar());
+		principal.setStateCode(user.getStateCode());
+		principal.setMobile(user.getMobile());
+		principal.setTel(user.getTelephone());
+		principal.setJobnumber(user.getJobNumber());
+		principal.setPosition(user.getTitle());
+		principal.setEmail(user.getEmail());
+		principal.setOrgEmail(user.getOrgEmail());
+		principal.setWorkPlace(user.getWorkPlace());
+		principal.setRemark(user.getRemark());
+		principal.setExtattr(user.getExtension());
+		principal.setDepartment(String.valueOf(user.getDeptIdList()));
+		principal.setHiredDate(user.getHiredDate() == null ? null : String.valueOf(user.getHiredDate()));
+		principal.setActive(String.valueOf(user.getActive()));
+		principal.setAdmin(Boolean.TRUE.equals(user.getAdmin()));
+		principal.setBoss(Boolean.TRUE.equals(user.getBoss()));
+		principal.setSenior(Boolean.TRUE.equals(user.getSenior()));
+		principal.setHide(Boolean.TRUE.equals(user.getHideMobile()));
+		return new SimpleAuthenticationInfo(principal, null, realmName);
+	}
+
+}
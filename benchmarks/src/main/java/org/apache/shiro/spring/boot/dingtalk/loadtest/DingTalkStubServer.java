@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 	嵌入式钉钉开放接口桩服务（JDK HttpServer），模拟 Realm 与用户查询使用的接口：
+ * 	/gettoken、/sns/getuserinfo_bycode、/topapi/v2/user/getuserinfo、/topapi/user/getbyunionid、/topapi/v2/user/get；
+ * 	支持可配置的延迟分布、错误注入、按 AppKey 的每秒调用次数上限与一次性授权码校验。
+ * 	延迟通过定时发送响应模拟，不占用处理线程，少量线程即可承载高并发的慢响应
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkStubServer implements Closeable {
+
+	/** 系统繁忙 */
+	public static final long ERRCODE_SYSTEM_BUSY = -1;
+	/** 不合法的 AppKey 或 AppSecret */
+	public static final long ERRCODE_INVALID_APP = 40089;
+	/** 不合法的 access_token */
+	public static final long ERRCODE_INVALID_ACCESS_TOKEN = 40014;
+	/** 授权码无效或已使用 */
+	public static final long ERRCODE_CODE_USED = 40078;
+	/** 超过每秒调用次数上限 */
+	public static final long ERRCODE_QPS_LIMIT = 90018;
+
+	private static final Logger LOG = LoggerFactory.getLogger(DingTalkStubServer.class);
+	private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<Map<String, Object>>() {};
+
+	static {
+		// JDK HttpServer 默认开启 Nagle 算法，响应头与响应体分开写出时与客户端的延迟确认叠加，每次调用多出约 40ms
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpServer server;
+	private final ExecutorService handlerExecutor;
+	private final ScheduledExecutorService responseScheduler;
+
+	private final Map<String, String> appSecrets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, String> accessTokens = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, QpsWindow> qpsWindows = new ConcurrentHashMap<>();
+	private final Map<String, Integer> appQpsLimits = new ConcurrentHashMap<>();
+	private final Map<String, DingTalkStubLatency> pathLatencies = new ConcurrentHashMap<>();
+	private final Set<String> usedCodes = ConcurrentHashMap.newKeySet();
+	private final AtomicLong tokenSequence = new AtomicLong();
+
+	private volatile DingTalkStubLatency latency = DingTalkStubLatency.NONE;
+	private volatile double errorRate;
+	private volatile long errorCode = ERRCODE_SYSTEM_BUSY;
+	private volatile double httpErrorRate;
+	private volatile int qpsLimit;
+	private volatile int users = 10000;
+	private volatile boolean singleUseCodes = true;
+
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder injectedErrorCount = new LongAdder();
+	private final LongAdder throttledCount = new LongAdder();
+	private final LongAdder rejectedCodeCount = new LongAdder();
+
+	/**
+	 * @param port 监听端口，0 表示随机端口
+	 * @param threads 处理线程数
+	 * @throws IOException 端口绑定失败
+	 */
+	public DingTalkStubServer(int port, int threads) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+		CustomizableThreadFactory handlerThreads = new CustomizableThreadFactory("dingtalk-stub-");
+		handlerThreads.setDaemon(true);
+		this.handlerExecutor = Executors.newFixedThreadPool(Math.max(1, threads), handlerThreads);
+		CustomizableThreadFactory responseThreads = new CustomizableThreadFactory("dingtalk-stub-response-");
+		responseThreads.setDaemon(true);
+		this.responseScheduler = Executors.newScheduledThreadPool(Math.max(1, threads / 2), responseThreads);
+		this.server.setExecutor(handlerExecutor);
+		this.server.createContext("/", this::handle);
+	}
+
+	public DingTalkStubServer start() {
+		server.start();
+		LOG.info("DingTalk stub server listening on {}.", getBaseUrl());
+		return this;
+	}
+
+	/**
+	 * 注册应用：只有注册过的应用可以获取 access_token
+	 * @param appKey 应用的唯一标识key
+	 * @param appSecret 应用的密钥
+	 * @return 当前桩服务
+	 */
+	public DingTalkStubServer registerApp(String appKey, String appSecret) {
+		appSecrets.put(appKey, appSecret);
+		return this;
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public String getBaseUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + getPort();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		responseScheduler.shutdownNow();
+		handlerExecutor.shutdownNow();
+	}
+
+	protected void handle(HttpExchange exchange) throws IOException {
+		requestCount.increment();
+		String path = exchange.getRequestURI().getPath();
+		Map<String, String> params;
+		try {
+			params = params(exchange);
+		} catch (IOException | RuntimeException e) {
+			respond(exchange, 400, error(400, "invalid request: " + e.getMessage()), 0);
+			return;
+		}
+		DingTalkStubLatency pathLatency = pathLatencies.get(path);
+		long delay = (pathLatency != null ? pathLatency : latency).nextNanos();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (httpErrorRate > 0 && random.nextDouble() < httpErrorRate) {
+			injectedErrorCount.increment();
+			respond(exchange, 502, null, delay);
+			return;
+		}
+		String appKey = appKeyOf(path, params);
+		if (appKey != null && isThrottled(appKey)) {
+			throttledCount.increment();
+			respond(exchange, 200, error(ERRCODE_QPS_LIMIT, "app qps limit exceeded"), delay);
+			return;
+		}
+		if (errorRate > 0 && random.nextDouble() < errorRate) {
+			injectedErrorCount.increment();
+			respond(exchange, 200, error(errorCode, "injected error"), delay);
+			return;
+		}
+		respond(exchange, 200, dispatch(path, params, appKey), delay);
+	}
+
+	protected Map<String, Object> dispatch(String path, Map<String, String> params, String appKey) {
+		switch (path) {
+		case "/gettoken":
+			return getToken(params.get("appkey"), params.get("appsecret"));
+		case "/sns/getuserinfo_bycode":
+			if (appKey == null || !appSecrets.containsKey(appKey)) {
+				return error(ERRCODE_INVALID_APP, "invalid accessKey");
+			}
+			return getUserInfoByTmpCode(params.get("tmp_auth_code"));
+		case "/topapi/v2/user/getuserinfo":
+			if (appKey == null) {
+				return error(ERRCODE_INVALID_ACCESS_TOKEN, "invalid access_token");
+			}
+			return getUserInfoByCode(params.get("code"));
+		case "/topapi/user/getbyunionid":
+			if (appKey == null) {
+				return error(ERRCODE_INVALID_ACCESS_TOKEN, "invalid access_token");
+			}
+			return getByUnionid(params.get("unionid"));
+		case "/topapi/v2/user/get":
+			if (appKey == null) {
+				return error(ERRCODE_INVALID_ACCESS_TOKEN, "invalid access_token");
+			}
+			return getUser(params.get("userid"));
+		default:
+			return error(404, "unknown api " + path);
+		}
+	}
+
+	protected Map<String, Object> getToken(String appKey, String appSecret) {
+		if (appKey == null || appSecret == null || !appSecret.equals(appSecrets.get(appKey))) {
+			return error(ERRCODE_INVALID_APP, "invalid appkey or appsecret");
+		}
+		String accessToken = "stub" + Long.toHexString(tokenSequence.incrementAndGet()) + Integer.toHexString(appKey.hashCode());
+		accessTokens.put(accessToken, appKey);
+		Map<String, Object> response = ok();
+		response.put("access_token", accessToken);
+		response.put("expires_in", 7200);
+		return response;
+	}
+
+	protected Map<String, Object> getUserInfoByTmpCode(String tmpAuthCode) {
+		if (!useCode(tmpAuthCode)) {
+			return error(ERRCODE_CODE_USED, "tmp_auth_code is invalid or used");
+		}
+		int user = userOf(tmpAuthCode);
+		Map<String, Object> userInfo = new LinkedHashMap<>();
+		userInfo.put("nick", "user" + user);
+		userInfo.put("unionid", unionidOf(user));
+		userInfo.put("openid", "open" + user);
+		userInfo.put("main_org_auth_high_level", Boolean.TRUE);
+		Map<String, Object> response = ok();
+		response.put("user_info", userInfo);
+		return response;
+	}
+
+	protected Map<String, Object> getUserInfoByCode(String code) {
+		if (!useCode(code)) {
+			return error(ERRCODE_CODE_USED, "code is invalid or used");
+		}
+		int user = userOf(code);
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("userid", useridOf(user));
+		result.put("unionid", unionidOf(user));
+		result.put("name", "user" + user);
+		result.put("device_id", "device" + user);
+		result.put("sys", Boolean.FALSE);
+		result.put("sys_level", 0);
+		Map<String, Object> response = ok();
+		response.put("result", result);
+		return response;
+	}
+
+	protected Map<String, Object> getByUnionid(String unionid) {
+		if (unionid == null || !unionid.startsWith("union")) {
+			return error(60121, "user not found");
+		}
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("contact_type", 0);
+		result.put("userid", "user" + unionid.substring("union".length()));
+		Map<String, Object> response = ok();
+		response.put("result", result);
+		return response;
+	}
+
+	protected Map<String, Object> getUser(String userid) {
+		if (userid == null || !userid.startsWith("user")) {
+			return error(60121, "user not found");
+		}
+		String user = userid.substring("user".length());
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("userid", userid);
+		result.put("unionid", "union" + user);
+		result.put("name", "user" + user);
+		result.put("avatar", "https://static.dingtalk.com/media/avatar" + user + ".jpg");
+		result.put("state_code", "86");
+		result.put("mobile", "138" + String.format("%08d", Math.abs(user.hashCode()) % 100000000));
+		result.put("hide_mobile", Boolean.FALSE);
+		result.put("telephone", "");
+		result.put("job_number", user);
+		result.put("title", "engineer");
+		result.put("email", userid + "@example.com");
+		result.put("work_place", "Hangzhou");
+		result.put("remark", "");
+		result.put("dept_id_list", Arrays.asList(1, 2));
+		result.put("extension", "{}");
+		result.put("hired_date", 1520265600000L);
+		result.put("active", Boolean.TRUE);
+		result.put("admin", Boolean.FALSE);
+		result.put("boss", Boolean.FALSE);
+		result.put("senior", Boolean.FALSE);
+		Map<String, Object> response = ok();
+		response.put("result", result);
+		return response;
+	}
+
+	/**
+	 * 解析查询参数与请求体参数（表单或 JSON）
+	 */
+	protected Map<String, String> params(HttpExchange exchange) throws IOException {
+		Map<String, String> params = new HashMap<>();
+		parseForm(exchange.getRequestURI().getRawQuery(), params);
+		byte[] body = readBody(exchange.getRequestBody());
+		if (body.length > 0) {
+			String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+			if (contentType != null && contentType.contains("json")) {
+				for (Map.Entry<String, Object> entry : objectMapper.readValue(body, JSON_MAP).entrySet()) {
+					params.put(entry.getKey(), entry.getValue() == null ? null : String.valueOf(entry.getValue()));
+				}
+			} else {
+				parseForm(new String(body, StandardCharsets.UTF_8), params);
+			}
+		}
+		return params;
+	}
+
+	protected void respond(HttpExchange exchange, int status, Map<String, Object> body, long delayNanos) {
+		Runnable send = () -> {
+			try {
+				if (body == null) {
+					exchange.sendResponseHeaders(status, -1);
+				} else {
+					byte[] bytes = objectMapper.writeValueAsBytes(body);
+					exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+					exchange.sendResponseHeaders(status, bytes.length);
+					try (OutputStream output = exchange.getResponseBody()) {
+						output.write(bytes);
+					}
+				}
+			} catch (IOException e) {
+				LOG.debug("Unable to write DingTalk stub response.", e);
+			} finally {
+				exchange.close();
+			}
+		};
+		if (delayNanos <= 0) {
+			send.run();
+		} else {
+			responseScheduler.schedule(send, delayNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private String appKeyOf(String path, Map<String, String> params) {
+		if ("/gettoken".equals(path)) {
+			return params.get("appkey");
+		}
+		if ("/sns/getuserinfo_bycode".equals(path)) {
+			return params.get("accessKey");
+		}
+		String accessToken = params.get("access_token");
+		return accessToken == null ? null : accessTokens.get(accessToken);
+	}
+
+	/**
+	 * 按 AppKey 的每秒固定窗口计数，与钉钉按秒统计调用次数的方式一致
+	 */
+	private boolean isThrottled(String appKey) {
+		int limit = appQpsLimits.getOrDefault(appKey, qpsLimit);
+		if (limit <= 0) {
+			return false;
+		}
+		return !qpsWindows.computeIfAbsent(appKey, key -> new QpsWindow()).tryAcquire(limit);
+	}
+
+	private boolean useCode(String code) {
+		if (code == null || code.isEmpty()) {
+			rejectedCodeCount.increment();
+			return false;
+		}
+		if (singleUseCodes && !usedCodes.add(code)) {
+			rejectedCodeCount.increment();
+			return false;
+		}
+		return true;
+	}
+
+	private int userOf(String code) {
+		return Math.floorMod(code.hashCode(), Math.max(1, users));
+	}
+
+	private static String unionidOf(int user) {
+		return "union" + user;
+	}
+
+	private static String useridOf(int user) {
+		return "user" + user;
+	}
+
+	private static Map<String, Object> ok() {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("errcode", 0);
+		response.put("errmsg", "ok");
+		return response;
+	}
+
+	private static Map<String, Object> error(long errcode, String errmsg) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("errcode", errcode);
+		response.put("errmsg", errmsg);
+		return response;
+	}
+
+	private static byte[] readBody(InputStream input) throws IOException {
+		try (InputStream in = input) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		}
+	}
+
+	private static void parseForm(String form, Map<String, String> params) throws UnsupportedEncodingException {
+		if (form == null || form.isEmpty()) {
+			return;
+		}
+		for (String pair : form.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		}
+	}
+
+	private static final class QpsWindow {
+
+		private long second;
+		private int count;
+
+		synchronized boolean tryAcquire(int limit) {
+			long now = System.nanoTime() / 1_000_000_000L;
+			if (now != second) {
+				second = now;
+				count = 0;
+			}
+			return ++count <= limit;
+		}
+
+	}
+
+	public DingTalkStubLatency getLatency() {
+		return latency;
+	}
+
+	public void setLatency(DingTalkStubLatency latency) {
+		this.latency = latency == null ? DingTalkStubLatency.NONE : latency;
+	}
+
+	/**
+	 * 设置指定接口的延迟分布，覆盖全局延迟
+	 * @param path 接口路径，如 /sns/getuserinfo_bycode
+	 * @param latency 延迟分布
+	 */
+	public void setPathLatency(String path, DingTalkStubLatency latency) {
+		pathLatencies.put(path, latency);
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	/**
+	 * @param errorRate 以 {@link #getErrorCode()} 失败的请求比例（0~1）
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public long getErrorCode() {
+		return errorCode;
+	}
+
+	public void setErrorCode(long errorCode) {
+		this.errorCode = errorCode;
+	}
+
+	public double getHttpErrorRate() {
+		return httpErrorRate;
+	}
+
+	/**
+	 * @param httpErrorRate 以 HTTP 502 失败（没有钉钉错误码）的请求比例（0~1）
+	 */
+	public void setHttpErrorRate(double httpErrorRate) {
+		this.httpErrorRate = httpErrorRate;
+	}
+
+	public int getQpsLimit() {
+		return qpsLimit;
+	}
+
+	/**
+	 * @param qpsLimit 每个 AppKey 每秒调用次数上限，0 表示不限制
+	 */
+	public void setQpsLimit(int qpsLimit) {
+		this.qpsLimit = qpsLimit;
+	}
+
+	public void setAppQpsLimit(String appKey, int qpsLimit) {
+		appQpsLimits.put(appKey, qpsLimit);
+	}
+
+	public int getUsers() {
+		return users;
+	}
+
+	/**
+	 * @param users 授权码映射到的用户数量
+	 */
+	public void setUsers(int users) {
+		this.users = users;
+	}
+
+	public boolean isSingleUseCodes() {
+		return singleUseCodes;
+	}
+
+	public void setSingleUseCodes(boolean singleUseCodes) {
+		this.singleUseCodes = singleUseCodes;
+	}
+
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	public long getInjectedErrorCount() {
+		return injectedErrorCount.sum();
+	}
+
+	public long getThrottledCount() {
+		return throttledCount.sum();
+	}
+
+	public long getRejectedCodeCount() {
+		return rejectedCodeCount.sum();
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.realm;
+
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.APP_KEY;
+import static org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures.HOST;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
+import org.apache.shiro.spring.boot.dingtalk.DingTalkBenchmarkFixtures;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 	三种 Realm 的认证过程：钉钉远程调用由 {@link DingTalkBenchmarkFixtures.StubDingTalkRemoteInvoker} 在内存中返回，
+ * 	Repository 查询返回预先构造的认证信息，只衡量 Realm 自身的开销（凭证查找、Token 处理、监听器与审计的判断）
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DingTalkRealmBenchmark {
+
+	private DingTalkMaAuthorizingRealm maRealm;
+	private DingTalkScanCodeAuthorizingRealm scanCodeRealm;
+	private DingTalkTempCodeAuthorizingRealm tmpCodeRealm;
+	private DingTalkMaAuthenticationToken maToken;
+	private DingTalkScanCodeAuthenticationToken scanCodeToken;
+	private DingTalkTmpCodeAuthenticationToken tmpCodeToken;
+
+	@Setup
+	public void setup() {
+		AuthenticationInfo info = new SimpleAuthenticationInfo(DingTalkBenchmarkFixtures.principal(), null, "DingTalk");
+		maRealm = configure(new DingTalkMaAuthorizingRealm(null) {
+			@Override
+			protected AuthenticationInfo lookupRepository(AuthenticationToken token) {
+				return info;
+			}
+		});
+		scanCodeRealm = configure(new DingTalkScanCodeAuthorizingRealm(null) {
+			@Override
+			protected AuthenticationInfo lookupRepository(AuthenticationToken token) {
+				return info;
+			}
+		});
+		tmpCodeRealm = configure(new DingTalkTempCodeAuthorizingRealm(null) {
+			@Override
+			protected AuthenticationInfo lookupRepository(AuthenticationToken token) {
+				return info;
+			}
+		});
+		maToken = new DingTalkMaAuthenticationToken(new DingTalkMaLoginRequest(APP_KEY, "", "b0f6c8e2d4a1937f"), HOST);
+		scanCodeToken = new DingTalkScanCodeAuthenticationToken(new DingTalkScanCodeLoginRequest(APP_KEY, "", "4c9e2a7b1f3d8e60"), HOST);
+		tmpCodeToken = new DingTalkTmpCodeAuthenticationToken(new DingTalkTmpCodeLoginRequest(APP_KEY, "", "9a3b5c7d1e2f4a6b"), HOST);
+	}
+
+	@Benchmark
+	public AuthenticationInfo ma() {
+		return maRealm.getAuthenticationInfo(maToken);
+	}
+
+	@Benchmark
+	public AuthenticationInfo scanCode() {
+		return scanCodeRealm.getAuthenticationInfo(scanCodeToken);
+	}
+
+	@Benchmark
+	public AuthenticationInfo tmpCode() {
+		return tmpCodeRealm.getAuthenticationInfo(tmpCodeToken);
+	}
+
+	private static <R extends AbstractDingTalkAuthorizingRealm> R configure(R realm) {
+		realm.setName(realm.getClass().getSuperclass().getSimpleName());
+		realm.setCredentialsMatcher(new AllowAllCredentialsMatcher());
+		realm.setCredentialRegistry(DingTalkBenchmarkFixtures.credentialRegistry());
+		realm.setRemoteInvoker(new DingTalkBenchmarkFixtures.StubDingTalkRemoteInvoker());
+		return realm;
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.apache.shiro.spring.boot;
+
+import java.util.concurrent.Executor;
+
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.authc.AbstractDingTalkAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.ledger.DingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.realm.AbstractDingTalkAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Servlet 应用中由使用者定义的钉钉 Realm 与登录过滤器通过 setter 装配可选组件：
+ * 初始化前把容器中唯一存在的凭证索引、AccessToken 缓存、授权码台账、远程调用、认证信息缓存、监听分发、登录审计、
+ * 指标、失败处理、JWT 声明缓存与异步认证线程池设置到尚未设置对应组件的 {@link AbstractDingTalkAuthorizingRealm}
+ * 与 {@link AbstractDingTalkAuthenticatingFilter}，已手动设置的组件保持不变
+ */
+public class ShiroDingTalkComponentPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+	public static final String AUTHC_EXECUTOR_BEAN_NAME = "dingTalkAuthcExecutor";
+
+	private ListableBeanFactory beanFactory;
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof AbstractDingTalkAuthorizingRealm) {
+			applyTo((AbstractDingTalkAuthorizingRealm) bean);
+		} else if (bean instanceof AbstractDingTalkAuthenticatingFilter) {
+			applyTo((AbstractDingTalkAuthenticatingFilter) bean);
+		}
+		return bean;
+	}
+
+	protected void applyTo(AbstractDingTalkAuthorizingRealm realm) {
+		if (realm.getCredentialRegistry() == null) {
+			realm.setCredentialRegistry(getIfUnique(DingTalkAppCredentialRegistry.class));
+		}
+		if (realm.getAccessTokenCache() == null) {
+			realm.setAccessTokenCache(getIfUnique(DingTalkAccessTokenCache.class));
+		}
+		if (realm.getAuthCodeLedger() == null) {
+			realm.setAuthCodeLedger(getIfUnique(DingTalkAuthCodeLedger.class));
+		}
+		if (realm.getRemoteInvoker() == null || realm.getRemoteInvoker() == DingTalkRemoteInvoker.DIRECT) {
+			DingTalkRemoteInvoker remoteInvoker = getIfUnique(DingTalkRemoteInvoker.class);
+			if (remoteInvoker != null) {
+				realm.setRemoteInvoker(remoteInvoker);
+			}
+		}
+		if (realm.getAuthenticationInfoCache() == null) {
+			realm.setAuthenticationInfoCache(getIfUnique(DingTalkAuthenticationInfoCache.class));
+		}
+		if (realm.getListenerDispatcher() == null) {
+			realm.setListenerDispatcher(getIfUnique(DingTalkRealmListenerDispatcher.class));
+		}
+		if (realm.getLoginAuditor() == null) {
+			realm.setLoginAuditor(getIfUnique(DingTalkLoginAuditor.class));
+		}
+		if (realm.getMetrics() == null) {
+			realm.setMetrics(getIfUnique(DingTalkMetrics.class));
+		}
+	}
+
+	protected void applyTo(AbstractDingTalkAuthenticatingFilter filter) {
+		if (filter.getConcurrencyLimiter() == null) {
+			filter.setConcurrencyLimiter(getIfUnique(DingTalkConcurrencyLimiter.class));
+		}
+		if (filter.getMetrics() == null) {
+			filter.setMetrics(getIfUnique(DingTalkMetrics.class));
+		}
+		if (filter.getFailureHandler() == null) {
+			filter.setFailureHandler(getIfUnique(DingTalkAuthenticationFailureHandler.class));
+		}
+		if (filter.getClaimsCache() == null) {
+			filter.setClaimsCache(getIfUnique(DingTalkJwtClaimsCache.class));
+		}
+		if (filter.getAsyncExecutor() == null && beanFactory.containsBean(AUTHC_EXECUTOR_BEAN_NAME)) {
+			filter.setAsyncExecutor(beanFactory.getBean(AUTHC_EXECUTOR_BEAN_NAME, Executor.class));
+			ShiroDingTalkProperties dingtalkProperties = getIfUnique(ShiroDingTalkProperties.class);
+			if (dingtalkProperties != null && filter.getAsyncTimeout() == AbstractDingTalkAuthenticatingFilter.DEFAULT_ASYNC_TIMEOUT) {
+				filter.setAsyncTimeout(dingtalkProperties.getAsync().getTimeout().toMillis());
+			}
+		}
+	}
+
+	private <T> T getIfUnique(Class<T> type) {
+		return beanFactory.getBeanProvider(type).getIfUnique();
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = (ListableBeanFactory) beanFactory;
+	}
+
+}
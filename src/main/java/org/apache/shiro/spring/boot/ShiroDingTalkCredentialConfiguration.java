@@ -0,0 +1,29 @@
+package org.apache.shiro.spring.boot;
+
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRefresher;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Servlet 与 WebFlux 自动配置共用的钉钉应用凭证配置，由两者通过 @Import 引入，凭证注册表只定义一次
+ */
+@Configuration
+public class ShiroDingTalkCredentialConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkAppCredentialRegistry dingTalkAppCredentialRegistry(ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkAppCredentialRegistry(dingtalkProperties);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkAppCredentialRefresher dingTalkAppCredentialRefresher(DingTalkAppCredentialRegistry credentialRegistry,
+			Environment environment) {
+		return new DingTalkAppCredentialRefresher(credentialRegistry, environment);
+	}
+
+}
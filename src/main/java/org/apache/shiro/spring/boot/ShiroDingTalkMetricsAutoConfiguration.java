@@ -0,0 +1,72 @@
+package org.apache.shiro.spring.boot;
+
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMeterBinder;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.metrics.MicrometerDingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 钉钉登录 Micrometer 指标自动配置：仅在类路径中存在 Micrometer 且应用配置了 MeterRegistry 时生效，
+ * 否则不创建 {@link DingTalkMetrics}，各组件不计时
+ */
+@Configuration
+@AutoConfigureAfter(name = {
+	"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+	"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"
+})
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
+@EnableConfigurationProperties({ ShiroDingTalkProperties.class })
+public class ShiroDingTalkMetricsAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".metrics", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public DingTalkMetrics dingTalkMetrics(MeterRegistry meterRegistry, ShiroDingTalkProperties dingtalkProperties) {
+		return new MicrometerDingTalkMetrics(meterRegistry, dingtalkProperties.getMetrics());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".metrics", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public DingTalkMeterBinder dingTalkMeterBinder(
+			ObjectProvider<DingTalkRemoteInvoker> remoteInvokerProvider,
+			ObjectProvider<DingTalkAccessTokenCache> accessTokenCacheProvider,
+			ObjectProvider<DingTalkJwtClaimsCache> claimsCacheProvider,
+			ObjectProvider<DingTalkAuthenticationInfoCache> authenticationInfoCacheProvider,
+			ObjectProvider<DingTalkConcurrencyLimiter> concurrencyLimiterProvider,
+			ObjectProvider<DingTalkRealmListenerDispatcher> listenerDispatcherProvider,
+			ObjectProvider<DingTalkLoginAuditor> loginAuditorProvider,
+			ObjectProvider<DingTalkAuthenticationFailureHandler> failureHandlerProvider) {
+		DingTalkMeterBinder meterBinder = new DingTalkMeterBinder();
+		meterBinder.setRemoteInvoker(remoteInvokerProvider.getIfAvailable());
+		meterBinder.setAccessTokenCache(accessTokenCacheProvider.getIfAvailable());
+		meterBinder.setClaimsCache(claimsCacheProvider.getIfAvailable());
+		meterBinder.setAuthenticationInfoCache(authenticationInfoCacheProvider.getIfAvailable());
+		meterBinder.setConcurrencyLimiter(concurrencyLimiterProvider.getIfAvailable());
+		meterBinder.setListenerDispatcher(listenerDispatcherProvider.getIfAvailable());
+		meterBinder.setLoginAuditor(loginAuditorProvider.getIfAvailable());
+		meterBinder.setFailureHandler(failureHandlerProvider.getIfAvailable());
+		return meterBinder;
+	}
+
+}
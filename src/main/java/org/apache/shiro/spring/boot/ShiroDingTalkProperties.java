@@ -17,9 +17,23 @@ package org.apache.shiro.spring.boot;
 
 import java.util.List;
 
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAccessTokenProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAsyncProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuditProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuthCodeLedgerProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
 import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkCropAppProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkHedgingProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtCacheProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtIssuerProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkListenerProperties;
 import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkLoginProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkMetricsProperties;
 import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkPersonalMiniAppProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkReactiveProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRepositoryCacheProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
 import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkSuiteProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -59,6 +73,66 @@ public class ShiroDingTalkProperties {
 	 *	 移动接入应用：扫码登录配置
 	 */
 	private List<ShiroDingTalkLoginProperties> logins;
+	/**
+	 *	 AccessToken 缓存配置
+	 */
+	private ShiroDingTalkAccessTokenProperties accessToken = new ShiroDingTalkAccessTokenProperties();
+	/**
+	 *	 无状态模式下已签发 JWT 的声明缓存配置
+	 */
+	private ShiroDingTalkJwtCacheProperties jwtCache = new ShiroDingTalkJwtCacheProperties();
+	/**
+	 *	 登录成功时快速签发 JWT 的配置
+	 */
+	private ShiroDingTalkJwtIssuerProperties jwtIssuer = new ShiroDingTalkJwtIssuerProperties();
+	/**
+	 *	 一次性授权码台账配置
+	 */
+	private ShiroDingTalkAuthCodeLedgerProperties authCodeLedger = new ShiroDingTalkAuthCodeLedgerProperties();
+	/**
+	 *	 Repository 认证信息缓存配置
+	 */
+	private ShiroDingTalkRepositoryCacheProperties repositoryCache = new ShiroDingTalkRepositoryCacheProperties();
+	/**
+	 *	 登录过滤器异步认证配置
+	 */
+	private ShiroDingTalkAsyncProperties async = new ShiroDingTalkAsyncProperties();
+	/**
+	 *	 WebFlux 登录流程配置
+	 */
+	private ShiroDingTalkReactiveProperties reactive = new ShiroDingTalkReactiveProperties();
+	/**
+	 *	 钉钉远程调用隔离与熔断配置
+	 */
+	private ShiroDingTalkResilienceProperties resilience = new ShiroDingTalkResilienceProperties();
+	/**
+	 *	 幂等钉钉远程调用的对冲请求配置
+	 */
+	private ShiroDingTalkHedgingProperties hedging = new ShiroDingTalkHedgingProperties();
+	/**
+	 *	 钉钉远程调用重试配置
+	 */
+	private ShiroDingTalkRetryProperties retry = new ShiroDingTalkRetryProperties();
+	/**
+	 *	 登录请求自适应并发限制配置
+	 */
+	private ShiroDingTalkConcurrencyLimitProperties concurrencyLimit = new ShiroDingTalkConcurrencyLimitProperties();
+	/**
+	 *	 Realm 认证事件异步分发配置
+	 */
+	private ShiroDingTalkListenerProperties listener = new ShiroDingTalkListenerProperties();
+	/**
+	 *	 钉钉登录审计配置
+	 */
+	private ShiroDingTalkAuditProperties audit = new ShiroDingTalkAuditProperties();
+	/**
+	 *	 钉钉登录 Micrometer 指标配置
+	 */
+	private ShiroDingTalkMetricsProperties metrics = new ShiroDingTalkMetricsProperties();
+	/**
+	 *	 从共享存储解码时额外允许的完整类名（精确匹配，不支持包前缀），如自定义的 Principal 类型及其可序列化的字段类型
+	 */
+	private List<String> sharedStoreAllowedClasses;
 	
 }
 
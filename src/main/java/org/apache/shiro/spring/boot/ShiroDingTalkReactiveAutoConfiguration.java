@@ -0,0 +1,106 @@
+package org.apache.shiro.spring.boot;
+
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationSuccessHandler;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtIssuer;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkReactiveProperties;
+import org.apache.shiro.spring.boot.dingtalk.reactive.DingTalkAuthenticationRepository;
+import org.apache.shiro.spring.boot.dingtalk.reactive.DingTalkReactiveAuthenticationWebFilter;
+import org.apache.shiro.spring.boot.dingtalk.reactive.ReactiveDingTalkClient;
+import org.apache.shiro.spring.boot.dingtalk.reactive.ReactiveDingTalkRealm;
+import org.apache.shiro.spring.boot.jwt.JwtPayloadRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux 应用的钉钉登录自动配置：提供 {@link DingTalkAuthenticationRepository} Bean 后启用登录过滤器
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass({ Mono.class, WebClient.class })
+@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
+@EnableConfigurationProperties({ ShiroDingTalkProperties.class })
+@Import(ShiroDingTalkCredentialConfiguration.class)
+public class ShiroDingTalkReactiveAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ReactiveDingTalkClient reactiveDingTalkClient(ObjectProvider<WebClient.Builder> webClientBuilderProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		ShiroDingTalkReactiveProperties reactiveProperties = dingtalkProperties.getReactive();
+		ReactiveDingTalkClient dingTalkClient = new ReactiveDingTalkClient(webClientBuilderProvider.getIfAvailable(WebClient::builder),
+				reactiveProperties.getBaseUrl(), reactiveProperties.getTimeout());
+		dingTalkClient.setRefreshAhead(dingtalkProperties.getAccessToken().getRefreshAhead());
+		return dingTalkClient;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(DingTalkAuthenticationRepository.class)
+	public ReactiveDingTalkRealm reactiveDingTalkRealm(ReactiveDingTalkClient dingTalkClient,
+			DingTalkAppCredentialRegistry credentialRegistry,
+			DingTalkAuthenticationRepository repository,
+			ObjectProvider<DingTalkAuthenticationInfoCache> authenticationInfoCacheProvider) {
+		ReactiveDingTalkRealm realm = new ReactiveDingTalkRealm(dingTalkClient, credentialRegistry, repository);
+		realm.setAuthenticationInfoCache(authenticationInfoCacheProvider.getIfAvailable());
+		return realm;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(ReactiveDingTalkRealm.class)
+	public DingTalkReactiveAuthenticationWebFilter dingTalkReactiveAuthenticationWebFilter(
+			ObjectProvider<ObjectMapper> objectMapperProvider,
+			ObjectProvider<DingTalkAuthenticationSuccessHandler> successHandlerProvider,
+			ObjectProvider<DingTalkAuthenticationFailureHandler> failureHandlerProvider,
+			ObjectProvider<JwtPayloadRepository> jwtPayloadRepositoryProvider,
+			ObjectProvider<DingTalkJwtIssuer> jwtIssuerProvider,
+			ObjectProvider<DingTalkJwtClaimsCache> claimsCacheProvider,
+			ObjectProvider<DingTalkMetrics> metricsProvider,
+			ObjectProvider<ShiroJwtProperties> jwtPropertiesProvider,
+			ObjectProvider<SecurityManager> securityManagerProvider,
+			ReactiveDingTalkRealm realm,
+			ShiroDingTalkProperties dingtalkProperties) {
+
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+		DingTalkAuthenticationSuccessHandler successHandler = successHandlerProvider.getIfAvailable(() -> {
+			ShiroJwtProperties jwtProperties = jwtPropertiesProvider.getIfAvailable();
+			DingTalkAuthenticationSuccessHandler handler = new DingTalkAuthenticationSuccessHandler(objectMapper,
+					jwtPayloadRepositoryProvider.getIfAvailable(), jwtProperties != null && jwtProperties.isCheckExpiry());
+			handler.setClaimsCache(claimsCacheProvider.getIfAvailable());
+			handler.setJwtIssuer(jwtIssuerProvider.getIfAvailable());
+			handler.setMetrics(metricsProvider.getIfAvailable());
+			return handler;
+		});
+		SecurityManager securityManager = securityManagerProvider.getIfAvailable(DefaultSecurityManager::new);
+
+		ShiroDingTalkReactiveProperties reactiveProperties = dingtalkProperties.getReactive();
+		DingTalkReactiveAuthenticationWebFilter webFilter = new DingTalkReactiveAuthenticationWebFilter(objectMapper, realm, successHandler, securityManager);
+		webFilter.setScanCodeLoginUrl(reactiveProperties.getScanCodeLoginUrl());
+		webFilter.setMaLoginUrl(reactiveProperties.getMaLoginUrl());
+		webFilter.setTmpCodeLoginUrl(reactiveProperties.getTmpCodeLoginUrl());
+		webFilter.setMaxBodySize(reactiveProperties.getMaxBodySize());
+		webFilter.setFailureHandler(failureHandlerProvider.getIfAvailable(() -> new DingTalkAuthenticationFailureHandler(objectMapper)));
+		return webFilter;
+	}
+
+}
@@ -1,22 +1,64 @@
 package org.apache.shiro.spring.boot;
 
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
+
+import javax.sql.DataSource;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditSink;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.audit.JdbcDingTalkLoginAuditSink;
+import org.apache.shiro.spring.boot.dingtalk.audit.MappedFileDingTalkLoginAuditSink;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
 import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationSuccessHandler;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenStore;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.KeyValueDingTalkAccessTokenStore;
+import org.apache.shiro.spring.boot.dingtalk.concurrent.DingTalkExecutors;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkIssuedJwtVerifier;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtIssuer;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtVerifier;
+import org.apache.shiro.spring.boot.dingtalk.ledger.DingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.metrics.MeteredDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.ledger.LocalDingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.ledger.SharedDingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuditProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRetryPolicy;
+import org.apache.shiro.spring.boot.dingtalk.remote.HedgingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.ResilientDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.RetryingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStore;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStoreCodec;
 import org.apache.shiro.spring.boot.jwt.JwtPayloadRepository;
 import org.apache.shiro.spring.web.config.AbstractShiroWebConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
 
 @Configuration
 @AutoConfigureBefore( name = {
@@ -25,27 +67,218 @@ import org.springframework.context.annotation.Configuration;
 })
 @ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX, value = "enabled", havingValue = "true")
 @EnableConfigurationProperties({ ShiroDingTalkProperties.class })
+@Import(ShiroDingTalkCredentialConfiguration.class)
 public class ShiroDingTalkWebAutoConfiguration extends AbstractShiroWebConfiguration implements ApplicationContextAware {
 
+	protected static final Logger LOG = LoggerFactory.getLogger(ShiroDingTalkWebAutoConfiguration.class);
 	private ApplicationContext applicationContext;
 
+	/**
+	 * 把下列可选组件装配到使用者定义的钉钉 Realm 与登录过滤器，已手动设置的组件保持不变
+	 */
+	@Bean
+	public static ShiroDingTalkComponentPostProcessor shiroDingTalkComponentPostProcessor() {
+		return new ShiroDingTalkComponentPostProcessor();
+	}
+
 	@Bean
 	protected DingTalkAuthenticationSuccessHandler wxAuthenticationSuccessHandler(
 			ObjectProvider<ObjectMapper> objectMapperProvider,
 			ObjectProvider<JwtPayloadRepository> jwtPayloadRepositoryProvider,
+			ObjectProvider<DingTalkJwtClaimsCache> claimsCacheProvider,
+			ObjectProvider<DingTalkJwtIssuer> jwtIssuerProvider,
+			ObjectProvider<DingTalkMetrics> metricsProvider,
 			ShiroJwtProperties jwtProperties) {
 
-		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(() -> {
-			ObjectMapper objectMapperDef = new ObjectMapper();
-			objectMapperDef.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-			objectMapperDef.enable(MapperFeature.USE_GETTERS_AS_SETTERS);
-			objectMapperDef.enable(MapperFeature.ALLOW_FINAL_FIELDS_AS_MUTATORS);
-			objectMapperDef.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
-			objectMapperDef.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-			return objectMapperDef;
-		});
-
-		return new DingTalkAuthenticationSuccessHandler(objectMapper, jwtPayloadRepositoryProvider.getIfAvailable(), jwtProperties.isCheckExpiry());
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+
+		DingTalkAuthenticationSuccessHandler successHandler = new DingTalkAuthenticationSuccessHandler(objectMapper, jwtPayloadRepositoryProvider.getIfAvailable(), jwtProperties.isCheckExpiry());
+		successHandler.setClaimsCache(claimsCacheProvider.getIfAvailable());
+		successHandler.setJwtIssuer(jwtIssuerProvider.getIfAvailable());
+		successHandler.setMetrics(metricsProvider.getIfAvailable());
+		return successHandler;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkAuthenticationFailureHandler dingTalkAuthenticationFailureHandler(
+			ObjectProvider<ObjectMapper> objectMapperProvider) {
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+		return new DingTalkAuthenticationFailureHandler(objectMapper);
+	}
+
+	/**
+	 * 签发器签发的 JWT 不经过 JwtPayloadRepository 校验，启用签发器时同时启用声明缓存与配对的验证器
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnExpression("${" + ShiroDingTalkProperties.PREFIX + ".jwt-cache.enabled:false} or ${"
+			+ ShiroDingTalkProperties.PREFIX + ".jwt-issuer.enabled:false}")
+	public DingTalkJwtClaimsCache dingTalkJwtClaimsCache(
+			ObjectProvider<ObjectMapper> objectMapperProvider,
+			ObjectProvider<DingTalkJwtVerifier> jwtVerifierProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+		DingTalkJwtClaimsCache claimsCache = new DingTalkJwtClaimsCache(objectMapper, dingtalkProperties.getJwtCache());
+		claimsCache.setVerifier(jwtVerifierProvider.getIfAvailable());
+		return claimsCache;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".jwt-issuer", value = "enabled", havingValue = "true")
+	public DingTalkJwtIssuer dingTalkJwtIssuer(
+			ObjectProvider<ObjectMapper> objectMapperProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+		return new DingTalkJwtIssuer(objectMapper.getFactory(), dingtalkProperties.getJwtIssuer());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".jwt-issuer", value = "enabled", havingValue = "true")
+	public DingTalkJwtVerifier dingTalkIssuedJwtVerifier(
+			ObjectProvider<ObjectMapper> objectMapperProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ShiroDingTalkWebAutoConfiguration::defaultObjectMapper);
+		return new DingTalkIssuedJwtVerifier(objectMapper, dingtalkProperties.getJwtIssuer());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".access-token", value = "enabled", havingValue = "true", matchIfMissing = true)
+	public DingTalkAccessTokenCache dingTalkAccessTokenCache(DingTalkTemplate dingTalkTemplate,
+			ObjectProvider<DingTalkAccessTokenStore> accessTokenStoreProvider,
+			ObjectProvider<DingTalkRemoteInvoker> remoteInvokerProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkAccessTokenCache accessTokenCache = new DingTalkAccessTokenCache(dingTalkTemplate, dingtalkProperties.getAccessToken());
+		accessTokenCache.setTokenStore(accessTokenStoreProvider.getIfAvailable());
+		accessTokenCache.setRemoteInvoker(remoteInvokerProvider.getIfAvailable(() -> DingTalkRemoteInvoker.DIRECT));
+		return accessTokenCache;
+	}
+
+	@Bean
+	@ConditionalOnBean(DingTalkSharedStore.class)
+	@ConditionalOnMissingBean
+	public DingTalkAccessTokenStore dingTalkAccessTokenStore(DingTalkSharedStore sharedStore) {
+		return new KeyValueDingTalkAccessTokenStore(sharedStore);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkRemoteInvoker dingTalkRemoteInvoker(ObjectProvider<DingTalkMetrics> metricsProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkRetryPolicy retryPolicy = new DingTalkRetryPolicy(dingtalkProperties.getRetry());
+		DingTalkRemoteInvoker remoteInvoker = DingTalkRemoteInvoker.DIRECT;
+		if (dingtalkProperties.getResilience().isEnabled()) {
+			ResilientDingTalkRemoteInvoker resilientInvoker = new ResilientDingTalkRemoteInvoker(remoteInvoker, dingtalkProperties.getResilience());
+			resilientInvoker.setRetryPolicy(retryPolicy);
+			remoteInvoker = resilientInvoker;
+		}
+		// 对冲在隔离熔断之外：每次实际请求都占用并发许可并计入熔断统计
+		if (dingtalkProperties.getHedging().isEnabled()) {
+			remoteInvoker = new HedgingDingTalkRemoteInvoker(remoteInvoker, dingtalkProperties.getHedging());
+		}
+		// 重试在最外层：熔断打开、对冲超时等快速失败不再重试，重试次数受预算限制
+		if (dingtalkProperties.getRetry().isEnabled()) {
+			remoteInvoker = new RetryingDingTalkRemoteInvoker(remoteInvoker, retryPolicy, dingtalkProperties.getRetry());
+		}
+		// 指标在最外层：耗时包含重试与对冲，未配置 MeterRegistry 时不计时
+		DingTalkMetrics metrics = metricsProvider.getIfAvailable();
+		if (metrics != null) {
+			remoteInvoker = new MeteredDingTalkRemoteInvoker(remoteInvoker, metrics);
+		}
+		return remoteInvoker;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".concurrency-limit", value = "enabled", havingValue = "true")
+	public DingTalkConcurrencyLimiter dingTalkConcurrencyLimiter(ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkConcurrencyLimiter(dingtalkProperties.getConcurrencyLimit());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DingTalkSharedStoreCodec dingTalkSharedStoreCodec(ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkSharedStoreCodec(dingtalkProperties.getSharedStoreAllowedClasses());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".auth-code-ledger", value = "enabled", havingValue = "true")
+	public DingTalkAuthCodeLedger dingTalkAuthCodeLedger(ObjectProvider<DingTalkSharedStore> sharedStoreProvider,
+			DingTalkSharedStoreCodec sharedStoreCodec, ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkSharedStore sharedStore = sharedStoreProvider.getIfAvailable();
+		if (sharedStore != null) {
+			return new SharedDingTalkAuthCodeLedger(sharedStore, sharedStoreCodec, dingtalkProperties.getAuthCodeLedger());
+		}
+		return new LocalDingTalkAuthCodeLedger(dingtalkProperties.getAuthCodeLedger());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".repository-cache", value = "enabled", havingValue = "true")
+	public DingTalkAuthenticationInfoCache dingTalkAuthenticationInfoCache(ObjectProvider<DingTalkSharedStore> sharedStoreProvider,
+			DingTalkSharedStoreCodec sharedStoreCodec, ShiroDingTalkProperties dingtalkProperties) {
+		DingTalkAuthenticationInfoCache authenticationInfoCache = new DingTalkAuthenticationInfoCache(dingtalkProperties.getRepositoryCache());
+		if (dingtalkProperties.getRepositoryCache().isShared()) {
+			authenticationInfoCache.setSharedStoreCodec(sharedStoreCodec);
+			authenticationInfoCache.setSharedStore(sharedStoreProvider.getIfAvailable());
+		}
+		return authenticationInfoCache;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".listener", value = "enabled", havingValue = "true")
+	public DingTalkRealmListenerDispatcher dingTalkRealmListenerDispatcher(ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkRealmListenerDispatcher(dingtalkProperties.getListener());
+	}
+
+	/**
+	 * 审计 Sink 由 {@link DingTalkLoginAuditor} 的写入线程在写完剩余记录后关闭，不交给容器关闭
+	 */
+	@Bean(destroyMethod = "")
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".audit", value = "enabled", havingValue = "true")
+	public DingTalkLoginAuditSink dingTalkLoginAuditSink(ObjectProvider<DataSource> dataSourceProvider,
+			ShiroDingTalkProperties dingtalkProperties) {
+		ShiroDingTalkAuditProperties auditProperties = dingtalkProperties.getAudit();
+		if (auditProperties.getSink() == ShiroDingTalkAuditProperties.SinkType.JDBC) {
+			DataSource dataSource = dataSourceProvider.getIfAvailable();
+			if (dataSource == null) {
+				throw new IllegalStateException("DingTalk login audit sink JDBC requires a DataSource.");
+			}
+			return new JdbcDingTalkLoginAuditSink(dataSource, auditProperties.getTableName());
+		}
+		return new MappedFileDingTalkLoginAuditSink(Paths.get(auditProperties.getDirectory()), auditProperties.getFilePrefix(),
+				(int) auditProperties.getSegmentSize().toBytes(), auditProperties.isForceOnCommit());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(DingTalkLoginAuditSink.class)
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".audit", value = "enabled", havingValue = "true")
+	public DingTalkLoginAuditor dingTalkLoginAuditor(DingTalkLoginAuditSink auditSink, ShiroDingTalkProperties dingtalkProperties) {
+		return new DingTalkLoginAuditor(auditSink, dingtalkProperties.getAudit());
+	}
+
+	@Bean(name = ShiroDingTalkComponentPostProcessor.AUTHC_EXECUTOR_BEAN_NAME)
+	@ConditionalOnMissingBean(name = ShiroDingTalkComponentPostProcessor.AUTHC_EXECUTOR_BEAN_NAME)
+	@ConditionalOnProperty(prefix = ShiroDingTalkProperties.PREFIX + ".async", value = "enabled", havingValue = "true")
+	public Executor dingTalkAuthcExecutor(ShiroDingTalkProperties dingtalkProperties) {
+		return DingTalkExecutors.newAuthcExecutor(dingtalkProperties.getAsync());
+	}
+
+	static ObjectMapper defaultObjectMapper() {
+		ObjectMapper objectMapperDef = new ObjectMapper();
+		objectMapperDef.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		objectMapperDef.enable(MapperFeature.USE_GETTERS_AS_SETTERS);
+		objectMapperDef.enable(MapperFeature.ALLOW_FINAL_FIELDS_AS_MUTATORS);
+		objectMapperDef.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		objectMapperDef.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		return objectMapperDef;
 	}
 
 	@Override
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	复制由多个请求共享的认证信息：Shiro 的多 Realm 认证策略会合并（修改）首个 Realm 返回的认证信息，
+ * 	共享的实例不能直接交给调用方
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public final class ShiroDingTalkAuthenticationInfos {
+
+	private ShiroDingTalkAuthenticationInfos() {
+	}
+
+	/**
+	 * 复制认证信息：{@link SimpleAuthenticationInfo} 只复制可变的身份集合，身份对象与凭证共享；
+	 * 其他可序列化的类型深拷贝，无法复制时原样返回
+	 * @param info 共享的认证信息
+	 * @return 认证信息副本
+	 */
+	public static AuthenticationInfo copy(AuthenticationInfo info) {
+		if (info == null) {
+			return null;
+		}
+		if (info.getClass() == SimpleAuthenticationInfo.class) {
+			SimpleAuthenticationInfo source = (SimpleAuthenticationInfo) info;
+			SimpleAuthenticationInfo copy = new SimpleAuthenticationInfo(new SimplePrincipalCollection(source.getPrincipals()),
+					source.getCredentials());
+			copy.setCredentialsSalt(source.getCredentialsSalt());
+			return copy;
+		}
+		if (info instanceof Serializable) {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+				try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+					output.writeObject(info);
+				}
+				try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+					return (AuthenticationInfo) input.readObject();
+				}
+			} catch (IOException | ClassNotFoundException e) {
+				log.debug("Unable to copy AuthenticationInfo of type {}, share the original.", info.getClass().getName(), e);
+			}
+		}
+		return info;
+	}
+
+}
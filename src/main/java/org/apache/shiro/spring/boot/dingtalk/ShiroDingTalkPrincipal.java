@@ -15,14 +15,23 @@
  */
 package org.apache.shiro.spring.boot.dingtalk;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+
 import org.apache.shiro.biz.authz.principal.ShiroPrincipal;
 
 /**
- * TODO
+ * 钉钉用户身份；Java 序列化时本类字段由 {@link ShiroDingTalkPrincipalCodec} 紧凑编码，父类字段仍按默认方式序列化
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
-@SuppressWarnings("serial")
 public class ShiroDingTalkPrincipal extends ShiroPrincipal {
+
+	/** 与引入紧凑编码前的默认 serialVersionUID 一致，已持久化的会话仍可读取 */
+	private static final long serialVersionUID = 3200279912978905196L;
+	/** 类描述中不再列出各字段，字段内容由 writeObject 写入 */
+	private static final ObjectStreamField[] serialPersistentFields = {};
 	
 	/**
 	 * 员工在当前企业内的唯一标识，也称staffId。可由企业在创建时指定，并代表一定含义比如工号，创建后不可修改
@@ -300,5 +309,19 @@ public class ShiroDingTalkPrincipal extends ShiroPrincipal {
 	public void setStateCode(String stateCode) {
 		this.stateCode = stateCode;
 	}
-	
+
+	private void writeObject(ObjectOutputStream output) throws IOException {
+		output.defaultWriteObject();
+		ShiroDingTalkPrincipalCodec.write(this, output);
+	}
+
+	private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = input.readFields();
+		if (fields.getObjectStreamClass().getFields().length > 0) {
+			ShiroDingTalkPrincipalCodec.readLegacy(fields, this);
+		} else {
+			ShiroDingTalkPrincipalCodec.read(input, this);
+		}
+	}
+
 }
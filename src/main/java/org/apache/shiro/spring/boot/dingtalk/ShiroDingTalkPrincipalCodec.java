@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 	{@link ShiroDingTalkPrincipal} 的紧凑二进制编码，由其 writeObject / readObject 使用：
+ * 	版本号（1 字节）+ 非空字符串字段位图（varint）+ 布尔字段位图（1 字节）+ 各非空字符串（varint 长度 + UTF-8 字节）；
+ * 	新增字段时追加到末尾并提升版本号，读取时按流中的版本号解码
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class ShiroDingTalkPrincipalCodec {
+
+	/** 当前编码版本 */
+	public static final int VERSION = 1;
+	/** 单个字符串字段的最大字节数，超出视为损坏的数据 */
+	private static final int MAXIMUM_STRING_LENGTH = 1 << 20;
+	private static final int STRING_FIELDS = 18;
+
+	private static final int ADMIN = 1;
+	private static final int BOSS = 1 << 1;
+	private static final int LEADER_IN_DEPTS = 1 << 2;
+	private static final int HIDE = 1 << 3;
+	private static final int SENIOR = 1 << 4;
+
+	private ShiroDingTalkPrincipalCodec() {
+	}
+
+	/**
+	 * 写入钉钉用户字段，不包含父类 ShiroPrincipal 的字段
+	 * @param principal 钉钉用户身份
+	 * @param output 输出
+	 * @throws IOException 写入失败
+	 */
+	public static void write(ShiroDingTalkPrincipal principal, DataOutput output) throws IOException {
+		String[] values = strings(principal);
+		int present = 0;
+		for (int i = 0; i < STRING_FIELDS; i++) {
+			if (values[i] != null) {
+				present |= 1 << i;
+			}
+		}
+		int flags = (principal.admin ? ADMIN : 0) | (principal.boss ? BOSS : 0) | (principal.leaderInDepts ? LEADER_IN_DEPTS : 0)
+				| (principal.hide ? HIDE : 0) | (principal.senior ? SENIOR : 0);
+		output.writeByte(VERSION);
+		writeVarint(output, present);
+		output.writeByte(flags);
+		for (int i = 0; i < STRING_FIELDS; i++) {
+			if (values[i] != null) {
+				byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+				writeVarint(output, bytes.length);
+				output.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * 读取 {@link #write} 写入的钉钉用户字段
+	 * @param input 输入
+	 * @param principal 钉钉用户身份
+	 * @throws IOException 读取失败或版本不受支持
+	 */
+	public static void read(DataInput input, ShiroDingTalkPrincipal principal) throws IOException {
+		int version = input.readUnsignedByte();
+		if (version < 1 || version > VERSION) {
+			throw new InvalidObjectException("Unsupported ShiroDingTalkPrincipal codec version: " + version);
+		}
+		int present = readVarint(input);
+		int flags = input.readUnsignedByte();
+		String[] values = new String[STRING_FIELDS];
+		for (int i = 0; i < STRING_FIELDS; i++) {
+			if ((present & 1 << i) != 0) {
+				int length = readVarint(input);
+				if (length < 0 || length > MAXIMUM_STRING_LENGTH) {
+					throw new StreamCorruptedException("Invalid ShiroDingTalkPrincipal field length: " + length);
+				}
+				byte[] bytes = new byte[length];
+				input.readFully(bytes);
+				values[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+		principal.userid = values[0];
+		principal.unionid = values[1];
+		principal.name = values[2];
+		principal.tel = values[3];
+		principal.workPlace = values[4];
+		principal.remark = values[5];
+		principal.mobile = values[6];
+		principal.email = values[7];
+		principal.orgEmail = values[8];
+		principal.active = values[9];
+		principal.orderInDepts = values[10];
+		principal.department = values[11];
+		principal.position = values[12];
+		principal.avatar = values[13];
+		principal.hiredDate = values[14];
+		principal.jobnumber = values[15];
+		principal.extattr = values[16];
+		principal.stateCode = values[17];
+		principal.admin = (flags & ADMIN) != 0;
+		principal.boss = (flags & BOSS) != 0;
+		principal.leaderInDepts = (flags & LEADER_IN_DEPTS) != 0;
+		principal.hide = (flags & HIDE) != 0;
+		principal.senior = (flags & SENIOR) != 0;
+	}
+
+	/**
+	 * 读取引入紧凑编码之前按默认序列化写入的字段，兼容已持久化的会话
+	 * @param fields 流中的字段
+	 * @param principal 钉钉用户身份
+	 * @throws IOException 读取失败
+	 */
+	public static void readLegacy(ObjectInputStream.GetField fields, ShiroDingTalkPrincipal principal) throws IOException {
+		principal.userid = (String) fields.get("userid", null);
+		principal.unionid = (String) fields.get("unionid", null);
+		principal.name = (String) fields.get("name", null);
+		principal.tel = (String) fields.get("tel", null);
+		principal.workPlace = (String) fields.get("workPlace", null);
+		principal.remark = (String) fields.get("remark", null);
+		principal.mobile = (String) fields.get("mobile", null);
+		principal.email = (String) fields.get("email", null);
+		principal.orgEmail = (String) fields.get("orgEmail", null);
+		principal.active = (String) fields.get("active", null);
+		principal.orderInDepts = (String) fields.get("orderInDepts", null);
+		principal.department = (String) fields.get("department", null);
+		principal.position = (String) fields.get("position", null);
+		principal.avatar = (String) fields.get("avatar", null);
+		principal.hiredDate = (String) fields.get("hiredDate", null);
+		principal.jobnumber = (String) fields.get("jobnumber", null);
+		principal.extattr = (String) fields.get("extattr", null);
+		principal.stateCode = (String) fields.get("stateCode", null);
+		principal.admin = fields.get("admin", false);
+		principal.boss = fields.get("boss", false);
+		principal.leaderInDepts = fields.get("leaderInDepts", false);
+		principal.hide = fields.get("hide", false);
+		principal.senior = fields.get("senior", false);
+	}
+
+	private static String[] strings(ShiroDingTalkPrincipal principal) {
+		return new String[] { principal.userid, principal.unionid, principal.name, principal.tel, principal.workPlace,
+				principal.remark, principal.mobile, principal.email, principal.orgEmail, principal.active,
+				principal.orderInDepts, principal.department, principal.position, principal.avatar, principal.hiredDate,
+				principal.jobnumber, principal.extattr, principal.stateCode };
+	}
+
+	static void writeVarint(DataOutput output, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			output.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	static int readVarint(DataInput input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Malformed varint in ShiroDingTalkPrincipal stream.");
+	}
+
+}
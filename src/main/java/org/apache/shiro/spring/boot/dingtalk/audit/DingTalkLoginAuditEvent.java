@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.HostAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkExceptions;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+
+/**
+ * 	一次钉钉登录尝试的审计记录
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkLoginAuditEvent {
+
+	public static final String FLOW_MA = "ma";
+	public static final String FLOW_SCAN_CODE = "scan";
+	public static final String FLOW_TMP_CODE = "tmp";
+
+	private final long timestamp;
+	private final String flow;
+	private final String appKey;
+	private final String unionid;
+	private final String host;
+	private final boolean success;
+	/** 失败原因：异常类型的简单类名 */
+	private final String reason;
+	private final long latencyMicros;
+
+	public DingTalkLoginAuditEvent(long timestamp, String flow, String appKey, String unionid, String host,
+			boolean success, String reason, long latencyMicros) {
+		this.timestamp = timestamp;
+		this.flow = flow;
+		this.appKey = appKey;
+		this.unionid = unionid;
+		this.host = host;
+		this.success = success;
+		this.reason = reason;
+		this.latencyMicros = latencyMicros;
+	}
+
+	/**
+	 * 由认证 Token 与认证结果构建审计记录
+	 * @param token 认证 Token
+	 * @param success 是否认证成功
+	 * @param ex 认证异常，认证成功时为 null
+	 * @param latencyNanos 认证耗时（纳秒）
+	 * @return 审计记录
+	 */
+	public static DingTalkLoginAuditEvent of(AuthenticationToken token, boolean success, AuthenticationException ex, long latencyNanos) {
+		String flow = flowOf(token);
+		String appKey = null;
+		String unionid = null;
+		if (token instanceof DingTalkScanCodeAuthenticationToken) {
+			appKey = ((DingTalkScanCodeLoginRequest) token.getPrincipal()).getKey();
+			unionid = ((DingTalkScanCodeAuthenticationToken) token).getUnionid();
+		} else if (token instanceof DingTalkTmpCodeAuthenticationToken) {
+			appKey = ((DingTalkTmpCodeLoginRequest) token.getPrincipal()).getKey();
+		} else if (token instanceof DingTalkMaAuthenticationToken) {
+			appKey = ((DingTalkMaLoginRequest) token.getPrincipal()).getKey();
+		}
+		String host = token instanceof HostAuthenticationToken ? ((HostAuthenticationToken) token).getHost() : null;
+		String reason = success ? null : (ex == null ? "NoAuthenticationInfo" : DingTalkExceptions.simpleName(ex));
+		return new DingTalkLoginAuditEvent(System.currentTimeMillis(), flow, appKey, unionid, host, success, reason,
+				TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+	}
+
+	/**
+	 * 认证 Token 对应的登录方式
+	 * @param token 认证 Token
+	 * @return {@link #FLOW_SCAN_CODE}、{@link #FLOW_TMP_CODE}、{@link #FLOW_MA}，其他 Token 返回其简单类名
+	 */
+	public static String flowOf(AuthenticationToken token) {
+		if (token instanceof DingTalkScanCodeAuthenticationToken) {
+			return FLOW_SCAN_CODE;
+		}
+		if (token instanceof DingTalkTmpCodeAuthenticationToken) {
+			return FLOW_TMP_CODE;
+		}
+		if (token instanceof DingTalkMaAuthenticationToken) {
+			return FLOW_MA;
+		}
+		return token == null ? "unknown" : token.getClass().getSimpleName();
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getFlow() {
+		return flow;
+	}
+
+	public String getAppKey() {
+		return appKey;
+	}
+
+	public String getUnionid() {
+		return unionid;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public boolean isSuccess() {
+		return success;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public long getLatencyMicros() {
+		return latencyMicros;
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import java.util.List;
+
+/**
+ * 	登录审计记录的持久化扩展点：{@link DingTalkLoginAuditor} 的写入线程每次提交一批记录，
+ * 	实现类应在一次 I/O 或一个事务中完成整批写入（组提交），仅由单个写入线程调用，无需线程安全
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkLoginAuditSink extends AutoCloseable {
+
+	/**
+	 * 写入一批审计记录
+	 * @param events 审计记录，按登录完成的顺序排列
+	 * @throws Exception 写入失败，整批记录计为失败
+	 */
+	void write(List<DingTalkLoginAuditEvent> events) throws Exception;
+
+	/**
+	 * 写入线程停止时关闭底层资源
+	 * @throws Exception 关闭失败
+	 */
+	@Override
+	default void close() throws Exception {
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.shiro.spring.boot.dingtalk.concurrent.DingTalkRingBuffer;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuditProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	钉钉登录审计管道：认证线程将审计记录追加到有界无锁环形缓冲区，单个写入线程攒批后一次提交给 {@link DingTalkLoginAuditSink}；
+ * 	一批在达到 batchSize 或首条记录等待超过 maxBatchDelay 时提交，高并发登录只产生少量批量写入
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkLoginAuditor implements DisposableBean {
+
+	private final DingTalkLoginAuditSink sink;
+	private final DingTalkRingBuffer<DingTalkLoginAuditEvent> buffer;
+	private final int batchSize;
+	private final long maxBatchDelayNanos;
+	private final long blockTimeoutNanos;
+	private final long shutdownTimeoutMillis;
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	private final LongAdder recordedCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+	private final LongAdder writtenCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder commitCount = new LongAdder();
+
+	public DingTalkLoginAuditor(DingTalkLoginAuditSink sink, ShiroDingTalkAuditProperties properties) {
+		this.sink = sink;
+		this.buffer = new DingTalkRingBuffer<>(properties.getCapacity());
+		this.batchSize = Math.max(1, properties.getBatchSize());
+		this.maxBatchDelayNanos = Math.max(1, properties.getMaxBatchDelay().toNanos());
+		this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+		this.shutdownTimeoutMillis = properties.getShutdownTimeout().toMillis();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dingtalk-login-audit-");
+		threadFactory.setDaemon(true);
+		this.writer = threadFactory.newThread(this::drain);
+		this.writer.start();
+	}
+
+	/**
+	 * 追加一条审计记录；缓冲区已满时最多等待 blockTimeout，仍无空位则丢弃并计数
+	 * @param event 审计记录
+	 */
+	public void record(DingTalkLoginAuditEvent event) {
+		recordedCount.increment();
+		if (running && buffer.offer(event)) {
+			return;
+		}
+		if (blockTimeoutNanos > 0) {
+			long deadline = System.nanoTime() + blockTimeoutNanos;
+			while (running && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(Math.min(maxBatchDelayNanos, deadline - System.nanoTime()));
+				if (buffer.offer(event)) {
+					return;
+				}
+			}
+		}
+		droppedCount.increment();
+		if (log.isDebugEnabled()) {
+			log.debug("DingTalk login audit buffer is full, event dropped.");
+		}
+	}
+
+	private void drain() {
+		List<DingTalkLoginAuditEvent> batch = new ArrayList<>(batchSize);
+		long firstArrival = 0;
+		while (true) {
+			DingTalkLoginAuditEvent event;
+			while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+				if (batch.isEmpty()) {
+					firstArrival = System.nanoTime();
+				}
+				batch.add(event);
+			}
+			if (batch.isEmpty()) {
+				if (!running) {
+					break;
+				}
+				LockSupport.parkNanos(maxBatchDelayNanos);
+				continue;
+			}
+			// 组提交：未攒满一批时在 maxBatchDelay 内继续等待后续记录
+			long waited = System.nanoTime() - firstArrival;
+			if (batch.size() < batchSize && running && waited < maxBatchDelayNanos) {
+				LockSupport.parkNanos(maxBatchDelayNanos - waited);
+				continue;
+			}
+			commit(batch);
+			batch.clear();
+		}
+		try {
+			sink.close();
+		} catch (Exception e) {
+			log.warn("Failed to close DingTalk login audit sink.", e);
+		}
+	}
+
+	private void commit(List<DingTalkLoginAuditEvent> batch) {
+		try {
+			sink.write(batch);
+			writtenCount.add(batch.size());
+			commitCount.increment();
+		} catch (Exception e) {
+			failedCount.add(batch.size());
+			log.error("Failed to write {} DingTalk login audit events.", batch.size(), e);
+		}
+	}
+
+	/**
+	 * 停止接收新记录，写入缓冲区中剩余的记录后关闭 Sink
+	 */
+	@Override
+	public void destroy() throws Exception {
+		running = false;
+		writer.join(shutdownTimeoutMillis);
+		if (writer.isAlive()) {
+			log.warn("DingTalk login audit writer did not stop within {} ms, {} events pending.", shutdownTimeoutMillis, buffer.size());
+		}
+	}
+
+	public DingTalkLoginAuditSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * @return 缓冲区中等待写入的记录数（近似值）
+	 */
+	public long getQueueDepth() {
+		return buffer.size();
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	public long getRecordedCount() {
+		return recordedCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	public long getWrittenCount() {
+		return writtenCount.sum();
+	}
+
+	public long getFailedCount() {
+		return failedCount.sum();
+	}
+
+	public long getCommitCount() {
+		return commitCount.sum();
+	}
+
+}
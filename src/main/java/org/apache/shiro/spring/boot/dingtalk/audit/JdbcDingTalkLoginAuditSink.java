@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * 	批量写入数据库的审计 Sink：每批记录在一个事务中以 JDBC batch 插入，参考表结构：
+ * 	<pre>
+ * 	CREATE TABLE dingtalk_login_audit (
+ * 		event_time     TIMESTAMP    NOT NULL,
+ * 		flow           VARCHAR(32)  NOT NULL,
+ * 		app_key        VARCHAR(64),
+ * 		unionid        VARCHAR(64),
+ * 		host           VARCHAR(64),
+ * 		success        BOOLEAN      NOT NULL,
+ * 		reason         VARCHAR(128),
+ * 		latency_micros BIGINT       NOT NULL
+ * 	)
+ * 	</pre>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class JdbcDingTalkLoginAuditSink implements DingTalkLoginAuditSink {
+
+	public static final String DEFAULT_TABLE_NAME = "dingtalk_login_audit";
+
+	private final DataSource dataSource;
+	private final String insertSql;
+
+	public JdbcDingTalkLoginAuditSink(DataSource dataSource) {
+		this(dataSource, DEFAULT_TABLE_NAME);
+	}
+
+	public JdbcDingTalkLoginAuditSink(DataSource dataSource, String tableName) {
+		this.dataSource = dataSource;
+		this.insertSql = "INSERT INTO " + tableName
+				+ " (event_time, flow, app_key, unionid, host, success, reason, latency_micros) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	}
+
+	@Override
+	public void write(List<DingTalkLoginAuditEvent> events) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+				for (DingTalkLoginAuditEvent event : events) {
+					statement.setTimestamp(1, new Timestamp(event.getTimestamp()));
+					statement.setString(2, event.getFlow());
+					setString(statement, 3, event.getAppKey());
+					setString(statement, 4, event.getUnionid());
+					setString(statement, 5, event.getHost());
+					statement.setBoolean(6, event.isSuccess());
+					setString(statement, 7, event.getReason());
+					statement.setLong(8, event.getLatencyMicros());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	private static void setString(PreparedStatement statement, int index, String value) throws SQLException {
+		if (value == null) {
+			statement.setNull(index, Types.VARCHAR);
+		} else {
+			statement.setString(index, value);
+		}
+	}
+
+	public String getInsertSql() {
+		return insertSql;
+	}
+
+}
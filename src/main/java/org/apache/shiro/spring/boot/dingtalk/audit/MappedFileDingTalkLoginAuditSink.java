@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	基于内存映射文件的滚动审计日志：每个分段文件预先映射 segmentSize 字节，记录以制表符分隔的 UTF-8 文本行追加写入，
+ * 	写满后截断到实际长度并滚动到新文件；forceOnCommit 为 true 时每批提交后将映射区刷入磁盘。
+ * 	<p>每行的字段依次为：时间戳（毫秒）、登录方式、appKey、unionid、host、结果（OK/FAIL）、失败原因、耗时（微秒）</p>
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class MappedFileDingTalkLoginAuditSink implements DingTalkLoginAuditSink {
+
+	private final Path directory;
+	private final String prefix;
+	private final int segmentSize;
+	private final boolean forceOnCommit;
+	private final StringBuilder line = new StringBuilder(256);
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+	private int sequence;
+
+	public MappedFileDingTalkLoginAuditSink(Path directory, String prefix, int segmentSize, boolean forceOnCommit) {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.segmentSize = segmentSize;
+		this.forceOnCommit = forceOnCommit;
+	}
+
+	@Override
+	public void write(List<DingTalkLoginAuditEvent> events) throws IOException {
+		for (DingTalkLoginAuditEvent event : events) {
+			byte[] bytes = encode(event);
+			if (bytes.length > segmentSize) {
+				log.warn("DingTalk login audit record of {} bytes exceeds the segment size, skipped.", bytes.length);
+				continue;
+			}
+			if (mapped == null || mapped.remaining() < bytes.length) {
+				roll();
+			}
+			mapped.put(bytes);
+		}
+		if (forceOnCommit && mapped != null) {
+			mapped.force();
+		}
+	}
+
+	protected byte[] encode(DingTalkLoginAuditEvent event) {
+		line.setLength(0);
+		line.append(event.getTimestamp()).append('\t');
+		append(event.getFlow()).append('\t');
+		append(event.getAppKey()).append('\t');
+		append(event.getUnionid()).append('\t');
+		append(event.getHost()).append('\t');
+		line.append(event.isSuccess() ? "OK" : "FAIL").append('\t');
+		append(event.getReason()).append('\t');
+		line.append(event.getLatencyMicros()).append('\n');
+		return line.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private StringBuilder append(String value) {
+		if (value == null) {
+			return line.append('-');
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			line.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+		}
+		return line;
+	}
+
+	private void roll() throws IOException {
+		closeSegment();
+		Files.createDirectories(directory);
+		String name = prefix + "-" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "-" + (sequence++) + ".log";
+		channel = FileChannel.open(directory.resolve(name), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+	}
+
+	private void closeSegment() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		int position = mapped.position();
+		mapped.force();
+		mapped = null;
+		try {
+			// 去掉映射区中未使用的尾部
+			channel.truncate(position);
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeSegment();
+	}
+
+}
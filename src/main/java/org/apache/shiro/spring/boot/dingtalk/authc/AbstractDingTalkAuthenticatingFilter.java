@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.biz.authc.AuthcResponse;
+import org.apache.shiro.biz.utils.WebUtils;
+import org.apache.shiro.biz.web.filter.authc.AbstractTrustableAuthenticatingFilter;
+import org.apache.shiro.biz.web.servlet.http.HttpStatus;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaims;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkFlightRecorder;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkLoginParseEvent;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.apache.shiro.web.subject.WebSubject;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 钉钉登录认证过滤器公共父类
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public abstract class AbstractDingTalkAuthenticatingFilter extends AbstractTrustableAuthenticatingFilter {
+
+	public static final String DEFAULT_JWT_HEADER = "Authorization";
+	public static final long DEFAULT_ASYNC_TIMEOUT = 10000L;
+	public static final int DEFAULT_MAX_BODY_SIZE = 8 * 1024;
+	private static final String BEARER_PREFIX = "Bearer ";
+	/** 通过 JWT 声明缓存绑定 Subject 前，当前线程原有的 Subject；请求结束时恢复 */
+	private static final String PREVIOUS_SUBJECT = AbstractDingTalkAuthenticatingFilter.class.getName() + ".PREVIOUS_SUBJECT";
+	private static final Object NO_SUBJECT = new Object();
+
+	private final ObjectMapper objectMapper;
+	private DingTalkJwtClaimsCache claimsCache;
+	private String jwtHeader = DEFAULT_JWT_HEADER;
+	/** 异步认证线程池，为 null 时在容器工作线程中同步认证 */
+	private Executor asyncExecutor;
+	/** 异步认证超时时间（毫秒） */
+	private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+	/** 登录请求自适应并发限制，为 null 时不限制 */
+	private DingTalkConcurrencyLimiter concurrencyLimiter;
+	/** 登录请求体允许的最大字节数 */
+	private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+	/** 登录各阶段指标，为 null 时不计时 */
+	private DingTalkMetrics metrics;
+	/** 钉钉认证失败处理，为 null 时交给父类处理 */
+	private DingTalkAuthenticationFailureHandler failureHandler;
+	/** 固定内容的失败响应体，首次使用时序列化 */
+	private volatile byte[] notPostBody;
+	private volatile byte[] unauthenticatedBody;
+	private volatile byte[] shedBody;
+
+	public AbstractDingTalkAuthenticatingFilter(ObjectMapper objectMapper) {
+		super();
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	protected abstract AuthenticationToken createToken(ServletRequest request, ServletResponse response);
+
+	/**
+	 * 使用预先构建的 ObjectReader 直接从请求的字节流解析登录请求，超出 {@link #getMaxBodySize()} 的请求体在解析前或解析中拒绝
+	 * @param <T> 登录请求类型
+	 * @param request 请求
+	 * @param reader 登录请求类型对应的 ObjectReader，参见 {@link DingTalkLoginRequestReaders}
+	 * @return 登录请求
+	 * @throws IOException 读取或解析请求体失败
+	 */
+	protected <T> T readLoginRequest(ServletRequest request, ObjectReader reader) throws IOException {
+		DingTalkLoginParseEvent event = DingTalkFlightRecorder.beginParse();
+		if (metrics == null && event == null) {
+			return doReadLoginRequest(request, reader);
+		}
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return doReadLoginRequest(request, reader);
+		} catch (IOException | RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			Class<?> requestType = reader.getValueType().getRawClass();
+			if (metrics != null) {
+				metrics.recordParse(requestType, System.nanoTime() - start, error);
+			}
+			if (event != null) {
+				event.complete(requestType, request.getContentLengthLong(), error);
+			}
+		}
+	}
+
+	private <T> T doReadLoginRequest(ServletRequest request, ObjectReader reader) throws IOException {
+		long contentLength = request.getContentLengthLong();
+		if (contentLength > maxBodySize) {
+			throw DingTalkLoginRequestTooLargeException.stackless("Login request body exceeds " + maxBodySize + " bytes.");
+		}
+		return reader.readValue(new DingTalkBoundedInputStream(request.getInputStream(), maxBodySize));
+	}
+
+	@Override
+	protected boolean isAccessAllowed(ServletRequest request, ServletResponse response, Object mappedValue) {
+		// 判断是否无状态
+		if (isSessionStateless()) {
+			// Step 0、已签发的 JWT 命中缓存时直接恢复身份，不再经过 Realm
+			if (isCachedJwtAccepted(request, response)) {
+				return true;
+			}
+			// 异步或并发限制模式下登录请求交给 onAccessDenied 执行
+			if (isAsyncLogin(request, response) || isLimitedLogin(request, response)) {
+				return false;
+			}
+			AuthenticationToken token = null;
+			try {
+				// Step 1、生成 Shiro Token，请求体超限或缺少参数时同样交给失败处理
+				token = createToken(request, response);
+				//Step 2、委托给Realm进行登录
+				Subject subject = getSubject(request, response);
+				subject.login(token);
+				//Step 3、执行授权成功后的函数
+				return onAccessSuccess(token, subject, request, response);
+			} catch (AuthenticationException e) {
+				//Step 4、执行授权失败后的函数
+				return onAccessFailure(token, e, request, response);
+			}
+		}
+		return super.isAccessAllowed(request, response, mappedValue);
+	}
+
+	/**
+	 * 请求携带的 JWT 在声明缓存中有效时，以缓存的身份信息绑定当前线程的 Subject
+	 * @param request 请求
+	 * @param response 响应
+	 * @return 是否已通过缓存恢复身份
+	 */
+	protected boolean isCachedJwtAccepted(ServletRequest request, ServletResponse response) {
+		// 登录提交总是执行登录，允许携带旧 JWT 的请求切换身份或应用
+		if (claimsCache == null || isLoginRequest(request, response) && isLoginSubmission(request, response)) {
+			return false;
+		}
+		String jwt = obtainJwt(request);
+		if (!StringUtils.hasText(jwt)) {
+			return false;
+		}
+		DingTalkJwtClaims claims;
+		try {
+			claims = claimsCache.get(jwt);
+		} catch (AuthenticationException e) {
+			log.debug("Cached JWT verification failed.", e);
+			return false;
+		}
+		if (claims == null) {
+			return false;
+		}
+		WebSubject.Builder builder = new WebSubject.Builder(SecurityUtils.getSecurityManager(), request, response);
+		builder.principals(claims.getPrincipals()).authenticated(true).sessionCreationEnabled(false);
+		Subject previous = ThreadContext.getSubject();
+		request.setAttribute(PREVIOUS_SUBJECT, previous == null ? NO_SUBJECT : previous);
+		ThreadContext.bind(builder.buildWebSubject());
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(ServletRequest request, ServletResponse response, Exception exception) throws Exception {
+		try {
+			super.afterCompletion(request, response, exception);
+		} finally {
+			// 恢复 isCachedJwtAccepted 绑定前的 Subject，避免缓存身份随线程池线程泄漏到后续请求
+			Object previous = request.getAttribute(PREVIOUS_SUBJECT);
+			if (previous != null) {
+				request.removeAttribute(PREVIOUS_SUBJECT);
+				if (previous == NO_SUBJECT) {
+					ThreadContext.unbindSubject();
+				} else {
+					ThreadContext.bind((Subject) previous);
+				}
+			}
+		}
+	}
+
+	protected String obtainJwt(ServletRequest request) {
+		String value = WebUtils.toHttp(request).getHeader(jwtHeader);
+		if (value != null && value.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+			return value.substring(BEARER_PREFIX.length()).trim();
+		}
+		return value;
+	}
+
+	/**
+	 * 是否异步执行登录认证：配置了认证线程池且容器支持异步时，登录请求不占用容器工作线程等待钉钉远程调用；
+	 * 注意 ShiroFilter 的注册需开启 asyncSupported
+	 * @param request 请求
+	 * @param response 响应
+	 * @return 是否异步认证
+	 */
+	protected boolean isAsyncLogin(ServletRequest request, ServletResponse response) {
+		return asyncExecutor != null && request.isAsyncSupported() && isLoginRequest(request, response)
+				&& isLoginSubmission(request, response);
+	}
+
+	/**
+	 * 是否对登录请求执行并发限制
+	 * @param request 请求
+	 * @param response 响应
+	 * @return 是否限制
+	 */
+	protected boolean isLimitedLogin(ServletRequest request, ServletResponse response) {
+		return concurrencyLimiter != null && isLoginRequest(request, response) && isLoginSubmission(request, response);
+	}
+
+	@Override
+	protected boolean executeLogin(ServletRequest request, ServletResponse response) throws Exception {
+		// 自适应并发限制：超出上限的登录请求立即拒绝，不再排队
+		DingTalkConcurrencyLimiter.Permit permit = null;
+		if (concurrencyLimiter != null) {
+			permit = concurrencyLimiter.tryAcquire();
+			if (permit == null) {
+				return onLoginShed(request, response);
+			}
+		}
+		if (!isAsyncLogin(request, response)) {
+			try {
+				return super.executeLogin(request, response);
+			} catch (AuthenticationException e) {
+				// 父类在 try 之外调用 createToken，解析请求体的失败在这里交给失败处理
+				return onAccessFailure(null, e, request, response);
+			} finally {
+				release(permit, false);
+			}
+		}
+		// 在容器线程中读取请求体生成 Token，远程认证交给认证线程池
+		AuthenticationToken token;
+		Subject subject;
+		AsyncContext asyncContext;
+		try {
+			token = createToken(request, response);
+			subject = getSubject(request, response);
+			asyncContext = request.startAsync(request, response);
+		} catch (AuthenticationException e) {
+			release(permit, false);
+			return onAccessFailure(null, e, request, response);
+		} catch (RuntimeException e) {
+			release(permit, false);
+			throw e;
+		}
+		asyncContext.setTimeout(asyncTimeout);
+		AtomicBoolean completed = new AtomicBoolean();
+		DingTalkConcurrencyLimiter.Permit asyncPermit = permit;
+		asyncContext.addListener(new AsyncListener() {
+
+			@Override
+			public void onTimeout(AsyncEvent event) throws IOException {
+				if (completed.compareAndSet(false, true)) {
+					log.warn("Async DingTalk login timed out after {} ms.", asyncTimeout);
+					release(asyncPermit, true);
+					onAccessFailure(token, new AuthenticationException("DingTalk login timed out."), request, response);
+					asyncContext.complete();
+				}
+			}
+
+			@Override
+			public void onError(AsyncEvent event) throws IOException {
+				completed.set(true);
+				release(asyncPermit, true);
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) throws IOException {
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) throws IOException {
+			}
+
+		});
+		try {
+			asyncExecutor.execute(subject.associateWith(() -> {
+				try {
+					login(token, subject, asyncContext, completed);
+				} finally {
+					release(asyncPermit, false);
+				}
+			}));
+		} catch (RejectedExecutionException e) {
+			release(asyncPermit, true);
+			if (completed.compareAndSet(false, true)) {
+				log.warn("Async DingTalk login rejected, the executor is saturated.");
+				onAccessFailure(token, new AuthenticationException("DingTalk login is busy, please try again later."), request, response);
+				asyncContext.complete();
+			}
+		}
+		return false;
+	}
+
+	private static void release(DingTalkConcurrencyLimiter.Permit permit, boolean dropped) {
+		if (permit == null) {
+			return;
+		}
+		if (dropped) {
+			permit.dropped();
+		} else {
+			permit.release();
+		}
+	}
+
+	/**
+	 * 登录请求超出并发上限时立即响应 503，并通过 Retry-After 提示客户端稍后重试
+	 * @param request 请求
+	 * @param response 响应
+	 * @return false，不再继续执行过滤器链
+	 * @throws IOException 写入响应失败
+	 */
+	protected boolean onLoginShed(ServletRequest request, ServletResponse response) throws IOException {
+		String mString = "Too many DingTalk login requests, please try again later.";
+		if (log.isDebugEnabled()) {
+			log.debug(mString);
+		}
+		byte[] body = shedBody;
+		if (body == null) {
+			shedBody = body = objectMapper.writeValueAsBytes(AuthcResponse.fail(HttpStatus.SC_SERVICE_UNAVAILABLE, mString));
+		}
+		WebUtils.toHttp(response).setStatus(HttpStatus.SC_SERVICE_UNAVAILABLE);
+		WebUtils.toHttp(response).setHeader("Retry-After", String.valueOf(concurrencyLimiter.getRetryAfterSeconds()));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+		response.setContentLength(body.length);
+
+		// Response Authentication status information
+		response.getOutputStream().write(body);
+		return false;
+	}
+
+	private void login(AuthenticationToken token, Subject subject, AsyncContext asyncContext, AtomicBoolean completed) {
+		ServletRequest request = asyncContext.getRequest();
+		ServletResponse response = asyncContext.getResponse();
+		AuthenticationException failure = null;
+		try {
+			subject.login(token);
+		} catch (AuthenticationException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			log.error("Async DingTalk login failed.", e);
+			failure = new AuthenticationException(e);
+		}
+		// 超时后不再写入响应
+		if (!completed.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			if (failure == null) {
+				onAccessSuccess(token, subject, request, response);
+			} else {
+				onAccessFailure(token, failure, request, response);
+			}
+		} finally {
+			asyncContext.complete();
+		}
+	}
+
+	@Override
+	protected boolean onAccessSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
+			ServletResponse response) {
+		if (metrics != null) {
+			metrics.recordOutcome(token, null);
+		}
+		return super.onAccessSuccess(token, subject, request, response);
+	}
+
+	@Override
+	protected boolean onAccessFailure(AuthenticationToken token, AuthenticationException e, ServletRequest request,
+			ServletResponse response) {
+		if (metrics != null) {
+			metrics.recordOutcome(token, e);
+		}
+		// 钉钉认证异常直接写入预先序列化的响应体
+		if (failureHandler != null && failureHandler.supports(e)) {
+			if (log.isDebugEnabled()) {
+				log.debug("DingTalk authentication failed: {}", e.getMessage());
+			}
+			failureHandler.onAuthenticationFailure(token, request, response, e);
+			return false;
+		}
+		return super.onAccessFailure(token, e, request, response);
+	}
+
+	@Override
+	protected boolean onAccessDenied(ServletRequest request, ServletResponse response) throws Exception {
+
+		// 1、判断是否登录请求
+		if (isLoginRequest(request, response)) {
+
+			if (isLoginSubmission(request, response)) {
+				if (log.isTraceEnabled()) {
+					log.trace("Login submission detected.  Attempting to execute login.");
+				}
+				return executeLogin(request, response);
+			} else {
+				byte[] body = notPostBody;
+				if (body == null) {
+					String mString = "Authentication url [" + getLoginUrl() + "] Not Http Post request.";
+					notPostBody = body = objectMapper.writeValueAsBytes(AuthcResponse.fail(HttpStatus.SC_BAD_REQUEST, mString));
+				}
+				if (log.isTraceEnabled()) {
+					log.trace("Authentication url [{}] Not Http Post request.", getLoginUrl());
+				}
+
+				// Response Authentication status information
+				DingTalkAuthenticationFailureHandler.write(response, body);
+
+				return false;
+			}
+		}
+		// 2、未授权情况
+		else {
+
+			String mString = "Attempting to access a path which requires authentication. ";
+			if (log.isTraceEnabled()) {
+				log.trace(mString);
+			}
+
+			// Ajax 请求：响应json数据对象
+			if (WebUtils.isAjaxRequest(request)) {
+
+				byte[] body = unauthenticatedBody;
+				if (body == null) {
+					unauthenticatedBody = body = objectMapper.writeValueAsBytes(AuthcResponse.fail(HttpStatus.SC_UNAUTHORIZED, mString));
+				}
+
+				// Response Authentication status information
+				DingTalkAuthenticationFailureHandler.write(response, body);
+
+				return false;
+			}
+			// 普通请求：重定向到登录页
+			saveRequestAndRedirectToLogin(request, response);
+			return false;
+		}
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	public DingTalkJwtClaimsCache getClaimsCache() {
+		return claimsCache;
+	}
+
+	public void setClaimsCache(DingTalkJwtClaimsCache claimsCache) {
+		this.claimsCache = claimsCache;
+	}
+
+	public Executor getAsyncExecutor() {
+		return asyncExecutor;
+	}
+
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	public long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
+	public DingTalkConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	public void setConcurrencyLimiter(DingTalkConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public int getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public void setMaxBodySize(int maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public DingTalkMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(DingTalkMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public DingTalkAuthenticationFailureHandler getFailureHandler() {
+		return failureHandler;
+	}
+
+	public void setFailureHandler(DingTalkAuthenticationFailureHandler failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+	public String getJwtHeader() {
+		return jwtHeader;
+	}
+
+	public void setJwtHeader(String jwtHeader) {
+		this.jwtHeader = jwtHeader;
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.biz.authc.AuthcResponse;
+import org.apache.shiro.biz.authc.AuthenticationFailureHandler;
+import org.apache.shiro.biz.utils.WebUtils;
+import org.apache.shiro.biz.web.servlet.http.HttpStatus;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeExpiredException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	钉钉认证失败处理：按异常类型映射响应状态码，并缓存每种（异常类型, 异常信息）对应的 UTF-8 响应体，
+ * 	重复的失败直接将字节写入输出流，不再经过 ObjectMapper 序列化
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkAuthenticationFailureHandler implements AuthenticationFailureHandler {
+
+	/** 缓存的响应体数量上限；钉钉服务端返回的错误信息不可枚举，超出上限后不再缓存 */
+	public static final int DEFAULT_MAXIMUM_BODIES = 256;
+
+	private final ObjectMapper objectMapper;
+	private final Map<Class<? extends AuthenticationException>, Integer> codes = new LinkedHashMap<>();
+	private final ConcurrentMap<Class<?>, Integer> resolvedCodes = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, byte[]> bodies = new ConcurrentHashMap<>();
+	private int maximumBodies = DEFAULT_MAXIMUM_BODIES;
+
+	public DingTalkAuthenticationFailureHandler(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+		codes.put(DingTalkCodeNotFoundException.class, HttpStatus.SC_BAD_REQUEST);
+		codes.put(DingTalkCodeIncorrectException.class, HttpStatus.SC_UNAUTHORIZED);
+		codes.put(DingTalkCodeExpiredException.class, HttpStatus.SC_UNAUTHORIZED);
+		codes.put(DingTalkAuthenticationServiceException.class, HttpStatus.SC_UNAUTHORIZED);
+		codes.put(DingTalkLoginRequestTooLargeException.class, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+	}
+
+	@Override
+	public boolean supports(AuthenticationException e) {
+		return resolveCode(e.getClass()) != null;
+	}
+
+	@Override
+	public void onAuthenticationFailure(AuthenticationToken token, ServletRequest request, ServletResponse response,
+			AuthenticationException e) {
+		try {
+			write(response, responseBody(e));
+		} catch (IOException ex) {
+			log.error("Unable to write DingTalk authentication failure response.", ex);
+		}
+	}
+
+	/**
+	 * 获取认证失败的响应体，供 Servlet 之外（如 WebFlux）写入响应
+	 * @param e 认证异常
+	 * @return UTF-8 编码的 {@link AuthcResponse} 响应体
+	 * @throws JsonProcessingException 序列化失败
+	 */
+	public byte[] responseBody(AuthenticationException e) throws JsonProcessingException {
+		Integer code = resolveCode(e.getClass());
+		if (code == null) {
+			code = HttpStatus.SC_UNAUTHORIZED;
+		}
+		return body(e.getClass(), code, e.getMessage());
+	}
+
+	/**
+	 * 获取失败响应体：首次出现的（异常类型, 异常信息）序列化后缓存
+	 * @param type 异常类型
+	 * @param code 响应状态码
+	 * @param message 异常信息
+	 * @return UTF-8 编码的响应体
+	 * @throws JsonProcessingException 序列化失败
+	 */
+	protected byte[] body(Class<?> type, int code, String message) throws JsonProcessingException {
+		String key = code + ":" + message;
+		byte[] body = bodies.get(key);
+		if (body == null) {
+			body = objectMapper.writeValueAsBytes(AuthcResponse.fail(code, message));
+			if (bodies.size() < maximumBodies) {
+				bodies.putIfAbsent(key, body);
+			} else if (log.isDebugEnabled()) {
+				log.debug("DingTalk failure body cache is full, {} not cached.", type.getName());
+			}
+		}
+		return body;
+	}
+
+	/**
+	 * 写入预先序列化的 JSON 响应体
+	 * @param response 响应
+	 * @param body UTF-8 编码的响应体
+	 * @throws IOException 写入响应失败
+	 */
+	public static void write(ServletResponse response, byte[] body) throws IOException {
+		write(response, body, body.length);
+	}
+
+	/**
+	 * 写入预先序列化的 JSON 响应体
+	 * @param response 响应
+	 * @param body UTF-8 编码的响应体，有效内容为 [0, length)
+	 * @param length 响应体长度
+	 * @throws IOException 写入响应失败
+	 */
+	public static void write(ServletResponse response, byte[] body, int length) throws IOException {
+		WebUtils.toHttp(response).setStatus(HttpStatus.SC_OK);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+		response.setContentLength(length);
+		response.getOutputStream().write(body, 0, length);
+	}
+
+	/**
+	 * 注册异常类型对应的响应状态码，需在处理请求之前调用
+	 * @param type 异常类型
+	 * @param code 响应状态码
+	 */
+	public void register(Class<? extends AuthenticationException> type, int code) {
+		codes.put(type, code);
+		resolvedCodes.clear();
+	}
+
+	/**
+	 * 按继承关系查找异常类型的状态码，不填充堆栈的异常子类与其父类共用同一状态码
+	 */
+	private Integer resolveCode(Class<?> type) {
+		Integer code = resolvedCodes.get(type);
+		if (code != null) {
+			return code < 0 ? null : code;
+		}
+		code = -1;
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+			Integer mapped = codes.get(current);
+			if (mapped != null) {
+				code = mapped;
+				break;
+			}
+		}
+		resolvedCodes.put(type, code);
+		return code < 0 ? null : code;
+	}
+
+	public int getMaximumBodies() {
+		return maximumBodies;
+	}
+
+	public void setMaximumBodies(int maximumBodies) {
+		this.maximumBodies = maximumBodies;
+	}
+
+	public int getCachedBodies() {
+		return bodies.size();
+	}
+
+}
@@ -22,6 +22,8 @@ import java.util.Map;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.biz.authc.AuthenticationSuccessHandler;
@@ -29,6 +31,13 @@ import org.apache.shiro.biz.authz.principal.ShiroPrincipal;
 import org.apache.shiro.biz.utils.SubjectUtils;
 import org.apache.shiro.biz.utils.WebUtils;
 import org.apache.shiro.biz.web.servlet.http.HttpStatus;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtIssuer;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkReusableOutputStream;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkFlightRecorder;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkJwtIssueEvent;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
@@ -39,10 +48,18 @@ import org.springframework.http.MediaType;
 
 public class DingTalkAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
 
+	private static final ThreadLocal<DingTalkReusableOutputStream> RESPONSE_BUFFER = ThreadLocal.withInitial(DingTalkReusableOutputStream::new);
+
 	private ObjectMapper objectMapper;
 	private JwtPayloadRepository jwtPayloadRepository;
 	/** If Check JWT Validity. */
 	private boolean checkExpiry = false;
+	/** Verified-JWT claims cache used by the stateless filters. */
+	private DingTalkJwtClaimsCache claimsCache;
+	/** JWT issuance timing, skipped when null. */
+	private DingTalkMetrics metrics;
+	/** Fast JWT issuer, JwtPayloadRepository is used when null. */
+	private DingTalkJwtIssuer jwtIssuer;
 
 	public DingTalkAuthenticationSuccessHandler(ObjectMapper objectMapper, JwtPayloadRepository jwtPayloadRepository, boolean checkExpiry) {
 		super();
@@ -63,14 +80,13 @@ public class DingTalkAuthenticationSuccessHandler implements AuthenticationSucce
 
 		try {
 
-			String tokenString = "";
-			// 账号首次登陆标记
-			if(ShiroPrincipal.class.isAssignableFrom(subject.getPrincipal().getClass())) {
-				// JSON Web Token (JWT)
-				tokenString = getJwtPayloadRepository().issueJwt(token, subject);
+			if (isStreamable(subject)) {
+				DingTalkReusableOutputStream body = streamBody(token, subject);
+				DingTalkAuthenticationFailureHandler.write(response, body.buffer(), body.size());
+				return;
 			}
 
-			Map<String, Object> tokenMap = SubjectJwtUtils.tokenMap(subject, tokenString);
+			Map<String, Object> tokenMap = tokenMap(token, subject);
 
 			WebUtils.toHttp(response).setStatus(HttpStatus.SC_OK);
 			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
@@ -83,6 +99,103 @@ public class DingTalkAuthenticationSuccessHandler implements AuthenticationSucce
 
 	}
 
+	/**
+	 * 签发 JWT 并生成登录成功的响应内容，Servlet 与 WebFlux 登录流程共用
+	 * @param token 认证 Token
+	 * @param subject 已认证的 Subject
+	 * @return 响应内容
+	 */
+	public Map<String, Object> tokenMap(AuthenticationToken token, Subject subject) {
+		String tokenString = "";
+		// 账号首次登陆标记
+		if(ShiroPrincipal.class.isAssignableFrom(subject.getPrincipal().getClass())) {
+			// JSON Web Token (JWT)
+			tokenString = issueJwt(token, subject);
+			if (claimsCache != null) {
+				claimsCache.put(tokenString, subject.getPrincipals());
+			}
+		}
+		return SubjectJwtUtils.tokenMap(subject, tokenString);
+	}
+
+	/**
+	 * 生成 UTF-8 编码的登录成功响应体，Servlet 与 WebFlux 登录流程共用：
+	 * 配置了 {@link DingTalkJwtIssuer} 且身份为 {@link ShiroDingTalkPrincipal} 时直接流式写出精简响应，否则序列化 {@link #tokenMap}
+	 * @param token 认证 Token
+	 * @param subject 已认证的 Subject
+	 * @return 响应体
+	 * @throws IOException 序列化失败
+	 */
+	public byte[] responseBody(AuthenticationToken token, Subject subject) throws IOException {
+		if (isStreamable(subject)) {
+			return streamBody(token, subject).toByteArray();
+		}
+		return objectMapper.writeValueAsBytes(tokenMap(token, subject));
+	}
+
+	protected boolean isStreamable(Subject subject) {
+		return jwtIssuer != null && subject.getPrincipal() instanceof ShiroDingTalkPrincipal;
+	}
+
+	/**
+	 * 签发 JWT 并将精简响应直接写入线程内复用的缓冲区，不构造中间 Map
+	 * @param token 认证 Token
+	 * @param subject 已认证的 Subject
+	 * @return 线程内复用的缓冲区，仅在当前线程下一次调用前有效
+	 * @throws IOException 序列化失败
+	 */
+	protected DingTalkReusableOutputStream streamBody(AuthenticationToken token, Subject subject) throws IOException {
+		ShiroDingTalkPrincipal principal = (ShiroDingTalkPrincipal) subject.getPrincipal();
+		String tokenString = issueJwt(token, subject);
+		if (claimsCache != null) {
+			claimsCache.put(tokenString, subject.getPrincipals());
+		}
+		DingTalkReusableOutputStream body = RESPONSE_BUFFER.get().recycle();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(body, JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeNumberField("code", HttpStatus.SC_OK);
+			generator.writeStringField("status", "success");
+			generator.writeStringField("msg", "Login Success.");
+			generator.writeStringField("token", tokenString);
+			generator.writeStringField("userid", principal.getUserid());
+			generator.writeStringField("unionid", principal.getUnionid());
+			generator.writeStringField("name", principal.getName());
+			generator.writeStringField("avatar", principal.getAvatar());
+			generator.writeEndObject();
+		}
+		return body;
+	}
+
+	private String issueJwt(AuthenticationToken token, Subject subject) {
+		DingTalkJwtIssueEvent event = DingTalkFlightRecorder.beginJwtIssue();
+		if (metrics == null && event == null) {
+			return doIssueJwt(token, subject);
+		}
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return doIssueJwt(token, subject);
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			if (metrics != null) {
+				metrics.recordJwtIssue(token, System.nanoTime() - start, error);
+			}
+			if (event != null) {
+				event.complete(token, error);
+			}
+		}
+	}
+
+	private String doIssueJwt(AuthenticationToken token, Subject subject) {
+		Object principal = subject.getPrincipal();
+		if (jwtIssuer != null && principal instanceof ShiroDingTalkPrincipal) {
+			return jwtIssuer.issue((ShiroDingTalkPrincipal) principal);
+		}
+		return getJwtPayloadRepository().issueJwt(token, subject);
+	}
+
 	@Override
 	public int getOrder() {
 		return Integer.MAX_VALUE - 2;
@@ -92,4 +205,28 @@ public class DingTalkAuthenticationSuccessHandler implements AuthenticationSucce
 		return jwtPayloadRepository;
 	}
 
+	public DingTalkJwtClaimsCache getClaimsCache() {
+		return claimsCache;
+	}
+
+	public void setClaimsCache(DingTalkJwtClaimsCache claimsCache) {
+		this.claimsCache = claimsCache;
+	}
+
+	public DingTalkMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(DingTalkMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public DingTalkJwtIssuer getJwtIssuer() {
+		return jwtIssuer;
+	}
+
+	public void setJwtIssuer(DingTalkJwtIssuer jwtIssuer) {
+		this.jwtIssuer = jwtIssuer;
+	}
+
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+
+/**
+ * 	限制可读取字节数的输入流：未声明 Content-Length（如分块传输）的登录请求在解析过程中超出上限时立即中止
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkBoundedInputStream extends FilterInputStream {
+
+	private final long limit;
+	private long remaining;
+
+	DingTalkBoundedInputStream(InputStream in, long limit) {
+		super(in);
+		this.limit = limit;
+		this.remaining = limit;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) {
+			consume(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		// 多读一个字节，以便区分恰好达到上限与超出上限
+		int n = super.read(b, off, (int) Math.min(len, remaining + 1));
+		if (n > 0) {
+			consume(n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(Math.min(n, remaining + 1));
+		consume(skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void consume(long n) {
+		remaining -= n;
+		if (remaining < 0) {
+			throw DingTalkLoginRequestTooLargeException.stackless("Login request body exceeds " + limit + " bytes.");
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.web.util.WebUtils;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	钉钉登录组合过滤器：以一个过滤器替代分别挂载的扫码、临时授权码与小程序登录过滤器；
+ * 	登录地址在注册时编入精确匹配表，每个请求只做一次哈希查找即可判断是否为钉钉登录请求，
+ * 	命中时直接交给对应登录过滤器的 {@link AbstractDingTalkAuthenticatingFilter#createToken(ServletRequest, ServletResponse)} 生成 Token
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkCompositeAuthenticatingFilter extends AbstractDingTalkAuthenticatingFilter {
+
+	private static final String DELEGATE_ATTRIBUTE = DingTalkCompositeAuthenticatingFilter.class.getName() + ".DELEGATE";
+
+	/** 登录地址 -> 登录过滤器，写时复制，请求线程只读 */
+	private volatile Map<String, AbstractDingTalkAuthenticatingFilter> delegates = Collections.emptyMap();
+
+	public DingTalkCompositeAuthenticatingFilter(ObjectMapper objectMapper) {
+		super(objectMapper);
+	}
+
+	/**
+	 * 注册登录地址与生成 Token 的登录过滤器；登录地址为应用内的精确路径，不支持 Ant 通配符
+	 * @param loginUrl 登录地址，如 /login/dingtalk/scan
+	 * @param delegate 该地址对应的登录过滤器，仅用于解析请求生成 Token
+	 */
+	public synchronized void addLoginFilter(String loginUrl, AbstractDingTalkAuthenticatingFilter delegate) {
+		Map<String, AbstractDingTalkAuthenticatingFilter> copy = new HashMap<>(delegates);
+		put(copy, loginUrl, delegate);
+		this.delegates = copy;
+	}
+
+	/**
+	 * 替换全部登录地址：先校验并构建完整的匹配表，再一次发布，请求线程不会看到部分注册的匹配表
+	 * @param loginFilters 登录地址 -> 登录过滤器
+	 */
+	public synchronized void setLoginFilters(Map<String, AbstractDingTalkAuthenticatingFilter> loginFilters) {
+		Map<String, AbstractDingTalkAuthenticatingFilter> table = new HashMap<>(loginFilters.size() * 2);
+		loginFilters.forEach((loginUrl, delegate) -> put(table, loginUrl, delegate));
+		this.delegates = table;
+	}
+
+	private static void put(Map<String, AbstractDingTalkAuthenticatingFilter> table, String loginUrl, AbstractDingTalkAuthenticatingFilter delegate) {
+		if (!StringUtils.hasText(loginUrl) || delegate == null) {
+			throw new IllegalArgumentException("DingTalk login url and filter must not be empty.");
+		}
+		if (loginUrl.indexOf('*') >= 0 || loginUrl.indexOf('?') >= 0) {
+			throw new IllegalArgumentException("DingTalk login url must be an exact path: " + loginUrl);
+		}
+		table.put(normalize(loginUrl), delegate);
+	}
+
+	public Map<String, AbstractDingTalkAuthenticatingFilter> getLoginFilters() {
+		return Collections.unmodifiableMap(delegates);
+	}
+
+	@Override
+	protected boolean isLoginRequest(ServletRequest request, ServletResponse response) {
+		return resolveDelegate(request) != null;
+	}
+
+	@Override
+	protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
+		AbstractDingTalkAuthenticatingFilter delegate = resolveDelegate(request);
+		if (delegate == null) {
+			throw new IllegalStateException("No DingTalk login filter mapped to the request.");
+		}
+		return delegate.createToken(request, response);
+	}
+
+	/**
+	 * 查找请求路径对应的登录过滤器，结果保存在请求属性中，同一请求后续不再重复查找
+	 * @param request 请求
+	 * @return 登录过滤器，非钉钉登录请求返回 null
+	 */
+	protected AbstractDingTalkAuthenticatingFilter resolveDelegate(ServletRequest request) {
+		Object resolved = request.getAttribute(DELEGATE_ATTRIBUTE);
+		if (resolved != null) {
+			return resolved instanceof AbstractDingTalkAuthenticatingFilter ? (AbstractDingTalkAuthenticatingFilter) resolved : null;
+		}
+		AbstractDingTalkAuthenticatingFilter delegate = delegates.get(normalize(WebUtils.getPathWithinApplication(WebUtils.toHttp(request))));
+		request.setAttribute(DELEGATE_ATTRIBUTE, delegate == null ? Boolean.FALSE : delegate);
+		return delegate;
+	}
+
+	private static String normalize(String path) {
+		int end = path.length();
+		while (end > 1 && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		return end == path.length() ? path : path.substring(0, end);
+	}
+
+}
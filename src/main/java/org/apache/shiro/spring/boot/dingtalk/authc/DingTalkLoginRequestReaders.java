@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	登录请求 {@link ObjectReader} 工厂：按登录请求类型预先构建 ObjectReader，避免每次解析时重新查找反序列化器；
+ * 	类路径中存在 jackson-module-blackbird 且运行环境支持时，在 ObjectMapper 的副本上启用 Blackbird 以加速属性访问
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public final class DingTalkLoginRequestReaders {
+
+	private static final String BLACKBIRD_MODULE = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+
+	private DingTalkLoginRequestReaders() {
+	}
+
+	/**
+	 * 构建登录请求类型对应的 ObjectReader
+	 * @param objectMapper 应用共享的 ObjectMapper，不会被修改
+	 * @param type 登录请求类型
+	 * @return 线程安全、可复用的 ObjectReader
+	 */
+	public static ObjectReader forType(ObjectMapper objectMapper, Class<?> type) {
+		return withBlackbird(objectMapper).readerFor(type);
+	}
+
+	/**
+	 * 在 ObjectMapper 的副本上注册 Blackbird；不可用或已注册时返回原 ObjectMapper
+	 * @param objectMapper 应用共享的 ObjectMapper
+	 * @return 可用于构建 ObjectReader 的 ObjectMapper
+	 */
+	static ObjectMapper withBlackbird(ObjectMapper objectMapper) {
+		if (objectMapper.getRegisteredModuleIds().contains(BLACKBIRD_MODULE)) {
+			return objectMapper;
+		}
+		try {
+			Module module = (Module) Class.forName(BLACKBIRD_MODULE, true, DingTalkLoginRequestReaders.class.getClassLoader())
+					.getDeclaredConstructor().newInstance();
+			return objectMapper.copy().registerModule(module);
+		} catch (ClassNotFoundException e) {
+			return objectMapper;
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			log.debug("Jackson Blackbird module is not usable, fall back to the default deserializers.", e);
+			return objectMapper;
+		}
+	}
+
+}
@@ -15,26 +15,22 @@
  */
 package org.apache.shiro.spring.boot.dingtalk.authc;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.biz.authc.AuthcResponse;
 import org.apache.shiro.biz.utils.WebUtils;
-import org.apache.shiro.biz.web.filter.authc.AbstractTrustableAuthenticatingFilter;
-import org.apache.shiro.biz.web.servlet.http.HttpStatus;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
-import org.apache.shiro.subject.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
 
 import com.alibaba.fastjson.JSONObject;
@@ -43,7 +39,7 @@ import com.alibaba.fastjson.JSONObject;
  * https://open.dingtalk.com/document/orgapp-client/mini-program-free-login
  */
 @Slf4j
-public class DingTalkMaAuthenticatingFilter extends AbstractTrustableAuthenticatingFilter {
+public class DingTalkMaAuthenticatingFilter extends AbstractDingTalkAuthenticatingFilter {
 
 	private static final Logger log = LoggerFactory.getLogger(DingTalkMaAuthenticatingFilter.class);
 
@@ -54,88 +50,13 @@ public class DingTalkMaAuthenticatingFilter extends AbstractTrustableAuthenticat
 	private String keyParameter = SPRING_SECURITY_FORM_APP_KEY;
 	private String tokenParameter = SPRING_SECURITY_FORM_TOKEN_KEY;
 	private String authCodeParameter = SPRING_SECURITY_FORM_CODE_KEY;
+	private final ObjectReader loginRequestReader;
 
-	private ObjectMapper objectMapper;
 	public DingTalkMaAuthenticatingFilter(ObjectMapper objectMapper) {
-		super();
-		this.objectMapper = objectMapper;
+		super(objectMapper);
+		this.loginRequestReader = DingTalkLoginRequestReaders.forType(objectMapper, DingTalkMaLoginRequest.class);
 	}
 
-	@Override
-	protected boolean isAccessAllowed(ServletRequest request, ServletResponse response, Object mappedValue) {
-		// 判断是否无状态
-		if (isSessionStateless()) {
-			// Step 1、生成 Shiro Token
-			AuthenticationToken token = createToken(request, response);
-			try {
-				//Step 2、委托给Realm进行登录
-				Subject subject = getSubject(request, response);
-				subject.login(token);
-				//Step 3、执行授权成功后的函数
-				return onAccessSuccess(token, subject, request, response);
-			} catch (AuthenticationException e) {
-				//Step 4、执行授权失败后的函数
-				return onAccessFailure(token, e, request, response);
-			}
-		}
-		return super.isAccessAllowed(request, response, mappedValue);
-	}
-
-	@Override
-	protected boolean onAccessDenied(ServletRequest request, ServletResponse response) throws Exception {
-
-		// 1、判断是否登录请求
-		if (isLoginRequest(request, response)) {
-
-			if (isLoginSubmission(request, response)) {
-				if (log.isTraceEnabled()) {
-					log.trace("Login submission detected.  Attempting to execute login.");
-				}
-				return executeLogin(request, response);
-			} else {
-				String mString = "Authentication url [" + getLoginUrl() + "] Not Http Post request.";
-				if (log.isTraceEnabled()) {
-					log.trace(mString);
-				}
-
-				WebUtils.toHttp(response).setStatus(HttpStatus.SC_OK);
-				response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-				response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
-
-				// Response Authentication status information
-				objectMapper.writeValue(response.getOutputStream(), AuthcResponse.fail(HttpStatus.SC_BAD_REQUEST, mString));
-
-				return false;
-			}
-		}
-		// 2、未授权情况
-		else {
-
-			String mString = "Attempting to access a path which requires authentication. ";
-			if (log.isTraceEnabled()) {
-				log.trace(mString);
-			}
-
-			// Ajax 请求：响应json数据对象
-			if (WebUtils.isAjaxRequest(request)) {
-
-				WebUtils.toHttp(response).setStatus(HttpStatus.SC_OK);
-				response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-				response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
-
-				// Response Authentication status information
-				objectMapper.writeValue(response.getOutputStream(), AuthcResponse.fail(HttpStatus.SC_UNAUTHORIZED, mString));
-
-				return false;
-			}
-			// 普通请求：重定向到登录页
-			saveRequestAndRedirectToLogin(request, response);
-			return false;
-		}
-	}
-
-
-
 	@Override
 	protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
 		// Post && JSON
@@ -147,18 +68,18 @@ public class DingTalkMaAuthenticatingFilter extends AbstractTrustableAuthenticat
 
 			try {
 
-				DingTalkMaLoginRequest loginRequest = objectMapper.readValue(request.getReader(), DingTalkMaLoginRequest.class);
+				DingTalkMaLoginRequest loginRequest = readLoginRequest(request, loginRequestReader);
 
 				if ( !StringUtils.hasText(loginRequest.getKey())) {
 					log.debug("No key (appId or appKey) found in request.");
-					throw new DingTalkCodeNotFoundException("No key (appId or appKey) found in request.");
+					throw DingTalkCodeNotFoundException.stackless("No key (appId or appKey) found in request.");
 				}
 				if ( !StringUtils.hasText(loginRequest.getAuthCode())) {
 					log.debug("No AuthCode found in request.");
-					throw new DingTalkCodeNotFoundException("No AuthCode found in request.");
+					throw DingTalkCodeNotFoundException.stackless("No AuthCode found in request.");
 				}
 				return new DingTalkMaAuthenticationToken(loginRequest, getHost(request));
-			} catch (Exception e) {
+			} catch (IOException e) {
 				throw new AuthenticationException(e);
 			}
 		}
@@ -173,11 +94,11 @@ public class DingTalkMaAuthenticatingFilter extends AbstractTrustableAuthenticat
 
 		if ( !StringUtils.hasText(appId)) {
 			log.debug("No appId found in request.");
-			throw new DingTalkCodeNotFoundException("No appId found in request.");
+			throw DingTalkCodeNotFoundException.stackless("No appId found in request.");
 		}
 		if ( !StringUtils.hasText(authCode)) {
 			log.debug("No authCode found in request.");
-			throw new DingTalkCodeNotFoundException("No authCode found in request.");
+			throw DingTalkCodeNotFoundException.stackless("No authCode found in request.");
 		}
 
 		DingTalkMaLoginRequest loginRequest = new DingTalkMaLoginRequest(appId, token, authCode);
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 	共享存储中的 AccessToken 及其过期时间
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@ToString
+public final class DingTalkAccessToken {
+
+	/**
+	 * 	AccessToken
+	 */
+	@ToString.Exclude
+	private final String token;
+	/**
+	 * 	过期时间（毫秒时间戳）
+	 */
+	private final long expireTime;
+
+	public DingTalkAccessToken(String token, long expireTime) {
+		this.token = token;
+		this.expireTime = expireTime;
+	}
+
+	public boolean isExpired(long now) {
+		return now >= expireTime;
+	}
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkFlightRecorder;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAccessTokenProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.taobao.api.ApiException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	按 AppKey 缓存 AccessToken，并在过期前由后台线程提前刷新，稳定状态下登录请求不再等待远程获取 AccessToken
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkAccessTokenCache implements DisposableBean {
+
+	/**
+	 * 	钉钉拒绝 AccessToken 的错误码：40014 不合法的 access_token，42001 access_token 超时
+	 */
+	private static final Set<String> REJECTED_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("40014", "42001")));
+
+	private final DingTalkTemplate dingTalkTemplate;
+	private final ScheduledExecutorService scheduler;
+	private final ConcurrentMap<String, AccessTokenEntry> tokens = new ConcurrentHashMap<>();
+	private final DingTalkSingleFlight<String, AccessTokenEntry> singleFlight = new DingTalkSingleFlight<>();
+
+	private final long expiresInMillis;
+	private final long refreshAheadMillis;
+	private final long refreshJitterMillis;
+	private final long refreshRetryIntervalMillis;
+	private final long loadTimeoutMillis;
+	private final Duration leaseTime;
+	private final long leasePollIntervalMillis;
+	/**
+	 * 	当前节点标识，作为共享存储中刷新租约的持有者
+	 */
+	private final String nodeId = UUID.randomUUID().toString();
+	private DingTalkAccessTokenStore tokenStore;
+	private DingTalkRemoteInvoker remoteInvoker = DingTalkRemoteInvoker.DIRECT;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder refreshCount = new LongAdder();
+	private final LongAdder refreshFailureCount = new LongAdder();
+	private final LongAdder fetchCount = new LongAdder();
+
+	public DingTalkAccessTokenCache(DingTalkTemplate dingTalkTemplate, ShiroDingTalkAccessTokenProperties properties) {
+		this.dingTalkTemplate = dingTalkTemplate;
+		this.expiresInMillis = properties.getExpiresIn().toMillis();
+		this.refreshAheadMillis = properties.getRefreshAhead().toMillis();
+		this.refreshJitterMillis = properties.getRefreshJitter().toMillis();
+		this.refreshRetryIntervalMillis = properties.getRefreshRetryInterval().toMillis();
+		this.loadTimeoutMillis = properties.getLoadTimeout().toMillis();
+		this.leaseTime = properties.getLeaseTime();
+		this.leasePollIntervalMillis = properties.getLeasePollInterval().toMillis();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dingtalk-token-refresh-");
+		threadFactory.setDaemon(true);
+		this.scheduler = Executors.newScheduledThreadPool(Math.max(1, properties.getRefreshThreads()), threadFactory);
+	}
+
+	/**
+	 * 获取指定应用的 AccessToken：命中缓存直接返回，未命中时同步获取并安排后台刷新；
+	 * 同一 AppKey 的并发未命中只会产生一次远程调用
+	 * @param appKey 应用的唯一标识key
+	 * @param appSecret 应用的密钥
+	 * @return AccessToken
+	 * @throws ApiException 远程获取 AccessToken 失败
+	 */
+	public String getAccessToken(String appKey, String appSecret) throws ApiException {
+		AccessTokenEntry entry = tokens.get(appKey);
+		long now = System.currentTimeMillis();
+		if (entry != null && !entry.isExpired(now)) {
+			hitCount.increment();
+			entry.lastAccessTime = now;
+			return entry.token;
+		}
+		missCount.increment();
+		return loadShared(appKey, appSecret, null).token;
+	}
+
+	/**
+	 * 移除指定应用的 AccessToken，例如钉钉返回 AccessToken 无效时；配置了共享存储时一并删除共享存储中的同一 AccessToken，
+	 * 避免下次读取重新采用已被钉钉拒绝的值
+	 * @param appKey 应用的唯一标识key
+	 */
+	public void invalidate(String appKey) {
+		AccessTokenEntry entry = tokens.remove(appKey);
+		if (entry != null) {
+			entry.cancelRefresh();
+			if (tokenStore != null) {
+				try {
+					tokenStore.invalidate(appKey, new DingTalkAccessToken(entry.token, entry.expireTime));
+				} catch (RuntimeException e) {
+					log.warn("Invalidate shared DingTalk access token of App Key {} failed.", appKey, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param e 钉钉远程调用异常
+	 * @return 钉钉是否因 AccessToken 无效或过期拒绝了请求
+	 */
+	public static boolean isRejected(ApiException e) {
+		return e != null && REJECTED_ERROR_CODES.contains(e.getErrCode());
+	}
+
+	protected AccessTokenEntry loadShared(String appKey, String appSecret, AccessTokenEntry current) throws ApiException {
+		try {
+			return singleFlight.execute(appKey, () -> {
+				// 等待期间可能已有其他调用者完成获取
+				AccessTokenEntry entry = tokens.get(appKey);
+				if (entry != null && entry != current && !entry.isExpired(System.currentTimeMillis())) {
+					return entry;
+				}
+				return load(appKey, appSecret, current);
+			}, loadTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ApiException e) {
+			throw e;
+		} catch (TimeoutException e) {
+			throw new ApiException("Timeout waiting for DingTalk access token of App Key " + appKey + ".");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApiException("Interrupted while waiting for DingTalk access token of App Key " + appKey + ".");
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ApiException(e);
+		}
+	}
+
+	protected AccessTokenEntry load(String appKey, String appSecret, AccessTokenEntry current) throws ApiException {
+		DingTalkAccessToken accessToken = tokenStore != null ? loadFromStore(appKey, appSecret, current) : fetchAccessToken(appKey, appSecret);
+		long now = System.currentTimeMillis();
+		AccessTokenEntry entry = new AccessTokenEntry(accessToken.getToken(), accessToken.getExpireTime(), now);
+		AccessTokenEntry previous = tokens.put(appKey, entry);
+		if (previous != null) {
+			previous.cancelRefresh();
+			entry.lastAccessTime = Math.max(now, previous.lastAccessTime);
+		}
+		scheduleRefresh(appKey, appSecret, entry, refreshDelay(entry.expireTime - now));
+		return entry;
+	}
+
+	/**
+	 * 从共享存储加载 AccessToken：共享存储中已有可用的 AccessToken 时直接使用，否则仅由持有租约的节点远程获取并写回，
+	 * 其余节点在等待时间内轮询共享存储
+	 */
+	protected DingTalkAccessToken loadFromStore(String appKey, String appSecret, AccessTokenEntry current) throws ApiException {
+		long deadline = System.currentTimeMillis() + loadTimeoutMillis;
+		DingTalkAccessToken shared;
+		long now;
+		while (true) {
+			shared = tokenStore.get(appKey);
+			now = System.currentTimeMillis();
+			if (isUsable(shared, current, now)) {
+				return shared;
+			}
+			if (tokenStore.tryLease(appKey, nodeId, leaseTime)) {
+				try {
+					// 获取租约前其他节点可能刚好完成刷新
+					shared = tokenStore.get(appKey);
+					if (isUsable(shared, current, System.currentTimeMillis())) {
+						return shared;
+					}
+					DingTalkAccessToken accessToken = fetchAccessToken(appKey, appSecret);
+					tokenStore.save(appKey, accessToken);
+					return accessToken;
+				} finally {
+					tokenStore.releaseLease(appKey, nodeId);
+				}
+			}
+			if (now >= deadline) {
+				break;
+			}
+			try {
+				Thread.sleep(Math.max(1, Math.min(leasePollIntervalMillis, deadline - now)));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ApiException("Interrupted while waiting for shared DingTalk access token of App Key " + appKey + ".");
+			}
+		}
+		// 等待其他节点刷新超时：仍在有效期内的共享 AccessToken 好过登录失败
+		if (shared != null && !shared.isExpired(now)) {
+			return shared;
+		}
+		throw new ApiException("Timeout waiting for shared DingTalk access token of App Key " + appKey + ".");
+	}
+
+	private boolean isUsable(DingTalkAccessToken shared, AccessTokenEntry current, long now) {
+		if (shared == null || shared.isExpired(now)) {
+			return false;
+		}
+		// 后台刷新时只接受比当前更新的 AccessToken
+		return current == null || shared.getExpireTime() > current.expireTime;
+	}
+
+	private DingTalkAccessToken fetchAccessToken(String appKey, String appSecret) throws ApiException {
+		fetchCount.increment();
+		String accessToken = fetch(appKey, appSecret);
+		return new DingTalkAccessToken(accessToken, System.currentTimeMillis() + expiresInMillis);
+	}
+
+	protected String fetch(String appKey, String appSecret) throws ApiException {
+		return remoteInvoker.invoke(appKey, DingTalkRemoteOperation.GET_ACCESS_TOKEN, DingTalkFlightRecorder.record(appKey,
+				DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> dingTalkTemplate.getAccessToken(appKey, appSecret)));
+	}
+
+	protected void refresh(String appKey, String appSecret, AccessTokenEntry current) {
+		if (tokens.get(appKey) != current) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		// 长时间未被使用的 AppKey 不再续期，下次访问时重新获取
+		if (now - current.lastAccessTime > expiresInMillis) {
+			tokens.remove(appKey, current);
+			return;
+		}
+		try {
+			loadShared(appKey, appSecret, current);
+			refreshCount.increment();
+		} catch (Exception e) {
+			refreshFailureCount.increment();
+			log.warn("Refresh DingTalk access token of App Key {} failed.", appKey, e);
+			long remaining = current.expireTime - System.currentTimeMillis();
+			if (remaining > 0) {
+				scheduleRefresh(appKey, appSecret, current, Math.min(refreshRetryIntervalMillis, remaining));
+			}
+		}
+	}
+
+	private void scheduleRefresh(String appKey, String appSecret, AccessTokenEntry entry, long delay) {
+		if (scheduler.isShutdown()) {
+			return;
+		}
+		entry.refreshFuture = scheduler.schedule(() -> refresh(appKey, appSecret, entry), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private long refreshDelay(long remaining) {
+		long jitter = refreshJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(refreshJitterMillis) : 0;
+		return Math.max(0, remaining - refreshAheadMillis - jitter);
+	}
+
+	public DingTalkAccessTokenStore getTokenStore() {
+		return tokenStore;
+	}
+
+	/**
+	 * 设置集群共享的 AccessToken 存储，未设置时每个节点各自获取 AccessToken
+	 * @param tokenStore 共享存储
+	 */
+	public void setTokenStore(DingTalkAccessTokenStore tokenStore) {
+		this.tokenStore = tokenStore;
+	}
+
+	public DingTalkRemoteInvoker getRemoteInvoker() {
+		return remoteInvoker;
+	}
+
+	public void setRemoteInvoker(DingTalkRemoteInvoker remoteInvoker) {
+		this.remoteInvoker = remoteInvoker;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getRefreshCount() {
+		return refreshCount.sum();
+	}
+
+	public long getRefreshFailureCount() {
+		return refreshFailureCount.sum();
+	}
+
+	/**
+	 * @return 未命中或刷新时执行加载的次数，包含加载时发现其他调用者或共享存储已有可用 AccessToken 的情况
+	 */
+	public long getLoadCount() {
+		return singleFlight.getExecutedCount();
+	}
+
+	/**
+	 * @return 实际向钉钉发起远程获取 AccessToken 的次数
+	 */
+	public long getFetchCount() {
+		return fetchCount.sum();
+	}
+
+	/**
+	 * @return 未命中时合并到其他调用者远程获取结果的次数
+	 */
+	public long getLoadSharedCount() {
+		return singleFlight.getSharedCount();
+	}
+
+	public int size() {
+		return tokens.size();
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+		tokens.clear();
+	}
+
+	protected static class AccessTokenEntry {
+
+		private final String token;
+		private final long expireTime;
+		private volatile long lastAccessTime;
+		private volatile ScheduledFuture<?> refreshFuture;
+
+		AccessTokenEntry(String token, long expireTime, long lastAccessTime) {
+			this.token = token;
+			this.expireTime = expireTime;
+			this.lastAccessTime = lastAccessTime;
+		}
+
+		boolean isExpired(long now) {
+			return now >= expireTime;
+		}
+
+		void cancelRefresh() {
+			ScheduledFuture<?> future = refreshFuture;
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
+		public String getToken() {
+			return token;
+		}
+
+		public long getExpireTime() {
+			return expireTime;
+		}
+
+	}
+
+}
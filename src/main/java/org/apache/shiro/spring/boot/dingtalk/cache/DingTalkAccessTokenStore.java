@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import java.time.Duration;
+
+/**
+ * 	集群共享的 AccessToken 存储：各节点读取同一份 AccessToken，并通过租约保证同一 AppKey 同一时刻只有一个节点刷新
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkAccessTokenStore {
+
+	/**
+	 * 读取共享的 AccessToken
+	 * @param appKey 应用的唯一标识key
+	 * @return AccessToken，不存在时返回 null
+	 */
+	DingTalkAccessToken get(String appKey);
+
+	/**
+	 * 写入共享的 AccessToken
+	 * @param appKey 应用的唯一标识key
+	 * @param accessToken AccessToken
+	 */
+	void save(String appKey, DingTalkAccessToken accessToken);
+
+	/**
+	 * 删除共享的 AccessToken，仅当共享存储中的值仍是 accessToken 时生效，避免删除其他节点刚刷新的新值
+	 * @param appKey 应用的唯一标识key
+	 * @param accessToken 钉钉已判定无效的 AccessToken
+	 * @return 是否删除成功
+	 */
+	boolean invalidate(String appKey, DingTalkAccessToken accessToken);
+
+	/**
+	 * 尝试获取刷新租约
+	 * @param appKey 应用的唯一标识key
+	 * @param owner 租约持有者（节点标识）
+	 * @param leaseTime 租约时长，持有者异常退出时租约到期自动释放
+	 * @return 是否获取成功
+	 */
+	boolean tryLease(String appKey, String owner, Duration leaseTime);
+
+	/**
+	 * 释放刷新租约，仅当租约仍由 owner 持有时生效
+	 * @param appKey 应用的唯一标识key
+	 * @param owner 租约持有者（节点标识）
+	 */
+	void releaseLease(String appKey, String owner);
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkAuthenticationInfos;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRepositoryCacheProperties;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStore;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStoreCodec;
+import org.springframework.util.StringUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	Repository 认证信息的两级缓存：一级为本地 Caffeine（W-TinyLFU 淘汰），二级为可选的 {@link DingTalkSharedStore}；
+ * 	以钉钉换取的用户标识（{@link #unionid(String)}、{@link #userid(String)}）为 Key，
+ * 	用户信息变更时调用 {@link #invalidateUnionid(String)}、{@link #invalidateUserid(String)} 清除；
+ * 	缓存的认证信息由多个请求共享，默认返回复制了身份集合的副本（身份对象仍然共享），关闭 copy-on-read 时调用方不得修改返回值
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkAuthenticationInfoCache {
+
+	public static final String DEFAULT_KEY_PREFIX = "shiro:dingtalk:authc-info:";
+	public static final String UNIONID_PREFIX = "unionid:";
+	public static final String USERID_PREFIX = "userid:";
+
+	private final Cache<String, AuthenticationInfo> cache;
+	private final Duration sharedTtl;
+	private final boolean copyOnRead;
+	private DingTalkSharedStore sharedStore;
+	private DingTalkSharedStoreCodec sharedStoreCodec = new DingTalkSharedStoreCodec();
+	private String keyPrefix = DEFAULT_KEY_PREFIX;
+
+	public DingTalkAuthenticationInfoCache(ShiroDingTalkRepositoryCacheProperties properties) {
+		this.sharedTtl = properties.getSharedTtl();
+		this.copyOnRead = properties.isCopyOnRead();
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfterWrite(properties.getTtl())
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * @param unionid 钉钉 unionid
+	 * @return unionid 对应的缓存 Key，unionid 为空时返回 null
+	 */
+	public static String unionid(String unionid) {
+		return StringUtils.hasText(unionid) ? UNIONID_PREFIX + unionid : null;
+	}
+
+	/**
+	 * @param userid 钉钉 userid
+	 * @return userid 对应的缓存 Key，userid 为空时返回 null
+	 */
+	public static String userid(String userid) {
+		return StringUtils.hasText(userid) ? USERID_PREFIX + userid : null;
+	}
+
+	/**
+	 * 获取用户标识对应的认证信息：依次查找本地缓存、共享缓存，均未命中时调用 Repository 并回填两级缓存；
+	 * 共享缓存与 Repository 的查询在 Caffeine 的计算之外进行，慢查询不会阻塞同一哈希桶中其他 Key 的读写，
+	 * 同一 Key 并发未命中时可能重复查询，先写入本地缓存的结果生效
+	 * @param identity 由 {@link #unionid(String)}、{@link #userid(String)} 构造的缓存 Key
+	 * @param loader Repository 查询
+	 * @return 认证信息（开启 copy-on-read 时为副本），Repository 返回 null 时不缓存
+	 * @throws AuthenticationException Repository 查询失败
+	 */
+	public AuthenticationInfo get(String identity, Supplier<AuthenticationInfo> loader) throws AuthenticationException {
+		AuthenticationInfo cached = cache.getIfPresent(identity);
+		if (cached == null) {
+			cached = load(identity, loader);
+		}
+		return copyOnRead && cached != null ? copy(cached) : cached;
+	}
+
+	protected AuthenticationInfo load(String identity, Supplier<AuthenticationInfo> loader) {
+		AuthenticationInfo info = getShared(identity);
+		if (info == null) {
+			info = loader.get();
+			if (info == null) {
+				return null;
+			}
+			putShared(identity, info);
+		}
+		AuthenticationInfo existing = cache.asMap().putIfAbsent(identity, info);
+		return existing != null ? existing : info;
+	}
+
+	/**
+	 * 清除 unionid 对应的两级缓存
+	 * @param unionid 钉钉 unionid
+	 */
+	public void invalidateUnionid(String unionid) {
+		String identity = unionid(unionid);
+		if (identity != null) {
+			invalidate(identity);
+		}
+	}
+
+	/**
+	 * 清除 userid 对应的两级缓存
+	 * @param userid 钉钉 userid
+	 */
+	public void invalidateUserid(String userid) {
+		String identity = userid(userid);
+		if (identity != null) {
+			invalidate(identity);
+		}
+	}
+
+	/**
+	 * 清除缓存 Key 对应的两级缓存
+	 * @param identity 由 {@link #unionid(String)}、{@link #userid(String)} 构造的缓存 Key
+	 */
+	public void invalidate(String identity) {
+		cache.invalidate(identity);
+		if (sharedStore != null) {
+			sharedStore.delete(keyPrefix + identity);
+		}
+	}
+
+	/**
+	 * 清除本地缓存，共享缓存依赖其有效期过期
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
+	/**
+	 * 复制缓存的认证信息，见 {@link ShiroDingTalkAuthenticationInfos#copy(AuthenticationInfo)}：
+	 * {@link SimpleAuthenticationInfo} 只复制身份集合，身份对象由多个请求共享，调用方不得修改
+	 * @param info 缓存的认证信息
+	 * @return 认证信息副本
+	 */
+	protected AuthenticationInfo copy(AuthenticationInfo info) {
+		return ShiroDingTalkAuthenticationInfos.copy(info);
+	}
+
+	protected AuthenticationInfo getShared(String identity) {
+		if (sharedStore == null) {
+			return null;
+		}
+		String value = sharedStore.get(keyPrefix + identity);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return sharedStoreCodec.decode(value);
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			log.warn("Unable to read shared AuthenticationInfo of {}, reload from repository.", identity, e);
+			return null;
+		}
+	}
+
+	protected void putShared(String identity, AuthenticationInfo info) {
+		if (sharedStore == null) {
+			return;
+		}
+		try {
+			sharedStore.set(keyPrefix + identity, sharedStoreCodec.encode(info), sharedTtl);
+		} catch (IOException e) {
+			log.warn("AuthenticationInfo of {} is not serializable, skip the shared cache.", identity, e);
+		}
+	}
+
+	public DingTalkSharedStore getSharedStore() {
+		return sharedStore;
+	}
+
+	public void setSharedStore(DingTalkSharedStore sharedStore) {
+		this.sharedStore = sharedStore;
+	}
+
+	public DingTalkSharedStoreCodec getSharedStoreCodec() {
+		return sharedStoreCodec;
+	}
+
+	public void setSharedStoreCodec(DingTalkSharedStoreCodec sharedStoreCodec) {
+		this.sharedStoreCodec = sharedStoreCodec;
+	}
+
+	public String getKeyPrefix() {
+		return keyPrefix;
+	}
+
+	public void setKeyPrefix(String keyPrefix) {
+		this.keyPrefix = keyPrefix;
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 	同一个 Key 的并发调用合并为一次：第一个调用者执行，其余调用者在限定时间内等待同一个结果
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkSingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+	private final LongAdder executedCount = new LongAdder();
+	private final LongAdder sharedCount = new LongAdder();
+
+	/**
+	 * 执行或加入指定 Key 上正在进行的调用
+	 * @param key 调用的唯一标识
+	 * @param loader 实际执行的调用
+	 * @param timeout 等待其他调用者结果的最长时间
+	 * @param unit 时间单位
+	 * @return 调用结果
+	 * @throws TimeoutException 等待其他调用者的结果超时
+	 * @throws Exception 调用本身抛出的异常，由所有等待者共享
+	 */
+	public V execute(K key, Callable<V> loader, long timeout, TimeUnit unit) throws Exception {
+		CompletableFuture<V> call = new CompletableFuture<>();
+		CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+		if (existing != null) {
+			// 加入已有调用，不计入执行次数
+			sharedCount.increment();
+			return await(existing, timeout, unit);
+		}
+		try {
+			// 只有创建了 call 的调用者执行 loader
+			executedCount.increment();
+			V value = loader.call();
+			call.complete(value);
+			return value;
+		} catch (Throwable e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			calls.remove(key, call);
+		}
+	}
+
+	private V await(CompletableFuture<V> call, long timeout, TimeUnit unit) throws Exception {
+		try {
+			return call.get(timeout, unit);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	public int inFlight() {
+		return calls.size();
+	}
+
+	/**
+	 * @return 创建调用并执行 loader 的次数，加入其他调用者结果的调用不计入
+	 */
+	public long getExecutedCount() {
+		return executedCount.sum();
+	}
+
+	/**
+	 * @return 加入其他调用者结果的次数
+	 */
+	public long getSharedCount() {
+		return sharedCount.sum();
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import java.time.Duration;
+
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	基于 {@link DingTalkSharedStore} 的 AccessToken 存储，值格式为 "过期时间:AccessToken"
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class KeyValueDingTalkAccessTokenStore implements DingTalkAccessTokenStore {
+
+	public static final String DEFAULT_KEY_PREFIX = "shiro:dingtalk:access-token:";
+
+	private final DingTalkSharedStore sharedStore;
+	private final String keyPrefix;
+
+	public KeyValueDingTalkAccessTokenStore(DingTalkSharedStore sharedStore) {
+		this(sharedStore, DEFAULT_KEY_PREFIX);
+	}
+
+	public KeyValueDingTalkAccessTokenStore(DingTalkSharedStore sharedStore, String keyPrefix) {
+		this.sharedStore = sharedStore;
+		this.keyPrefix = keyPrefix;
+	}
+
+	@Override
+	public DingTalkAccessToken get(String appKey) {
+		String value = sharedStore.get(tokenKey(appKey));
+		if (value == null) {
+			return null;
+		}
+		int index = value.indexOf(':');
+		if (index <= 0) {
+			log.warn("Ignore malformed shared DingTalk access token of App Key {}.", appKey);
+			return null;
+		}
+		try {
+			return new DingTalkAccessToken(value.substring(index + 1), Long.parseLong(value.substring(0, index)));
+		} catch (NumberFormatException e) {
+			log.warn("Ignore malformed shared DingTalk access token of App Key {}.", appKey);
+			return null;
+		}
+	}
+
+	@Override
+	public void save(String appKey, DingTalkAccessToken accessToken) {
+		long ttl = accessToken.getExpireTime() - System.currentTimeMillis();
+		if (ttl <= 0) {
+			return;
+		}
+		sharedStore.set(tokenKey(appKey), encode(accessToken), Duration.ofMillis(ttl));
+	}
+
+	@Override
+	public boolean invalidate(String appKey, DingTalkAccessToken accessToken) {
+		return sharedStore.compareAndDelete(tokenKey(appKey), encode(accessToken));
+	}
+
+	@Override
+	public boolean tryLease(String appKey, String owner, Duration leaseTime) {
+		return sharedStore.setIfAbsent(leaseKey(appKey), owner, leaseTime);
+	}
+
+	@Override
+	public void releaseLease(String appKey, String owner) {
+		sharedStore.compareAndDelete(leaseKey(appKey), owner);
+	}
+
+	protected String encode(DingTalkAccessToken accessToken) {
+		return accessToken.getExpireTime() + ":" + accessToken.getToken();
+	}
+
+	protected String tokenKey(String appKey) {
+		return keyPrefix + appKey;
+	}
+
+	protected String leaseKey(String appKey) {
+		return keyPrefix + "lease:" + appKey;
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAsyncProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	认证线程池工具：在 JDK 21 及以上版本创建虚拟线程执行器，项目本身仍以 Java 8 编译，故通过反射调用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public final class DingTalkExecutors {
+
+	public static final String AUTHC_THREAD_NAME_PREFIX = "dingtalk-authc-";
+
+	private DingTalkExecutors() {
+	}
+
+	/**
+	 * 按异步认证配置创建认证执行器：开启虚拟线程且 JDK 支持时每个任务一个虚拟线程，否则为有界的平台线程池；
+	 * 平台线程池作为 Spring Bean 返回时由容器完成初始化与关闭
+	 * @param properties 异步认证配置
+	 * @return 认证执行器
+	 */
+	public static Executor newAuthcExecutor(ShiroDingTalkAsyncProperties properties) {
+		if (properties.isVirtualThreads()) {
+			if (isVirtualThreadSupported()) {
+				return newVirtualThreadPerTaskExecutor(AUTHC_THREAD_NAME_PREFIX);
+			}
+			log.warn("Virtual threads require JDK 21 or later, fall back to the platform thread pool.");
+		}
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix(AUTHC_THREAD_NAME_PREFIX);
+		executor.setCorePoolSize(properties.getCorePoolSize());
+		executor.setMaxPoolSize(properties.getMaxPoolSize());
+		executor.setQueueCapacity(properties.getQueueCapacity());
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds((int) properties.getTimeout().getSeconds());
+		return executor;
+	}
+
+	/**
+	 * @return 当前 JDK 是否支持虚拟线程
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 创建每个任务一个虚拟线程的执行器（对应 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())）
+	 * @param threadNamePrefix 线程名前缀
+	 * @return 执行器
+	 * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) method.invoke(null, threadFactory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual threads require JDK 21 or later.", e);
+		}
+	}
+
+}
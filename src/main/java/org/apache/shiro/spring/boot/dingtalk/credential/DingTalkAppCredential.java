@@ -0,0 +1,44 @@
+package org.apache.shiro.spring.boot.dingtalk.credential;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 	已解析的钉钉应用凭证
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@ToString
+public final class DingTalkAppCredential {
+
+	/**
+	 * 	应用类型
+	 */
+	private final DingTalkAppType type;
+	/**
+	 * 	应用的唯一标识key（appKey、appId 或 suiteKey）
+	 */
+	private final String appKey;
+	/**
+	 * 	应用的密钥
+	 */
+	@ToString.Exclude
+	private final String appSecret;
+	/**
+	 * 	企业内部开发：程序客户端ID
+	 */
+	private final String agentId;
+	/**
+	 * 	第三方企业应用：程序客户端ID
+	 */
+	private final String suiteId;
+
+	public DingTalkAppCredential(DingTalkAppType type, String appKey, String appSecret, String agentId, String suiteId) {
+		this.type = type;
+		this.appKey = appKey;
+		this.appSecret = appSecret;
+		this.agentId = agentId;
+		this.suiteId = suiteId;
+	}
+
+}
@@ -0,0 +1,49 @@
+package org.apache.shiro.spring.boot.dingtalk.credential;
+
+import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	配置变化时重建 {@link DingTalkAppCredentialRegistry}：收到 Spring Cloud 的 EnvironmentChangeEvent（配置中心推送、/actuator/refresh）时，
+ * 	从 Environment 重新绑定 {@link ShiroDingTalkProperties} 并整体替换凭证索引；未引入 Spring Cloud 时可直接调用 {@link #refresh()}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkAppCredentialRefresher implements ApplicationListener<ApplicationEvent> {
+
+	/** 按类名识别，避免依赖 spring-cloud-context */
+	static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+
+	private final DingTalkAppCredentialRegistry registry;
+	private final Environment environment;
+
+	public DingTalkAppCredentialRefresher(DingTalkAppCredentialRegistry registry, Environment environment) {
+		this.registry = registry;
+		this.environment = environment;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName())) {
+			refresh();
+		}
+	}
+
+	/**
+	 * 从 Environment 重新绑定配置并替换凭证索引
+	 */
+	public void refresh() {
+		ShiroDingTalkProperties properties = Binder.get(environment)
+				.bind(ShiroDingTalkProperties.PREFIX, ShiroDingTalkProperties.class)
+				.orElseGet(ShiroDingTalkProperties::new);
+		int previous = registry.size();
+		registry.refresh(properties);
+		log.info("DingTalk app credentials refreshed, {} -> {} app keys.", previous, registry.size());
+	}
+
+}
@@ -0,0 +1,97 @@
+package org.apache.shiro.spring.boot.dingtalk.credential;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkCropAppProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkLoginProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkPersonalMiniAppProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkSuiteProperties;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	由 {@link ShiroDingTalkProperties} 构建的不可变应用凭证索引：一次哈希查找即可得到应用的类型、密钥、agentId 与 suiteId；
+ * 	配置变化时调用 {@link #refresh(ShiroDingTalkProperties)} 整体替换索引，{@link DingTalkAppCredentialRefresher} 在配置刷新事件中自动调用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkAppCredentialRegistry {
+
+	private volatile Map<String, DingTalkAppCredential> credentials;
+
+	public DingTalkAppCredentialRegistry(ShiroDingTalkProperties properties) {
+		this.credentials = build(properties);
+	}
+
+	/**
+	 * 根据应用的唯一标识key获取应用凭证
+	 * @param appKey 应用的唯一标识key（appKey、appId 或 suiteKey）
+	 * @return 应用凭证，未配置时返回 null
+	 */
+	public DingTalkAppCredential get(String appKey) {
+		return appKey == null ? null : credentials.get(appKey);
+	}
+
+	/**
+	 * 根据新的配置重建索引并整体替换
+	 * @param properties 新的配置
+	 */
+	public void refresh(ShiroDingTalkProperties properties) {
+		this.credentials = build(properties);
+	}
+
+	public Map<String, DingTalkAppCredential> getCredentials() {
+		return credentials;
+	}
+
+	public int size() {
+		return credentials.size();
+	}
+
+	protected static Map<String, DingTalkAppCredential> build(ShiroDingTalkProperties properties) {
+		Map<String, DingTalkAppCredential> credentials = new HashMap<>();
+		List<ShiroDingTalkCropAppProperties> cropApps = properties.getCropApps();
+		if (!CollectionUtils.isEmpty(cropApps)) {
+			for (ShiroDingTalkCropAppProperties app : cropApps) {
+				register(credentials, new DingTalkAppCredential(DingTalkAppType.CROP_APP, app.getAppKey(), app.getAppSecret(), app.getAgentId(), null));
+			}
+		}
+		List<ShiroDingTalkPersonalMiniAppProperties> apps = properties.getApps();
+		if (!CollectionUtils.isEmpty(apps)) {
+			for (ShiroDingTalkPersonalMiniAppProperties app : apps) {
+				register(credentials, new DingTalkAppCredential(DingTalkAppType.PERSONAL_MINI_APP, app.getAppId(), app.getAppSecret(), null, null));
+			}
+		}
+		List<ShiroDingTalkSuiteProperties> suites = properties.getSuites();
+		if (!CollectionUtils.isEmpty(suites)) {
+			for (ShiroDingTalkSuiteProperties suite : suites) {
+				register(credentials, new DingTalkAppCredential(DingTalkAppType.SUITE, suite.getSuiteKey(), suite.getSuiteSecret(), null, suite.getSuiteId()));
+			}
+		}
+		List<ShiroDingTalkLoginProperties> logins = properties.getLogins();
+		if (!CollectionUtils.isEmpty(logins)) {
+			for (ShiroDingTalkLoginProperties login : logins) {
+				register(credentials, new DingTalkAppCredential(DingTalkAppType.LOGIN, login.getAppId(), login.getAppSecret(), null, null));
+			}
+		}
+		return Collections.unmodifiableMap(credentials);
+	}
+
+	private static void register(Map<String, DingTalkAppCredential> credentials, DingTalkAppCredential credential) {
+		if (!StringUtils.hasText(credential.getAppKey())) {
+			log.warn("Ignore DingTalk {} without app key.", credential.getType());
+			return;
+		}
+		DingTalkAppCredential existing = credentials.putIfAbsent(credential.getAppKey(), credential);
+		if (existing != null) {
+			log.warn("Duplicate DingTalk app key {}, keep the {} configuration.", credential.getAppKey(), existing.getType());
+		}
+	}
+
+}
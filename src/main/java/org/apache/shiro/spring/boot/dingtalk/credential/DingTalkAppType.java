@@ -0,0 +1,30 @@
+package org.apache.shiro.spring.boot.dingtalk.credential;
+
+/**
+ * 	钉钉应用类型
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DingTalkAppType {
+
+	/**
+	 * 	企业内部开发：小程序、H5
+	 */
+	CROP_APP,
+	/**
+	 * 	第三方个人应用：小程序
+	 */
+	PERSONAL_MINI_APP,
+	/**
+	 * 	第三方企业应用：小程序、H5
+	 */
+	SUITE,
+	/**
+	 * 	移动接入应用：扫码登录
+	 */
+	LOGIN,
+	/**
+	 * 	未在 shiro.dingtalk 中配置，由 DingTalkTemplate 解析的应用
+	 */
+	TEMPLATE;
+
+}
@@ -13,4 +13,31 @@ public class DingTalkCodeExpiredException extends AuthenticationException {
 		super(msg, t);
 	}
 
+	/**
+	 * 创建不填充堆栈的授权码已过期异常，参见 {@link DingTalkCodeNotFoundException#stackless(String)}
+	 * @param message 异常信息
+	 * @return 不含堆栈的异常
+	 */
+	public static DingTalkCodeExpiredException stackless(String message) {
+		return new Stackless(message);
+	}
+
+	/**
+	 * 不填充堆栈的 {@link DingTalkCodeExpiredException}
+	 */
+	static final class Stackless extends DingTalkCodeExpiredException {
+
+		private static final long serialVersionUID = 1L;
+
+		Stackless(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+
+	}
+
 }
@@ -42,4 +42,32 @@ public class DingTalkCodeNotFoundException extends AuthenticationException {
 	public DingTalkCodeNotFoundException(Throwable cause) {
 		super(cause);
 	}
+
+	/**
+	 * 创建不填充堆栈的异常：用于请求参数缺失、授权码无效等预期内的校验失败，避免在异常流量下反复遍历调用栈
+	 * @param message 异常信息
+	 * @return 不含堆栈的异常
+	 */
+	public static DingTalkCodeNotFoundException stackless(String message) {
+		return new Stackless(message);
+	}
+
+	/**
+	 * 不填充堆栈的 {@link DingTalkCodeNotFoundException}
+	 */
+	static final class Stackless extends DingTalkCodeNotFoundException {
+
+		private static final long serialVersionUID = 1L;
+
+		Stackless(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+
+	}
+
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.exception;
+
+/**
+ * 	异常工具
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkExceptions {
+
+	private DingTalkExceptions() {
+	}
+
+	/**
+	 * 异常类型的简单类名：不填充堆栈的嵌套子类（如 {@link DingTalkCodeNotFoundException#stackless(String)}）使用其外部异常类的名称，
+	 * 用于审计原因与指标标签
+	 * @param e 异常
+	 * @return 简单类名
+	 */
+	public static String simpleName(Throwable e) {
+		Class<?> type = e.getClass();
+		Class<?> enclosing = type.getEnclosingClass();
+		if (enclosing != null && enclosing.isAssignableFrom(type)) {
+			type = enclosing;
+		}
+		return type.getSimpleName();
+	}
+
+}
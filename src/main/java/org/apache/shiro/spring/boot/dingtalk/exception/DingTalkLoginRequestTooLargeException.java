@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.exception;
+
+import org.apache.shiro.authc.AuthenticationException;
+
+/**
+ * 登录请求体超出允许的最大长度
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLoginRequestTooLargeException extends AuthenticationException {
+
+	private static final long serialVersionUID = -3164719432258761063L;
+
+	public DingTalkLoginRequestTooLargeException(String message) {
+		super(message);
+	}
+
+	public DingTalkLoginRequestTooLargeException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	/**
+	 * 创建不填充堆栈的请求体过大异常，参见 {@link DingTalkCodeNotFoundException#stackless(String)}
+	 * @param message 异常信息
+	 * @return 不含堆栈的异常
+	 */
+	public static DingTalkLoginRequestTooLargeException stackless(String message) {
+		return new Stackless(message);
+	}
+
+	/**
+	 * 不填充堆栈的 {@link DingTalkLoginRequestTooLargeException}
+	 */
+	static final class Stackless extends DingTalkLoginRequestTooLargeException {
+
+		private static final long serialVersionUID = 1L;
+
+		Stackless(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jfr;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.springframework.util.ClassUtils;
+
+import com.taobao.api.ApiException;
+
+import jdk.jfr.Configuration;
+
+/**
+ * 	钉钉登录 JFR 事件入口：事件默认关闭，由 {@link #SETTINGS} 配置文件或 JMC 中的事件设置开启；
+ * 	当前 JDK 不支持 JFR 或事件未开启时返回 null，调用方不创建事件对象，也不读取时钟
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkFlightRecorder {
+
+	/** 开启全部钉钉登录事件的 JFR 配置文件（类路径），例如 jcmd &lt;pid&gt; JFR.start settings=/path/to/dingtalk.jfc */
+	public static final String SETTINGS = "META-INF/jfr/dingtalk.jfc";
+
+	private static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.Event", DingTalkFlightRecorder.class.getClassLoader());
+
+	private DingTalkFlightRecorder() {
+	}
+
+	/**
+	 * @return 当前 JDK 是否支持 JFR 事件
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * 开始登录请求体解析事件
+	 * @return 已开始的事件，未开启时为 null
+	 */
+	public static DingTalkLoginParseEvent beginParse() {
+		if (!AVAILABLE || !DingTalkLoginParseEvent.PROBE.isEnabled()) {
+			return null;
+		}
+		DingTalkLoginParseEvent event = new DingTalkLoginParseEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * 开始 Repository 查询事件
+	 * @return 已开始的事件，未开启时为 null
+	 */
+	public static DingTalkRepositoryEvent beginRepository() {
+		if (!AVAILABLE || !DingTalkRepositoryEvent.PROBE.isEnabled()) {
+			return null;
+		}
+		DingTalkRepositoryEvent event = new DingTalkRepositoryEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * 开始 JWT 签发事件
+	 * @return 已开始的事件，未开启时为 null
+	 */
+	public static DingTalkJwtIssueEvent beginJwtIssue() {
+		if (!AVAILABLE || !DingTalkJwtIssueEvent.PROBE.isEnabled()) {
+			return null;
+		}
+		DingTalkJwtIssueEvent event = new DingTalkJwtIssueEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * 包装一次钉钉远程调用：事件开启时每次执行（包括重试与对冲）记录一个 {@link DingTalkRemoteCallEvent}，未开启时原样返回
+	 * @param <T> 调用结果类型
+	 * @param appKey 应用的唯一标识key
+	 * @param operation 远程调用类型
+	 * @param call 远程调用
+	 * @return 记录事件的远程调用
+	 */
+	public static <T> DingTalkRemoteCall<T> record(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) {
+		if (!AVAILABLE || !DingTalkRemoteCallEvent.PROBE.isEnabled()) {
+			return call;
+		}
+		return () -> {
+			DingTalkRemoteCallEvent event = new DingTalkRemoteCallEvent();
+			event.begin();
+			Throwable error = null;
+			try {
+				return call.call();
+			} catch (ApiException | RuntimeException e) {
+				error = e;
+				throw e;
+			} finally {
+				event.complete(appKey, operation, error);
+			}
+		};
+	}
+
+	/**
+	 * 读取类路径中的 {@link #SETTINGS}，用于以编程方式开始记录：new Recording(DingTalkFlightRecorder.configuration())
+	 * @return JFR 配置
+	 * @throws IOException 读取配置文件失败
+	 * @throws ParseException 配置文件格式错误
+	 */
+	public static Configuration configuration() throws IOException, ParseException {
+		try (Reader reader = new InputStreamReader(DingTalkFlightRecorder.class.getClassLoader().getResourceAsStream(SETTINGS),
+				StandardCharsets.UTF_8)) {
+			return Configuration.create(reader);
+		}
+	}
+
+}
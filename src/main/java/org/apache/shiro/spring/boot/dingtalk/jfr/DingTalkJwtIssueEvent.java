@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jfr;
+
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditEvent;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkExceptions;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 	JFR 事件：登录成功后签发 JWT
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Name(DingTalkJwtIssueEvent.NAME)
+@Label("DingTalk JWT Issue")
+@Description("Issuing a JSON Web Token after a successful DingTalk login")
+@Category({ "Shiro", "DingTalk" })
+@Enabled(false)
+@StackTrace(false)
+public class DingTalkJwtIssueEvent extends Event {
+
+	public static final String NAME = "org.apache.shiro.dingtalk.JwtIssue";
+
+	static final DingTalkJwtIssueEvent PROBE = new DingTalkJwtIssueEvent();
+
+	@Label("Flow")
+	String flow;
+
+	@Label("Error")
+	String error;
+
+	/**
+	 * 结束并在满足阈值时提交事件
+	 * @param token 认证 Token
+	 * @param e 签发失败的异常，成功时为 null
+	 */
+	public void complete(AuthenticationToken token, Throwable e) {
+		end();
+		if (shouldCommit()) {
+			this.flow = DingTalkLoginAuditEvent.flowOf(token);
+			this.error = e == null ? null : DingTalkExceptions.simpleName(e);
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jfr;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkExceptions;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 	JFR 事件：解析钉钉登录请求体
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Name(DingTalkLoginParseEvent.NAME)
+@Label("DingTalk Login Parse")
+@Description("Reading and parsing a DingTalk login request body")
+@Category({ "Shiro", "DingTalk" })
+@Enabled(false)
+@StackTrace(false)
+public class DingTalkLoginParseEvent extends Event {
+
+	public static final String NAME = "org.apache.shiro.dingtalk.LoginParse";
+
+	static final DingTalkLoginParseEvent PROBE = new DingTalkLoginParseEvent();
+
+	@Label("Request Type")
+	String requestType;
+
+	@Label("Content Length")
+	@DataAmount
+	long contentLength;
+
+	@Label("Error")
+	String error;
+
+	/**
+	 * 结束并在满足阈值时提交事件
+	 * @param requestType 登录请求类型
+	 * @param contentLength 请求头声明的请求体长度，未知时为 -1
+	 * @param e 解析失败的异常，成功时为 null
+	 */
+	public void complete(Class<?> requestType, long contentLength, Throwable e) {
+		end();
+		if (shouldCommit()) {
+			this.requestType = requestType.getSimpleName();
+			this.contentLength = contentLength;
+			this.error = e == null ? null : DingTalkExceptions.simpleName(e);
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jfr;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkExceptions;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+
+import com.taobao.api.ApiException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 	JFR 事件：一次钉钉远程调用，重试与对冲的每次尝试各记录一个事件，与同一线程上的 Socket Read 事件对应
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Name(DingTalkRemoteCallEvent.NAME)
+@Label("DingTalk Remote Call")
+@Description("A single attempt of a DingTalk open API call")
+@Category({ "Shiro", "DingTalk" })
+@Enabled(false)
+@StackTrace(false)
+public class DingTalkRemoteCallEvent extends Event {
+
+	public static final String NAME = "org.apache.shiro.dingtalk.RemoteCall";
+
+	static final DingTalkRemoteCallEvent PROBE = new DingTalkRemoteCallEvent();
+
+	@Label("Operation")
+	String operation;
+
+	@Label("App Key")
+	String appKey;
+
+	@Label("Error Code")
+	String errcode;
+
+	@Label("Error")
+	String error;
+
+	/**
+	 * 结束并在满足阈值时提交事件
+	 * @param appKey 应用的唯一标识key
+	 * @param operation 远程调用类型
+	 * @param e 调用失败的异常，成功时为 null
+	 */
+	public void complete(String appKey, DingTalkRemoteOperation operation, Throwable e) {
+		end();
+		if (shouldCommit()) {
+			this.operation = operation.name();
+			this.appKey = appKey;
+			if (e instanceof ApiException) {
+				this.errcode = ((ApiException) e).getErrCode();
+			}
+			this.error = e == null ? null : DingTalkExceptions.simpleName(e);
+			commit();
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.ExpiredCredentialsException;
+import org.apache.shiro.authc.IncorrectCredentialsException;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtIssuerProperties;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	与 {@link DingTalkJwtIssuer} 配对的 JWT 验证器：使用同一份 jwt-issuer 配置中的算法与密钥验证签名，
+ * 	并按签发器写入的声明校验 exp 与 iss，恢复 sub / unionid / name 对应的 {@link ShiroDingTalkPrincipal}；
+ * 	Header 与签发器不一致的 JWT（例如由 JwtPayloadRepository 签发）不做识别，返回 null
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkIssuedJwtVerifier implements DingTalkJwtVerifier {
+
+	public static final String REALM_NAME = "DingTalkJwt";
+
+	private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<Map<String, Object>>() {};
+
+	private final ObjectMapper objectMapper;
+	private final String algorithm;
+	private final String issuer;
+	private final String encodedHeader;
+	private final ThreadLocal<Mac> macs;
+	private final ThreadLocal<Signature> signatures;
+
+	public DingTalkIssuedJwtVerifier(ObjectMapper objectMapper, ShiroDingTalkJwtIssuerProperties properties) {
+		this.objectMapper = objectMapper;
+		this.algorithm = properties.getAlgorithm().toUpperCase(Locale.ROOT);
+		this.issuer = StringUtils.hasText(properties.getIssuer()) ? properties.getIssuer() : null;
+		this.encodedHeader = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(DingTalkJwtIssuer.header(algorithm).getBytes(StandardCharsets.US_ASCII));
+		try {
+			if (algorithm.startsWith("HS")) {
+				SecretKeySpec key = DingTalkJwtIssuer.secretKey(algorithm, properties);
+				this.macs = ThreadLocal.withInitial(() -> mac(key));
+				this.signatures = null;
+			} else {
+				String signatureAlgorithm = DingTalkJwtIssuer.signatureAlgorithm(algorithm);
+				PublicKey key = publicKey(algorithm, properties);
+				this.macs = null;
+				this.signatures = ThreadLocal.withInitial(() -> signature(signatureAlgorithm, key));
+			}
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("Invalid JWT issuer key for " + algorithm, e);
+		}
+	}
+
+	@Override
+	public DingTalkJwtClaims verify(String jwt) throws AuthenticationException {
+		int first = jwt.indexOf('.');
+		int second = first < 0 ? -1 : jwt.indexOf('.', first + 1);
+		if (second < 0 || !encodedHeader.equals(jwt.substring(0, first))) {
+			return null;
+		}
+		byte[] signingInput = jwt.substring(0, second).getBytes(StandardCharsets.US_ASCII);
+		byte[] signature;
+		Map<String, Object> claims;
+		try {
+			signature = Base64.getUrlDecoder().decode(jwt.substring(second + 1));
+			if (!verifySignature(signingInput, signature)) {
+				throw new IncorrectCredentialsException("JWT signature does not match.");
+			}
+			claims = objectMapper.readValue(Base64.getUrlDecoder().decode(jwt.substring(first + 1, second)), CLAIMS_TYPE);
+		} catch (AuthenticationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IncorrectCredentialsException("Malformed JWT.", e);
+		}
+		Object exp = claims.get("exp");
+		if (!(exp instanceof Number)) {
+			throw new IncorrectCredentialsException("JWT has no exp claim.");
+		}
+		long expireTime = ((Number) exp).longValue() * 1000L;
+		if (System.currentTimeMillis() >= expireTime) {
+			throw new ExpiredCredentialsException("JWT expired.");
+		}
+		if (issuer != null && !issuer.equals(claims.get("iss"))) {
+			throw new IncorrectCredentialsException("JWT issuer does not match.");
+		}
+		return new DingTalkJwtClaims(new SimplePrincipalCollection(principal(claims), REALM_NAME), claims, expireTime);
+	}
+
+	/**
+	 * 由签发器写入的声明恢复身份：sub 为 userid，仅在缺少 userid 时签发器以 unionid 作为 sub
+	 * @param claims JWT 声明
+	 * @return 钉钉用户身份
+	 */
+	protected ShiroDingTalkPrincipal principal(Map<String, Object> claims) {
+		ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+		String sub = (String) claims.get("sub");
+		String unionid = (String) claims.get("unionid");
+		if (sub != null && !sub.equals(unionid)) {
+			principal.setUserid(sub);
+		}
+		principal.setUnionid(unionid);
+		principal.setName((String) claims.get("name"));
+		return principal;
+	}
+
+	private boolean verifySignature(byte[] signingInput, byte[] signature) throws GeneralSecurityException {
+		if (macs != null) {
+			Mac mac = macs.get();
+			return MessageDigest.isEqual(mac.doFinal(signingInput), signature);
+		}
+		Signature verifier = signatures.get();
+		verifier.update(signingInput);
+		return verifier.verify(signature);
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	private static PublicKey publicKey(String algorithm, ShiroDingTalkJwtIssuerProperties properties) throws GeneralSecurityException {
+		KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+		if (StringUtils.hasText(properties.getPublicKey())) {
+			return keyFactory.generatePublic(new X509EncodedKeySpec(DingTalkJwtIssuer.decodePem(properties.getPublicKey())));
+		}
+		PrivateKey privateKey = DingTalkJwtIssuer.privateKey(algorithm, properties);
+		if (!(privateKey instanceof RSAPrivateCrtKey)) {
+			throw new IllegalArgumentException("JWT issuer algorithm " + algorithm + " requires a public key to verify.");
+		}
+		RSAPrivateCrtKey crtKey = (RSAPrivateCrtKey) privateKey;
+		return keyFactory.generatePublic(new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+	}
+
+	private static Mac mac(SecretKeySpec key) {
+		try {
+			Mac mac = Mac.getInstance(key.getAlgorithm());
+			mac.init(key);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Signature signature(String algorithm, PublicKey key) {
+		try {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initVerify(key);
+			return signature;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
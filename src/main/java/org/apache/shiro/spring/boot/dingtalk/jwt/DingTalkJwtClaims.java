@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.shiro.subject.PrincipalCollection;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 	已验证 JWT 的身份信息与声明
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@ToString
+public final class DingTalkJwtClaims {
+
+	/**
+	 * 	JWT 对应的身份信息
+	 */
+	private final PrincipalCollection principals;
+	/**
+	 * 	JWT 声明
+	 */
+	private final Map<String, Object> claims;
+	/**
+	 * 	JWT 过期时间（毫秒时间戳）
+	 */
+	private final long expireTime;
+
+	public DingTalkJwtClaims(PrincipalCollection principals, Map<String, Object> claims, long expireTime) {
+		this.principals = principals;
+		this.claims = claims == null ? Collections.emptyMap() : Collections.unmodifiableMap(claims);
+		this.expireTime = expireTime;
+	}
+
+	public boolean isExpired(long now) {
+		return now >= expireTime;
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtCacheProperties;
+import org.apache.shiro.subject.PrincipalCollection;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	无状态模式下已签发 JWT 的声明缓存：以 JWT 的 SHA-256 摘要为 Key，有效期不超过 JWT 本身的过期时间；
+ * 	命中时认证过滤器直接恢复身份，不再经过 Realm 与钉钉远程调用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkJwtClaimsCache {
+
+	private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<Map<String, Object>>() {};
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final ObjectMapper objectMapper;
+	private final Cache<String, DingTalkJwtClaims> cache;
+	private final long maxTtlMillis;
+	private DingTalkJwtVerifier verifier;
+
+	public DingTalkJwtClaimsCache(ObjectMapper objectMapper, ShiroDingTalkJwtCacheProperties properties) {
+		this.objectMapper = objectMapper;
+		this.maxTtlMillis = properties.getMaxTtl().toMillis();
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfter(new ClaimsExpiry())
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * 查找 JWT 对应的声明：缓存未命中时交给 {@link DingTalkJwtVerifier} 验证并缓存结果
+	 * @param jwt JSON Web Token
+	 * @return 声明，无法识别时返回 null
+	 * @throws AuthenticationException JWT 无效或已过期
+	 */
+	public DingTalkJwtClaims get(String jwt) throws AuthenticationException {
+		String key = digest(jwt);
+		DingTalkJwtClaims claims = cache.getIfPresent(key);
+		long now = System.currentTimeMillis();
+		if (claims != null && !claims.isExpired(now)) {
+			return claims;
+		}
+		if (verifier == null) {
+			return null;
+		}
+		claims = verifier.verify(jwt);
+		if (claims != null && !claims.isExpired(now)) {
+			cache.put(key, claims);
+			return claims;
+		}
+		return null;
+	}
+
+	/**
+	 * 缓存当前节点签发的 JWT
+	 * @param jwt JSON Web Token
+	 * @param principals JWT 对应的身份信息
+	 */
+	public void put(String jwt, PrincipalCollection principals) {
+		if (jwt == null || jwt.isEmpty() || principals == null || principals.isEmpty()) {
+			return;
+		}
+		Map<String, Object> claims = decodeClaims(jwt);
+		if (claims == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long expireTime = now + maxTtlMillis;
+		Object exp = claims.get("exp");
+		if (exp instanceof Number) {
+			expireTime = Math.min(expireTime, ((Number) exp).longValue() * 1000L);
+		}
+		if (expireTime > now) {
+			cache.put(digest(jwt), new DingTalkJwtClaims(principals, claims, expireTime));
+		}
+	}
+
+	public void invalidate(String jwt) {
+		cache.invalidate(digest(jwt));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
+	public DingTalkJwtVerifier getVerifier() {
+		return verifier;
+	}
+
+	public void setVerifier(DingTalkJwtVerifier verifier) {
+		this.verifier = verifier;
+	}
+
+	protected Map<String, Object> decodeClaims(String jwt) {
+		int first = jwt.indexOf('.');
+		int second = first < 0 ? -1 : jwt.indexOf('.', first + 1);
+		if (second < 0) {
+			return null;
+		}
+		try {
+			byte[] payload = Base64.getUrlDecoder().decode(jwt.substring(first + 1, second));
+			return objectMapper.readValue(payload, CLAIMS_TYPE);
+		} catch (Exception e) {
+			log.debug("Unable to decode JWT claims.", e);
+			return null;
+		}
+	}
+
+	protected static String digest(String jwt) {
+		byte[] hash = SHA256.get().digest(jwt.getBytes(StandardCharsets.US_ASCII));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+	}
+
+	private static final class ClaimsExpiry implements Expiry<String, DingTalkJwtClaims> {
+
+		@Override
+		public long expireAfterCreate(String key, DingTalkJwtClaims value, long currentTime) {
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.getExpireTime() - System.currentTimeMillis()));
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, DingTalkJwtClaims value, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, DingTalkJwtClaims value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+	}
+
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtIssuerProperties;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * 	登录成功时的 JWT 快速签发器：Header 在构造时预先编码，Payload 由 JsonGenerator 直接写入线程内复用的缓冲区，
+ * 	Base64URL 编码与签名均在同一缓冲区内完成；Mac / Signature 每个线程初始化一次后复用。
+ * 	签发的声明包含 jti、iss、sub（userid，缺失时为 unionid）、iat、exp、unionid、name，由配对的 {@link DingTalkIssuedJwtVerifier} 验证
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkJwtIssuer {
+
+	private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+	private final JsonFactory jsonFactory;
+	private final String algorithm;
+	private final String issuer;
+	private final long expirationSeconds;
+	private final byte[] encodedHeader;
+	private final ThreadLocal<Signer> signers;
+	private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+	public DingTalkJwtIssuer(JsonFactory jsonFactory, ShiroDingTalkJwtIssuerProperties properties) {
+		this.jsonFactory = jsonFactory;
+		this.algorithm = properties.getAlgorithm().toUpperCase(Locale.ROOT);
+		this.issuer = StringUtils.hasText(properties.getIssuer()) ? properties.getIssuer() : null;
+		this.expirationSeconds = properties.getExpiration().getSeconds();
+		byte[] header = header(algorithm).getBytes(StandardCharsets.US_ASCII);
+		this.encodedHeader = new byte[encodedLength(header.length)];
+		encode(header, 0, header.length, encodedHeader, 0);
+		this.signers = signers(algorithm, properties);
+	}
+
+	/**
+	 * 为已认证的钉钉用户签发 JWT
+	 * @param principal 钉钉用户身份
+	 * @return JSON Web Token
+	 */
+	public String issue(ShiroDingTalkPrincipal principal) {
+		Buffers buffers = this.buffers.get();
+		DingTalkReusableOutputStream payload = buffers.payload.recycle();
+		try {
+			writeClaims(payload, principal);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Signer signer = signers.get();
+		int payloadLength = encodedLength(payload.size());
+		int signingLength = encodedHeader.length + 1 + payloadLength;
+		byte[] out = buffers.ensure(signingLength + 1 + encodedLength(signer.length()));
+		System.arraycopy(encodedHeader, 0, out, 0, encodedHeader.length);
+		out[encodedHeader.length] = '.';
+		encode(payload.buffer(), 0, payload.size(), out, encodedHeader.length + 1);
+		int length = signingLength;
+		try {
+			byte[] signature = buffers.signature(signer.length());
+			int signatureLength = signer.sign(out, signingLength, signature);
+			out[length++] = '.';
+			length = encode(signature, 0, signatureLength, out, length);
+		} catch (GeneralSecurityException e) {
+			signers.remove();
+			throw new IllegalStateException("Unable to sign JWT with " + algorithm, e);
+		}
+		return new String(out, 0, length, StandardCharsets.US_ASCII);
+	}
+
+	protected void writeClaims(DingTalkReusableOutputStream payload, ShiroDingTalkPrincipal principal) throws IOException {
+		long now = System.currentTimeMillis() / 1000L;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		try (JsonGenerator generator = jsonFactory.createGenerator(payload, JsonEncoding.UTF8)) {
+			generator.writeStartObject();
+			generator.writeStringField("jti", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+			if (issuer != null) {
+				generator.writeStringField("iss", issuer);
+			}
+			String subject = StringUtils.hasText(principal.getUserid()) ? principal.getUserid() : principal.getUnionid();
+			if (subject != null) {
+				generator.writeStringField("sub", subject);
+			}
+			generator.writeNumberField("iat", now);
+			generator.writeNumberField("exp", now + expirationSeconds);
+			if (principal.getUnionid() != null) {
+				generator.writeStringField("unionid", principal.getUnionid());
+			}
+			if (principal.getName() != null) {
+				generator.writeStringField("name", principal.getName());
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	static int encodedLength(int length) {
+		return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+	}
+
+	/**
+	 * 无填充的 Base64URL 编码
+	 * @return 写入后 dst 中的下一个位置
+	 */
+	static int encode(byte[] src, int offset, int length, byte[] dst, int position) {
+		int end = offset + length - length % 3;
+		int i = offset;
+		int p = position;
+		while (i < end) {
+			int bits = (src[i++] & 0xff) << 16 | (src[i++] & 0xff) << 8 | (src[i++] & 0xff);
+			dst[p++] = BASE64URL[bits >>> 18 & 0x3f];
+			dst[p++] = BASE64URL[bits >>> 12 & 0x3f];
+			dst[p++] = BASE64URL[bits >>> 6 & 0x3f];
+			dst[p++] = BASE64URL[bits & 0x3f];
+		}
+		int remaining = offset + length - end;
+		if (remaining == 1) {
+			int bits = src[i] & 0xff;
+			dst[p++] = BASE64URL[bits >>> 2];
+			dst[p++] = BASE64URL[bits << 4 & 0x3f];
+		} else if (remaining == 2) {
+			int bits = (src[i] & 0xff) << 8 | (src[i + 1] & 0xff);
+			dst[p++] = BASE64URL[bits >>> 10];
+			dst[p++] = BASE64URL[bits >>> 4 & 0x3f];
+			dst[p++] = BASE64URL[bits << 2 & 0x3f];
+		}
+		return p;
+	}
+
+	private static ThreadLocal<Signer> signers(String algorithm, ShiroDingTalkJwtIssuerProperties properties) {
+		try {
+			if (algorithm.startsWith("HS")) {
+				SecretKeySpec key = secretKey(algorithm, properties);
+				Mac prototype = Mac.getInstance(key.getAlgorithm());
+				prototype.init(key);
+				return ThreadLocal.withInitial(() -> new MacSigner(copy(prototype, key)));
+			}
+			String signatureAlgorithm = signatureAlgorithm(algorithm);
+			PrivateKey key = privateKey(algorithm, properties);
+			int length = (((RSAKey) key).getModulus().bitLength() + 7) / 8;
+			return ThreadLocal.withInitial(() -> new SignatureSigner(signature(signatureAlgorithm, key), length));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("Invalid JWT issuer key for " + algorithm, e);
+		}
+	}
+
+	static String header(String algorithm) {
+		return "{\"alg\":\"" + algorithm + "\",\"typ\":\"JWT\"}";
+	}
+
+	static SecretKeySpec secretKey(String algorithm, ShiroDingTalkJwtIssuerProperties properties) {
+		if (!"HS256".equals(algorithm) && !"HS384".equals(algorithm) && !"HS512".equals(algorithm)) {
+			throw new IllegalArgumentException("Unsupported JWT issuer algorithm: " + algorithm);
+		}
+		if (!StringUtils.hasText(properties.getSecret())) {
+			throw new IllegalArgumentException("JWT issuer algorithm " + algorithm + " requires a secret.");
+		}
+		return new SecretKeySpec(properties.getSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA" + algorithm.substring(2));
+	}
+
+	static String signatureAlgorithm(String algorithm) {
+		if (!"RS256".equals(algorithm) && !"RS384".equals(algorithm) && !"RS512".equals(algorithm)) {
+			throw new IllegalArgumentException("Unsupported JWT issuer algorithm: " + algorithm);
+		}
+		return "SHA" + algorithm.substring(2) + "withRSA";
+	}
+
+	static PrivateKey privateKey(String algorithm, ShiroDingTalkJwtIssuerProperties properties) throws GeneralSecurityException {
+		if (!StringUtils.hasText(properties.getPrivateKey())) {
+			throw new IllegalArgumentException("JWT issuer algorithm " + algorithm + " requires a private key.");
+		}
+		return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(decodePem(properties.getPrivateKey())));
+	}
+
+	/**
+	 * 解码 Base64 密钥，可以包含 PEM 首尾行
+	 */
+	static byte[] decodePem(String pem) {
+		return Base64.getDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", ""));
+	}
+
+	private static Mac copy(Mac prototype, SecretKeySpec key) {
+		try {
+			return (Mac) prototype.clone();
+		} catch (CloneNotSupportedException e) {
+			try {
+				Mac mac = Mac.getInstance(prototype.getAlgorithm());
+				mac.init(key);
+				return mac;
+			} catch (GeneralSecurityException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
+
+	private static Signature signature(String algorithm, PrivateKey key) {
+		try {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initSign(key);
+			return signature;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private interface Signer {
+
+		int length();
+
+		int sign(byte[] input, int length, byte[] output) throws GeneralSecurityException;
+
+	}
+
+	private static final class MacSigner implements Signer {
+
+		private final Mac mac;
+
+		MacSigner(Mac mac) {
+			this.mac = mac;
+		}
+
+		@Override
+		public int length() {
+			return mac.getMacLength();
+		}
+
+		@Override
+		public int sign(byte[] input, int length, byte[] output) throws GeneralSecurityException {
+			mac.update(input, 0, length);
+			mac.doFinal(output, 0);
+			return mac.getMacLength();
+		}
+
+	}
+
+	private static final class SignatureSigner implements Signer {
+
+		private final Signature signature;
+		private final int length;
+
+		SignatureSigner(Signature signature, int length) {
+			this.signature = signature;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public int sign(byte[] input, int length, byte[] output) throws GeneralSecurityException {
+			signature.update(input, 0, length);
+			return signature.sign(output, 0, output.length);
+		}
+
+	}
+
+	private static final class Buffers {
+
+		private final DingTalkReusableOutputStream payload = new DingTalkReusableOutputStream();
+		private byte[] token = new byte[1024];
+		private byte[] signature = new byte[64];
+
+		byte[] ensure(int length) {
+			if (token.length < length) {
+				token = new byte[Math.max(length, token.length * 2)];
+			}
+			return token;
+		}
+
+		byte[] signature(int length) {
+			if (signature.length < length) {
+				signature = new byte[length];
+			}
+			return signature;
+		}
+
+	}
+
+}
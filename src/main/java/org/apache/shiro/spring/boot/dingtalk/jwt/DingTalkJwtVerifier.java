@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import org.apache.shiro.authc.AuthenticationException;
+
+/**
+ * 	JWT 验证 SPI：用于验证非当前节点签发、未在 {@link DingTalkJwtClaimsCache} 中的 JWT
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkJwtVerifier {
+
+	/**
+	 * 验证 JWT 并返回其身份信息与声明
+	 * @param jwt JSON Web Token
+	 * @return 验证通过的声明，无法识别时返回 null
+	 * @throws AuthenticationException JWT 无效或已过期
+	 */
+	DingTalkJwtClaims verify(String jwt) throws AuthenticationException;
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jwt;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 	可重复使用的字节输出流：暴露内部缓冲区，调用方直接读取已写入的字节，不再复制；
+ * 	配合 ThreadLocal 使用，每个线程持有一个实例
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkReusableOutputStream extends ByteArrayOutputStream {
+
+	/** 超过该容量的缓冲区在下次使用前释放，避免个别超大响应长期占用线程内存 */
+	public static final int DEFAULT_MAXIMUM_RETAINED = 16 * 1024;
+
+	private final int initialSize;
+	private final int maximumRetained;
+
+	public DingTalkReusableOutputStream() {
+		this(512, DEFAULT_MAXIMUM_RETAINED);
+	}
+
+	public DingTalkReusableOutputStream(int initialSize, int maximumRetained) {
+		super(initialSize);
+		this.initialSize = initialSize;
+		this.maximumRetained = maximumRetained;
+	}
+
+	/**
+	 * 清空已写入的内容，缓冲区超过保留上限时重新分配
+	 * @return 当前实例
+	 */
+	public DingTalkReusableOutputStream recycle() {
+		if (buf.length > maximumRetained) {
+			buf = new byte[initialSize];
+		}
+		count = 0;
+		return this;
+	}
+
+	/**
+	 * @return 内部缓冲区，有效内容为 [0, {@link #size()})
+	 */
+	public byte[] buffer() {
+		return buf;
+	}
+
+}
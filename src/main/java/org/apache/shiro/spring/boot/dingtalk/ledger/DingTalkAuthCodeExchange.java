@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.ledger;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+
+/**
+ * 	使用一次性授权码完成的认证过程
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@FunctionalInterface
+public interface DingTalkAuthCodeExchange {
+
+	/**
+	 * 使用授权码完成认证
+	 * @return 认证信息
+	 * @throws AuthenticationException 认证失败
+	 */
+	AuthenticationInfo exchange() throws AuthenticationException;
+
+}
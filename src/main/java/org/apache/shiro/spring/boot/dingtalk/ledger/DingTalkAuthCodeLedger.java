@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.ledger;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+
+/**
+ * 	一次性授权码台账：钉钉的 loginTmpCode、authCode、code 只能使用一次，同一客户端在去重窗口内重复提交时加入首次提交的认证结果，
+ * 	不再重复调用钉钉；授权码绑定首次提交的客户端，其他客户端提交同一授权码时拒绝
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkAuthCodeLedger {
+
+	/**
+	 * 首次提交时执行认证并记录结果，重复提交时等待并返回首次提交结果的副本
+	 * @param code 授权码（包含应用标识）
+	 * @param submitter 提交授权码的客户端标识，例如客户端地址或会话标识的摘要，未知时为 null
+	 * @param exchange 使用授权码完成的认证过程
+	 * @return 认证信息
+	 * @throws AuthenticationException 认证失败，重复提交时为首次提交的失败原因；其他客户端提交时为 {@link org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException}
+	 */
+	AuthenticationInfo execute(String code, String submitter, DingTalkAuthCodeExchange exchange) throws AuthenticationException;
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.ledger;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkAuthenticationInfos;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuthCodeLedgerProperties;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * 	基于本地内存的一次性授权码台账，重复提交加入首次提交进行中或已成功的认证结果，失败的提交不会保留；
+ * 	进行中的授权码最多保留 ttl，成功的结果只在去重窗口内保留
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class LocalDingTalkAuthCodeLedger implements DingTalkAuthCodeLedger {
+
+	private final Cache<String, LedgerEntry> ledger;
+	private final long waitTimeoutMillis;
+	private final LongAdder duplicateCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public LocalDingTalkAuthCodeLedger(ShiroDingTalkAuthCodeLedgerProperties properties) {
+		this.waitTimeoutMillis = properties.getWaitTimeout().toMillis();
+		this.ledger = Caffeine.newBuilder()
+				.maximumSize(properties.getMaximumSize())
+				.expireAfter(new LedgerExpiry(properties.getTtl().toNanos(), properties.getDedupWindow().toNanos()))
+				.build();
+	}
+
+	@Override
+	public AuthenticationInfo execute(String code, String submitter, DingTalkAuthCodeExchange exchange) throws AuthenticationException {
+		LedgerEntry created = new LedgerEntry(submitter);
+		LedgerEntry existing = ledger.asMap().putIfAbsent(code, created);
+		if (existing != null) {
+			if (!Objects.equals(existing.submitter, submitter)) {
+				rejectedCount.increment();
+				throw DingTalkCodeIncorrectException.stackless("The code has been submitted by another client.");
+			}
+			duplicateCount.increment();
+			return copy(await(existing.result));
+		}
+		try {
+			AuthenticationInfo info = exchange.exchange();
+			created.result.complete(info);
+			// 以同一条目更新，按去重窗口重新计算有效期
+			ledger.asMap().replace(code, created, created);
+			return info;
+		} catch (RuntimeException | Error e) {
+			// 只保留成功的结果：正在等待的重复提交得到同一个异常，之后的重新提交可以再次尝试
+			ledger.asMap().remove(code, created);
+			created.result.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 复制交给重复提交的认证信息，参见 {@link ShiroDingTalkAuthenticationInfos#copy(AuthenticationInfo)}
+	 * @param info 首次提交的认证信息
+	 * @return 认证信息副本
+	 */
+	protected AuthenticationInfo copy(AuthenticationInfo info) {
+		return ShiroDingTalkAuthenticationInfos.copy(info);
+	}
+
+	private AuthenticationInfo await(CompletableFuture<AuthenticationInfo> original) {
+		try {
+			return original.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof AuthenticationException) {
+				throw (AuthenticationException) cause;
+			}
+			throw new DingTalkAuthenticationServiceException("The original login of this code failed.", cause);
+		} catch (TimeoutException e) {
+			throw new DingTalkAuthenticationServiceException("Timeout waiting for the original login of this code.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DingTalkAuthenticationServiceException("Interrupted while waiting for the original login of this code.");
+		}
+	}
+
+	/**
+	 * @return 被合并的重复提交次数
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount.sum();
+	}
+
+	/**
+	 * @return 其他客户端提交同一授权码被拒绝的次数
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public long estimatedSize() {
+		return ledger.estimatedSize();
+	}
+
+	private static final class LedgerEntry {
+
+		private final String submitter;
+		private final CompletableFuture<AuthenticationInfo> result = new CompletableFuture<>();
+
+		LedgerEntry(String submitter) {
+			this.submitter = submitter;
+		}
+
+	}
+
+	private static final class LedgerExpiry implements Expiry<String, LedgerEntry> {
+
+		private final long ttlNanos;
+		private final long dedupWindowNanos;
+
+		LedgerExpiry(long ttlNanos, long dedupWindowNanos) {
+			this.ttlNanos = ttlNanos;
+			this.dedupWindowNanos = dedupWindowNanos;
+		}
+
+		@Override
+		public long expireAfterCreate(String key, LedgerEntry value, long currentTime) {
+			return ttlNanos;
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, LedgerEntry value, long currentTime, long currentDuration) {
+			return value.result.isDone() ? Math.min(dedupWindowNanos, currentDuration) : currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(String key, LedgerEntry value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+	}
+
+}
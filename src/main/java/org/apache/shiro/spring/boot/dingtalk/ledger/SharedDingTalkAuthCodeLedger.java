@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.ledger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuthCodeLedgerProperties;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStore;
+import org.apache.shiro.spring.boot.dingtalk.store.DingTalkSharedStoreCodec;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	基于 {@link DingTalkSharedStore} 的一次性授权码台账：同一节点内的重复提交由本地台账合并，
+ * 	落到其他节点的重复提交通过共享存储读取首次提交的认证结果；只有成功的结果会写入共享存储，且只保留去重窗口；
+ * 	共享存储中的 Key 与客户端标识均为 SHA-256 摘要，不保存授权码原文
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class SharedDingTalkAuthCodeLedger implements DingTalkAuthCodeLedger {
+
+	public static final String DEFAULT_KEY_PREFIX = "shiro:dingtalk:auth-code:";
+
+	private static final String PENDING_PREFIX = "P:";
+	private static final String DONE_PREFIX = "D:";
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
+	private final DingTalkSharedStore sharedStore;
+	private final DingTalkSharedStoreCodec codec;
+	private final LocalDingTalkAuthCodeLedger localLedger;
+	private final Duration ttl;
+	private final Duration dedupWindow;
+	private final long waitTimeoutMillis;
+	private final long pollIntervalMillis;
+	private String keyPrefix = DEFAULT_KEY_PREFIX;
+	private final LongAdder remoteDuplicateCount = new LongAdder();
+	private final LongAdder remoteRejectedCount = new LongAdder();
+
+	public SharedDingTalkAuthCodeLedger(DingTalkSharedStore sharedStore, ShiroDingTalkAuthCodeLedgerProperties properties) {
+		this(sharedStore, new DingTalkSharedStoreCodec(), properties);
+	}
+
+	public SharedDingTalkAuthCodeLedger(DingTalkSharedStore sharedStore, DingTalkSharedStoreCodec codec,
+			ShiroDingTalkAuthCodeLedgerProperties properties) {
+		this.sharedStore = sharedStore;
+		this.codec = codec;
+		this.localLedger = new LocalDingTalkAuthCodeLedger(properties);
+		this.ttl = properties.getTtl();
+		this.dedupWindow = properties.getDedupWindow();
+		this.waitTimeoutMillis = properties.getWaitTimeout().toMillis();
+		this.pollIntervalMillis = Math.max(1, properties.getPollInterval().toMillis());
+	}
+
+	@Override
+	public AuthenticationInfo execute(String code, String submitter, DingTalkAuthCodeExchange exchange) throws AuthenticationException {
+		return localLedger.execute(code, submitter, () -> executeShared(code, submitter, exchange));
+	}
+
+	protected AuthenticationInfo executeShared(String code, String submitter, DingTalkAuthCodeExchange exchange) {
+		String key = keyPrefix + digest(code);
+		String owner = submitter == null ? "" : digest(submitter);
+		String pending = PENDING_PREFIX + owner;
+		long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+		while (true) {
+			if (sharedStore.setIfAbsent(key, pending, ttl)) {
+				return exchangeAndRecord(key, pending, owner, exchange);
+			}
+			String value = sharedStore.get(key);
+			if (value != null) {
+				if (!owner.equals(ownerOf(value))) {
+					remoteRejectedCount.increment();
+					throw DingTalkCodeIncorrectException.stackless("The code has been submitted by another client.");
+				}
+				if (value.startsWith(DONE_PREFIX)) {
+					remoteDuplicateCount.increment();
+					return replay(value.substring(DONE_PREFIX.length() + owner.length() + 1));
+				}
+			}
+			long now = System.currentTimeMillis();
+			if (now >= deadline) {
+				throw new DingTalkAuthenticationServiceException("Timeout waiting for the original login of this code.");
+			}
+			try {
+				Thread.sleep(Math.min(pollIntervalMillis, deadline - now));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DingTalkAuthenticationServiceException("Interrupted while waiting for the original login of this code.");
+			}
+		}
+	}
+
+	private AuthenticationInfo exchangeAndRecord(String key, String pending, String owner, DingTalkAuthCodeExchange exchange) {
+		AuthenticationInfo info;
+		try {
+			info = exchange.exchange();
+		} catch (RuntimeException | Error e) {
+			// 失败的结果不写入共享存储，重新提交可以再次尝试
+			sharedStore.compareAndDelete(key, pending);
+			throw e;
+		}
+		try {
+			sharedStore.set(key, DONE_PREFIX + owner + ":" + codec.encode(info), dedupWindow);
+		} catch (IOException e) {
+			log.warn("AuthenticationInfo is not serializable, duplicate submissions on other nodes will not be merged.", e);
+			sharedStore.compareAndDelete(key, pending);
+		}
+		return info;
+	}
+
+	private static String ownerOf(String value) {
+		int start = value.indexOf(':') + 1;
+		int end = value.indexOf(':', start);
+		return end < 0 ? value.substring(start) : value.substring(start, end);
+	}
+
+	private AuthenticationInfo replay(String payload) {
+		try {
+			return codec.decode(payload);
+		} catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+			throw new DingTalkAuthenticationServiceException("Unable to read the original login of this code.", e);
+		}
+	}
+
+	protected static String digest(String value) {
+		byte[] hash = SHA256.get().digest(value.getBytes(StandardCharsets.UTF_8));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+	}
+
+	/**
+	 * @return 同一节点内被合并的重复提交次数
+	 */
+	public long getDuplicateCount() {
+		return localLedger.getDuplicateCount();
+	}
+
+	/**
+	 * @return 从其他节点的认证结果中合并的重复提交次数
+	 */
+	public long getRemoteDuplicateCount() {
+		return remoteDuplicateCount.sum();
+	}
+
+	/**
+	 * @return 其他客户端提交同一授权码被拒绝的次数，包括本节点与其他节点上的首次提交
+	 */
+	public long getRejectedCount() {
+		return localLedger.getRejectedCount() + remoteRejectedCount.sum();
+	}
+
+	public String getKeyPrefix() {
+		return keyPrefix;
+	}
+
+	public void setKeyPrefix(String keyPrefix) {
+		this.keyPrefix = keyPrefix;
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.limit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+
+/**
+ * 	基于延迟梯度的自适应并发限制（Gradient 算法）：以长期平均延迟与最近延迟之比调整并发上限，
+ * 	钉钉响应变慢时收缩上限，超出上限的登录请求立即拒绝而不是排队；
+ * 	延迟样本按采样窗口汇总后每个窗口调整一次，同一批完成的大量请求不会连续推高上限
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkConcurrencyLimiter {
+
+	private final AtomicInteger inflight = new AtomicInteger();
+	private final int minLimit;
+	private final int maxLimit;
+	private final double smoothing;
+	private final double rttTolerance;
+	private final double longRttFactor;
+	private final double backoffRatio;
+	private final long retryAfterSeconds;
+	private final long sampleWindowNanos;
+
+	private volatile int limit;
+	private double estimatedLimit;
+	private double longRtt;
+	private long windowStart;
+	private long windowRttSum;
+	private int windowSamples;
+	private int windowMaxInflight;
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public DingTalkConcurrencyLimiter(ShiroDingTalkConcurrencyLimitProperties properties) {
+		this.minLimit = Math.max(1, properties.getMinLimit());
+		this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+		this.smoothing = properties.getSmoothing();
+		this.rttTolerance = properties.getRttTolerance();
+		this.longRttFactor = 2.0 / (Math.max(1, properties.getLongWindow()) + 1);
+		this.backoffRatio = properties.getBackoffRatio();
+		this.retryAfterSeconds = Math.max(1, properties.getRetryAfter().getSeconds());
+		this.sampleWindowNanos = properties.getSampleWindow().toNanos();
+		this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+		this.limit = (int) estimatedLimit;
+	}
+
+	/**
+	 * 申请并发许可
+	 * @return 许可，已达到并发上限时返回 null
+	 */
+	public Permit tryAcquire() {
+		while (true) {
+			int current = inflight.get();
+			if (current >= limit) {
+				rejectedCount.increment();
+				return null;
+			}
+			if (inflight.compareAndSet(current, current + 1)) {
+				return new Permit(nanoTime(), current + 1);
+			}
+		}
+	}
+
+	/**
+	 * @return 计算请求延迟使用的时间（纳秒），模拟测试可替换为虚拟时钟
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	protected synchronized void onSample(long rttNanos, int inflightAtStart, boolean dropped) {
+		if (dropped) {
+			// 超时等丢弃的请求：按比例收缩
+			estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+			limit = (int) estimatedLimit;
+			return;
+		}
+		long now = nanoTime();
+		if (windowSamples == 0) {
+			windowStart = now;
+		}
+		windowRttSum += rttNanos;
+		windowSamples++;
+		windowMaxInflight = Math.max(windowMaxInflight, inflightAtStart);
+		if (now - windowStart < sampleWindowNanos) {
+			return;
+		}
+		double rtt = (double) windowRttSum / windowSamples;
+		int maxInflight = windowMaxInflight;
+		windowRttSum = 0;
+		windowSamples = 0;
+		windowMaxInflight = 0;
+		updateLimit(rtt, maxInflight);
+	}
+
+	private void updateLimit(double rtt, int maxInflight) {
+		longRtt = longRtt == 0 ? rtt : longRtt + longRttFactor * (rtt - longRtt);
+		// 未充分使用并发上限时，延迟不反映排队情况，不调整
+		if (maxInflight < estimatedLimit / 2) {
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / rtt));
+		double queueSize = Math.sqrt(estimatedLimit);
+		double newLimit = estimatedLimit * gradient + queueSize;
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+		limit = (int) estimatedLimit;
+		// 长期延迟持续高于当前延迟时逐步回落，避免高延迟阶段结束后上限迟迟不恢复
+		if (longRtt / rtt > 2) {
+			longRtt *= 0.95;
+		}
+	}
+
+	/**
+	 * @return 当前并发上限
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return 当前并发请求数
+	 */
+	public int getInflight() {
+		return inflight.get();
+	}
+
+	/**
+	 * @return 拒绝请求时建议客户端重试的等待时间（秒）
+	 */
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	/**
+	 * @return 被拒绝的请求数
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	/**
+	 * 	并发许可，完成后必须调用 {@link #release()} 或 {@link #dropped()} 之一，重复调用无效
+	 */
+	public class Permit {
+
+		private final long startTime;
+		private final int inflightAtStart;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		Permit(long startTime, int inflightAtStart) {
+			this.startTime = startTime;
+			this.inflightAtStart = inflightAtStart;
+		}
+
+		/**
+		 * 请求完成，记录延迟样本
+		 */
+		public void release() {
+			complete(false);
+		}
+
+		/**
+		 * 请求超时或被丢弃，收缩并发上限
+		 */
+		public void dropped() {
+			complete(true);
+		}
+
+		private void complete(boolean dropped) {
+			if (released.compareAndSet(false, true)) {
+				inflight.decrementAndGet();
+				onSample(nanoTime() - startTime, inflightAtStart, dropped);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.listener;
+
+import java.util.List;
+
+import org.apache.shiro.biz.realm.AuthorizingRealmListener;
+
+/**
+ * 	支持批量处理的认证事件监听器：异步分发时一次收到多个事件，适合批量写入数据库的审计监听器；
+ * 	同步通知（未配置分发器或 CALLER_RUNS）时仍逐个调用 onSuccess / onFailure
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkBatchRealmListener extends AuthorizingRealmListener {
+
+	/**
+	 * 批量处理认证事件，事件按进入缓冲区的顺序排列
+	 * @param events 认证事件
+	 */
+	void onBatch(List<DingTalkRealmEvent> events);
+
+}
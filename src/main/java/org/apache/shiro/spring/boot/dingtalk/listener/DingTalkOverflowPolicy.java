@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.listener;
+
+/**
+ * 	认证事件环形缓冲区已满时的处理策略
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DingTalkOverflowPolicy {
+
+	/**
+	 * 	丢弃新事件并计数
+	 */
+	DROP,
+	/**
+	 * 	认证线程等待缓冲区空位，超过等待时间后丢弃
+	 */
+	BLOCK,
+	/**
+	 * 	由认证线程直接通知监听器
+	 */
+	CALLER_RUNS
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.listener;
+
+import java.util.List;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.biz.realm.AuthorizingRealmListener;
+import org.apache.shiro.realm.Realm;
+
+/**
+ * 	一次认证的结果，连同产生事件时 Realm 上注册的监听器一起放入分发缓冲区
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DingTalkRealmEvent {
+
+	private final Realm realm;
+	private final AuthenticationToken token;
+	private final AuthenticationInfo info;
+	private final AuthenticationException exception;
+	private final List<AuthorizingRealmListener> listeners;
+	private final long timestamp;
+
+	public DingTalkRealmEvent(Realm realm, AuthenticationToken token, AuthenticationInfo info,
+			AuthenticationException exception, List<AuthorizingRealmListener> listeners) {
+		this.realm = realm;
+		this.token = token;
+		this.info = info;
+		this.exception = exception;
+		this.listeners = listeners;
+		this.timestamp = System.currentTimeMillis();
+	}
+
+	/**
+	 * 与 Realm 中同步通知的判断一致：有异常或未取得认证信息均视为失败
+	 * @return 是否认证成功
+	 */
+	public boolean isSuccess() {
+		return exception == null && info != null;
+	}
+
+	/**
+	 * 以单个事件的方式通知监听器
+	 * @param listener 监听器
+	 */
+	public void deliverTo(AuthorizingRealmListener listener) {
+		if (isSuccess()) {
+			listener.onSuccess(realm, info);
+		} else {
+			listener.onFailure(realm, token, exception);
+		}
+	}
+
+	public Realm getRealm() {
+		return realm;
+	}
+
+	public AuthenticationToken getToken() {
+		return token;
+	}
+
+	public AuthenticationInfo getInfo() {
+		return info;
+	}
+
+	public AuthenticationException getException() {
+		return exception;
+	}
+
+	public List<AuthorizingRealmListener> getListeners() {
+		return listeners;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+}
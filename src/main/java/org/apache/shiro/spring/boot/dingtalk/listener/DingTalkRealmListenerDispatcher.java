@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.listener;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.biz.realm.AuthorizingRealmListener;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.spring.boot.dingtalk.concurrent.DingTalkRingBuffer;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkListenerProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	AuthorizingRealmListener 异步分发器：认证线程将事件写入有界无锁环形缓冲区后立即返回，
+ * 	消费线程按批取出事件，{@link DingTalkBatchRealmListener} 一次收到整批事件，其余监听器逐个通知；
+ * 	缓冲区已满时按 {@link DingTalkOverflowPolicy} 处理
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkRealmListenerDispatcher implements DisposableBean {
+
+	private final DingTalkRingBuffer<DingTalkRealmEvent> buffer;
+
+	private final int batchSize;
+	private final DingTalkOverflowPolicy overflowPolicy;
+	private final long blockTimeoutNanos;
+	private final long idleWaitNanos;
+	private final long shutdownTimeoutMillis;
+	private final List<Thread> consumers = new ArrayList<>();
+	private volatile boolean running = true;
+
+	private final LongAdder dispatchedCount = new LongAdder();
+	private final LongAdder deliveredCount = new LongAdder();
+	private final LongAdder batchCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+	private final LongAdder callerRunsCount = new LongAdder();
+	private final LongAdder listenerErrorCount = new LongAdder();
+
+	public DingTalkRealmListenerDispatcher(ShiroDingTalkListenerProperties properties) {
+		this.buffer = new DingTalkRingBuffer<>(properties.getCapacity());
+		this.batchSize = Math.max(1, properties.getBatchSize());
+		this.overflowPolicy = properties.getOverflowPolicy();
+		this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+		this.idleWaitNanos = Math.max(1, properties.getIdleWait().toNanos());
+		this.shutdownTimeoutMillis = properties.getShutdownTimeout().toMillis();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dingtalk-realm-listener-");
+		threadFactory.setDaemon(true);
+		for (int i = 0; i < Math.max(1, properties.getConsumers()); i++) {
+			Thread consumer = threadFactory.newThread(this::consume);
+			consumers.add(consumer);
+			consumer.start();
+		}
+	}
+
+	/**
+	 * 分发一次认证的结果
+	 * @param realm 产生事件的 Realm
+	 * @param token 认证 Token
+	 * @param info 认证信息，认证失败时为 null
+	 * @param ex 认证异常，认证成功时为 null
+	 * @param listeners Realm 上注册的监听器
+	 */
+	public void dispatch(Realm realm, AuthenticationToken token, AuthenticationInfo info, AuthenticationException ex,
+			List<AuthorizingRealmListener> listeners) {
+		if (listeners == null || listeners.isEmpty()) {
+			return;
+		}
+		DingTalkRealmEvent event = new DingTalkRealmEvent(realm, token, info, ex, listeners);
+		dispatchedCount.increment();
+		if (running && buffer.offer(event)) {
+			return;
+		}
+		switch (overflowPolicy) {
+		case CALLER_RUNS:
+			callerRunsCount.increment();
+			for (AuthorizingRealmListener listener : listeners) {
+				deliver(listener, event);
+			}
+			return;
+		case BLOCK:
+			long deadline = System.nanoTime() + blockTimeoutNanos;
+			while (running && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(idleWaitNanos);
+				if (buffer.offer(event)) {
+					return;
+				}
+			}
+			drop();
+			return;
+		default:
+			drop();
+		}
+	}
+
+	private void drop() {
+		droppedCount.increment();
+		if (log.isDebugEnabled()) {
+			log.debug("DingTalk realm listener buffer is full, event dropped.");
+		}
+	}
+
+	private void consume() {
+		List<DingTalkRealmEvent> batch = new ArrayList<>(batchSize);
+		while (true) {
+			DingTalkRealmEvent event;
+			while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+				batch.add(event);
+			}
+			if (batch.isEmpty()) {
+				if (!running) {
+					return;
+				}
+				LockSupport.parkNanos(idleWaitNanos);
+				continue;
+			}
+			deliver(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * 按监听器分组后通知：同一批事件中注册了相同监听器的事件合并为一次 onBatch 调用
+	 */
+	protected void deliver(List<DingTalkRealmEvent> batch) {
+		Map<AuthorizingRealmListener, List<DingTalkRealmEvent>> grouped = new IdentityHashMap<>();
+		for (DingTalkRealmEvent event : batch) {
+			for (AuthorizingRealmListener listener : event.getListeners()) {
+				if (listener instanceof DingTalkBatchRealmListener) {
+					grouped.computeIfAbsent(listener, key -> new ArrayList<>()).add(event);
+				} else {
+					deliver(listener, event);
+				}
+			}
+		}
+		grouped.forEach((listener, events) -> {
+			try {
+				((DingTalkBatchRealmListener) listener).onBatch(events);
+			} catch (RuntimeException e) {
+				listenerErrorCount.increment();
+				log.error("DingTalk realm listener {} failed to handle {} events.", listener, events.size(), e);
+			}
+		});
+		batchCount.increment();
+		deliveredCount.add(batch.size());
+	}
+
+	private void deliver(AuthorizingRealmListener listener, DingTalkRealmEvent event) {
+		try {
+			event.deliverTo(listener);
+		} catch (RuntimeException e) {
+			listenerErrorCount.increment();
+			log.error("DingTalk realm listener {} failed.", listener, e);
+		}
+	}
+
+	/**
+	 * 停止接收新事件，等待消费线程处理完缓冲区中剩余的事件
+	 */
+	@Override
+	public void destroy() throws Exception {
+		running = false;
+		long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+		for (Thread consumer : consumers) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining > 0) {
+				consumer.join(remaining);
+			}
+		}
+		long remainingEvents = getQueueDepth();
+		if (remainingEvents > 0) {
+			log.warn("DingTalk realm listener dispatcher stopped with {} undelivered events.", remainingEvents);
+		}
+	}
+
+	/**
+	 * @return 缓冲区中等待通知的事件数（近似值）
+	 */
+	public long getQueueDepth() {
+		return buffer.size();
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	public long getDispatchedCount() {
+		return dispatchedCount.sum();
+	}
+
+	public long getDeliveredCount() {
+		return deliveredCount.sum();
+	}
+
+	public long getBatchCount() {
+		return batchCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	public long getCallerRunsCount() {
+		return callerRunsCount.sum();
+	}
+
+	public long getListenerErrorCount() {
+		return listenerErrorCount.sum();
+	}
+
+	public DingTalkOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+}
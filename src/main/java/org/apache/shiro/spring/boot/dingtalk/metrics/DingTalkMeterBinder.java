@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkCircuitBreaker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.HedgingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.ResilientDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.RetryingDingTalkRemoteInvoker;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 	将已配置的钉钉登录组件的内部计数注册为 Micrometer 指标：缓存命中、并发限制、熔断、对冲、重试、事件分发与审计队列；
+ * 	未配置的组件不注册，按 AppKey 区分的熔断器只汇总为全局指标
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkMeterBinder implements MeterBinder {
+
+	private static final String PREFIX = MicrometerDingTalkMetrics.METRIC_PREFIX;
+
+	private DingTalkRemoteInvoker remoteInvoker;
+	private DingTalkAccessTokenCache accessTokenCache;
+	private DingTalkJwtClaimsCache claimsCache;
+	private DingTalkAuthenticationInfoCache authenticationInfoCache;
+	private DingTalkConcurrencyLimiter concurrencyLimiter;
+	private DingTalkRealmListenerDispatcher listenerDispatcher;
+	private DingTalkLoginAuditor loginAuditor;
+	private DingTalkAuthenticationFailureHandler failureHandler;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		bindRemoteInvoker(registry);
+		if (accessTokenCache != null) {
+			DingTalkAccessTokenCache cache = accessTokenCache;
+			FunctionCounter.builder(PREFIX + ".access-token.requests", cache, DingTalkAccessTokenCache::getHitCount)
+				.tag("result", "hit").register(registry);
+			FunctionCounter.builder(PREFIX + ".access-token.requests", cache, DingTalkAccessTokenCache::getMissCount)
+				.tag("result", "miss").register(registry);
+			FunctionCounter.builder(PREFIX + ".access-token.refreshes", cache, DingTalkAccessTokenCache::getRefreshCount)
+				.tag("result", "success").register(registry);
+			FunctionCounter.builder(PREFIX + ".access-token.refreshes", cache, DingTalkAccessTokenCache::getRefreshFailureCount)
+				.tag("result", "failure").register(registry);
+			FunctionCounter.builder(PREFIX + ".access-token.fetches", cache, DingTalkAccessTokenCache::getFetchCount)
+				.register(registry);
+			Gauge.builder(PREFIX + ".access-token.size", cache, DingTalkAccessTokenCache::size).register(registry);
+		}
+		if (claimsCache != null) {
+			DingTalkJwtClaimsCache cache = claimsCache;
+			FunctionCounter.builder(PREFIX + ".jwt-cache.requests", cache, c -> c.stats().hitCount())
+				.tag("result", "hit").register(registry);
+			FunctionCounter.builder(PREFIX + ".jwt-cache.requests", cache, c -> c.stats().missCount())
+				.tag("result", "miss").register(registry);
+			Gauge.builder(PREFIX + ".jwt-cache.size", cache, DingTalkJwtClaimsCache::estimatedSize).register(registry);
+		}
+		if (authenticationInfoCache != null) {
+			DingTalkAuthenticationInfoCache cache = authenticationInfoCache;
+			FunctionCounter.builder(PREFIX + ".repository-cache.requests", cache, c -> c.stats().hitCount())
+				.tag("result", "hit").register(registry);
+			FunctionCounter.builder(PREFIX + ".repository-cache.requests", cache, c -> c.stats().missCount())
+				.tag("result", "miss").register(registry);
+			Gauge.builder(PREFIX + ".repository-cache.size", cache, DingTalkAuthenticationInfoCache::estimatedSize).register(registry);
+		}
+		if (concurrencyLimiter != null) {
+			DingTalkConcurrencyLimiter limiter = concurrencyLimiter;
+			Gauge.builder(PREFIX + ".limit", limiter, DingTalkConcurrencyLimiter::getLimit).register(registry);
+			Gauge.builder(PREFIX + ".limit.inflight", limiter, DingTalkConcurrencyLimiter::getInflight).register(registry);
+			FunctionCounter.builder(PREFIX + ".limit.rejected", limiter, DingTalkConcurrencyLimiter::getRejectedCount).register(registry);
+		}
+		if (listenerDispatcher != null) {
+			DingTalkRealmListenerDispatcher dispatcher = listenerDispatcher;
+			Gauge.builder(PREFIX + ".listener.queue.depth", dispatcher, DingTalkRealmListenerDispatcher::getQueueDepth).register(registry);
+			Gauge.builder(PREFIX + ".listener.queue.capacity", dispatcher, DingTalkRealmListenerDispatcher::getCapacity).register(registry);
+			FunctionCounter.builder(PREFIX + ".listener.events", dispatcher, DingTalkRealmListenerDispatcher::getDeliveredCount)
+				.tag("result", "delivered").register(registry);
+			FunctionCounter.builder(PREFIX + ".listener.events", dispatcher, DingTalkRealmListenerDispatcher::getDroppedCount)
+				.tag("result", "dropped").register(registry);
+			FunctionCounter.builder(PREFIX + ".listener.events", dispatcher, DingTalkRealmListenerDispatcher::getCallerRunsCount)
+				.tag("result", "caller-runs").register(registry);
+			FunctionCounter.builder(PREFIX + ".listener.errors", dispatcher, DingTalkRealmListenerDispatcher::getListenerErrorCount).register(registry);
+		}
+		if (loginAuditor != null) {
+			DingTalkLoginAuditor auditor = loginAuditor;
+			Gauge.builder(PREFIX + ".audit.queue.depth", auditor, DingTalkLoginAuditor::getQueueDepth).register(registry);
+			Gauge.builder(PREFIX + ".audit.queue.capacity", auditor, DingTalkLoginAuditor::getCapacity).register(registry);
+			FunctionCounter.builder(PREFIX + ".audit.events", auditor, DingTalkLoginAuditor::getWrittenCount)
+				.tag("result", "written").register(registry);
+			FunctionCounter.builder(PREFIX + ".audit.events", auditor, DingTalkLoginAuditor::getDroppedCount)
+				.tag("result", "dropped").register(registry);
+			FunctionCounter.builder(PREFIX + ".audit.events", auditor, DingTalkLoginAuditor::getFailedCount)
+				.tag("result", "failed").register(registry);
+			FunctionCounter.builder(PREFIX + ".audit.commits", auditor, DingTalkLoginAuditor::getCommitCount).register(registry);
+		}
+		if (failureHandler != null) {
+			Gauge.builder(PREFIX + ".failure.bodies", failureHandler, DingTalkAuthenticationFailureHandler::getCachedBodies).register(registry);
+		}
+	}
+
+	/**
+	 * 沿装饰链逐层注册远程调用组件的指标
+	 */
+	private void bindRemoteInvoker(MeterRegistry registry) {
+		DingTalkRemoteInvoker invoker = remoteInvoker;
+		while (invoker != null) {
+			if (invoker instanceof MeteredDingTalkRemoteInvoker) {
+				invoker = ((MeteredDingTalkRemoteInvoker) invoker).getDelegate();
+			} else if (invoker instanceof RetryingDingTalkRemoteInvoker) {
+				RetryingDingTalkRemoteInvoker retrying = (RetryingDingTalkRemoteInvoker) invoker;
+				FunctionCounter.builder(PREFIX + ".remote.retries", retrying, RetryingDingTalkRemoteInvoker::getRetryCount).register(registry);
+				FunctionCounter.builder(PREFIX + ".remote.retry.budget.exhausted", retrying, RetryingDingTalkRemoteInvoker::getBudgetExhaustedCount).register(registry);
+				invoker = retrying.getDelegate();
+			} else if (invoker instanceof HedgingDingTalkRemoteInvoker) {
+				HedgingDingTalkRemoteInvoker hedging = (HedgingDingTalkRemoteInvoker) invoker;
+				FunctionCounter.builder(PREFIX + ".remote.hedges", hedging, HedgingDingTalkRemoteInvoker::getHedgeCount)
+					.tag("result", "sent").register(registry);
+				FunctionCounter.builder(PREFIX + ".remote.hedges", hedging, HedgingDingTalkRemoteInvoker::getHedgeWinCount)
+					.tag("result", "won").register(registry);
+				FunctionCounter.builder(PREFIX + ".remote.timeouts", hedging, HedgingDingTalkRemoteInvoker::getTimeoutCount).register(registry);
+				FunctionCounter.builder(PREFIX + ".remote.hedge.rejected", hedging, HedgingDingTalkRemoteInvoker::getRejectedCount).register(registry);
+				Gauge.builder(PREFIX + ".remote.hedge.threads", hedging, HedgingDingTalkRemoteInvoker::getActiveThreads).register(registry);
+				invoker = hedging.getDelegate();
+			} else if (invoker instanceof ResilientDingTalkRemoteInvoker) {
+				ResilientDingTalkRemoteInvoker resilient = (ResilientDingTalkRemoteInvoker) invoker;
+				Gauge.builder(PREFIX + ".circuit.open", resilient, DingTalkMeterBinder::openCircuits)
+					.description("Number of appKeys whose circuit breaker is not closed").register(registry);
+				FunctionCounter.builder(PREFIX + ".circuit.not-permitted", resilient, DingTalkMeterBinder::notPermittedCalls).register(registry);
+				invoker = resilient.getDelegate();
+			} else {
+				break;
+			}
+		}
+	}
+
+	private static double openCircuits(ResilientDingTalkRemoteInvoker invoker) {
+		return invoker.getCircuitBreakers().values().stream()
+				.filter(circuitBreaker -> circuitBreaker.getState() != DingTalkCircuitBreaker.State.CLOSED).count();
+	}
+
+	private static double notPermittedCalls(ResilientDingTalkRemoteInvoker invoker) {
+		double total = 0;
+		for (String appKey : invoker.getCircuitBreakers().keySet()) {
+			total += invoker.getCircuitBreaker(appKey).getNotPermittedCount() + invoker.getRejectedCount(appKey);
+		}
+		return total;
+	}
+
+	public void setRemoteInvoker(DingTalkRemoteInvoker remoteInvoker) {
+		this.remoteInvoker = remoteInvoker;
+	}
+
+	public void setAccessTokenCache(DingTalkAccessTokenCache accessTokenCache) {
+		this.accessTokenCache = accessTokenCache;
+	}
+
+	public void setClaimsCache(DingTalkJwtClaimsCache claimsCache) {
+		this.claimsCache = claimsCache;
+	}
+
+	public void setAuthenticationInfoCache(DingTalkAuthenticationInfoCache authenticationInfoCache) {
+		this.authenticationInfoCache = authenticationInfoCache;
+	}
+
+	public void setConcurrencyLimiter(DingTalkConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public void setListenerDispatcher(DingTalkRealmListenerDispatcher listenerDispatcher) {
+		this.listenerDispatcher = listenerDispatcher;
+	}
+
+	public void setLoginAuditor(DingTalkLoginAuditor loginAuditor) {
+		this.loginAuditor = loginAuditor;
+	}
+
+	public void setFailureHandler(DingTalkAuthenticationFailureHandler failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+
+/**
+ * 	钉钉登录各阶段的耗时与结果记录：过滤器、Realm、成功处理器与远程调用在配置了该接口时记录，未配置时不计时；
+ * 	接口本身不依赖 Micrometer，Micrometer 实现见 {@link MicrometerDingTalkMetrics}
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkMetrics {
+
+	/**
+	 * 记录登录请求体解析耗时
+	 * @param requestType 登录请求类型
+	 * @param nanos 耗时（纳秒）
+	 * @param error 解析失败的异常，成功时为 null
+	 */
+	void recordParse(Class<?> requestType, long nanos, Throwable error);
+
+	/**
+	 * 记录钉钉远程调用耗时
+	 * @param appKey 应用的唯一标识key
+	 * @param operation 远程调用类型
+	 * @param nanos 耗时（纳秒）
+	 * @param error 调用失败的异常，成功时为 null
+	 */
+	void recordRemote(String appKey, DingTalkRemoteOperation operation, long nanos, Throwable error);
+
+	/**
+	 * 记录 Repository 查询认证信息的耗时
+	 * @param token 认证 Token
+	 * @param nanos 耗时（纳秒）
+	 * @param error 查询失败的异常，成功时为 null
+	 */
+	void recordRepository(AuthenticationToken token, long nanos, Throwable error);
+
+	/**
+	 * 记录 JWT 签发耗时
+	 * @param token 认证 Token
+	 * @param nanos 耗时（纳秒）
+	 * @param error 签发失败的异常，成功时为 null
+	 */
+	void recordJwtIssue(AuthenticationToken token, long nanos, Throwable error);
+
+	/**
+	 * 记录登录结果
+	 * @param token 认证 Token
+	 * @param error 认证失败的异常，成功时为 null
+	 */
+	void recordOutcome(AuthenticationToken token, AuthenticationException error);
+
+}
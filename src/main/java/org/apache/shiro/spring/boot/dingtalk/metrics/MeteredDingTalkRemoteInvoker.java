@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.springframework.beans.factory.DisposableBean;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	记录钉钉远程调用耗时的 {@link DingTalkRemoteInvoker}：位于调用链最外层，耗时包含重试、对冲与熔断等待
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MeteredDingTalkRemoteInvoker implements DingTalkRemoteInvoker, DisposableBean {
+
+	private final DingTalkRemoteInvoker delegate;
+	private final DingTalkMetrics metrics;
+
+	public MeteredDingTalkRemoteInvoker(DingTalkRemoteInvoker delegate, DingTalkMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return delegate.invoke(appKey, operation, call);
+		} catch (ApiException | RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			metrics.recordRemote(appKey, operation, System.nanoTime() - start, error);
+		}
+	}
+
+	public DingTalkRemoteInvoker getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (delegate instanceof DisposableBean) {
+			((DisposableBean) delegate).destroy();
+		}
+	}
+
+}
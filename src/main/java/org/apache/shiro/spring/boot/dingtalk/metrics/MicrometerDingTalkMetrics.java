@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditEvent;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkExceptions;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkMetricsProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 	基于 Micrometer 的 {@link DingTalkMetrics}：计时器默认发布百分位直方图；
+ * 	appKey 与异常类型标签的取值数量有上限，超出后归入 {@link #OTHER}，避免标签基数失控
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MicrometerDingTalkMetrics implements DingTalkMetrics {
+
+	public static final String METRIC_PREFIX = "shiro.dingtalk";
+	public static final String OTHER = "other";
+	public static final String NONE = "none";
+
+	private final MeterRegistry registry;
+	private final boolean percentileHistogram;
+	private final BoundedTagValues appKeys;
+	private final BoundedTagValues exceptions;
+	/** 按名称与标签缓存的计时器与计数器，热路径上不再经过注册表查找 */
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	public MicrometerDingTalkMetrics(MeterRegistry registry, ShiroDingTalkMetricsProperties properties) {
+		this.registry = registry;
+		this.percentileHistogram = properties.isPercentileHistogram();
+		this.appKeys = new BoundedTagValues(properties.getMaxAppKeyTags());
+		this.exceptions = new BoundedTagValues(properties.getMaxExceptionTags());
+	}
+
+	@Override
+	public void recordParse(Class<?> requestType, long nanos, Throwable error) {
+		timer(METRIC_PREFIX + ".login.parse", "type", requestType.getSimpleName(), "exception", exception(error))
+			.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordRemote(String appKey, DingTalkRemoteOperation operation, long nanos, Throwable error) {
+		timer(METRIC_PREFIX + ".remote", "operation", operation.name(), "appKey", appKeys.tag(appKey), "exception", exception(error))
+			.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordRepository(AuthenticationToken token, long nanos, Throwable error) {
+		timer(METRIC_PREFIX + ".repository", "flow", DingTalkLoginAuditEvent.flowOf(token), "exception", exception(error))
+			.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordJwtIssue(AuthenticationToken token, long nanos, Throwable error) {
+		timer(METRIC_PREFIX + ".jwt.issue", "flow", DingTalkLoginAuditEvent.flowOf(token), "exception", exception(error))
+			.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordOutcome(AuthenticationToken token, AuthenticationException error) {
+		String name = METRIC_PREFIX + ".login";
+		String flow = DingTalkLoginAuditEvent.flowOf(token);
+		String outcome = error == null ? "success" : "failure";
+		String exception = exception(error);
+		String key = name + '|' + flow + '|' + outcome + '|' + exception;
+		Counter counter = counters.get(key);
+		if (counter == null) {
+			counter = counters.computeIfAbsent(key, k -> Counter.builder(name)
+					.description("DingTalk login attempts by outcome")
+					.tags("flow", flow, "outcome", outcome, "exception", exception)
+					.register(registry));
+		}
+		counter.increment();
+	}
+
+	private Timer timer(String name, String... tags) {
+		StringBuilder key = new StringBuilder(name);
+		for (String tag : tags) {
+			key.append('|').append(tag);
+		}
+		Timer timer = timers.get(key.toString());
+		if (timer == null) {
+			timer = timers.computeIfAbsent(key.toString(), k -> Timer.builder(name)
+					.tags(tags)
+					.publishPercentileHistogram(percentileHistogram)
+					.register(registry));
+		}
+		return timer;
+	}
+
+	private String exception(Throwable error) {
+		return error == null ? NONE : exceptions.tag(DingTalkExceptions.simpleName(error));
+	}
+
+	/**
+	 * 有上限的标签取值集合：前 maxSize 个出现的取值原样保留，其余归入 {@link #OTHER}
+	 */
+	static final class BoundedTagValues {
+
+		private final int maxSize;
+		private final Set<String> values = ConcurrentHashMap.newKeySet();
+
+		BoundedTagValues(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		String tag(String value) {
+			if (value == null) {
+				return NONE;
+			}
+			if (values.contains(value)) {
+				return value;
+			}
+			if (values.size() < maxSize && values.add(value)) {
+				return value;
+			}
+			return values.contains(value) ? value : OTHER;
+		}
+
+	}
+
+}
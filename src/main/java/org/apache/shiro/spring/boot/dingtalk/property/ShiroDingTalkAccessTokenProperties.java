@@ -0,0 +1,55 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	AccessToken 缓存配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkAccessTokenProperties {
+
+	/**
+	 * 	是否启用 AccessToken 缓存
+	 */
+	private boolean enabled = true;
+	/**
+	 * 	AccessToken 有效期，钉钉默认为 7200 秒
+	 */
+	private Duration expiresIn = Duration.ofSeconds(7200);
+	/**
+	 * 	在 AccessToken 过期前多久开始后台刷新
+	 */
+	private Duration refreshAhead = Duration.ofMinutes(5);
+	/**
+	 * 	后台刷新时间的随机抖动范围，避免多个 AppKey 同时刷新
+	 */
+	private Duration refreshJitter = Duration.ofMinutes(1);
+	/**
+	 * 	后台刷新失败后的重试间隔
+	 */
+	private Duration refreshRetryInterval = Duration.ofSeconds(30);
+	/**
+	 * 	并发未命中时等待其他线程获取 AccessToken 的最长时间
+	 */
+	private Duration loadTimeout = Duration.ofSeconds(5);
+	/**
+	 * 	使用共享存储时，节点刷新 AccessToken 的租约时长
+	 */
+	private Duration leaseTime = Duration.ofSeconds(10);
+	/**
+	 * 	使用共享存储时，未获得租约的节点轮询共享 AccessToken 的间隔
+	 */
+	private Duration leasePollInterval = Duration.ofMillis(100);
+	/**
+	 * 	后台刷新线程数
+	 */
+	private int refreshThreads = 1;
+
+}
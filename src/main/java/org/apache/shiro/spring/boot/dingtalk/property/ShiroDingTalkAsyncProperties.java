@@ -0,0 +1,43 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	登录过滤器异步认证配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkAsyncProperties {
+
+	/**
+	 * 	是否启用异步认证：登录请求在独立线程池中完成钉钉远程调用与 Repository 查询，释放容器工作线程
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	异步认证的超时时间，超时后响应认证失败
+	 */
+	private Duration timeout = Duration.ofSeconds(10);
+	/**
+	 * 	是否使用虚拟线程执行认证（需 JDK 21 及以上），启用后线程池参数不再生效
+	 */
+	private boolean virtualThreads = false;
+	/**
+	 * 	认证线程池核心线程数
+	 */
+	private int corePoolSize = 8;
+	/**
+	 * 	认证线程池最大线程数
+	 */
+	private int maxPoolSize = 64;
+	/**
+	 * 	认证线程池队列容量
+	 */
+	private int queueCapacity = 1000;
+
+}
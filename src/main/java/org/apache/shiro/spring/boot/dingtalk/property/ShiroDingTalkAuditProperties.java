@@ -0,0 +1,83 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	钉钉登录审计配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkAuditProperties {
+
+	/**
+	 * 	Sink 类型
+	 */
+	public enum SinkType {
+		/**
+		 * 	内存映射的滚动文件
+		 */
+		FILE,
+		/**
+		 * 	批量写入数据库，需要 DataSource
+		 */
+		JDBC
+	}
+
+	/**
+	 * 	是否记录钉钉登录审计日志
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	审计记录写入的位置，应用中存在 DingTalkLoginAuditSink 时以应用提供的为准
+	 */
+	private SinkType sink = SinkType.FILE;
+	/**
+	 * 	审计缓冲区容量，向上取整为 2 的幂
+	 */
+	private int capacity = 8192;
+	/**
+	 * 	每次提交的最大记录数
+	 */
+	private int batchSize = 512;
+	/**
+	 * 	未攒满一批时，首条记录最多等待多久后提交
+	 */
+	private Duration maxBatchDelay = Duration.ofMillis(10);
+	/**
+	 * 	缓冲区已满时登录线程的最长等待时间，为 0 时直接丢弃
+	 */
+	private Duration blockTimeout = Duration.ZERO;
+	/**
+	 * 	应用关闭时等待写入剩余记录的最长时间
+	 */
+	private Duration shutdownTimeout = Duration.ofSeconds(5);
+	/**
+	 * 	审计文件目录
+	 */
+	private String directory = "logs/dingtalk-audit";
+	/**
+	 * 	审计文件名前缀
+	 */
+	private String filePrefix = "dingtalk-login-audit";
+	/**
+	 * 	单个审计文件的大小
+	 */
+	private DataSize segmentSize = DataSize.ofMegabytes(64);
+	/**
+	 * 	是否在每批提交后将文件内容刷入磁盘
+	 */
+	private boolean forceOnCommit = false;
+	/**
+	 * 	审计表名
+	 */
+	private String tableName = "dingtalk_login_audit";
+
+}
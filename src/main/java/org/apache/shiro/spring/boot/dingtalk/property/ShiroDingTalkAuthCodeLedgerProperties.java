@@ -0,0 +1,43 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	一次性授权码台账配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkAuthCodeLedgerProperties {
+
+	/**
+	 * 	是否启用授权码台账
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	首次提交进行中的授权码的最长保留时间，钉钉临时授权码有效期为 5 分钟
+	 */
+	private Duration ttl = Duration.ofMinutes(5);
+	/**
+	 * 	首次提交完成后认证结果的保留时间，只用于合并客户端短时间内的重复提交
+	 */
+	private Duration dedupWindow = Duration.ofSeconds(10);
+	/**
+	 * 	本地最多保留的授权码数量
+	 */
+	private long maximumSize = 100000;
+	/**
+	 * 	重复提交等待首次提交结果的最长时间
+	 */
+	private Duration waitTimeout = Duration.ofSeconds(10);
+	/**
+	 * 	使用共享存储时，其他节点上的重复提交轮询结果的间隔
+	 */
+	private Duration pollInterval = Duration.ofMillis(50);
+
+}
@@ -0,0 +1,59 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	登录请求自适应并发限制配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkConcurrencyLimitProperties {
+
+	/**
+	 * 	是否启用自适应并发限制
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	初始并发上限
+	 */
+	private int initialLimit = 20;
+	/**
+	 * 	最小并发上限
+	 */
+	private int minLimit = 4;
+	/**
+	 * 	最大并发上限
+	 */
+	private int maxLimit = 200;
+	/**
+	 * 	并发上限调整的平滑系数（0~1），越大调整越快
+	 */
+	private double smoothing = 0.2;
+	/**
+	 * 	允许的延迟增长倍数，最近延迟不超过长期平均延迟的该倍数时不收缩
+	 */
+	private double rttTolerance = 1.5;
+	/**
+	 * 	长期平均延迟的窗口，以采样窗口的个数计
+	 */
+	private int longWindow = 600;
+	/**
+	 * 	采样窗口：窗口内的延迟样本取平均后调整一次并发上限
+	 */
+	private Duration sampleWindow = Duration.ofMillis(10);
+	/**
+	 * 	请求超时后并发上限的收缩比例
+	 */
+	private double backoffRatio = 0.9;
+	/**
+	 * 	拒绝请求时响应的 Retry-After
+	 */
+	private Duration retryAfter = Duration.ofSeconds(1);
+
+}
@@ -0,0 +1,65 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	幂等钉钉远程调用的对冲请求与自适应超时配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkHedgingProperties {
+
+	/**
+	 * 	是否启用对冲请求
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	允许对冲的远程调用，仅限幂等调用；一次性授权码换取用户信息（GET_USERINFO_BY_TMP_CODE）不可对冲
+	 */
+	private Set<DingTalkRemoteOperation> operations = EnumSet.of(DingTalkRemoteOperation.GET_ACCESS_TOKEN);
+	/**
+	 * 	超过该分位的延迟后发出对冲请求
+	 */
+	private double hedgeQuantile = 0.95;
+	/**
+	 * 	样本不足或分位延迟过小时使用的最小对冲等待时间
+	 */
+	private Duration minHedgeDelay = Duration.ofMillis(50);
+	/**
+	 * 	对冲预算：对冲请求数占首次请求数的最大比例（0~1），1 表示最多使负载翻倍
+	 */
+	private double budgetRatio = 0.1;
+	/**
+	 * 	超时时间取该分位延迟的倍数
+	 */
+	private double timeoutQuantile = 0.999;
+	private double timeoutMultiplier = 2.0;
+	/**
+	 * 	自适应超时的下限与上限
+	 */
+	private Duration minTimeout = Duration.ofMillis(500);
+	private Duration maxTimeout = Duration.ofSeconds(10);
+	/**
+	 * 	计算分位数所需的最少样本数
+	 */
+	private long minimumSamples = 100;
+	/**
+	 * 	延迟直方图的滚动窗口
+	 */
+	private Duration window = Duration.ofMinutes(1);
+	/**
+	 * 	执行首次请求与对冲请求的最大线程数，耗尽时首次请求在调用线程中执行，对冲请求放弃
+	 */
+	private int maxThreads = 64;
+
+}
@@ -0,0 +1,35 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	无状态模式下已签发 JWT 的声明缓存配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkJwtCacheProperties {
+
+	/**
+	 * 	是否启用 JWT 声明缓存
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	最多缓存的 JWT 数量
+	 */
+	private long maximumSize = 10000;
+	/**
+	 * 	单个 JWT 的最长缓存时间，实际缓存时间不超过 JWT 的过期时间
+	 */
+	private Duration maxTtl = Duration.ofMinutes(30);
+	/**
+	 * 	携带 JWT 的请求头
+	 */
+	private String header = "Authorization";
+
+}
@@ -0,0 +1,48 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	登录成功时签发 JWT 的快速签发器配置；启用后同一份配置同时用于 {@link org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkIssuedJwtVerifier}
+ * 	验证签发器签发的 JWT，并随之启用 JWT 声明缓存，由登录过滤器在进入 shiro-jwt 校验前恢复身份
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkJwtIssuerProperties {
+
+	/**
+	 * 	是否启用快速签发器：启用后登录成功响应由签发器直接写出，包含 code、status、msg、token、userid、unionid、name、avatar
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	签名算法：HS256、HS384、HS512、RS256、RS384、RS512
+	 */
+	private String algorithm = "HS256";
+	/**
+	 * 	HMAC 签名密钥（HS*）
+	 */
+	private String secret;
+	/**
+	 * 	Base64 编码的 PKCS#8 私钥（RS*），可以包含 PEM 首尾行
+	 */
+	private String privateKey;
+	/**
+	 * 	Base64 编码的 X.509 公钥（RS*），用于验证签发的 JWT，未配置时由私钥推导
+	 */
+	private String publicKey;
+	/**
+	 * 	签发者（iss）
+	 */
+	private String issuer;
+	/**
+	 * 	JWT 有效期（exp - iat）
+	 */
+	private Duration expiration = Duration.ofHours(2);
+
+}
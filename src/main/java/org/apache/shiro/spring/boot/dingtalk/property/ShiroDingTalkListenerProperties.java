@@ -0,0 +1,53 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkOverflowPolicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	Realm 认证事件异步分发配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkListenerProperties {
+
+	/**
+	 * 	是否异步分发认证事件：认证线程只将事件放入环形缓冲区，由独立的消费线程批量通知 AuthorizingRealmListener
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	环形缓冲区容量，向上取整为 2 的幂
+	 */
+	private int capacity = 4096;
+	/**
+	 * 	消费线程数；多于 1 个时同一监听器收到的事件不保证顺序
+	 */
+	private int consumers = 1;
+	/**
+	 * 	每批最多通知的事件数
+	 */
+	private int batchSize = 128;
+	/**
+	 * 	缓冲区已满时的处理策略
+	 */
+	private DingTalkOverflowPolicy overflowPolicy = DingTalkOverflowPolicy.DROP;
+	/**
+	 * 	BLOCK 策略下等待缓冲区空位的最长时间，超时后丢弃事件
+	 */
+	private Duration blockTimeout = Duration.ofMillis(100);
+	/**
+	 * 	缓冲区为空时消费线程的休眠时间
+	 */
+	private Duration idleWait = Duration.ofMillis(5);
+	/**
+	 * 	应用关闭时等待消费线程处理剩余事件的最长时间
+	 */
+	private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+}
@@ -0,0 +1,33 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	钉钉登录 Micrometer 指标配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkMetricsProperties {
+
+	/**
+	 * 	应用中存在 MeterRegistry 时是否记录钉钉登录指标
+	 */
+	private boolean enabled = true;
+	/**
+	 * 	计时器是否发布百分位直方图
+	 */
+	private boolean percentileHistogram = true;
+	/**
+	 * 	appKey 标签的最大取值数，超出后归入 other
+	 */
+	private int maxAppKeyTags = 50;
+	/**
+	 * 	异常类型标签的最大取值数，超出后归入 other
+	 */
+	private int maxExceptionTags = 50;
+
+}
@@ -0,0 +1,43 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	WebFlux 登录流程配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkReactiveProperties {
+
+	/**
+	 * 	钉钉开放接口地址
+	 */
+	private String baseUrl = "https://oapi.dingtalk.com";
+	/**
+	 * 	钉钉远程调用超时时间
+	 */
+	private Duration timeout = Duration.ofSeconds(5);
+	/**
+	 * 	扫码登录地址
+	 */
+	private String scanCodeLoginUrl = "/authz/login/dingtalk/scan";
+	/**
+	 * 	小程序免登地址
+	 */
+	private String maLoginUrl = "/authz/login/dingtalk/ma";
+	/**
+	 * 	临时授权码登录地址
+	 */
+	private String tmpCodeLoginUrl = "/authz/login/dingtalk/tmp";
+	/**
+	 * 	登录请求体的最大字节数，超出时响应 413
+	 */
+	private int maxBodySize = 8 * 1024;
+
+}
@@ -0,0 +1,43 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	Repository 认证信息缓存配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkRepositoryCacheProperties {
+
+	/**
+	 * 	是否启用 Repository 认证信息缓存
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	本地缓存的最大条目数，超出后按访问频率淘汰
+	 */
+	private long maximumSize = 10000;
+	/**
+	 * 	本地缓存条目的有效期，同时决定其他节点失效后本地最长的不一致时间
+	 */
+	private Duration ttl = Duration.ofMinutes(10);
+	/**
+	 * 	是否使用共享存储作为二级缓存（需存在 DingTalkSharedStore）
+	 */
+	private boolean shared = true;
+	/**
+	 * 	共享缓存条目的有效期
+	 */
+	private Duration sharedTtl = Duration.ofMinutes(30);
+	/**
+	 * 	是否在读取时返回缓存认证信息的副本（只复制身份集合，身份对象共享且不得修改）；关闭时缓存的认证信息由多个请求共享，调用方不得修改
+	 */
+	private boolean copyOnRead = true;
+
+}
@@ -0,0 +1,59 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	钉钉远程调用隔离与熔断配置，按 AppKey 独立生效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkResilienceProperties {
+
+	/**
+	 * 	是否启用隔离与熔断
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	单个 AppKey 允许的最大并发调用数
+	 */
+	private int maxConcurrentCalls = 20;
+	/**
+	 * 	并发调用已满时等待许可的最长时间，0 表示立即拒绝
+	 */
+	private Duration maxWaitDuration = Duration.ZERO;
+	/**
+	 * 	熔断统计的滑动窗口大小（最近调用次数）
+	 */
+	private int slidingWindowSize = 50;
+	/**
+	 * 	计算失败率前窗口内的最少调用次数
+	 */
+	private int minimumNumberOfCalls = 10;
+	/**
+	 * 	失败率阈值（百分比），达到后打开熔断
+	 */
+	private int failureRateThreshold = 50;
+	/**
+	 * 	慢调用率阈值（百分比），达到后打开熔断
+	 */
+	private int slowCallRateThreshold = 80;
+	/**
+	 * 	耗时超过该值的调用视为慢调用
+	 */
+	private Duration slowCallDuration = Duration.ofSeconds(3);
+	/**
+	 * 	熔断打开后进入半开状态前的等待时间
+	 */
+	private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+	/**
+	 * 	半开状态下允许的探测调用次数
+	 */
+	private int permittedCallsInHalfOpenState = 3;
+
+}
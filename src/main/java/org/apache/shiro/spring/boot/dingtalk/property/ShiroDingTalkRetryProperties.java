@@ -0,0 +1,58 @@
+package org.apache.shiro.spring.boot.dingtalk.property;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 	钉钉远程调用的重试配置
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Getter
+@Setter
+@ToString
+public class ShiroDingTalkRetryProperties {
+
+	/**
+	 * 	是否启用重试
+	 */
+	private boolean enabled = false;
+	/**
+	 * 	最大调用次数（包含首次调用）
+	 */
+	private int maxAttempts = 3;
+	/**
+	 * 	退避的初始等待时间
+	 */
+	private Duration baseDelay = Duration.ofMillis(50);
+	/**
+	 * 	退避的最大等待时间
+	 */
+	private Duration maxDelay = Duration.ofSeconds(1);
+	/**
+	 * 	可重试的钉钉错误码：-1 系统繁忙，90002、90005、90006、90018、90019 为调用频率超限；
+	 * 	授权码无效或已使用（如 40078）等错误不重试
+	 */
+	private Set<String> retryableErrorCodes = new LinkedHashSet<>(Arrays.asList("-1", "90002", "90005", "90006", "90018", "90019"));
+	/**
+	 * 	幂等调用：没有错误码的网络异常（请求可能已被钉钉处理）仅对幂等调用重试
+	 */
+	private Set<DingTalkRemoteOperation> idempotentOperations = EnumSet.of(DingTalkRemoteOperation.GET_ACCESS_TOKEN);
+	/**
+	 * 	重试预算：每次首次调用为该 AppKey 积累的重试额度（0~1），每次重试消耗 1
+	 */
+	private double budgetRatio = 0.2;
+	/**
+	 * 	每个 AppKey 最多积累的重试额度
+	 */
+	private double maxBudget = 10;
+
+}
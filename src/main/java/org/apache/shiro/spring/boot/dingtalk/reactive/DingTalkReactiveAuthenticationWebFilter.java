@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.reactive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.spring.boot.dingtalk.authc.AbstractDingTalkAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationSuccessHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkLoginRequestReaders;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.support.DelegatingSubject;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * 	WebFlux 钉钉登录过滤器：处理扫码、小程序、临时授权码三个登录地址的 JSON 登录请求，
+ * 	响应内容与 Servlet 模式下的 {@link DingTalkAuthenticationSuccessHandler}、{@link DingTalkAuthenticationFailureHandler} 一致
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class DingTalkReactiveAuthenticationWebFilter implements WebFilter {
+
+	private final ObjectMapper objectMapper;
+	private final ObjectReader scanCodeRequestReader;
+	private final ObjectReader maRequestReader;
+	private final ObjectReader tmpCodeRequestReader;
+	private final ReactiveDingTalkRealm realm;
+	private final DingTalkAuthenticationSuccessHandler successHandler;
+	private final SecurityManager securityManager;
+	private DingTalkAuthenticationFailureHandler failureHandler;
+	private int maxBodySize = AbstractDingTalkAuthenticatingFilter.DEFAULT_MAX_BODY_SIZE;
+	private String scanCodeLoginUrl;
+	private String maLoginUrl;
+	private String tmpCodeLoginUrl;
+
+	public DingTalkReactiveAuthenticationWebFilter(ObjectMapper objectMapper, ReactiveDingTalkRealm realm,
+			DingTalkAuthenticationSuccessHandler successHandler, SecurityManager securityManager) {
+		this.objectMapper = objectMapper;
+		this.scanCodeRequestReader = DingTalkLoginRequestReaders.forType(objectMapper, DingTalkScanCodeLoginRequest.class);
+		this.maRequestReader = DingTalkLoginRequestReaders.forType(objectMapper, DingTalkMaLoginRequest.class);
+		this.tmpCodeRequestReader = DingTalkLoginRequestReaders.forType(objectMapper, DingTalkTmpCodeLoginRequest.class);
+		this.realm = realm;
+		this.successHandler = successHandler;
+		this.securityManager = securityManager;
+		this.failureHandler = new DingTalkAuthenticationFailureHandler(objectMapper);
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		if (!HttpMethod.POST.equals(request.getMethod())) {
+			return chain.filter(exchange);
+		}
+		String path = request.getPath().pathWithinApplication().value();
+		if (!path.equals(scanCodeLoginUrl) && !path.equals(maLoginUrl) && !path.equals(tmpCodeLoginUrl)) {
+			return chain.filter(exchange);
+		}
+		return DataBufferUtils.join(request.getBody(), maxBodySize)
+				.map(buffer -> createToken(path, buffer, getHost(request)))
+				.switchIfEmpty(Mono.error(() -> DingTalkCodeNotFoundException.stackless("No login request found.")))
+				.flatMap(token -> realm.authenticate(token)
+						.switchIfEmpty(Mono.error(() -> new AuthenticationException("No account found for the login request.")))
+						.flatMap(info -> Mono.fromCallable(() -> successHandler.responseBody(token, createSubject(info, getHost(request))))))
+				.flatMap(body -> write(exchange.getResponse(), body))
+				.onErrorResume(e -> {
+					AuthenticationException ex = toAuthenticationException(e);
+					log.debug("DingTalk reactive login failed.", e);
+					return Mono.fromCallable(() -> failureHandler.responseBody(ex))
+							.flatMap(body -> write(exchange.getResponse(), body));
+				});
+	}
+
+	/**
+	 * 将登录过程中的错误转换为认证异常，由 {@link DingTalkAuthenticationFailureHandler} 按异常类型生成响应
+	 * @param e 登录过程中的错误
+	 * @return 认证异常
+	 */
+	protected AuthenticationException toAuthenticationException(Throwable e) {
+		if (e instanceof AuthenticationException) {
+			return (AuthenticationException) e;
+		}
+		if (e instanceof DataBufferLimitException) {
+			return DingTalkLoginRequestTooLargeException.stackless("Login request body exceeds " + maxBodySize + " bytes.");
+		}
+		// 钉钉接口、WebClient 与序列化错误不向客户端暴露内部信息
+		log.warn("DingTalk reactive login failed unexpectedly.", e);
+		return new DingTalkAuthenticationServiceException("DingTalk login failed.", e);
+	}
+
+	protected AuthenticationToken createToken(String path, DataBuffer buffer, String host) {
+		try (InputStream body = buffer.asInputStream(true)) {
+			if (path.equals(scanCodeLoginUrl)) {
+				DingTalkScanCodeLoginRequest loginRequest = scanCodeRequestReader.readValue(body);
+				checkKey(loginRequest.getKey());
+				return new DingTalkScanCodeAuthenticationToken(loginRequest, host);
+			}
+			if (path.equals(maLoginUrl)) {
+				DingTalkMaLoginRequest loginRequest = maRequestReader.readValue(body);
+				checkKey(loginRequest.getKey());
+				return new DingTalkMaAuthenticationToken(loginRequest, host);
+			}
+			DingTalkTmpCodeLoginRequest loginRequest = tmpCodeRequestReader.readValue(body);
+			checkKey(loginRequest.getKey());
+			return new DingTalkTmpCodeAuthenticationToken(loginRequest, host);
+		} catch (IOException e) {
+			throw new AuthenticationException(e);
+		}
+	}
+
+	private void checkKey(String key) {
+		if (!StringUtils.hasText(key)) {
+			log.debug("No key (appId or appKey) found in request.");
+			throw DingTalkCodeNotFoundException.stackless("No key (appId or appKey) found in request.");
+		}
+	}
+
+	protected Subject createSubject(AuthenticationInfo info, String host) {
+		return new DelegatingSubject(info.getPrincipals(), true, host, null, false, securityManager);
+	}
+
+	protected Mono<Void> write(ServerHttpResponse response, Object body) {
+		byte[] bytes;
+		try {
+			bytes = body instanceof byte[] ? (byte[]) body : objectMapper.writeValueAsBytes(body);
+		} catch (IOException e) {
+			return Mono.error(e);
+		}
+		response.setStatusCode(org.springframework.http.HttpStatus.OK);
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+	}
+
+	protected String getHost(ServerHttpRequest request) {
+		InetSocketAddress remoteAddress = request.getRemoteAddress();
+		return remoteAddress == null ? null : remoteAddress.getHostString();
+	}
+
+	public DingTalkAuthenticationFailureHandler getFailureHandler() {
+		return failureHandler;
+	}
+
+	public void setFailureHandler(DingTalkAuthenticationFailureHandler failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+	public int getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public void setMaxBodySize(int maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public String getScanCodeLoginUrl() {
+		return scanCodeLoginUrl;
+	}
+
+	public void setScanCodeLoginUrl(String scanCodeLoginUrl) {
+		this.scanCodeLoginUrl = scanCodeLoginUrl;
+	}
+
+	public String getMaLoginUrl() {
+		return maLoginUrl;
+	}
+
+	public void setMaLoginUrl(String maLoginUrl) {
+		this.maLoginUrl = maLoginUrl;
+	}
+
+	public String getTmpCodeLoginUrl() {
+		return tmpCodeLoginUrl;
+	}
+
+	public void setTmpCodeLoginUrl(String tmpCodeLoginUrl) {
+		this.tmpCodeLoginUrl = tmpCodeLoginUrl;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.dingtalk.api.response.OapiSnsGetuserinfoBycodeResponse.UserInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * 	基于 {@link WebClient} 的非阻塞钉钉开放接口客户端，仅包含登录流程所需的接口；
+ * 	AccessToken 按 AppKey 缓存，并发请求共享同一次远程获取
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ReactiveDingTalkClient {
+
+	public static final String DEFAULT_BASE_URL = "https://oapi.dingtalk.com";
+
+	private final WebClient webClient;
+	private final Duration timeout;
+	private final ConcurrentMap<String, Mono<String>> accessTokens = new ConcurrentHashMap<>();
+	/** AccessToken 提前过期时间，避免使用即将过期的 AccessToken */
+	private Duration refreshAhead = Duration.ofMinutes(5);
+
+	public ReactiveDingTalkClient(WebClient.Builder webClientBuilder, String baseUrl, Duration timeout) {
+		this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+		this.timeout = timeout;
+	}
+
+	/**
+	 * 获取企业内部应用的 AccessToken：https://open.dingtalk.com/document/orgapp-server/obtain-orgapp-token
+	 * @param appKey 应用的唯一标识key
+	 * @param appSecret 应用的密钥
+	 * @return AccessToken
+	 */
+	public Mono<String> getAccessToken(String appKey, String appSecret) {
+		return accessTokens.computeIfAbsent(appKey, key -> fetchAccessToken(key, appSecret)
+				.cache(Tuple2::getT2, error -> Duration.ZERO, () -> Duration.ZERO)
+				.map(Tuple2::getT1));
+	}
+
+	/**
+	 * 清除指定 AppKey 缓存的 AccessToken
+	 * @param appKey 应用的唯一标识key
+	 */
+	public void invalidate(String appKey) {
+		accessTokens.remove(appKey);
+	}
+
+	protected Mono<Tuple2<String, Duration>> fetchAccessToken(String appKey, String appSecret) {
+		return webClient.get()
+				.uri("/gettoken?appkey={appkey}&appsecret={appsecret}", appKey, appSecret)
+				.retrieve()
+				.bodyToMono(JsonNode.class)
+				.timeout(timeout)
+				.map(body -> {
+					checkResponse(body);
+					long expiresIn = body.path("expires_in").asLong(7200);
+					Duration ttl = Duration.ofSeconds(expiresIn).minus(refreshAhead);
+					return Tuples.of(body.path("access_token").asText(), ttl.isNegative() ? Duration.ZERO : ttl);
+				});
+	}
+
+	/**
+	 * 扫码登录第三方网站：通过临时授权码获取用户信息，https://open.dingtalk.com/document/orgapp-server/obtain-the-user-information-based-on-the-sns-temporary-authorization
+	 * @param tmpAuthCode 临时授权码
+	 * @param appKey 应用的唯一标识key
+	 * @param appSecret 应用的密钥
+	 * @return 用户信息
+	 */
+	public Mono<UserInfo> getUserinfoByTmpCode(String tmpAuthCode, String appKey, String appSecret) {
+		String timestamp = String.valueOf(System.currentTimeMillis());
+		return webClient.post()
+				.uri("/sns/getuserinfo_bycode?accessKey={accessKey}&timestamp={timestamp}&signature={signature}",
+						appKey, timestamp, signature(timestamp, appSecret))
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(Collections.singletonMap("tmp_auth_code", tmpAuthCode))
+				.retrieve()
+				.bodyToMono(JsonNode.class)
+				.timeout(timeout)
+				.map(body -> {
+					checkResponse(body);
+					JsonNode node = body.path("user_info");
+					UserInfo userInfo = new UserInfo();
+					userInfo.setNick(node.path("nick").asText(null));
+					userInfo.setOpenid(node.path("openid").asText(null));
+					userInfo.setUnionid(node.path("unionid").asText(null));
+					return userInfo;
+				});
+	}
+
+	protected void checkResponse(JsonNode body) {
+		if (body.path("errcode").asLong(0) != 0) {
+			throw new DingTalkAuthenticationServiceException(body.path("errmsg").asText("DingTalk request failed."));
+		}
+	}
+
+	protected static String signature(String timestamp, String appSecret) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			return Base64.getEncoder().encodeToString(mac.doFinal(timestamp.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public Duration getRefreshAhead() {
+		return refreshAhead;
+	}
+
+	public void setRefreshAhead(Duration refreshAhead) {
+		this.refreshAhead = refreshAhead;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.reactive;
+
+import java.util.function.Consumer;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkMaAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 	响应式钉钉 Realm：与 Servlet 模式下的扫码、小程序、临时授权码三个 Realm 逻辑一致，
+ * 	钉钉远程调用使用 {@link ReactiveDingTalkClient} 非阻塞完成，Repository 查询调度到弹性线程池
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class ReactiveDingTalkRealm {
+
+	private final ReactiveDingTalkClient dingTalkClient;
+	private final DingTalkAppCredentialRegistry credentialRegistry;
+	private final DingTalkAuthenticationRepository repository;
+	private DingTalkAuthenticationInfoCache authenticationInfoCache;
+	private Scheduler repositoryScheduler = Schedulers.boundedElastic();
+
+	public ReactiveDingTalkRealm(ReactiveDingTalkClient dingTalkClient, DingTalkAppCredentialRegistry credentialRegistry,
+			DingTalkAuthenticationRepository repository) {
+		this.dingTalkClient = dingTalkClient;
+		this.credentialRegistry = credentialRegistry;
+		this.repository = repository;
+	}
+
+	public boolean supports(AuthenticationToken token) {
+		return token instanceof DingTalkScanCodeAuthenticationToken || token instanceof DingTalkMaAuthenticationToken
+				|| token instanceof DingTalkTmpCodeAuthenticationToken;
+	}
+
+	/**
+	 * 认证钉钉登录请求
+	 * @param token 认证 Token
+	 * @return 认证信息，认证失败时以 AuthenticationException 结束
+	 */
+	public Mono<AuthenticationInfo> authenticate(AuthenticationToken token) {
+		log.debug("Handle authentication token {}.", token);
+		if (token instanceof DingTalkScanCodeAuthenticationToken) {
+			return authenticate((DingTalkScanCodeAuthenticationToken) token);
+		}
+		if (token instanceof DingTalkMaAuthenticationToken) {
+			DingTalkMaLoginRequest loginRequest = (DingTalkMaLoginRequest) token.getPrincipal();
+			return withAccessToken(token, loginRequest.getKey(), loginRequest.getAuthCode(), "No authCode found in request.",
+					loginRequest::setAccessToken);
+		}
+		if (token instanceof DingTalkTmpCodeAuthenticationToken) {
+			DingTalkTmpCodeLoginRequest loginRequest = (DingTalkTmpCodeLoginRequest) token.getPrincipal();
+			return withAccessToken(token, loginRequest.getKey(), loginRequest.getCode(), "No Code found in request.",
+					loginRequest::setAccessToken);
+		}
+		return Mono.error(new DingTalkAuthenticationServiceException("Unsupported authentication token " + token.getClass().getName()));
+	}
+
+	protected Mono<AuthenticationInfo> authenticate(DingTalkScanCodeAuthenticationToken token) {
+		DingTalkScanCodeLoginRequest loginRequest = (DingTalkScanCodeLoginRequest) token.getPrincipal();
+		if (!StringUtils.hasText(loginRequest.getLoginTmpCode())) {
+			return Mono.error(DingTalkCodeNotFoundException.stackless("No loginTmpCode found in request."));
+		}
+		DingTalkAppCredential credential = credentialRegistry.get(loginRequest.getKey());
+		if (credential == null) {
+			return Mono.error(DingTalkCodeNotFoundException.stackless("Invalid App Key."));
+		}
+		// 第三方应用钉钉扫码登录：通过临时授权码Code获取用户信息，临时授权码只能使用一次
+		return dingTalkClient.getUserinfoByTmpCode(loginRequest.getLoginTmpCode(), credential.getAppKey(), credential.getAppSecret())
+				.flatMap(userInfo -> {
+					token.setUnionid(userInfo.getUnionid());
+					token.setOpenid(userInfo.getOpenid());
+					token.setUserInfo(userInfo);
+					return loadAuthenticationInfo(token, DingTalkAuthenticationInfoCache.unionid(userInfo.getUnionid()));
+				});
+	}
+
+	protected Mono<AuthenticationInfo> withAccessToken(AuthenticationToken token, String appKey, String code, String noCodeMessage,
+			Consumer<String> accessTokenConsumer) {
+		if (!StringUtils.hasText(code)) {
+			return Mono.error(DingTalkCodeNotFoundException.stackless(noCodeMessage));
+		}
+		DingTalkAppCredential credential = credentialRegistry.get(appKey);
+		if (credential == null) {
+			return Mono.error(DingTalkCodeNotFoundException.stackless("Invalid App Key."));
+		}
+		// 获取access_token
+		return dingTalkClient.getAccessToken(credential.getAppKey(), credential.getAppSecret())
+				.flatMap(accessToken -> {
+					accessTokenConsumer.accept(accessToken);
+					return loadAuthenticationInfo(token, null);
+				});
+	}
+
+	protected Mono<AuthenticationInfo> loadAuthenticationInfo(AuthenticationToken token, String identity) {
+		return Mono.fromCallable(() -> {
+			if (authenticationInfoCache == null || !StringUtils.hasText(identity)) {
+				return repository.getAuthenticationInfo(token);
+			}
+			return authenticationInfoCache.get(identity, () -> repository.getAuthenticationInfo(token));
+		}).subscribeOn(repositoryScheduler);
+	}
+
+	public DingTalkAuthenticationInfoCache getAuthenticationInfoCache() {
+		return authenticationInfoCache;
+	}
+
+	public void setAuthenticationInfoCache(DingTalkAuthenticationInfoCache authenticationInfoCache) {
+		this.authenticationInfoCache = authenticationInfoCache;
+	}
+
+	public Scheduler getRepositoryScheduler() {
+		return repositoryScheduler;
+	}
+
+	public void setRepositoryScheduler(Scheduler repositoryScheduler) {
+		this.repositoryScheduler = repositoryScheduler;
+	}
+
+}
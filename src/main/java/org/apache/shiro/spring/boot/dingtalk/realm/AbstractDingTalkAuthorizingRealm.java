@@ -0,0 +1,303 @@
+package org.apache.shiro.spring.boot.dingtalk.realm;
+
+import java.util.List;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.HostAuthenticationToken;
+import org.apache.shiro.biz.realm.AbstractAuthorizingRealm;
+import org.apache.shiro.biz.realm.AuthorizingRealmListener;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditEvent;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppType;
+import org.apache.shiro.spring.boot.dingtalk.ledger.DingTalkAuthCodeExchange;
+import org.apache.shiro.spring.boot.dingtalk.ledger.DingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkFlightRecorder;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkRemoteCallEvent;
+import org.apache.shiro.spring.boot.dingtalk.jfr.DingTalkRepositoryEvent;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.springframework.util.StringUtils;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.taobao.api.ApiException;
+
+/**
+ * DingTalk AuthorizingRealm 公共父类
+ * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
+ */
+public abstract class AbstractDingTalkAuthorizingRealm extends AbstractAuthorizingRealm {
+
+	private final DingTalkTemplate dingTalkTemplate;
+	private DingTalkAccessTokenCache accessTokenCache;
+	private DingTalkAppCredentialRegistry credentialRegistry;
+	private DingTalkAuthCodeLedger authCodeLedger;
+	private DingTalkAuthenticationInfoCache authenticationInfoCache;
+	private DingTalkRemoteInvoker remoteInvoker = DingTalkRemoteInvoker.DIRECT;
+	private DingTalkRealmListenerDispatcher listenerDispatcher;
+	private DingTalkLoginAuditor loginAuditor;
+	private DingTalkMetrics metrics;
+
+	public AbstractDingTalkAuthorizingRealm(DingTalkTemplate dingTalkTemplate) {
+		this.dingTalkTemplate = dingTalkTemplate;
+	}
+
+	/**
+	 * 获取应用凭证：优先从凭证索引中一次查找，未配置索引或索引中不存在时回退到 DingTalkTemplate
+	 * @param appKey 应用的唯一标识key
+	 * @return 应用凭证，无效的 AppKey 返回 null
+	 */
+	protected DingTalkAppCredential getAppCredential(String appKey) {
+		if (credentialRegistry != null) {
+			DingTalkAppCredential credential = credentialRegistry.get(appKey);
+			if (credential != null) {
+				return credential;
+			}
+		}
+		if (!dingTalkTemplate.hasAppKey(appKey)) {
+			return null;
+		}
+		return new DingTalkAppCredential(DingTalkAppType.TEMPLATE, appKey, dingTalkTemplate.getAppSecret(appKey), null, null);
+	}
+
+	/**
+	 * 获取 AccessToken：配置了缓存时从缓存获取，否则每次远程获取
+	 * @param appKey 应用的唯一标识key
+	 * @param appSecret 应用的密钥
+	 * @return AccessToken
+	 * @throws ApiException 远程获取 AccessToken 失败
+	 */
+	protected String getAccessToken(String appKey, String appSecret) throws ApiException {
+		if (accessTokenCache != null) {
+			return accessTokenCache.getAccessToken(appKey, appSecret);
+		}
+		return invoke(appKey, DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> dingTalkTemplate.getAccessToken(appKey, appSecret));
+	}
+
+	/**
+	 * 经由 {@link DingTalkRemoteInvoker} 执行钉钉远程调用，开启 JFR 事件时每次执行记录一个 {@link DingTalkRemoteCallEvent}
+	 * @param <T> 调用结果类型
+	 * @param appKey 应用的唯一标识key
+	 * @param operation 远程调用类型
+	 * @param call 远程调用
+	 * @return 调用结果
+	 * @throws ApiException 远程调用失败
+	 */
+	protected <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+		try {
+			return remoteInvoker.invoke(appKey, operation, DingTalkFlightRecorder.record(appKey, operation, call));
+		} catch (ApiException e) {
+			invalidateRejectedAccessToken(appKey, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 钉钉以 AccessToken 无效或过期（40014、42001）拒绝请求时，从缓存中移除该应用的 AccessToken，下次认证重新获取
+	 * @param appKey 应用的唯一标识key
+	 * @param e 远程调用或 Repository 查询的异常，沿异常原因链查找 {@link ApiException}
+	 */
+	protected void invalidateRejectedAccessToken(String appKey, Throwable e) {
+		if (accessTokenCache == null) {
+			return;
+		}
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ApiException && DingTalkAccessTokenCache.isRejected((ApiException) cause)) {
+				accessTokenCache.invalidate(appKey);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 使用一次性授权码完成认证：配置了台账时，同一客户端对同一授权码的重复提交加入首次提交的认证结果，不再重复调用钉钉
+	 * @param token 认证 Token，用于识别提交授权码的客户端
+	 * @param appKey 应用的唯一标识key
+	 * @param code 一次性授权码
+	 * @param exchange 使用授权码完成的认证过程
+	 * @return 认证信息
+	 * @throws AuthenticationException 认证失败
+	 */
+	protected AuthenticationInfo exchangeOnce(AuthenticationToken token, String appKey, String code, DingTalkAuthCodeExchange exchange) throws AuthenticationException {
+		if (authCodeLedger == null) {
+			return exchange.exchange();
+		}
+		return authCodeLedger.execute(appKey + ":" + code, submitter(token), exchange);
+	}
+
+	/**
+	 * 提交授权码的客户端标识，授权码台账以此拒绝其他客户端提交同一授权码；默认为客户端地址，
+	 * 可覆盖为会话标识、设备标识等更精确的值
+	 * @param token 认证 Token
+	 * @return 客户端标识，未知时为 null
+	 */
+	protected String submitter(AuthenticationToken token) {
+		return token instanceof HostAuthenticationToken ? ((HostAuthenticationToken) token).getHost() : null;
+	}
+
+	/**
+	 * 从 Repository 获取认证信息：配置了缓存且已从钉钉换取到用户标识时，优先从缓存获取
+	 * @param token 认证 Token
+	 * @param identity 由 {@link DingTalkAuthenticationInfoCache#unionid(String)} 等构造的缓存 Key，未知时为 null
+	 * @return 认证信息
+	 * @throws AuthenticationException Repository 查询失败
+	 */
+	protected AuthenticationInfo loadAuthenticationInfo(AuthenticationToken token, String identity) throws AuthenticationException {
+		if (authenticationInfoCache == null || !StringUtils.hasText(identity)) {
+			return lookupRepository(token);
+		}
+		return authenticationInfoCache.get(identity, () -> lookupRepository(token));
+	}
+
+	/**
+	 * 从 Repository 查询认证信息，配置了指标或开启 JFR 事件时记录查询耗时
+	 * @param token 认证 Token
+	 * @return 认证信息
+	 * @throws AuthenticationException Repository 查询失败
+	 */
+	protected AuthenticationInfo lookupRepository(AuthenticationToken token) throws AuthenticationException {
+		DingTalkRepositoryEvent event = DingTalkFlightRecorder.beginRepository();
+		if (metrics == null && event == null) {
+			return queryRepository(token);
+		}
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return queryRepository(token);
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			if (metrics != null) {
+				metrics.recordRepository(token, System.nanoTime() - start, error);
+			}
+			if (event != null) {
+				event.complete(token, error);
+			}
+		}
+	}
+
+	/**
+	 * 执行 Repository 查询，由 {@link #lookupRepository(AuthenticationToken)} 在计时与 JFR 事件内调用
+	 * @param token 认证 Token
+	 * @return 认证信息
+	 * @throws AuthenticationException Repository 查询失败
+	 */
+	protected AuthenticationInfo queryRepository(AuthenticationToken token) throws AuthenticationException {
+		return getRepository().getAuthenticationInfo(token);
+	}
+
+	/**
+	 * 通知认证事件监听器：配置了分发器时交给分发器异步批量通知，否则在认证线程中逐个通知
+	 * @param token 认证 Token
+	 * @param info 认证信息，认证失败时为 null
+	 * @param ex 认证异常，认证成功时为 null
+	 */
+	protected void notifyListeners(AuthenticationToken token, AuthenticationInfo info, AuthenticationException ex) {
+		List<AuthorizingRealmListener> listeners = getRealmsListeners();
+		if (listeners == null || listeners.isEmpty()) {
+			return;
+		}
+		if (listenerDispatcher != null) {
+			listenerDispatcher.dispatch(this, token, info, ex, listeners);
+			return;
+		}
+		for (AuthorizingRealmListener realmListener : listeners) {
+			if (ex != null || null == info) {
+				realmListener.onFailure(this, token, ex);
+			} else {
+				realmListener.onSuccess(this, info);
+			}
+		}
+	}
+
+	/**
+	 * 记录登录审计：配置了审计管道时追加一条审计记录
+	 * @param token 认证 Token
+	 * @param info 认证信息，认证失败时为 null
+	 * @param ex 认证异常，认证成功时为 null
+	 * @param startNanos 认证开始时的 {@link System#nanoTime()}
+	 */
+	protected void audit(AuthenticationToken token, AuthenticationInfo info, AuthenticationException ex, long startNanos) {
+		if (loginAuditor != null) {
+			loginAuditor.record(DingTalkLoginAuditEvent.of(token, ex == null && info != null, ex, System.nanoTime() - startNanos));
+		}
+	}
+
+	public DingTalkAppCredentialRegistry getCredentialRegistry() {
+		return credentialRegistry;
+	}
+
+	public void setCredentialRegistry(DingTalkAppCredentialRegistry credentialRegistry) {
+		this.credentialRegistry = credentialRegistry;
+	}
+
+	public DingTalkTemplate getDingTalkTemplate() {
+		return dingTalkTemplate;
+	}
+
+	public DingTalkAccessTokenCache getAccessTokenCache() {
+		return accessTokenCache;
+	}
+
+	public void setAccessTokenCache(DingTalkAccessTokenCache accessTokenCache) {
+		this.accessTokenCache = accessTokenCache;
+	}
+
+	public DingTalkAuthCodeLedger getAuthCodeLedger() {
+		return authCodeLedger;
+	}
+
+	public void setAuthCodeLedger(DingTalkAuthCodeLedger authCodeLedger) {
+		this.authCodeLedger = authCodeLedger;
+	}
+
+	public DingTalkRemoteInvoker getRemoteInvoker() {
+		return remoteInvoker;
+	}
+
+	public void setRemoteInvoker(DingTalkRemoteInvoker remoteInvoker) {
+		this.remoteInvoker = remoteInvoker;
+	}
+
+	public DingTalkAuthenticationInfoCache getAuthenticationInfoCache() {
+		return authenticationInfoCache;
+	}
+
+	public void setAuthenticationInfoCache(DingTalkAuthenticationInfoCache authenticationInfoCache) {
+		this.authenticationInfoCache = authenticationInfoCache;
+	}
+
+	public DingTalkRealmListenerDispatcher getListenerDispatcher() {
+		return listenerDispatcher;
+	}
+
+	public void setListenerDispatcher(DingTalkRealmListenerDispatcher listenerDispatcher) {
+		this.listenerDispatcher = listenerDispatcher;
+	}
+
+	public DingTalkLoginAuditor getLoginAuditor() {
+		return loginAuditor;
+	}
+
+	public void setLoginAuditor(DingTalkLoginAuditor loginAuditor) {
+		this.loginAuditor = loginAuditor;
+	}
+
+	public DingTalkMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(DingTalkMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+}
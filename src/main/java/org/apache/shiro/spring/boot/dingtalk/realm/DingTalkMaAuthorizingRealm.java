@@ -1,17 +1,13 @@
 package org.apache.shiro.spring.boot.dingtalk.realm;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 import com.dingtalk.spring.boot.DingTalkTemplate;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.biz.realm.AbstractAuthorizingRealm;
-import org.apache.shiro.biz.realm.AuthorizingRealmListener;
 import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
 import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
 import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkCropAppProperties;
@@ -31,13 +27,10 @@ import com.taobao.api.ApiException;
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
 @Slf4j
-public class DingTalkMaAuthorizingRealm extends AbstractAuthorizingRealm {
-
-    private final DingTalkTemplate dingTalkTemplate;
-    private Map<String, String> appKeySecret = new ConcurrentHashMap<>();
+public class DingTalkMaAuthorizingRealm extends AbstractDingTalkAuthorizingRealm {
 
     public DingTalkMaAuthorizingRealm( DingTalkTemplate dingTalkTemplate) {
-        this.dingTalkTemplate = dingTalkTemplate;
+        super(dingTalkTemplate);
     }
 
 	@Override
@@ -50,6 +43,7 @@ public class DingTalkMaAuthorizingRealm extends AbstractAuthorizingRealm {
 
 		log.info("Handle authentication token {}.", new Object[] { token });
 
+    	long start = System.nanoTime();
     	AuthenticationException ex = null;
     	AuthenticationInfo info = null;
 
@@ -60,43 +54,41 @@ public class DingTalkMaAuthorizingRealm extends AbstractAuthorizingRealm {
 
 			if (!StringUtils.hasText(loginRequest.getAuthCode())) {
 				log.debug("No authCode found in request.");
-				throw new DingTalkCodeNotFoundException("No authCode found in request.");
+				throw DingTalkCodeNotFoundException.stackless("No authCode found in request.");
 			}
 
-			if(!dingTalkTemplate.hasAppKey(loginRequest.getKey())) {
+			DingTalkAppCredential credential = getAppCredential(loginRequest.getKey());
+			if(credential == null) {
 				log.debug("Invalid App Key {} .", loginRequest.getKey());
-				throw new DingTalkCodeNotFoundException("Invalid App Key.");
+				throw DingTalkCodeNotFoundException.stackless("Invalid App Key.");
 			}
 
-			try {
-				if (StringUtils.hasText(loginRequest.getAuthCode())) {
-
-					String appKey = loginRequest.getKey();
-					String appSecret = dingTalkTemplate.getAppSecret(loginRequest.getKey());
+			// 授权码只能使用一次：重复提交加入首次提交的认证结果
+			info = exchangeOnce(token, credential.getAppKey(), loginRequest.getAuthCode(), () -> {
+				try {
 					// 获取access_token
-					String accessToken = dingTalkTemplate.getAccessToken(appKey, appSecret);
+					String accessToken = getAccessToken(credential.getAppKey(), credential.getAppSecret());
 					loginRequest.setAccessToken(accessToken);
+				} catch (ApiException e) {
+					throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
 				}
-			} catch (ApiException e) {
-				throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
-			}
-
-			info = getRepository().getAuthenticationInfo(dingTalkToken);
+				try {
+					return lookupRepository(dingTalkToken);
+				} catch (AuthenticationException e) {
+					// Repository 使用 AccessToken 调用钉钉被拒绝时移除缓存的 AccessToken
+					invalidateRejectedAccessToken(credential.getAppKey(), e);
+					throw e;
+				}
+			});
 
 		} catch (AuthenticationException e) {
 			ex = e;
 		}
 
 		//调用事件监听器
-		if(getRealmsListeners() != null && getRealmsListeners().size() > 0){
-			for (AuthorizingRealmListener realmListener : getRealmsListeners()) {
-				if(ex != null || null == info){
-					realmListener.onFailure(this, token, ex);
-				}else{
-					realmListener.onSuccess(this, info);
-				}
-			}
-		}
+		notifyListeners(token, info, ex);
+		//记录登录审计
+		audit(token, info, ex, start);
 
 		if(ex != null){
 			throw ex;
@@ -8,12 +8,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.biz.realm.AbstractAuthorizingRealm;
-import org.apache.shiro.biz.realm.AuthorizingRealmListener;
 import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkMaLoginRequest;
 import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
 import org.springframework.util.StringUtils;
 
@@ -22,12 +23,10 @@ import org.springframework.util.StringUtils;
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
 @Slf4j
-public class DingTalkScanCodeAuthorizingRealm extends AbstractAuthorizingRealm {
-
-    private final DingTalkTemplate dingTalkTemplate;
+public class DingTalkScanCodeAuthorizingRealm extends AbstractDingTalkAuthorizingRealm {
 
     public DingTalkScanCodeAuthorizingRealm(DingTalkTemplate dingTalkTemplate) {
-        this.dingTalkTemplate = dingTalkTemplate;
+        super(dingTalkTemplate);
     }
 
 	@Override
@@ -40,6 +39,7 @@ public class DingTalkScanCodeAuthorizingRealm extends AbstractAuthorizingRealm {
 
 		log.info("Handle authentication token {}.", new Object[] { token });
 
+    	long start = System.nanoTime();
     	AuthenticationException ex = null;
     	AuthenticationInfo info = null;
 
@@ -49,32 +49,46 @@ public class DingTalkScanCodeAuthorizingRealm extends AbstractAuthorizingRealm {
 			DingTalkScanCodeLoginRequest loginRequest = (DingTalkScanCodeLoginRequest) dingTalkToken.getPrincipal();
 			if ( !StringUtils.hasText(loginRequest.getLoginTmpCode())) {
 				log.debug("No loginTmpCode found in request.");
-				throw new DingTalkCodeNotFoundException("No loginTmpCode found in request.");
+				throw DingTalkCodeNotFoundException.stackless("No loginTmpCode found in request.");
 			}
 
-			if(!dingTalkTemplate.hasAppKey(loginRequest.getKey())) {
+			DingTalkAppCredential credential = getAppCredential(loginRequest.getKey());
+			if(credential == null) {
 				log.debug("Invalid App Key {} .", loginRequest.getKey());
-				throw new DingTalkCodeNotFoundException("Invalid App Key.");
+				throw DingTalkCodeNotFoundException.stackless("Invalid App Key.");
 			}
 
-			String appKey = loginRequest.getKey();
-			String appSecret = dingTalkTemplate.getAppSecret(loginRequest.getKey());
-			if (StringUtils.hasText(loginRequest.getLoginTmpCode())) {
+			String appKey = credential.getAppKey();
+			String appSecret = credential.getAppSecret();
+			// 临时授权码只能使用一次：重复提交加入首次提交的认证结果
+			info = exchangeOnce(token, appKey, loginRequest.getLoginTmpCode(), () -> {
 
 				// 第三方应用钉钉扫码登录：通过临时授权码Code获取用户信息，临时授权码只能使用一次
-				OapiSnsGetuserinfoBycodeResponse response = dingTalkTemplate.opsForSns().getUserinfoByTmpCode(loginRequest.getLoginTmpCode(), appKey, appSecret);
-				/*{
-				    "errcode": 0,
-				    "errmsg": "ok",
-				    "user_info": {
-				        "nick": "张三",
-				        "openid": "liSii8KCxxxxx",
-				        "unionid": "7Huu46kk"
-				    }
-				}*/
-				if(!response.isSuccess()) {
-					log.error(response.getBody());
-					throw new DingTalkAuthenticationServiceException(response.getErrmsg());
+				OapiSnsGetuserinfoBycodeResponse response;
+				try {
+					response = invoke(appKey, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, () -> {
+						OapiSnsGetuserinfoBycodeResponse rt = getDingTalkTemplate().opsForSns().getUserinfoByTmpCode(loginRequest.getLoginTmpCode(), appKey, appSecret);
+						/*{
+						    "errcode": 0,
+						    "errmsg": "ok",
+						    "user_info": {
+						        "nick": "张三",
+						        "openid": "liSii8KCxxxxx",
+						        "unionid": "7Huu46kk"
+						    }
+						}*/
+						if(!rt.isSuccess()) {
+							log.error(rt.getBody());
+							// 以错误码抛出，由重试策略区分系统繁忙、频率超限等暂时性错误
+							throw new ApiException(String.valueOf(rt.getErrcode()), rt.getErrmsg());
+						}
+						return rt;
+					});
+				} catch (ApiException e) {
+					if (StringUtils.hasText(e.getErrCode())) {
+						throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
+					}
+					throw new AuthenticationException(e);
 				}
 
 				UserInfo userInfo = response.getUserInfo();
@@ -83,25 +97,17 @@ public class DingTalkScanCodeAuthorizingRealm extends AbstractAuthorizingRealm {
 				dingTalkToken.setOpenid(userInfo.getOpenid());
 				dingTalkToken.setUserInfo(userInfo);
 
-			}
-			info = getRepository().getAuthenticationInfo(dingTalkToken);
+				return loadAuthenticationInfo(dingTalkToken, DingTalkAuthenticationInfoCache.unionid(userInfo.getUnionid()));
+			});
 
 		} catch (AuthenticationException e) {
 			ex = e;
-		} catch (ApiException e) {
-			ex = new AuthenticationException(e);
 		}
 
 		//调用事件监听器
-		if(getRealmsListeners() != null && getRealmsListeners().size() > 0){
-			for (AuthorizingRealmListener realmListener : getRealmsListeners()) {
-				if(ex != null || null == info){
-					realmListener.onFailure(this, token, ex);
-				}else{
-					realmListener.onSuccess(this, info);
-				}
-			}
-		}
+		notifyListeners(token, info, ex);
+		//记录登录审计
+		audit(token, info, ex, start);
 
 		if(ex != null){
 			throw ex;
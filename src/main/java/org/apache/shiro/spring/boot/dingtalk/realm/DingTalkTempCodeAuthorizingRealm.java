@@ -6,9 +6,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
-import org.apache.shiro.biz.realm.AbstractAuthorizingRealm;
-import org.apache.shiro.biz.realm.AuthorizingRealmListener;
 import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkTmpCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
 import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
 import org.apache.shiro.spring.boot.dingtalk.token.DingTalkTmpCodeAuthenticationToken;
@@ -19,12 +18,10 @@ import org.springframework.util.StringUtils;
  * @author 		： <a href="https://github.com/hiwepy">hiwepy</a>
  */
 @Slf4j
-public class DingTalkTempCodeAuthorizingRealm extends AbstractAuthorizingRealm {
-
-	private final DingTalkTemplate dingTalkTemplate;
+public class DingTalkTempCodeAuthorizingRealm extends AbstractDingTalkAuthorizingRealm {
 
 	public DingTalkTempCodeAuthorizingRealm(DingTalkTemplate dingTalkTemplate) {
-		this.dingTalkTemplate = dingTalkTemplate;
+		super(dingTalkTemplate);
 	}
 
 	@Override
@@ -37,6 +34,7 @@ public class DingTalkTempCodeAuthorizingRealm extends AbstractAuthorizingRealm {
 
 		log.info("Handle authentication token {}.", new Object[] { token });
 
+    	long start = System.nanoTime();
     	AuthenticationException ex = null;
     	AuthenticationInfo info = null;
 
@@ -47,43 +45,41 @@ public class DingTalkTempCodeAuthorizingRealm extends AbstractAuthorizingRealm {
 
 			if (!StringUtils.hasText(loginRequest.getCode())) {
 				log.debug("No Code found in request.");
-				throw new DingTalkCodeNotFoundException("No Code found in request.");
+				throw DingTalkCodeNotFoundException.stackless("No Code found in request.");
 			}
 
-			if(!dingTalkTemplate.hasAppKey(loginRequest.getKey())) {
+			DingTalkAppCredential credential = getAppCredential(loginRequest.getKey());
+			if(credential == null) {
 				log.debug("Invalid App Key {} .", loginRequest.getKey());
-				throw new DingTalkCodeNotFoundException("Invalid App Key.");
+				throw DingTalkCodeNotFoundException.stackless("Invalid App Key.");
 			}
 
-			try {
-				if (StringUtils.hasText(loginRequest.getCode())) {
-
-					String appKey = loginRequest.getKey();
-					String appSecret = dingTalkTemplate.getAppSecret(loginRequest.getKey());
+			// 授权码只能使用一次：重复提交加入首次提交的认证结果
+			info = exchangeOnce(token, credential.getAppKey(), loginRequest.getCode(), () -> {
+				try {
 					// 获取access_token
-					String accessToken = dingTalkTemplate.getAccessToken(appKey, appSecret);
+					String accessToken = getAccessToken(credential.getAppKey(), credential.getAppSecret());
 					loginRequest.setAccessToken(accessToken);
+				} catch (ApiException e) {
+					throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
 				}
-			} catch (ApiException e) {
-				throw new DingTalkAuthenticationServiceException(e.getErrMsg(), e);
-			}
-
-			info = getRepository().getAuthenticationInfo(dingTalkToken);
+				try {
+					return lookupRepository(dingTalkToken);
+				} catch (AuthenticationException e) {
+					// Repository 使用 AccessToken 调用钉钉被拒绝时移除缓存的 AccessToken
+					invalidateRejectedAccessToken(credential.getAppKey(), e);
+					throw e;
+				}
+			});
 
 		} catch (AuthenticationException e) {
 			ex = e;
 		}
 
 		//调用事件监听器
-		if(getRealmsListeners() != null && getRealmsListeners().size() > 0){
-			for (AuthorizingRealmListener realmListener : getRealmsListeners()) {
-				if(ex != null || null == info){
-					realmListener.onFailure(this, token, ex);
-				}else{
-					realmListener.onSuccess(this, info);
-				}
-			}
-		}
+		notifyListeners(token, info, ex);
+		//记录登录审计
+		audit(token, info, ex, start);
 
 		if(ex != null){
 			throw ex;
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+
+/**
+ * 	基于最近 N 次调用的失败率与慢调用率的熔断器：关闭状态下超过阈值后打开，打开状态直接拒绝调用，
+ * 	等待时间结束后进入半开状态放行少量探测调用，根据探测结果关闭或再次打开
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkCircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final byte FAILURE = 1;
+	private static final byte SLOW = 2;
+
+	private final int failureRateThreshold;
+	private final int slowCallRateThreshold;
+	private final long slowCallNanos;
+	private final int minimumNumberOfCalls;
+	private final long waitNanosInOpenState;
+	private final int permittedCallsInHalfOpenState;
+
+	private volatile State state = State.CLOSED;
+	private volatile long openedAt;
+	/** 最近调用结果的环形缓冲区 */
+	private final byte[] outcomes;
+	private int index;
+	private int calls;
+	private int failures;
+	private int slowCalls;
+	private int halfOpenPermits;
+
+	private final LongAdder notPermittedCount = new LongAdder();
+	private final LongAdder openCount = new LongAdder();
+
+	public DingTalkCircuitBreaker(ShiroDingTalkResilienceProperties properties) {
+		this.failureRateThreshold = properties.getFailureRateThreshold();
+		this.slowCallRateThreshold = properties.getSlowCallRateThreshold();
+		this.slowCallNanos = properties.getSlowCallDuration().toNanos();
+		this.minimumNumberOfCalls = Math.max(1, Math.min(properties.getMinimumNumberOfCalls(), properties.getSlidingWindowSize()));
+		this.waitNanosInOpenState = properties.getWaitDurationInOpenState().toNanos();
+		this.permittedCallsInHalfOpenState = Math.max(1, properties.getPermittedCallsInHalfOpenState());
+		this.outcomes = new byte[Math.max(1, properties.getSlidingWindowSize())];
+	}
+
+	/**
+	 * 申请调用许可，关闭状态下无锁返回
+	 * @return 是否允许调用
+	 */
+	public boolean tryAcquirePermission() {
+		State current = state;
+		if (current == State.CLOSED) {
+			return true;
+		}
+		if (current == State.OPEN && System.nanoTime() - openedAt < waitNanosInOpenState) {
+			notPermittedCount.increment();
+			return false;
+		}
+		synchronized (this) {
+			if (state == State.OPEN && System.nanoTime() - openedAt >= waitNanosInOpenState) {
+				transitionTo(State.HALF_OPEN);
+			}
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+				halfOpenPermits--;
+				return true;
+			}
+		}
+		notPermittedCount.increment();
+		return false;
+	}
+
+	/**
+	 * 归还未实际执行调用的许可
+	 */
+	public synchronized void releasePermission() {
+		if (state == State.HALF_OPEN && halfOpenPermits < permittedCallsInHalfOpenState) {
+			halfOpenPermits++;
+		}
+	}
+
+	/**
+	 * 记录一次调用结果
+	 * @param durationNanos 调用耗时
+	 * @param failed 是否失败
+	 */
+	public synchronized void onResult(long durationNanos, boolean failed) {
+		if (state == State.OPEN) {
+			return;
+		}
+		byte outcome = (byte) ((failed ? FAILURE : 0) | (durationNanos >= slowCallNanos ? SLOW : 0));
+		if (calls == outcomes.length) {
+			byte evicted = outcomes[index];
+			failures -= evicted & FAILURE;
+			slowCalls -= (evicted & SLOW) >> 1;
+		} else {
+			calls++;
+		}
+		outcomes[index] = outcome;
+		index = (index + 1) % outcomes.length;
+		failures += outcome & FAILURE;
+		slowCalls += (outcome & SLOW) >> 1;
+
+		int threshold = state == State.HALF_OPEN ? permittedCallsInHalfOpenState : minimumNumberOfCalls;
+		if (calls < threshold) {
+			return;
+		}
+		boolean exceeded = failures * 100 >= failureRateThreshold * calls || slowCalls * 100 >= slowCallRateThreshold * calls;
+		if (exceeded) {
+			transitionTo(State.OPEN);
+		} else if (state == State.HALF_OPEN) {
+			transitionTo(State.CLOSED);
+		}
+	}
+
+	private void transitionTo(State target) {
+		index = 0;
+		calls = 0;
+		failures = 0;
+		slowCalls = 0;
+		if (target == State.OPEN) {
+			openedAt = System.nanoTime();
+			openCount.increment();
+		} else if (target == State.HALF_OPEN) {
+			halfOpenPermits = permittedCallsInHalfOpenState;
+		}
+		state = target;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return 当前窗口内的失败率（百分比），调用次数不足时返回 -1
+	 */
+	public synchronized float getFailureRate() {
+		return calls < minimumNumberOfCalls ? -1 : failures * 100f / calls;
+	}
+
+	/**
+	 * @return 当前窗口内的慢调用率（百分比），调用次数不足时返回 -1
+	 */
+	public synchronized float getSlowCallRate() {
+		return calls < minimumNumberOfCalls ? -1 : slowCalls * 100f / calls;
+	}
+
+	/**
+	 * @return 熔断打开期间被拒绝的调用次数
+	 */
+	public long getNotPermittedCount() {
+		return notPermittedCount.sum();
+	}
+
+	/**
+	 * @return 熔断器打开的次数
+	 */
+	public long getOpenCount() {
+		return openCount.sum();
+	}
+
+	/**
+	 * @return 打开状态剩余的等待时间（毫秒）
+	 */
+	public long getRemainingOpenMillis() {
+		if (state != State.OPEN) {
+			return 0;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(waitNanosInOpenState - (System.nanoTime() - openedAt)));
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 	滚动延迟直方图：以 2 的幂为区间、每个区间 8 个子桶记录微秒级延迟（相对误差约 12.5%），
+ * 	保留当前与上一个时间窗口，分位数由两个窗口合并计算
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkLatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** 最大记录约 2^33 微秒，超出的计入最后一个桶 */
+	private static final int OCTAVES = 31;
+	private static final int BUCKETS = OCTAVES * SUB_BUCKETS;
+
+	private final long windowNanos;
+	private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+	private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+	private volatile long windowStart = System.nanoTime();
+
+	public DingTalkLatencyHistogram(long window, TimeUnit unit) {
+		this.windowNanos = unit.toNanos(window);
+	}
+
+	/**
+	 * 记录一次调用耗时
+	 * @param nanos 耗时（纳秒）
+	 */
+	public void record(long nanos) {
+		rotateIfNecessary();
+		current.incrementAndGet(indexOf(TimeUnit.NANOSECONDS.toMicros(nanos)));
+	}
+
+	/**
+	 * 计算分位数
+	 * @param quantile 分位（0~1）
+	 * @return 延迟（纳秒），样本数少于 minimumSamples 时返回 -1
+	 */
+	public long quantile(double quantile, long minimumSamples) {
+		rotateIfNecessary();
+		AtomicLongArray a = current;
+		AtomicLongArray b = previous;
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = a.get(i) + b.get(i);
+			total += counts[i];
+		}
+		if (total < Math.max(1, minimumSamples)) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(i));
+			}
+		}
+		return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(BUCKETS - 1));
+	}
+
+	private void rotateIfNecessary() {
+		long start = windowStart;
+		long now = System.nanoTime();
+		if (now - start < windowNanos) {
+			return;
+		}
+		synchronized (this) {
+			if (windowStart != start) {
+				return;
+			}
+			// 超过两个窗口未记录时上一个窗口也已过期
+			previous = now - start < 2 * windowNanos ? current : new AtomicLongArray(BUCKETS);
+			current = new AtomicLongArray(BUCKETS);
+			windowStart = now;
+		}
+	}
+
+	static int indexOf(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) Math.max(0, micros);
+		}
+		int octave = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+		if (octave >= OCTAVES) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (micros >>> (octave - 1)) & (SUB_BUCKETS - 1);
+		return octave * SUB_BUCKETS + sub;
+	}
+
+	static long upperBoundOf(int index) {
+		int octave = index / SUB_BUCKETS;
+		int sub = index % SUB_BUCKETS;
+		if (octave == 0) {
+			return sub + 1;
+		}
+		return ((long) (SUB_BUCKETS + sub + 1)) << (octave - 1);
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	钉钉远程调用的统一执行入口：Realm 与 AccessToken 缓存的全部 DingTalkTemplate 调用都经由此接口，
+ * 	隔离、熔断等能力以装饰器的方式组合
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkRemoteInvoker {
+
+	/**
+	 * 直接执行远程调用
+	 */
+	DingTalkRemoteInvoker DIRECT = new DingTalkRemoteInvoker() {
+
+		@Override
+		public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+			return call.call();
+		}
+
+	};
+
+	/**
+	 * 执行钉钉远程调用
+	 * @param <T> 调用结果类型
+	 * @param appKey 应用的唯一标识key
+	 * @param operation 远程调用类型
+	 * @param call 远程调用
+	 * @return 调用结果
+	 * @throws ApiException 远程调用失败
+	 */
+	<T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+/**
+ * 	登录流程中的钉钉远程调用
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DingTalkRemoteOperation {
+
+	/**
+	 * 获取 AccessToken
+	 */
+	GET_ACCESS_TOKEN,
+	/**
+	 * 扫码登录：通过临时授权码获取用户信息
+	 */
+	GET_USERINFO_BY_TMP_CODE
+
+}
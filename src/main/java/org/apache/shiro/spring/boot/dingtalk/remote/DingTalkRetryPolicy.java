@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.springframework.util.StringUtils;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	钉钉远程调用异常的重试分类
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkRetryPolicy {
+
+	private final Set<String> retryableErrorCodes;
+	private final Set<DingTalkRemoteOperation> idempotentOperations;
+
+	public DingTalkRetryPolicy(ShiroDingTalkRetryProperties properties) {
+		this.retryableErrorCodes = properties.getRetryableErrorCodes();
+		this.idempotentOperations = properties.getIdempotentOperations();
+	}
+
+	/**
+	 * 判断异常是否可重试：钉钉明确返回的错误码按配置分类；没有错误码的网络异常，请求可能已被处理，仅幂等调用可重试
+	 * @param operation 远程调用类型
+	 * @param e 远程调用异常
+	 * @return 是否可重试
+	 */
+	public boolean isRetryable(DingTalkRemoteOperation operation, ApiException e) {
+		if (StringUtils.hasText(e.getErrCode())) {
+			return retryableErrorCodes.contains(e.getErrCode());
+		}
+		return idempotentOperations.contains(operation);
+	}
+
+}
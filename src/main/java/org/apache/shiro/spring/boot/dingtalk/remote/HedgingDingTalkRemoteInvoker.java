@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkHedgingProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	幂等钉钉远程调用的对冲请求：调用耗时超过历史延迟分位后再发出一次相同请求，先返回的结果生效；
+ * 	对冲请求数受预算限制，超时时间由滚动延迟直方图计算。非幂等调用只记录延迟，不对冲；
+ * 	调用线程池有界且不排队，线程耗尽时首次请求在调用线程中直接执行，对冲请求放弃
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class HedgingDingTalkRemoteInvoker implements DingTalkRemoteInvoker, DisposableBean {
+
+	private final DingTalkRemoteInvoker delegate;
+	private final Set<DingTalkRemoteOperation> operations;
+	private final Map<DingTalkRemoteOperation, DingTalkLatencyHistogram> histograms = new EnumMap<>(DingTalkRemoteOperation.class);
+	private final ThreadPoolExecutor executor;
+	private final double hedgeQuantile;
+	private final long minHedgeDelayNanos;
+	private final double timeoutQuantile;
+	private final double timeoutMultiplier;
+	private final long minTimeoutNanos;
+	private final long maxTimeoutNanos;
+	private final long minimumSamples;
+	private final double budgetRatio;
+	/** 可用的对冲额度，每次首次请求增加 budgetRatio，每次对冲消耗 1 */
+	private double budget;
+
+	private final LongAdder hedgeCount = new LongAdder();
+	private final LongAdder hedgeWinCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public HedgingDingTalkRemoteInvoker(DingTalkRemoteInvoker delegate, ShiroDingTalkHedgingProperties properties) {
+		this.delegate = delegate;
+		this.operations = properties.getOperations();
+		for (DingTalkRemoteOperation operation : DingTalkRemoteOperation.values()) {
+			histograms.put(operation, new DingTalkLatencyHistogram(properties.getWindow().toNanos(), TimeUnit.NANOSECONDS));
+		}
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dingtalk-hedge-");
+		threadFactory.setDaemon(true);
+		// 不排队：排队的对冲请求没有意义，线程耗尽时由 invoke 降级处理
+		this.executor = new ThreadPoolExecutor(0, Math.max(1, properties.getMaxThreads()), 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		this.hedgeQuantile = properties.getHedgeQuantile();
+		this.minHedgeDelayNanos = properties.getMinHedgeDelay().toNanos();
+		this.timeoutQuantile = properties.getTimeoutQuantile();
+		this.timeoutMultiplier = properties.getTimeoutMultiplier();
+		this.minTimeoutNanos = properties.getMinTimeout().toNanos();
+		this.maxTimeoutNanos = properties.getMaxTimeout().toNanos();
+		this.minimumSamples = properties.getMinimumSamples();
+		// 对冲最多使负载翻倍
+		this.budgetRatio = Math.max(0, Math.min(1.0, properties.getBudgetRatio()));
+	}
+
+	@Override
+	public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+		DingTalkLatencyHistogram histogram = histograms.get(operation);
+		if (!operations.contains(operation)) {
+			long start = System.nanoTime();
+			try {
+				return delegate.invoke(appKey, operation, call);
+			} finally {
+				histogram.record(System.nanoTime() - start);
+			}
+		}
+		depositBudget();
+		long start = System.nanoTime();
+		long deadline = start + timeoutNanos(histogram);
+		CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+		Future<T> primary;
+		try {
+			primary = completionService.submit(() -> timed(histogram, () -> delegate.invoke(appKey, operation, call)));
+		} catch (RejectedExecutionException e) {
+			// 线程耗尽：在调用线程中直接执行，不对冲
+			rejectedCount.increment();
+			return timed(histogram, () -> delegate.invoke(appKey, operation, call));
+		}
+		Future<T> hedge = null;
+		Throwable failure = null;
+		int pending = 1;
+		try {
+			Future<T> done = completionService.poll(Math.min(hedgeDelayNanos(histogram), deadline - start), TimeUnit.NANOSECONDS);
+			if (done == null && System.nanoTime() < deadline && withdrawBudget()) {
+				try {
+					hedge = completionService.submit(() -> timed(histogram, () -> delegate.invoke(appKey, operation, call)));
+					hedgeCount.increment();
+					pending++;
+				} catch (RejectedExecutionException e) {
+					// 线程耗尽时放弃对冲，归还额度
+					rejectedCount.increment();
+					refundBudget();
+				}
+			}
+			while (true) {
+				if (done != null) {
+					pending--;
+					try {
+						T result = done.get();
+						if (done == hedge) {
+							hedgeWinCount.increment();
+						}
+						return result;
+					} catch (ExecutionException e) {
+						failure = failure == null ? e.getCause() : failure;
+					}
+					if (pending == 0) {
+						break;
+					}
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					timeoutCount.increment();
+					throw new DingTalkAuthenticationServiceException("DingTalk " + operation + " timed out for app " + appKey + ".");
+				}
+				done = completionService.poll(remaining, TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DingTalkAuthenticationServiceException("Interrupted while waiting for DingTalk " + operation + ".");
+		} finally {
+			primary.cancel(true);
+			if (hedge != null) {
+				hedge.cancel(true);
+			}
+		}
+		if (failure instanceof ApiException) {
+			throw (ApiException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		throw new ApiException(failure);
+	}
+
+	private static <T> T timed(DingTalkLatencyHistogram histogram, DingTalkRemoteCall<T> call) throws ApiException {
+		long start = System.nanoTime();
+		try {
+			return call.call();
+		} finally {
+			histogram.record(System.nanoTime() - start);
+		}
+	}
+
+	protected long hedgeDelayNanos(DingTalkLatencyHistogram histogram) {
+		return Math.max(minHedgeDelayNanos, histogram.quantile(hedgeQuantile, minimumSamples));
+	}
+
+	protected long timeoutNanos(DingTalkLatencyHistogram histogram) {
+		long quantile = histogram.quantile(timeoutQuantile, minimumSamples);
+		if (quantile < 0) {
+			return maxTimeoutNanos;
+		}
+		return Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, (long) (quantile * timeoutMultiplier)));
+	}
+
+	private synchronized void depositBudget() {
+		// 额度上限避免长时间空闲后集中对冲
+		budget = Math.min(budget + budgetRatio, Math.max(1, budgetRatio * 100));
+	}
+
+	private synchronized boolean withdrawBudget() {
+		if (budget >= 1) {
+			budget -= 1;
+			return true;
+		}
+		return false;
+	}
+
+	private synchronized void refundBudget() {
+		budget += 1;
+	}
+
+	public DingTalkRemoteInvoker getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * @param operation 远程调用类型
+	 * @return 该调用的滚动延迟直方图
+	 */
+	public DingTalkLatencyHistogram getHistogram(DingTalkRemoteOperation operation) {
+		return histograms.get(operation);
+	}
+
+	public long getHedgeCount() {
+		return hedgeCount.sum();
+	}
+
+	public long getHedgeWinCount() {
+		return hedgeWinCount.sum();
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount.sum();
+	}
+
+	/**
+	 * @return 线程耗尽而在调用线程中执行的首次请求与放弃的对冲请求数
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	/**
+	 * @return 正在执行调用的线程数
+	 */
+	public int getActiveThreads() {
+		return executor.getActiveCount();
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+import org.springframework.util.StringUtils;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	按 AppKey 隔离的钉钉远程调用：每个 AppKey 独立的并发隔离舱与熔断器，熔断打开或并发已满时
+ * 	立即以 {@link DingTalkAuthenticationServiceException} 失败，不再等待钉钉超时
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ResilientDingTalkRemoteInvoker implements DingTalkRemoteInvoker {
+
+	private final DingTalkRemoteInvoker delegate;
+	private final ShiroDingTalkResilienceProperties properties;
+	private final long maxWaitNanos;
+	private final ConcurrentMap<String, Resilience> resiliences = new ConcurrentHashMap<>();
+	/** 错误分类：配置后钉钉明确返回的非暂时性错误（如授权码已使用）不计入熔断失败率 */
+	private DingTalkRetryPolicy retryPolicy;
+
+	public ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker delegate, ShiroDingTalkResilienceProperties properties) {
+		this.delegate = delegate;
+		this.properties = properties;
+		this.maxWaitNanos = properties.getMaxWaitDuration().toNanos();
+	}
+
+	@Override
+	public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+		Resilience resilience = resiliences.computeIfAbsent(appKey, key -> new Resilience(properties));
+		if (!resilience.circuitBreaker.tryAcquirePermission()) {
+			throw new DingTalkAuthenticationServiceException("DingTalk is unavailable for app " + appKey + ", circuit breaker is open.");
+		}
+		if (!acquire(resilience)) {
+			// 未执行调用，归还半开状态的探测许可
+			resilience.circuitBreaker.releasePermission();
+			resilience.rejectedCount.increment();
+			throw new DingTalkAuthenticationServiceException("Too many concurrent DingTalk calls for app " + appKey + ".");
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			T result = delegate.invoke(appKey, operation, call);
+			failed = false;
+			return result;
+		} catch (ApiException e) {
+			failed = retryPolicy == null || !StringUtils.hasText(e.getErrCode()) || retryPolicy.isRetryable(operation, e);
+			throw e;
+		} finally {
+			resilience.bulkhead.release();
+			resilience.circuitBreaker.onResult(System.nanoTime() - start, failed);
+		}
+	}
+
+	private boolean acquire(Resilience resilience) {
+		if (maxWaitNanos <= 0) {
+			return resilience.bulkhead.tryAcquire();
+		}
+		try {
+			return resilience.bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public DingTalkRemoteInvoker getDelegate() {
+		return delegate;
+	}
+
+	public DingTalkRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(DingTalkRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * @param appKey 应用的唯一标识key
+	 * @return 熔断器，尚未调用过时返回 null
+	 */
+	public DingTalkCircuitBreaker getCircuitBreaker(String appKey) {
+		Resilience resilience = resiliences.get(appKey);
+		return resilience == null ? null : resilience.circuitBreaker;
+	}
+
+	/**
+	 * @param appKey 应用的唯一标识key
+	 * @return 当前可用的并发许可数，尚未调用过时返回 -1
+	 */
+	public int getAvailableConcurrentCalls(String appKey) {
+		Resilience resilience = resiliences.get(appKey);
+		return resilience == null ? -1 : resilience.bulkhead.availablePermits();
+	}
+
+	/**
+	 * @param appKey 应用的唯一标识key
+	 * @return 并发已满被拒绝的调用次数
+	 */
+	public long getRejectedCount(String appKey) {
+		Resilience resilience = resiliences.get(appKey);
+		return resilience == null ? 0 : resilience.rejectedCount.sum();
+	}
+
+	/**
+	 * @return 各 AppKey 的熔断器
+	 */
+	public Map<String, DingTalkCircuitBreaker> getCircuitBreakers() {
+		Map<String, DingTalkCircuitBreaker> circuitBreakers = new HashMap<>();
+		resiliences.forEach((appKey, resilience) -> circuitBreakers.put(appKey, resilience.circuitBreaker));
+		return circuitBreakers;
+	}
+
+	private static final class Resilience {
+
+		private final Semaphore bulkhead;
+		private final DingTalkCircuitBreaker circuitBreaker;
+		private final LongAdder rejectedCount = new LongAdder();
+
+		Resilience(ShiroDingTalkResilienceProperties properties) {
+			this.bulkhead = new Semaphore(Math.max(1, properties.getMaxConcurrentCalls()));
+			this.circuitBreaker = new DingTalkCircuitBreaker(properties);
+		}
+
+	}
+
+}
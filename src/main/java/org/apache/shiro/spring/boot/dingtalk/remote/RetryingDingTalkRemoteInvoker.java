@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.springframework.beans.factory.DisposableBean;
+
+import com.taobao.api.ApiException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 	钉钉远程调用重试：仅重试 {@link DingTalkRetryPolicy} 判定为暂时性的错误，退避时间使用去相关抖动
+ * 	（sleep = min(maxDelay, random(baseDelay, sleep * 3))），每个 AppKey 的重试次数受令牌桶预算限制，
+ * 	钉钉故障时重试不会放大流量
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Slf4j
+public class RetryingDingTalkRemoteInvoker implements DingTalkRemoteInvoker, DisposableBean {
+
+	private final DingTalkRemoteInvoker delegate;
+	private final DingTalkRetryPolicy retryPolicy;
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	private final double budgetRatio;
+	private final double maxBudget;
+	private final ConcurrentMap<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+	private final LongAdder retryCount = new LongAdder();
+	private final LongAdder budgetExhaustedCount = new LongAdder();
+
+	public RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker delegate, ShiroDingTalkRetryProperties properties) {
+		this(delegate, new DingTalkRetryPolicy(properties), properties);
+	}
+
+	public RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker delegate, DingTalkRetryPolicy retryPolicy, ShiroDingTalkRetryProperties properties) {
+		this.delegate = delegate;
+		this.retryPolicy = retryPolicy;
+		this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+		this.baseDelayMillis = Math.max(1, properties.getBaseDelay().toMillis());
+		this.maxDelayMillis = Math.max(baseDelayMillis, properties.getMaxDelay().toMillis());
+		this.budgetRatio = properties.getBudgetRatio();
+		this.maxBudget = Math.max(1, properties.getMaxBudget());
+	}
+
+	@Override
+	public <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+		RetryBudget budget = budgets.computeIfAbsent(appKey, key -> new RetryBudget());
+		budget.deposit(budgetRatio, maxBudget);
+		long delay = baseDelayMillis;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return delegate.invoke(appKey, operation, call);
+			} catch (ApiException e) {
+				if (attempt >= maxAttempts || !retryPolicy.isRetryable(operation, e)) {
+					throw e;
+				}
+				if (!budget.withdraw()) {
+					budgetExhaustedCount.increment();
+					throw e;
+				}
+				delay = backoff(delay);
+				log.debug("Retry DingTalk {} for app {} in {} ms, errcode {}.", operation, appKey, delay, e.getErrCode());
+				retryCount.increment();
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 去相关抖动的退避时间，结果在 [baseDelay, maxDelay] 之间
+	 * @param previousDelay 上一次的退避时间（毫秒），首次重试为 baseDelay
+	 * @return 本次退避时间（毫秒）
+	 */
+	protected long backoff(long previousDelay) {
+		return Math.min(maxDelayMillis, ThreadLocalRandom.current().nextLong(baseDelayMillis, previousDelay * 3 + 1));
+	}
+
+	public DingTalkRemoteInvoker getDelegate() {
+		return delegate;
+	}
+
+	public long getRetryCount() {
+		return retryCount.sum();
+	}
+
+	public long getBudgetExhaustedCount() {
+		return budgetExhaustedCount.sum();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (delegate instanceof DisposableBean) {
+			((DisposableBean) delegate).destroy();
+		}
+	}
+
+	private static final class RetryBudget {
+
+		private double tokens;
+
+		synchronized void deposit(double amount, double max) {
+			tokens = Math.min(max, tokens + amount);
+		}
+
+		synchronized boolean withdraw() {
+			if (tokens >= 1) {
+				tokens -= 1;
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.store;
+
+import java.time.Duration;
+
+/**
+ * 	集群共享的 Key-Value 存储 SPI，可由 Redis 等存储实现，所有操作均需保证原子性
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface DingTalkSharedStore {
+
+	/**
+	 * 获取指定 Key 的值
+	 * @param key 键
+	 * @return 值，不存在或已过期时返回 null
+	 */
+	String get(String key);
+
+	/**
+	 * 设置指定 Key 的值（对应 Redis SET key value PX ttl）
+	 * @param key 键
+	 * @param value 值
+	 * @param ttl 有效期
+	 */
+	void set(String key, String value, Duration ttl);
+
+	/**
+	 * 仅当 Key 不存在时设置值（对应 Redis SET key value NX PX ttl）
+	 * @param key 键
+	 * @param value 值
+	 * @param ttl 有效期
+	 * @return 是否设置成功
+	 */
+	boolean setIfAbsent(String key, String value, Duration ttl);
+
+	/**
+	 * 仅当 Key 的当前值等于期望值时删除（对应 Redis 中 GET + DEL 的 Lua 脚本）
+	 * @param key 键
+	 * @param expectedValue 期望值
+	 * @return 是否删除成功
+	 */
+	boolean compareAndDelete(String key, String expectedValue);
+
+	/**
+	 * 删除指定 Key
+	 * @param key 键
+	 */
+	void delete(String key);
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 	将可序列化对象编码为可写入 {@link DingTalkSharedStore} 的 Base64 字符串；
+ * 	共享存储中的数据可能被其他进程改写，解码时只允许白名单内的类型：白名单按完整类名精确匹配，不支持包前缀，
+ * 	创建后不可修改，自定义的 Principal 等类型通过构造参数追加
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DingTalkSharedStoreCodec {
+
+	/**
+	 * 默认允许解码的类型：基本类型的包装类、常用集合，以及 Shiro 认证信息与钉钉 Principal
+	 */
+	public static final List<String> DEFAULT_ALLOWED_CLASSES = Collections.unmodifiableList(Arrays.asList(
+			"java.lang.String", "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Short",
+			"java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.lang.Number",
+			"java.lang.Enum", "java.math.BigInteger", "java.math.BigDecimal", "java.util.Date", "java.time.Ser",
+			"java.util.ArrayList", "java.util.LinkedList", "java.util.HashMap", "java.util.LinkedHashMap",
+			"java.util.TreeMap", "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet",
+			"java.util.Arrays$ArrayList", "java.util.Collections$EmptyList", "java.util.Collections$EmptySet",
+			"java.util.Collections$EmptyMap", "java.util.Collections$SingletonList", "java.util.Collections$SingletonSet",
+			"java.util.Collections$SingletonMap", "java.util.Collections$UnmodifiableCollection",
+			"java.util.Collections$UnmodifiableList", "java.util.Collections$UnmodifiableRandomAccessList",
+			"java.util.Collections$UnmodifiableSet", "java.util.Collections$UnmodifiableMap",
+			"org.apache.shiro.authc.SimpleAuthenticationInfo", "org.apache.shiro.authc.SimpleAccount",
+			"org.apache.shiro.authz.SimpleAuthorizationInfo", "org.apache.shiro.subject.SimplePrincipalCollection",
+			"org.apache.shiro.subject.SimplePrincipalMap", "org.apache.shiro.util.SimpleByteSource",
+			"org.apache.shiro.lang.util.SimpleByteSource", "org.apache.shiro.biz.authz.principal.ShiroPrincipal",
+			"org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal"));
+
+	private final Set<String> allowedClasses;
+
+	public DingTalkSharedStoreCodec() {
+		this(null);
+	}
+
+	/**
+	 * @param allowedClasses 在默认白名单之外允许解码的完整类名，如自定义的 Principal 类型
+	 * @throws IllegalArgumentException 类名为空或以 "." 结尾（包前缀）
+	 */
+	public DingTalkSharedStoreCodec(Collection<String> allowedClasses) {
+		Set<String> names = new HashSet<>(DEFAULT_ALLOWED_CLASSES);
+		if (allowedClasses != null) {
+			for (String name : allowedClasses) {
+				if (name == null || name.trim().isEmpty() || name.trim().endsWith(".")) {
+					throw new IllegalArgumentException("Shared store allowed class must be a fully qualified class name: " + name);
+				}
+				names.add(name.trim());
+			}
+		}
+		this.allowedClasses = Collections.unmodifiableSet(names);
+	}
+
+	public boolean isAllowed(String className) {
+		String name = className;
+		int dimensions = 0;
+		while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+			dimensions++;
+		}
+		if (dimensions > 0) {
+			name = name.substring(dimensions);
+			if (name.length() == 1) {
+				// 基本类型数组
+				return true;
+			}
+			if (name.startsWith("L") && name.endsWith(";")) {
+				name = name.substring(1, name.length() - 1);
+			}
+		}
+		return allowedClasses.contains(name);
+	}
+
+	public Set<String> getAllowedClasses() {
+		return allowedClasses;
+	}
+
+	public String encode(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		}
+		return Base64.getEncoder().encodeToString(bytes.toByteArray());
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T decode(String value) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream input = new AllowListObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(value)))) {
+			return (T) input.readObject();
+		}
+	}
+
+	private class AllowListObjectInputStream extends ObjectInputStream {
+
+		AllowListObjectInputStream(InputStream input) throws IOException {
+			super(input);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!isAllowed(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "Class is not allowed in the shared store.");
+			}
+			return super.resolveClass(desc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("Proxy classes are not allowed in the shared store.");
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.store;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 	基于本地内存的 {@link DingTalkSharedStore} 实现，适用于单节点部署，或在同一进程内模拟共享存储
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class InMemoryDingTalkSharedStore implements DingTalkSharedStore {
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	@Override
+	public String get(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired(System.currentTimeMillis())) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.value;
+	}
+
+	@Override
+	public void set(String key, String value, Duration ttl) {
+		entries.put(key, new Entry(value, System.currentTimeMillis() + ttl.toMillis()));
+	}
+
+	@Override
+	public boolean setIfAbsent(String key, String value, Duration ttl) {
+		Entry created = new Entry(value, System.currentTimeMillis() + ttl.toMillis());
+		Entry result = entries.compute(key, (k, current) -> current == null || current.isExpired(System.currentTimeMillis()) ? created : current);
+		return result == created;
+	}
+
+	@Override
+	public boolean compareAndDelete(String key, String expectedValue) {
+		Entry entry = entries.get(key);
+		return entry != null && entry.value.equals(expectedValue) && entries.remove(key, entry);
+	}
+
+	@Override
+	public void delete(String key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * 清理已过期的 Key
+	 */
+	public void purgeExpired() {
+		long now = System.currentTimeMillis();
+		entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+
+		private final String value;
+		private final long expireTime;
+
+		Entry(String value, long expireTime) {
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+
+		boolean isExpired(long now) {
+			return now >= expireTime;
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.apache.shiro.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditor;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAuthenticationInfoCache;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredentialRegistry;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.ledger.DingTalkAuthCodeLedger;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.listener.DingTalkRealmListenerDispatcher;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkTempCodeAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.dingtalk.spring.boot.DingTalkTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taobao.api.ApiException;
+
+/**
+ * 	{@link ShiroDingTalkComponentPostProcessor} 把容器中的可选组件装配到钉钉 Realm 与登录过滤器，
+ * 	以及 Realm 在钉钉拒绝 AccessToken 时清除缓存
+ */
+class ShiroDingTalkComponentPostProcessorTest {
+
+	private static final String APP_KEY = "app-key";
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+	private final ShiroDingTalkComponentPostProcessor postProcessor = new ShiroDingTalkComponentPostProcessor();
+
+	ShiroDingTalkComponentPostProcessorTest() {
+		postProcessor.setBeanFactory(beanFactory);
+	}
+
+	@Test
+	void appliesAvailableComponentsToRealm() {
+		DingTalkAppCredentialRegistry credentialRegistry = register(DingTalkAppCredentialRegistry.class);
+		DingTalkAccessTokenCache accessTokenCache = register(DingTalkAccessTokenCache.class);
+		DingTalkAuthCodeLedger authCodeLedger = register(DingTalkAuthCodeLedger.class);
+		DingTalkRemoteInvoker remoteInvoker = register(DingTalkRemoteInvoker.class);
+		DingTalkAuthenticationInfoCache authenticationInfoCache = register(DingTalkAuthenticationInfoCache.class);
+		DingTalkRealmListenerDispatcher listenerDispatcher = register(DingTalkRealmListenerDispatcher.class);
+		DingTalkLoginAuditor loginAuditor = register(DingTalkLoginAuditor.class);
+		DingTalkMetrics metrics = register(DingTalkMetrics.class);
+
+		DingTalkTempCodeAuthorizingRealm realm = new DingTalkTempCodeAuthorizingRealm(mock(DingTalkTemplate.class));
+		postProcessor.postProcessBeforeInitialization(realm, "realm");
+
+		assertSame(credentialRegistry, realm.getCredentialRegistry());
+		assertSame(accessTokenCache, realm.getAccessTokenCache());
+		assertSame(authCodeLedger, realm.getAuthCodeLedger());
+		assertSame(remoteInvoker, realm.getRemoteInvoker());
+		assertSame(authenticationInfoCache, realm.getAuthenticationInfoCache());
+		assertSame(listenerDispatcher, realm.getListenerDispatcher());
+		assertSame(loginAuditor, realm.getLoginAuditor());
+		assertSame(metrics, realm.getMetrics());
+	}
+
+	@Test
+	void keepsComponentsAlreadySetOnRealm() {
+		register(DingTalkAccessTokenCache.class);
+		register(DingTalkRemoteInvoker.class);
+		DingTalkAccessTokenCache ownCache = mock(DingTalkAccessTokenCache.class);
+		DingTalkRemoteInvoker ownInvoker = mock(DingTalkRemoteInvoker.class);
+
+		DingTalkTempCodeAuthorizingRealm realm = new DingTalkTempCodeAuthorizingRealm(mock(DingTalkTemplate.class));
+		realm.setAccessTokenCache(ownCache);
+		realm.setRemoteInvoker(ownInvoker);
+		postProcessor.postProcessBeforeInitialization(realm, "realm");
+
+		assertSame(ownCache, realm.getAccessTokenCache());
+		assertSame(ownInvoker, realm.getRemoteInvoker());
+		// 容器中没有的组件保持未设置
+		assertNull(realm.getAuthCodeLedger());
+	}
+
+	@Test
+	void appliesAvailableComponentsToFilter() {
+		DingTalkConcurrencyLimiter concurrencyLimiter = register(DingTalkConcurrencyLimiter.class);
+		DingTalkMetrics metrics = register(DingTalkMetrics.class);
+		DingTalkAuthenticationFailureHandler failureHandler = register(DingTalkAuthenticationFailureHandler.class);
+		DingTalkJwtClaimsCache claimsCache = register(DingTalkJwtClaimsCache.class);
+		Executor asyncExecutor = Runnable::run;
+		beanFactory.registerSingleton(ShiroDingTalkComponentPostProcessor.AUTHC_EXECUTOR_BEAN_NAME, asyncExecutor);
+		ShiroDingTalkProperties dingtalkProperties = new ShiroDingTalkProperties();
+		dingtalkProperties.getAsync().setTimeout(Duration.ofSeconds(3));
+		beanFactory.registerSingleton("dingtalkProperties", dingtalkProperties);
+
+		DingTalkScanCodeAuthenticatingFilter filter = new DingTalkScanCodeAuthenticatingFilter(new ObjectMapper());
+		postProcessor.postProcessBeforeInitialization(filter, "filter");
+
+		assertSame(concurrencyLimiter, filter.getConcurrencyLimiter());
+		assertSame(metrics, filter.getMetrics());
+		assertSame(failureHandler, filter.getFailureHandler());
+		assertSame(claimsCache, filter.getClaimsCache());
+		assertSame(asyncExecutor, filter.getAsyncExecutor());
+		assertEquals(3000L, filter.getAsyncTimeout());
+	}
+
+	@Test
+	void rejectedAccessTokenIsInvalidated() {
+		DingTalkAccessTokenCache accessTokenCache = mock(DingTalkAccessTokenCache.class);
+		InvokingRealm realm = new InvokingRealm();
+		realm.setAccessTokenCache(accessTokenCache);
+
+		assertThrows(ApiException.class, () -> realm.call(new ApiException("42001", "access_token expired")));
+		verify(accessTokenCache).invalidate(APP_KEY);
+	}
+
+	@Test
+	void otherErrorsKeepAccessToken() {
+		DingTalkAccessTokenCache accessTokenCache = mock(DingTalkAccessTokenCache.class);
+		InvokingRealm realm = new InvokingRealm();
+		realm.setAccessTokenCache(accessTokenCache);
+
+		assertThrows(ApiException.class, () -> realm.call(new ApiException("-1", "system busy")));
+		verify(accessTokenCache, never()).invalidate(APP_KEY);
+	}
+
+	private <T> T register(Class<T> type) {
+		T bean = mock(type);
+		beanFactory.registerSingleton(type.getName(), bean);
+		return bean;
+	}
+
+	static class InvokingRealm extends DingTalkTempCodeAuthorizingRealm {
+
+		InvokingRealm() {
+			super(mock(DingTalkTemplate.class));
+		}
+
+		Object call(ApiException error) throws ApiException {
+			return invoke(APP_KEY, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, () -> {
+				throw error;
+			});
+		}
+
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.apache.shiro.spring.boot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMeterBinder;
+import org.apache.shiro.spring.boot.dingtalk.metrics.DingTalkMetrics;
+import org.apache.shiro.spring.boot.dingtalk.metrics.MicrometerDingTalkMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 	未配置 MeterRegistry 时 {@link ShiroDingTalkMetricsAutoConfiguration} 不创建 {@link DingTalkMetrics}，各组件不计时
+ */
+class ShiroDingTalkMetricsAutoConfigurationTest {
+
+	@Test
+	void noMetricsWithoutMeterRegistry() {
+		try (AnnotationConfigApplicationContext context = context(null)) {
+			assertTrue(context.getBeansOfType(DingTalkMetrics.class).isEmpty());
+			assertTrue(context.getBeansOfType(DingTalkMeterBinder.class).isEmpty());
+		}
+	}
+
+	@Test
+	void metricsWithMeterRegistry() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		try (AnnotationConfigApplicationContext context = context(registry)) {
+			assertTrue(context.getBean(DingTalkMetrics.class) instanceof MicrometerDingTalkMetrics);
+			assertEquals(1, context.getBeansOfType(DingTalkMeterBinder.class).size());
+		}
+	}
+
+	private AnnotationConfigApplicationContext context(MeterRegistry registry) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Collections.singletonMap(ShiroDingTalkProperties.PREFIX + ".enabled", "true")));
+		if (registry != null) {
+			context.registerBean(MeterRegistry.class, () -> registry);
+		}
+		context.register(ShiroDingTalkMetricsAutoConfiguration.class);
+		context.refresh();
+		return context;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuditProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkLoginAuditor} 的组提交：并发追加的大量记录合并为少量批量写入
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkLoginAuditorTest {
+
+	private static final int THREADS = 4;
+	private static final int EVENTS_PER_THREAD = 2500;
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+	private DingTalkLoginAuditor auditor;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		callers.shutdownNow();
+		if (auditor != null) {
+			auditor.destroy();
+		}
+	}
+
+	@Test
+	void manyRecordsBecomeFewWrites() throws Exception {
+		ShiroDingTalkAuditProperties properties = new ShiroDingTalkAuditProperties();
+		properties.setCapacity(16384);
+		properties.setBatchSize(512);
+		properties.setMaxBatchDelay(Duration.ofMillis(20));
+		properties.setBlockTimeout(Duration.ofSeconds(1));
+		CountingSink sink = new CountingSink();
+		auditor = new DingTalkLoginAuditor(sink, properties);
+
+		CountDownLatch done = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			callers.execute(() -> {
+				for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+					auditor.record(event(i));
+				}
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		auditor.destroy();
+
+		int total = THREADS * EVENTS_PER_THREAD;
+		assertEquals(total, auditor.getRecordedCount());
+		assertEquals(0, auditor.getDroppedCount());
+		assertEquals(total, auditor.getWrittenCount());
+		assertEquals(total, sink.records());
+		assertEquals(sink.batchSizes.size(), auditor.getCommitCount());
+		// 10000 条记录至少攒成 batchSize 的批次，写入次数远少于记录数
+		assertTrue(sink.batchSizes.size() <= total / 50, "writes: " + sink.batchSizes.size());
+		assertTrue(Collections.max(sink.batchSizes) <= 512);
+		assertTrue(sink.closed);
+	}
+
+	@Test
+	void failedBatchIsCountedAndWriterKeepsRunning() throws Exception {
+		ShiroDingTalkAuditProperties properties = new ShiroDingTalkAuditProperties();
+		properties.setBatchSize(4);
+		properties.setMaxBatchDelay(Duration.ofMillis(5));
+		CountingSink sink = new CountingSink();
+		sink.failFirst = true;
+		auditor = new DingTalkLoginAuditor(sink, properties);
+
+		for (int i = 0; i < 4; i++) {
+			auditor.record(event(i));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (auditor.getFailedCount() < 4 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		for (int i = 0; i < 4; i++) {
+			auditor.record(event(i));
+		}
+		auditor.destroy();
+
+		assertEquals(4, auditor.getFailedCount());
+		assertEquals(4, auditor.getWrittenCount());
+		assertEquals(4, sink.records());
+	}
+
+	static DingTalkLoginAuditEvent event(int i) {
+		return new DingTalkLoginAuditEvent(System.currentTimeMillis(), DingTalkLoginAuditEvent.FLOW_SCAN_CODE, "app",
+				"union-" + i, "127.0.0.1", i % 10 != 0, i % 10 != 0 ? null : "DingTalkCodeIncorrectException", 1200);
+	}
+
+	static class CountingSink implements DingTalkLoginAuditSink {
+
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		volatile boolean failFirst;
+		volatile boolean closed;
+
+		@Override
+		public void write(List<DingTalkLoginAuditEvent> events) throws Exception {
+			if (failFirst) {
+				failFirst = false;
+				throw new IllegalStateException("disk full");
+			}
+			batchSizes.add(events.size());
+		}
+
+		int records() {
+			synchronized (batchSizes) {
+				return batchSizes.stream().mapToInt(Integer::intValue).sum();
+			}
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link JdbcDingTalkLoginAuditSink} 基于 H2 内存库的批量插入与失败回滚
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class JdbcDingTalkLoginAuditSinkTest {
+
+	private JdbcDataSource dataSource;
+	private Connection keepAlive;
+	private JdbcDingTalkLoginAuditSink sink;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:dingtalk_audit_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		// 保持一个连接，避免内存库在 Sink 关闭连接后被回收
+		keepAlive = dataSource.getConnection();
+		try (Statement statement = keepAlive.createStatement()) {
+			statement.execute("CREATE TABLE dingtalk_login_audit ("
+					+ "event_time TIMESTAMP NOT NULL, flow VARCHAR(32) NOT NULL, app_key VARCHAR(64), unionid VARCHAR(64), "
+					+ "host VARCHAR(64), success BOOLEAN NOT NULL, reason VARCHAR(128), latency_micros BIGINT NOT NULL)");
+		}
+		sink = new JdbcDingTalkLoginAuditSink(dataSource);
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		try (Statement statement = keepAlive.createStatement()) {
+			statement.execute("SHUTDOWN");
+		}
+		keepAlive.close();
+	}
+
+	@Test
+	void batchIsInsertedInOneTransaction() throws Exception {
+		List<DingTalkLoginAuditEvent> events = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			events.add(DingTalkLoginAuditorTest.event(i));
+		}
+		sink.write(events);
+
+		assertEquals(100, count("SELECT COUNT(*) FROM dingtalk_login_audit"));
+		assertEquals(10, count("SELECT COUNT(*) FROM dingtalk_login_audit WHERE success = FALSE"));
+		assertEquals(10, count("SELECT COUNT(*) FROM dingtalk_login_audit WHERE reason IS NOT NULL"));
+		assertEquals(1, count("SELECT COUNT(*) FROM dingtalk_login_audit WHERE unionid = 'union-42' AND latency_micros = 1200"));
+	}
+
+	@Test
+	void failedBatchIsRolledBack() throws Exception {
+		sink.write(Arrays.asList(DingTalkLoginAuditorTest.event(1)));
+		// flow 为 NOT NULL 列，批次中的第三条记录违反约束，前两条也不应提交
+		List<DingTalkLoginAuditEvent> events = Arrays.asList(DingTalkLoginAuditorTest.event(2), DingTalkLoginAuditorTest.event(3),
+				new DingTalkLoginAuditEvent(System.currentTimeMillis(), null, "app", null, null, true, null, 1));
+		assertThrows(SQLException.class, () -> sink.write(events));
+
+		assertEquals(1, count("SELECT COUNT(*) FROM dingtalk_login_audit"));
+		// 回滚后连接恢复自动提交，同一 DataSource 仍可继续写入
+		sink.write(Arrays.asList(DingTalkLoginAuditorTest.event(4)));
+		assertEquals(2, count("SELECT COUNT(*) FROM dingtalk_login_audit"));
+		try (Connection connection = dataSource.getConnection()) {
+			assertTrue(connection.getAutoCommit());
+		}
+	}
+
+	private long count(String sql) throws SQLException {
+		try (Statement statement = keepAlive.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+}
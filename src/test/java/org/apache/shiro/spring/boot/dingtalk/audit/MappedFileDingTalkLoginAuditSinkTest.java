@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link MappedFileDingTalkLoginAuditSink} 的分段滚动与关闭时截断
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class MappedFileDingTalkLoginAuditSinkTest {
+
+	private static final int SEGMENT_SIZE = 256;
+
+	private Path directory;
+	private MappedFileDingTalkLoginAuditSink sink;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createTempDirectory("dingtalk-audit");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (sink != null) {
+			sink.close();
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	@Test
+	void recordsRollToNewSegmentsAndAreTruncatedOnClose() throws IOException {
+		sink = new MappedFileDingTalkLoginAuditSink(directory, "audit", SEGMENT_SIZE, true);
+		List<DingTalkLoginAuditEvent> events = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			events.add(DingTalkLoginAuditorTest.event(i));
+		}
+		sink.write(events.subList(0, 10));
+		sink.write(events.subList(10, 20));
+		sink.close();
+
+		List<Path> segments = segments();
+		assertTrue(segments.size() > 1, "segments: " + segments.size());
+		List<String> lines = new ArrayList<>();
+		for (Path segment : segments) {
+			byte[] bytes = Files.readAllBytes(segment);
+			assertTrue(bytes.length <= SEGMENT_SIZE);
+			// 截断后不应残留映射区未使用的零字节
+			assertEquals('\n', bytes[bytes.length - 1]);
+			assertFalse(new String(bytes, StandardCharsets.UTF_8).contains("\0"));
+			lines.addAll(Arrays.asList(new String(bytes, StandardCharsets.UTF_8).split("\n")));
+		}
+		assertEquals(20, lines.size());
+		for (int i = 0; i < 20; i++) {
+			String[] fields = lines.get(i).split("\t", -1);
+			assertEquals(8, fields.length);
+			assertEquals(DingTalkLoginAuditEvent.FLOW_SCAN_CODE, fields[1]);
+			assertEquals("union-" + i, fields[3]);
+			assertEquals(i % 10 != 0 ? "OK" : "FAIL", fields[5]);
+			assertEquals(i % 10 != 0 ? "-" : "DingTalkCodeIncorrectException", fields[6]);
+		}
+	}
+
+	@Test
+	void partialSegmentIsTruncatedToWrittenLength() throws IOException {
+		sink = new MappedFileDingTalkLoginAuditSink(directory, "audit", 64 * 1024, false);
+		DingTalkLoginAuditEvent event = new DingTalkLoginAuditEvent(1L, "ma", "app", null, "host\twith\ttabs", true, null, 7);
+		sink.write(Collections.singletonList(event));
+		sink.close();
+		sink = null;
+
+		List<Path> segments = segments();
+		assertEquals(1, segments.size());
+		String content = new String(Files.readAllBytes(segments.get(0)), StandardCharsets.UTF_8);
+		assertEquals("1\tma\tapp\t-\thost with tabs\tOK\t-\t7\n", content);
+	}
+
+	@Test
+	void oversizedRecordIsSkipped() throws IOException {
+		sink = new MappedFileDingTalkLoginAuditSink(directory, "audit", 32, false);
+		sink.write(Collections.singletonList(DingTalkLoginAuditorTest.event(1)));
+		sink.close();
+		sink = null;
+		assertTrue(segments().isEmpty());
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> paths = Files.list(directory)) {
+			// 文件名中的序号保证同一秒内的滚动顺序
+			return paths.sorted(Comparator.comparingInt(MappedFileDingTalkLoginAuditSinkTest::sequenceOf))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static int sequenceOf(Path path) {
+		String name = path.getFileName().toString();
+		return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.length() - ".log".length()));
+	}
+
+}
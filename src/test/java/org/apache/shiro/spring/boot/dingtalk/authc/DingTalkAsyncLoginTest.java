@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	{@link AbstractDingTalkAuthenticatingFilter} 的异步登录：容器线程开启异步后立即返回，认证线程完成登录并结束异步；
+ * 	超时与迟到的完成只写入一次响应，线程池拒绝时归还并发许可
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkAsyncLoginTest {
+
+	private static final String LOGIN_URL = "/login/dingtalk";
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private final TestRealm realm = new TestRealm();
+	/** 手动执行的认证线程池，测试控制认证完成的时机 */
+	private final List<Runnable> tasks = new ArrayList<>();
+	private DingTalkConcurrencyLimiter limiter;
+	private TestFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager(realm);
+		DefaultSessionStorageEvaluator sessionStorageEvaluator = new DefaultSessionStorageEvaluator();
+		sessionStorageEvaluator.setSessionStorageEnabled(false);
+		((DefaultSubjectDAO) securityManager.getSubjectDAO()).setSessionStorageEvaluator(sessionStorageEvaluator);
+		securityManager.setRememberMeManager(null);
+		SecurityUtils.setSecurityManager(securityManager);
+		limiter = new DingTalkConcurrencyLimiter(new ShiroDingTalkConcurrencyLimitProperties());
+		filter = new TestFilter(new ObjectMapper());
+		filter.setLoginUrl(LOGIN_URL);
+		filter.setConcurrencyLimiter(limiter);
+		filter.setAsyncTimeout(1000);
+		filter.setAsyncExecutor(tasks::add);
+	}
+
+	@AfterEach
+	void tearDown() {
+		ThreadContext.remove();
+		SecurityUtils.setSecurityManager(null);
+	}
+
+	@Test
+	void loginRunsOnExecutorAndCompletesAsync() throws Exception {
+		MockHttpServletRequest request = login();
+
+		assertFalse(filter.onAccessDenied(request, response));
+		// 容器线程只开启异步，不等待认证
+		assertTrue(request.isAsyncStarted());
+		assertEquals(1000, request.getAsyncContext().getTimeout());
+		assertEquals(0, realm.logins);
+		assertEquals(1, tasks.size());
+		assertEquals(1, limiter.getInflight());
+
+		tasks.get(0).run();
+		assertEquals(1, realm.logins);
+		assertEquals(1, filter.successes);
+		assertTrue(filter.failures.isEmpty());
+		assertFalse(request.isAsyncStarted());
+		assertEquals(0, limiter.getInflight());
+	}
+
+	@Test
+	void failedLoginIsWrittenOnExecutor() throws Exception {
+		realm.failure = new AuthenticationException("rejected");
+		MockHttpServletRequest request = login();
+
+		filter.onAccessDenied(request, response);
+		tasks.get(0).run();
+
+		assertEquals(1, filter.failures.size());
+		assertSame(realm.failure, filter.failures.get(0));
+		assertFalse(request.isAsyncStarted());
+		assertEquals(0, limiter.getInflight());
+	}
+
+	@Test
+	void timeoutWritesFailureOnceWhenCompletionArrivesLate() throws Exception {
+		MockHttpServletRequest request = login();
+		filter.onAccessDenied(request, response);
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+
+		timeout(asyncContext);
+		assertEquals(1, filter.failures.size());
+		assertFalse(request.isAsyncStarted());
+		assertEquals(0, limiter.getInflight());
+
+		// 认证在超时后完成，不再写入响应
+		tasks.get(0).run();
+		assertEquals(1, realm.logins);
+		assertEquals(0, filter.successes);
+		assertEquals(1, filter.failures.size());
+		assertEquals(0, limiter.getInflight());
+
+		// 重复的超时事件同样被忽略
+		timeout(asyncContext);
+		assertEquals(1, filter.failures.size());
+	}
+
+	@Test
+	void concurrentTimeoutAndCompletionWriteExactlyOnce() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			filter = new TestFilter(new ObjectMapper());
+			filter.setLoginUrl(LOGIN_URL);
+			filter.setConcurrencyLimiter(limiter);
+			filter.setAsyncExecutor(tasks::add);
+			tasks.clear();
+			MockHttpServletRequest request = login();
+			filter.onAccessDenied(request, new MockHttpServletResponse());
+			MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+
+			CountDownLatch start = new CountDownLatch(1);
+			Runnable task = tasks.get(0);
+			Thread worker = new Thread(() -> {
+				await(start);
+				task.run();
+			});
+			worker.start();
+			start.countDown();
+			timeout(asyncContext);
+			worker.join(5000);
+
+			assertEquals(1, filter.successes + filter.failures.size());
+			assertEquals(0, limiter.getInflight());
+		}
+	}
+
+	@Test
+	void timeoutAfterCompletionIsIgnored() throws Exception {
+		MockHttpServletRequest request = login();
+		filter.onAccessDenied(request, response);
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+
+		tasks.get(0).run();
+		timeout(asyncContext);
+
+		assertEquals(1, filter.successes);
+		assertTrue(filter.failures.isEmpty());
+	}
+
+	@Test
+	void rejectedExecutionReleasesPermit() throws Exception {
+		filter.setAsyncExecutor(task -> {
+			throw new RejectedExecutionException("saturated");
+		});
+		MockHttpServletRequest request = login();
+
+		assertFalse(filter.onAccessDenied(request, response));
+
+		assertEquals(0, limiter.getInflight());
+		assertEquals(1, filter.failures.size());
+		assertFalse(request.isAsyncStarted());
+		assertEquals(0, realm.logins);
+	}
+
+	@Test
+	void requestWithoutAsyncSupportLogsInSynchronously() throws Exception {
+		MockHttpServletRequest request = login();
+		request.setAsyncSupported(false);
+
+		filter.onAccessDenied(request, response);
+
+		assertNull(request.getAsyncContext());
+		assertTrue(tasks.isEmpty());
+		assertEquals(1, realm.logins);
+		assertEquals(0, limiter.getInflight());
+	}
+
+	private static void timeout(MockAsyncContext asyncContext) throws Exception {
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(new AsyncEvent(asyncContext));
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static MockHttpServletRequest login() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN_URL);
+		request.setServletPath(LOGIN_URL);
+		request.setAsyncSupported(true);
+		request.setContentType("application/json");
+		request.setContent("{\"key\":\"app\",\"loginTmpCode\":\"tmp-code\"}".getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	static class TestFilter extends DingTalkScanCodeAuthenticatingFilter {
+
+		volatile int successes;
+		final List<AuthenticationException> failures = new CopyOnWriteArrayList<>();
+
+		TestFilter(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		@Override
+		protected boolean onAccessSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
+				ServletResponse response) {
+			successes++;
+			return super.onAccessSuccess(token, subject, request, response);
+		}
+
+		@Override
+		protected boolean onAccessFailure(AuthenticationToken token, AuthenticationException e, ServletRequest request,
+				ServletResponse response) {
+			failures.add(e);
+			return super.onAccessFailure(token, e, request, response);
+		}
+
+	}
+
+	static class TestRealm implements Realm {
+
+		volatile int logins;
+		volatile AuthenticationException failure;
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public boolean supports(AuthenticationToken token) {
+			return true;
+		}
+
+		@Override
+		public AuthenticationInfo getAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+			logins++;
+			if (failure != null) {
+				throw failure;
+			}
+			return new SimpleAuthenticationInfo("user", token.getCredentials(), getName());
+		}
+
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtClaimsCache;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtCacheProperties;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	{@link AbstractDingTalkAuthenticatingFilter} 的 JWT 声明缓存路径：登录提交不走缓存，缓存绑定的 Subject 在请求结束时解除
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkCachedJwtFilterTest {
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private TestFilter filter;
+	private String jwt;
+
+	@BeforeEach
+	void setUp() {
+		// 与无状态部署一致：不在 Session 中保存身份
+		DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager();
+		DefaultSessionStorageEvaluator sessionStorageEvaluator = new DefaultSessionStorageEvaluator();
+		sessionStorageEvaluator.setSessionStorageEnabled(false);
+		((DefaultSubjectDAO) securityManager.getSubjectDAO()).setSessionStorageEvaluator(sessionStorageEvaluator);
+		securityManager.setRememberMeManager(null);
+		SecurityUtils.setSecurityManager(securityManager);
+		ObjectMapper objectMapper = new ObjectMapper();
+		DingTalkJwtClaimsCache claimsCache = new DingTalkJwtClaimsCache(objectMapper, new ShiroDingTalkJwtCacheProperties());
+		long exp = System.currentTimeMillis() / 1000L + 3600L;
+		jwt = "eyJhbGciOiJIUzI1NiJ9."
+				+ Base64.getUrlEncoder().withoutPadding().encodeToString(("{\"sub\":\"user1\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8))
+				+ ".c2lnbmF0dXJl";
+		claimsCache.put(jwt, new SimplePrincipalCollection("user1", "DingTalk"));
+		filter = new TestFilter(objectMapper);
+		filter.setLoginUrl("/login/dingtalk");
+		filter.setClaimsCache(claimsCache);
+	}
+
+	@AfterEach
+	void tearDown() {
+		ThreadContext.remove();
+		SecurityUtils.setSecurityManager(null);
+	}
+
+	@Test
+	void loginSubmissionIgnoresCachedJwt() {
+		MockHttpServletRequest request = request("POST", "/login/dingtalk");
+		assertFalse(filter.isCachedJwtAccepted(request, response));
+		assertNull(ThreadContext.getSubject());
+	}
+
+	@Test
+	void cachedSubjectIsUnboundAfterRequest() throws Exception {
+		MockHttpServletRequest request = request("GET", "/api/profile");
+		assertTrue(filter.isCachedJwtAccepted(request, response));
+		assertEquals("user1", ThreadContext.getSubject().getPrincipal());
+		filter.afterCompletion(request, response, null);
+		assertNull(ThreadContext.getSubject());
+	}
+
+	@Test
+	void previousSubjectIsRestoredAfterRequest() throws Exception {
+		Subject previous = new Subject.Builder(SecurityUtils.getSecurityManager()).buildSubject();
+		ThreadContext.bind(previous);
+		MockHttpServletRequest request = request("GET", "/api/profile");
+		assertTrue(filter.isCachedJwtAccepted(request, response));
+		filter.afterCompletion(request, response, null);
+		assertSame(previous, ThreadContext.getSubject());
+	}
+
+	private MockHttpServletRequest request(String method, String uri) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		request.setServletPath(uri);
+		request.addHeader(AbstractDingTalkAuthenticatingFilter.DEFAULT_JWT_HEADER, "Bearer " + jwt);
+		return request;
+	}
+
+	static class TestFilter extends AbstractDingTalkAuthenticatingFilter {
+
+		TestFilter(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		@Override
+		protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
+			return null;
+		}
+
+	}
+
+}
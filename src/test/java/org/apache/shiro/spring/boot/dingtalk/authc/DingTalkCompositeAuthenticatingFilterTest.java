@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	{@link DingTalkCompositeAuthenticatingFilter} 按精确路径分派登录请求：忽略末尾的 "/"，拒绝通配符路径，
+ * 	替换登录地址时一次发布完整的匹配表
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkCompositeAuthenticatingFilterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private final TokenFilter scanCode = new TokenFilter(objectMapper, "scan");
+	private final TokenFilter tmpCode = new TokenFilter(objectMapper, "tmp");
+
+	@Test
+	void dispatchesExactPathToItsFilter() {
+		DingTalkCompositeAuthenticatingFilter composite = new DingTalkCompositeAuthenticatingFilter(objectMapper);
+		composite.addLoginFilter("/login/dingtalk/scan", scanCode);
+		composite.addLoginFilter("/login/dingtalk/tmp", tmpCode);
+
+		assertEquals("scan", composite.createToken(request("/login/dingtalk/scan"), response).getPrincipal());
+		assertEquals("tmp", composite.createToken(request("/login/dingtalk/tmp"), response).getPrincipal());
+		assertFalse(composite.isLoginRequest(request("/login/dingtalk"), response));
+		assertFalse(composite.isLoginRequest(request("/login/dingtalk/scan/more"), response));
+		assertThrows(IllegalStateException.class, () -> composite.createToken(request("/api/users"), response));
+	}
+
+	@Test
+	void trailingSlashesAreNormalized() {
+		DingTalkCompositeAuthenticatingFilter composite = new DingTalkCompositeAuthenticatingFilter(objectMapper);
+		composite.addLoginFilter("/login/dingtalk/scan/", scanCode);
+
+		assertTrue(composite.isLoginRequest(request("/login/dingtalk/scan"), response));
+		assertTrue(composite.isLoginRequest(request("/login/dingtalk/scan//"), response));
+		assertEquals("scan", composite.createToken(request("/login/dingtalk/scan/"), response).getPrincipal());
+	}
+
+	@Test
+	void wildcardPathsAreRejected() {
+		DingTalkCompositeAuthenticatingFilter composite = new DingTalkCompositeAuthenticatingFilter(objectMapper);
+		assertThrows(IllegalArgumentException.class, () -> composite.addLoginFilter("/login/**", scanCode));
+		assertThrows(IllegalArgumentException.class, () -> composite.addLoginFilter("/login/dingtalk/?can", scanCode));
+		assertThrows(IllegalArgumentException.class, () -> composite.addLoginFilter(" ", scanCode));
+		assertTrue(composite.getLoginFilters().isEmpty());
+	}
+
+	@Test
+	void setLoginFiltersPublishesWholeTableOrNothing() {
+		DingTalkCompositeAuthenticatingFilter composite = new DingTalkCompositeAuthenticatingFilter(objectMapper);
+		composite.addLoginFilter("/login/dingtalk/scan", scanCode);
+
+		Map<String, AbstractDingTalkAuthenticatingFilter> invalid = new LinkedHashMap<>();
+		invalid.put("/login/dingtalk/tmp", tmpCode);
+		invalid.put("/login/*", tmpCode);
+		assertThrows(IllegalArgumentException.class, () -> composite.setLoginFilters(invalid));
+		// 校验失败时保留原有的匹配表
+		assertEquals(1, composite.getLoginFilters().size());
+		assertSame(scanCode, composite.getLoginFilters().get("/login/dingtalk/scan"));
+
+		Map<String, AbstractDingTalkAuthenticatingFilter> replacement = new LinkedHashMap<>();
+		replacement.put("/login/dingtalk/tmp/", tmpCode);
+		composite.setLoginFilters(replacement);
+		assertEquals(1, composite.getLoginFilters().size());
+		assertSame(tmpCode, composite.getLoginFilters().get("/login/dingtalk/tmp"));
+		assertFalse(composite.isLoginRequest(request("/login/dingtalk/scan"), response));
+	}
+
+	private static MockHttpServletRequest request(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+		request.setServletPath(path);
+		return request;
+	}
+
+	static class TokenFilter extends AbstractDingTalkAuthenticatingFilter {
+
+		private final String name;
+
+		TokenFilter(ObjectMapper objectMapper, String name) {
+			super(objectMapper);
+			this.name = name;
+		}
+
+		@Override
+		protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
+			return new UsernamePasswordToken(name, "");
+		}
+
+	}
+
+}
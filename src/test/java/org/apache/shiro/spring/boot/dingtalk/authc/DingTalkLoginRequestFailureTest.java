@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.authc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeNotFoundException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+import org.apache.shiro.util.ThreadContext;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	{@link AbstractDingTalkAuthenticatingFilter} 解析登录请求失败时的处理：同步、异步与无状态三条登录路径上，
+ * 	请求体超限与缺少参数都交给 {@link DingTalkAuthenticationFailureHandler}，不会以未处理异常返回 500
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkLoginRequestFailureTest {
+
+	private static final String LOGIN_URL = "/login/dingtalk";
+	private static final byte[] FAILURE_BODY = "{\"code\":\"fail\"}".getBytes(StandardCharsets.UTF_8);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CapturingFailureHandler failureHandler = new CapturingFailureHandler(objectMapper);
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+	private DingTalkConcurrencyLimiter limiter;
+	private TestFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager();
+		DefaultSessionStorageEvaluator sessionStorageEvaluator = new DefaultSessionStorageEvaluator();
+		sessionStorageEvaluator.setSessionStorageEnabled(false);
+		((DefaultSubjectDAO) securityManager.getSubjectDAO()).setSessionStorageEvaluator(sessionStorageEvaluator);
+		securityManager.setRememberMeManager(null);
+		SecurityUtils.setSecurityManager(securityManager);
+		limiter = new DingTalkConcurrencyLimiter(new ShiroDingTalkConcurrencyLimitProperties());
+		filter = new TestFilter(objectMapper);
+		filter.setLoginUrl(LOGIN_URL);
+		filter.setMaxBodySize(64);
+		filter.setFailureHandler(failureHandler);
+	}
+
+	@AfterEach
+	void tearDown() {
+		ThreadContext.remove();
+		SecurityUtils.setSecurityManager(null);
+	}
+
+	@Test
+	void oversizedBodyIsHandledOnSyncLogin() throws Exception {
+		filter.setConcurrencyLimiter(limiter);
+
+		assertFalse(filter.onAccessDenied(oversized(), response));
+
+		assertInstanceOf(DingTalkLoginRequestTooLargeException.class, failureHandler.failure);
+		assertFailureWritten();
+		assertEquals(0, limiter.getInflight());
+	}
+
+	@Test
+	void oversizedBodyIsHandledOnAsyncLogin() throws Exception {
+		filter.setConcurrencyLimiter(limiter);
+		filter.setAsyncExecutor(task -> {
+			throw new IllegalStateException("not reached");
+		});
+		MockHttpServletRequest request = oversized();
+		request.setAsyncSupported(true);
+
+		assertFalse(filter.onAccessDenied(request, response));
+
+		assertInstanceOf(DingTalkLoginRequestTooLargeException.class, failureHandler.failure);
+		assertFalse(request.isAsyncStarted());
+		assertFailureWritten();
+		assertEquals(0, limiter.getInflight());
+	}
+
+	@Test
+	void oversizedBodyIsHandledOnStatelessLogin() {
+		filter.stateless = true;
+
+		assertFalse(filter.isAccessAllowed(oversized(), response, null));
+
+		assertInstanceOf(DingTalkLoginRequestTooLargeException.class, failureHandler.failure);
+		assertFailureWritten();
+	}
+
+	@Test
+	void chunkedOversizedBodyIsHandled() throws Exception {
+		// 未声明 Content-Length 时在读取过程中超限
+		MockHttpServletRequest chunked = new MockHttpServletRequest("POST", LOGIN_URL) {
+			@Override
+			public long getContentLengthLong() {
+				return -1;
+			}
+		};
+		chunked.setServletPath(LOGIN_URL);
+		chunked.setContentType("application/json");
+		chunked.setContent(oversized().getContentAsByteArray());
+
+		assertFalse(filter.onAccessDenied(chunked, response));
+
+		assertInstanceOf(DingTalkLoginRequestTooLargeException.class, failureHandler.failure);
+		assertFailureWritten();
+	}
+
+	@Test
+	void missingCodeIsHandled() throws Exception {
+		assertFalse(filter.onAccessDenied(login("{\"key\":\"app\"}"), response));
+
+		assertInstanceOf(DingTalkCodeNotFoundException.class, failureHandler.failure);
+		assertFailureWritten();
+	}
+
+	private void assertFailureWritten() {
+		assertTrue(response.getContentType().startsWith("application/json"));
+		assertEquals(new String(FAILURE_BODY, StandardCharsets.UTF_8), new String(response.getContentAsByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static MockHttpServletRequest oversized() {
+		char[] padding = new char[256];
+		Arrays.fill(padding, 'x');
+		return login("{\"key\":\"app\",\"loginTmpCode\":\"" + new String(padding) + "\"}");
+	}
+
+	private static MockHttpServletRequest login(String body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN_URL);
+		request.setServletPath(LOGIN_URL);
+		request.setContentType("application/json");
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	static class TestFilter extends DingTalkScanCodeAuthenticatingFilter {
+
+		boolean stateless;
+
+		TestFilter(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		@Override
+		public boolean isSessionStateless() {
+			return stateless;
+		}
+
+	}
+
+	static class CapturingFailureHandler extends DingTalkAuthenticationFailureHandler {
+
+		private volatile AuthenticationException failure;
+
+		CapturingFailureHandler(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		@Override
+		public byte[] responseBody(AuthenticationException e) {
+			this.failure = e;
+			return FAILURE_BODY;
+		}
+
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAccessTokenProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	{@link DingTalkAccessTokenCache} 在并发未命中时的合并、限时等待与失败处理
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkAccessTokenCacheTest {
+
+	private static final int THREADS = 500;
+	private static final int APP_KEYS = 5;
+
+	private final List<DingTalkAccessTokenCache> caches = new ArrayList<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+		caches.forEach(DingTalkAccessTokenCache::destroy);
+	}
+
+	@Test
+	void concurrentMissesFetchOncePerAppKey() throws Exception {
+		CountingCache cache = cache(Duration.ofSeconds(10), appKey -> {
+			Thread.sleep(50);
+			return "token-" + appKey;
+		});
+		CountDownLatch ready = new CountDownLatch(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			String appKey = "app" + (i % APP_KEYS);
+			results.add(executor.submit(() -> {
+				ready.countDown();
+				start.await();
+				return cache.getAccessToken(appKey, "secret");
+			}));
+		}
+		ready.await();
+		start.countDown();
+		for (int i = 0; i < THREADS; i++) {
+			assertEquals("token-app" + (i % APP_KEYS), results.get(i).get(10, TimeUnit.SECONDS));
+		}
+		for (int i = 0; i < APP_KEYS; i++) {
+			assertEquals(1, cache.fetches("app" + i), "fetches of app" + i);
+		}
+		assertEquals(APP_KEYS, cache.getFetchCount());
+		assertEquals(APP_KEYS, cache.getLoadCount());
+		assertEquals(THREADS, cache.getLoadCount() + cache.getLoadSharedCount() + cache.getHitCount());
+	}
+
+	@Test
+	void waitersGiveUpAfterLoadTimeout() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountingCache cache = cache(Duration.ofMillis(100), appKey -> {
+			release.await();
+			return "token";
+		});
+		Future<String> first = executor.submit(() -> cache.getAccessToken("app", "secret"));
+		while (cache.fetches("app") == 0) {
+			Thread.sleep(1);
+		}
+		long start = System.nanoTime();
+		ApiException e = assertThrows(ApiException.class, () -> cache.getAccessToken("app", "secret"));
+		long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(e.getMessage().startsWith("Timeout waiting"), e.getMessage());
+		assertTrue(waited >= 90 && waited < 2000, "waited " + waited + "ms");
+		release.countDown();
+		assertEquals("token", first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, cache.getFetchCount());
+	}
+
+	@Test
+	void failedFetchIsSharedButNotCached() throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		CountingCache cache = cache(Duration.ofSeconds(5), appKey -> {
+			if (attempts.incrementAndGet() == 1) {
+				release.await();
+				throw new ApiException("90018", "rate limited");
+			}
+			return "token";
+		});
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			results.add(executor.submit(() -> cache.getAccessToken("app", "secret")));
+		}
+		while (cache.getLoadSharedCount() < 9) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		for (Future<String> result : results) {
+			ExecutionException e = assertThrows(ExecutionException.class,
+					() -> result.get(5, TimeUnit.SECONDS));
+			assertTrue(e.getCause() instanceof ApiException, String.valueOf(e.getCause()));
+		}
+		assertEquals(0, cache.size());
+		assertEquals("token", cache.getAccessToken("app", "secret"));
+		assertEquals(2, cache.getFetchCount());
+	}
+
+	private CountingCache cache(Duration loadTimeout, Fetcher fetcher) {
+		ShiroDingTalkAccessTokenProperties properties = new ShiroDingTalkAccessTokenProperties();
+		properties.setLoadTimeout(loadTimeout);
+		CountingCache cache = new CountingCache(properties, fetcher);
+		caches.add(cache);
+		return cache;
+	}
+
+	interface Fetcher {
+
+		String fetch(String appKey) throws Exception;
+
+	}
+
+	/**
+	 * 以计数桩代替钉钉远程获取的 AccessToken 缓存
+	 */
+	static class CountingCache extends DingTalkAccessTokenCache {
+
+		private final Fetcher fetcher;
+		private final ConcurrentMap<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+		CountingCache(ShiroDingTalkAccessTokenProperties properties, Fetcher fetcher) {
+			super(null, properties);
+			this.fetcher = fetcher;
+		}
+
+		@Override
+		protected String fetch(String appKey, String appSecret) throws ApiException {
+			fetches.computeIfAbsent(appKey, key -> new AtomicInteger()).incrementAndGet();
+			try {
+				return fetcher.fetch(appKey);
+			} catch (ApiException | RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new ApiException(e);
+			}
+		}
+
+		int fetches(String appKey) {
+			AtomicInteger count = fetches.get(appKey);
+			return count == null ? 0 : count.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRepositoryCacheProperties;
+import org.apache.shiro.spring.boot.dingtalk.store.InMemoryDingTalkSharedStore;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkAuthenticationInfoCache} 的缓存 Key、加载与 copy-on-read
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkAuthenticationInfoCacheTest {
+
+	private final ShiroDingTalkRepositoryCacheProperties properties = new ShiroDingTalkRepositoryCacheProperties();
+	private final InMemoryDingTalkSharedStore sharedStore = new InMemoryDingTalkSharedStore();
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void invalidateByUnionidClearsRealmEntry() {
+		DingTalkAuthenticationInfoCache cache = new DingTalkAuthenticationInfoCache(properties);
+		cache.setSharedStore(sharedStore);
+		// 与 Realm 使用相同的方式构造 Key
+		String identity = DingTalkAuthenticationInfoCache.unionid("u-1");
+		cache.get(identity, this::load);
+		cache.get(identity, this::load);
+		assertEquals(1, loads.get());
+		assertNotNull(sharedStore.get(DingTalkAuthenticationInfoCache.DEFAULT_KEY_PREFIX + "unionid:u-1"));
+
+		cache.invalidateUnionid("u-1");
+		assertNull(sharedStore.get(DingTalkAuthenticationInfoCache.DEFAULT_KEY_PREFIX + "unionid:u-1"));
+		cache.get(identity, this::load);
+		assertEquals(2, loads.get());
+
+		cache.invalidateUserid("u-1");
+		cache.get(identity, this::load);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void blankIdentityHasNoKey() {
+		assertNull(DingTalkAuthenticationInfoCache.unionid(null));
+		assertNull(DingTalkAuthenticationInfoCache.userid(""));
+		assertEquals("userid:0001", DingTalkAuthenticationInfoCache.userid("0001"));
+	}
+
+	@Test
+	void readsReturnIndependentPrincipalCollections() {
+		DingTalkAuthenticationInfoCache cache = new DingTalkAuthenticationInfoCache(properties);
+		String identity = DingTalkAuthenticationInfoCache.unionid("u-1");
+		SimpleAuthenticationInfo first = (SimpleAuthenticationInfo) cache.get(identity, this::load);
+		// 多 Realm 认证策略合并首个 Realm 返回的认证信息
+		first.merge(new SimpleAuthenticationInfo("other", "other", "other"));
+
+		AuthenticationInfo second = cache.get(identity, this::load);
+		assertNotSame(first, second);
+		assertEquals(1, second.getPrincipals().asList().size());
+		// 身份对象不复制，由多个请求共享
+		assertSame(first.getPrincipals().getPrimaryPrincipal(), second.getPrincipals().getPrimaryPrincipal());
+	}
+
+	@Test
+	void loaderRunsOutsideCacheComputation() {
+		DingTalkAuthenticationInfoCache cache = new DingTalkAuthenticationInfoCache(properties);
+		String identity = DingTalkAuthenticationInfoCache.unionid("u-1");
+		// Repository 查询中再次读取同一 Key（如监听器触发的重入），在 Caffeine 的计算中会抛出 Recursive update
+		AuthenticationInfo info = cache.get(identity, () -> {
+			assertNull(cache.get(identity, () -> null));
+			return load();
+		});
+		assertNotNull(info);
+		cache.get(identity, this::load);
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void sharedEntryIsReadBeforeLoader() {
+		DingTalkAuthenticationInfoCache writer = new DingTalkAuthenticationInfoCache(properties);
+		writer.setSharedStore(sharedStore);
+		String identity = DingTalkAuthenticationInfoCache.unionid("u-1");
+		writer.get(identity, this::load);
+
+		DingTalkAuthenticationInfoCache reader = new DingTalkAuthenticationInfoCache(properties);
+		reader.setSharedStore(sharedStore);
+		AuthenticationInfo info = reader.get(identity, this::load);
+		assertEquals(1, loads.get());
+		assertEquals("u-1", ((ShiroDingTalkPrincipal) info.getPrincipals().getPrimaryPrincipal()).getUnionid());
+	}
+
+	@Test
+	void copyOnReadCanBeDisabled() {
+		properties.setCopyOnRead(false);
+		DingTalkAuthenticationInfoCache cache = new DingTalkAuthenticationInfoCache(properties);
+		String identity = DingTalkAuthenticationInfoCache.unionid("u-1");
+		assertSame(cache.get(identity, this::load), cache.get(identity, this::load));
+	}
+
+	@Test
+	void nonSerializablePrincipalIsShallowCopied() {
+		DingTalkAuthenticationInfoCache cache = new DingTalkAuthenticationInfoCache(properties);
+		Object principal = new Object();
+		AuthenticationInfo first = cache.get("userid:1", () -> new SimpleAuthenticationInfo(principal, "code", "realm"));
+		AuthenticationInfo second = cache.get("userid:1", () -> null);
+		assertNotSame(first, second);
+		assertNotSame(first.getPrincipals(), second.getPrincipals());
+		assertSame(principal, second.getPrincipals().getPrimaryPrincipal());
+	}
+
+	private AuthenticationInfo load() {
+		loads.incrementAndGet();
+		ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+		principal.setUnionid("u-1");
+		principal.setName("name");
+		return new SimpleAuthenticationInfo(principal, "code", "realm");
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkSingleFlight} 的合并、限时等待与失败传播
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkSingleFlightTest {
+
+	private final DingTalkSingleFlight<String, String> singleFlight = new DingTalkSingleFlight<>();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void joinersShareOneExecution() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		Future<String> first = executor.submit(() -> singleFlight.execute("app", () -> {
+			calls.incrementAndGet();
+			release.await();
+			return "token";
+		}, 5, TimeUnit.SECONDS));
+		awaitInFlight();
+		List<Future<String>> joiners = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			joiners.add(executor.submit(() -> singleFlight.execute("app", () -> "other", 5, TimeUnit.SECONDS)));
+		}
+		while (singleFlight.getSharedCount() < 20) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		assertEquals("token", first.get(5, TimeUnit.SECONDS));
+		for (Future<String> joiner : joiners) {
+			assertEquals("token", joiner.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1, singleFlight.getExecutedCount());
+		assertEquals(20, singleFlight.getSharedCount());
+		assertEquals(0, singleFlight.inFlight());
+	}
+
+	@Test
+	void waitIsBounded() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		executor.submit(() -> singleFlight.execute("app", () -> {
+			release.await();
+			return "token";
+		}, 5, TimeUnit.SECONDS));
+		awaitInFlight();
+		long start = System.nanoTime();
+		assertThrows(TimeoutException.class, () -> singleFlight.execute("app", () -> "other", 50, TimeUnit.MILLISECONDS));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		assertEquals(1, singleFlight.getExecutedCount());
+		release.countDown();
+	}
+
+	@Test
+	void failureIsSharedAndNotRetained() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalStateException failure = new IllegalStateException("busy");
+		Future<String> first = executor.submit(() -> singleFlight.execute("app", () -> {
+			release.await();
+			throw failure;
+		}, 5, TimeUnit.SECONDS));
+		awaitInFlight();
+		Future<String> joiner = executor.submit(() -> singleFlight.execute("app", () -> "other", 5, TimeUnit.SECONDS));
+		while (singleFlight.getSharedCount() < 1) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		assertSame(failure, assertThrows(Exception.class, () -> unwrap(first)));
+		assertSame(failure, assertThrows(Exception.class, () -> unwrap(joiner)));
+		assertEquals(0, singleFlight.inFlight());
+		// 失败不保留，下一次调用重新执行
+		assertEquals("retry", singleFlight.execute("app", () -> "retry", 1, TimeUnit.SECONDS));
+		assertEquals(2, singleFlight.getExecutedCount());
+	}
+
+	private void awaitInFlight() throws InterruptedException {
+		while (singleFlight.inFlight() == 0) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static String unwrap(Future<String> future) throws Exception {
+		try {
+			return future.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+}
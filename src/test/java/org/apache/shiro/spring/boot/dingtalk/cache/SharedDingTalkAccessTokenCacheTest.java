@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCacheTest.CountingCache;
+import org.apache.shiro.spring.boot.dingtalk.cache.DingTalkAccessTokenCacheTest.Fetcher;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAccessTokenProperties;
+import org.apache.shiro.spring.boot.dingtalk.store.InMemoryDingTalkSharedStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	两个节点的 {@link DingTalkAccessTokenCache} 共享同一个 {@link InMemoryDingTalkSharedStore}：租约、共享读取与失效
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class SharedDingTalkAccessTokenCacheTest {
+
+	private final InMemoryDingTalkSharedStore sharedStore = new InMemoryDingTalkSharedStore();
+	private final KeyValueDingTalkAccessTokenStore tokenStore = new KeyValueDingTalkAccessTokenStore(sharedStore);
+	private final AtomicInteger issued = new AtomicInteger();
+	private final List<DingTalkAccessTokenCache> caches = new ArrayList<>();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+		caches.forEach(DingTalkAccessTokenCache::destroy);
+	}
+
+	@Test
+	void onlyLeaseHolderFetches() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountingCache nodeA = node(appKey -> {
+			release.await();
+			return "token-" + issued.incrementAndGet();
+		});
+		CountingCache nodeB = node(appKey -> "token-" + issued.incrementAndGet());
+		Future<String> a = executor.submit(() -> nodeA.getAccessToken("app", "secret"));
+		while (nodeA.fetches("app") == 0) {
+			Thread.sleep(1);
+		}
+		Future<String> b = executor.submit(() -> nodeB.getAccessToken("app", "secret"));
+		Thread.sleep(50);
+		release.countDown();
+		assertEquals("token-1", a.get(5, TimeUnit.SECONDS));
+		assertEquals("token-1", b.get(5, TimeUnit.SECONDS));
+		assertEquals(1, nodeA.getFetchCount());
+		assertEquals(0, nodeB.getFetchCount());
+		assertNull(sharedStore.get(KeyValueDingTalkAccessTokenStore.DEFAULT_KEY_PREFIX + "lease:app"));
+	}
+
+	@Test
+	void otherNodeReadsSharedValue() throws Exception {
+		CountingCache nodeA = node(appKey -> "token-" + issued.incrementAndGet());
+		CountingCache nodeB = node(appKey -> "token-" + issued.incrementAndGet());
+		assertEquals("token-1", nodeA.getAccessToken("app", "secret"));
+		assertEquals("token-1", nodeB.getAccessToken("app", "secret"));
+		assertEquals(1, nodeA.getFetchCount());
+		assertEquals(0, nodeB.getFetchCount());
+		assertEquals("token-1", tokenStore.get("app").getToken());
+	}
+
+	@Test
+	void invalidateDeletesRejectedSharedToken() throws Exception {
+		CountingCache nodeA = node(appKey -> "token-" + issued.incrementAndGet());
+		CountingCache nodeB = node(appKey -> "token-" + issued.incrementAndGet());
+		assertEquals("token-1", nodeA.getAccessToken("app", "secret"));
+		nodeA.invalidate("app");
+		assertNull(tokenStore.get("app"));
+		// 不再重新采用被钉钉拒绝的值
+		assertEquals("token-2", nodeB.getAccessToken("app", "secret"));
+		assertEquals("token-2", nodeA.getAccessToken("app", "secret"));
+		assertEquals(1, nodeA.getFetchCount());
+		assertEquals(1, nodeB.getFetchCount());
+	}
+
+	@Test
+	void invalidateKeepsNewerSharedToken() throws Exception {
+		CountingCache nodeA = node(appKey -> "token-" + issued.incrementAndGet());
+		CountingCache nodeB = node(appKey -> "token-" + issued.incrementAndGet());
+		assertEquals("token-1", nodeA.getAccessToken("app", "secret"));
+		assertEquals("token-1", nodeB.getAccessToken("app", "secret"));
+		nodeB.invalidate("app");
+		assertEquals("token-2", nodeB.getAccessToken("app", "secret"));
+		// nodeA 持有的旧值已不是共享存储中的值，不能删除 nodeB 刚写入的新值
+		nodeA.invalidate("app");
+		assertEquals("token-2", tokenStore.get("app").getToken());
+		assertEquals("token-2", nodeA.getAccessToken("app", "secret"));
+	}
+
+	private CountingCache node(Fetcher fetcher) {
+		ShiroDingTalkAccessTokenProperties properties = new ShiroDingTalkAccessTokenProperties();
+		properties.setLoadTimeout(Duration.ofSeconds(5));
+		properties.setLeasePollInterval(Duration.ofMillis(5));
+		CountingCache cache = new CountingCache(properties, fetcher);
+		cache.setTokenStore(tokenStore);
+		caches.add(cache);
+		return cache;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkRingBuffer} 的容量、顺序与多生产者多消费者并发
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkRingBufferTest {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void capacityIsRoundedUpToPowerOfTwo() {
+		assertEquals(2, new DingTalkRingBuffer<>(1).capacity());
+		assertEquals(4, new DingTalkRingBuffer<>(3).capacity());
+		assertEquals(4, new DingTalkRingBuffer<>(4).capacity());
+		assertEquals(4096, new DingTalkRingBuffer<>(4000).capacity());
+	}
+
+	@Test
+	void fullBufferRejectsAndEmptyBufferReturnsNull() {
+		DingTalkRingBuffer<Integer> buffer = new DingTalkRingBuffer<>(4);
+		assertNull(buffer.poll());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertEquals(4, buffer.size());
+
+		assertEquals(0, buffer.poll());
+		// 取出后腾出的槽位可再次写入
+		assertTrue(buffer.offer(4));
+		assertFalse(buffer.offer(5));
+	}
+
+	@Test
+	void elementsArePolledInOrderAcrossWrapAround() {
+		DingTalkRingBuffer<Integer> buffer = new DingTalkRingBuffer<>(4);
+		int next = 0;
+		for (int i = 0; i < 100; i++) {
+			assertTrue(buffer.offer(i));
+			if (i % 3 == 2) {
+				for (int j = 0; j < 3; j++) {
+					assertEquals(next++, buffer.poll());
+				}
+			}
+		}
+		while (next < 100) {
+			assertEquals(next++, buffer.poll());
+		}
+		assertNull(buffer.poll());
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	void concurrentProducersAndConsumersLoseNothing() throws Exception {
+		int producers = 4;
+		int perProducer = 20000;
+		DingTalkRingBuffer<Integer> buffer = new DingTalkRingBuffer<>(64);
+		AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+		LongAdder sum = new LongAdder();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 1; i <= perProducer; i++) {
+					while (!buffer.offer(i)) {
+						Thread.yield();
+					}
+				}
+			}));
+		}
+		for (int c = 0; c < 4; c++) {
+			futures.add(executor.submit(() -> {
+				while (remaining.get() > 0) {
+					Integer element = buffer.poll();
+					if (element == null) {
+						Thread.yield();
+						continue;
+					}
+					sum.add(element);
+					remaining.decrementAndGet();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(30, TimeUnit.SECONDS);
+		}
+		assertEquals((long) producers * perProducer * (perProducer + 1) / 2, sum.sum());
+		assertNull(buffer.poll());
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.apache.shiro.spring.boot.dingtalk.credential;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.ShiroDingTalkProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * 	{@link DingTalkAppCredentialRefresher} 从 Environment 重新绑定配置并替换凭证索引
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkAppCredentialRefresherTest {
+
+	private final Map<String, Object> source = new HashMap<>();
+	private final StandardEnvironment environment = new StandardEnvironment();
+	private DingTalkAppCredentialRegistry registry;
+	private DingTalkAppCredentialRefresher refresher;
+
+	@BeforeEach
+	void setUp() {
+		source.put("shiro.dingtalk.logins[0].app-id", "login-app");
+		source.put("shiro.dingtalk.logins[0].app-secret", "secret-1");
+		environment.getPropertySources().addFirst(new MapPropertySource("test", source));
+		registry = new DingTalkAppCredentialRegistry(new ShiroDingTalkProperties());
+		refresher = new DingTalkAppCredentialRefresher(registry, environment);
+	}
+
+	@Test
+	void refreshRebindsAndSwapsRegistry() {
+		refresher.refresh();
+		assertEquals("secret-1", registry.get("login-app").getAppSecret());
+
+		source.put("shiro.dingtalk.logins[0].app-secret", "secret-2");
+		source.put("shiro.dingtalk.cropApps[0].app-key", "crop-app");
+		source.put("shiro.dingtalk.cropApps[0].app-secret", "crop-secret");
+		refresher.refresh();
+		assertEquals("secret-2", registry.get("login-app").getAppSecret());
+		assertEquals(DingTalkAppType.CROP_APP, registry.get("crop-app").getType());
+		assertEquals(2, registry.size());
+	}
+
+	@Test
+	void ignoresUnrelatedEvents() {
+		refresher.onApplicationEvent(new ApplicationEvent(this) {
+			private static final long serialVersionUID = 1L;
+		});
+		assertNull(registry.get("login-app"));
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationSuccessHandler;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppCredential;
+import org.apache.shiro.spring.boot.dingtalk.credential.DingTalkAppType;
+import org.apache.shiro.spring.boot.dingtalk.jwt.DingTalkJwtIssuer;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkJwtIssuerProperties;
+import org.apache.shiro.spring.boot.dingtalk.realm.DingTalkScanCodeAuthorizingRealm;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteCall;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.apache.shiro.subject.Subject;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.dingtalk.api.response.OapiSnsGetuserinfoBycodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taobao.api.ApiException;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * 	以 {@link DingTalkFlightRecorder#SETTINGS} 开始 JFR 记录，走一遍请求体解析、钉钉远程调用、Repository 查询与 JWT 签发，
+ * 	从记录文件中读回四类事件及其字段
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkFlightRecorderTest {
+
+	private static final String APP_KEY = "app-key";
+	private static final String EXPIRED_CODE = "expired";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void recordingCapturesEveryLoginPhase() throws Exception {
+		ParsingFilter filter = new ParsingFilter(objectMapper);
+		StubRealm realm = new StubRealm();
+		DingTalkAuthenticationSuccessHandler successHandler = new DingTalkAuthenticationSuccessHandler(objectMapper, null, false);
+		ShiroDingTalkJwtIssuerProperties issuerProperties = new ShiroDingTalkJwtIssuerProperties();
+		issuerProperties.setSecret("0123456789abcdef0123456789abcdef");
+		successHandler.setJwtIssuer(new DingTalkJwtIssuer(objectMapper.getFactory(), issuerProperties));
+
+		Path file = Files.createTempFile("dingtalk", ".jfr");
+		try {
+			try (Recording recording = new Recording(DingTalkFlightRecorder.configuration())) {
+				recording.start();
+
+				AuthenticationToken token = filter.parse("tmp-code");
+				AuthenticationInfo info = realm.getAuthenticationInfo(token);
+				AuthenticationToken expired = filter.parse(EXPIRED_CODE);
+				assertThrows(AuthenticationException.class, () -> realm.getAuthenticationInfo(expired));
+				Subject subject = mock(Subject.class);
+				when(subject.getPrincipal()).thenReturn(info.getPrincipals().getPrimaryPrincipal());
+				assertTrue(successHandler.responseBody(token, subject).length > 0);
+
+				recording.stop();
+				recording.dump(file);
+			}
+			Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+					.filter(event -> event.getEventType().getName().startsWith("org.apache.shiro.dingtalk."))
+					.collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+			List<RecordedEvent> parses = events.get(DingTalkLoginParseEvent.NAME);
+			assertNotNull(parses);
+			assertEquals(2, parses.size());
+			for (RecordedEvent parse : parses) {
+				assertEquals("DingTalkScanCodeLoginRequest", parse.getString("requestType"));
+				assertTrue(parse.getLong("contentLength") > 0);
+				assertNull(parse.getString("error"));
+			}
+
+			List<RecordedEvent> remoteCalls = events.get(DingTalkRemoteCallEvent.NAME);
+			assertNotNull(remoteCalls);
+			assertEquals(2, remoteCalls.size());
+			for (RecordedEvent remoteCall : remoteCalls) {
+				assertEquals(DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE.name(), remoteCall.getString("operation"));
+				assertEquals(APP_KEY, remoteCall.getString("appKey"));
+			}
+			List<String> errcodes = remoteCalls.stream().map(event -> event.getString("errcode")).collect(Collectors.toList());
+			assertTrue(errcodes.contains(null), errcodes.toString());
+			assertTrue(errcodes.contains("40078"), errcodes.toString());
+			assertTrue(remoteCalls.stream().anyMatch(event -> "ApiException".equals(event.getString("error"))));
+
+			List<RecordedEvent> lookups = events.get(DingTalkRepositoryEvent.NAME);
+			assertNotNull(lookups);
+			assertEquals(1, lookups.size());
+			assertEquals("scan", lookups.get(0).getString("flow"));
+			assertNull(lookups.get(0).getString("error"));
+
+			List<RecordedEvent> issues = events.get(DingTalkJwtIssueEvent.NAME);
+			assertNotNull(issues);
+			assertEquals(1, issues.size());
+			assertEquals("scan", issues.get(0).getString("flow"));
+			assertNull(issues.get(0).getString("error"));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * 公开请求体解析入口的扫码登录过滤器
+	 */
+	static class ParsingFilter extends DingTalkScanCodeAuthenticatingFilter {
+
+		ParsingFilter(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		AuthenticationToken parse(String loginTmpCode) {
+			MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login/dingtalk");
+			request.setContentType("application/json");
+			request.setContent(("{\"key\":\"" + APP_KEY + "\",\"loginTmpCode\":\"" + loginTmpCode + "\"}").getBytes(StandardCharsets.UTF_8));
+			return createToken(request, new MockHttpServletResponse());
+		}
+
+		@Override
+		protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
+			return super.createToken(request, response);
+		}
+
+	}
+
+	/**
+	 * 钉钉调用与 Repository 由内存桩代替的扫码登录 Realm，远程调用仍经由 {@link DingTalkFlightRecorder} 包装
+	 */
+	static class StubRealm extends DingTalkScanCodeAuthorizingRealm {
+
+		private static final ThreadLocal<DingTalkScanCodeAuthenticationToken> CURRENT = new ThreadLocal<>();
+
+		StubRealm() {
+			super(null);
+			setName("dingtalk");
+			setCredentialsMatcher(new AllowAllCredentialsMatcher());
+			setAuthorizationCachingEnabled(false);
+		}
+
+		@Override
+		protected DingTalkAppCredential getAppCredential(String appKey) {
+			return new DingTalkAppCredential(DingTalkAppType.TEMPLATE, appKey, "secret", null, null);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected <T> T invoke(String appKey, DingTalkRemoteOperation operation, DingTalkRemoteCall<T> call) throws ApiException {
+			return super.invoke(appKey, operation, () -> (T) getUserinfoByTmpCode());
+		}
+
+		private OapiSnsGetuserinfoBycodeResponse getUserinfoByTmpCode() throws ApiException {
+			DingTalkScanCodeAuthenticationToken token = CURRENT.get();
+			String code = ((DingTalkScanCodeLoginRequest) token.getPrincipal()).getLoginTmpCode();
+			if (EXPIRED_CODE.equals(code)) {
+				throw new ApiException("40078", "tmp code not exist");
+			}
+			OapiSnsGetuserinfoBycodeResponse response = new OapiSnsGetuserinfoBycodeResponse();
+			response.setErrcode(0L);
+			OapiSnsGetuserinfoBycodeResponse.UserInfo userInfo = new OapiSnsGetuserinfoBycodeResponse.UserInfo();
+			userInfo.setUnionid("union-1");
+			userInfo.setOpenid("open-1");
+			userInfo.setNick("name");
+			response.setUserInfo(userInfo);
+			return response;
+		}
+
+		@Override
+		protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+			CURRENT.set((DingTalkScanCodeAuthenticationToken) token);
+			try {
+				return super.doGetAuthenticationInfo(token);
+			} finally {
+				CURRENT.remove();
+			}
+		}
+
+		@Override
+		protected AuthenticationInfo queryRepository(AuthenticationToken token) {
+			ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+			principal.setUserid("user-1");
+			principal.setUnionid(((DingTalkScanCodeAuthenticationToken) token).getUnionid());
+			principal.setName("name");
+			return new SimpleAuthenticationInfo(principal, "code", getName());
+		}
+
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkAuthCodeLedgerProperties;
+import org.apache.shiro.spring.boot.dingtalk.store.InMemoryDingTalkSharedStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	一次性授权码台账只在去重窗口内保留成功的认证结果：失败的提交不会被重放，重新提交可以再次尝试；
+ * 	授权码绑定首次提交的客户端，重复提交得到认证信息的副本
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkAuthCodeLedgerTest {
+
+	private static final String CLIENT = "10.0.0.1";
+
+	private final ShiroDingTalkAuthCodeLedgerProperties properties = new ShiroDingTalkAuthCodeLedgerProperties();
+	private final InMemoryDingTalkSharedStore sharedStore = new InMemoryDingTalkSharedStore();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void localDuplicateJoinsSuccessfulLogin() throws Exception {
+		LocalDingTalkAuthCodeLedger ledger = new LocalDingTalkAuthCodeLedger(properties);
+		AtomicInteger exchanges = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AuthenticationInfo info = new SimpleAuthenticationInfo("unionid", "code", "realm");
+		Future<AuthenticationInfo> first = executor.submit(() -> ledger.execute("code", CLIENT, () -> {
+			exchanges.incrementAndGet();
+			started.countDown();
+			await(release);
+			return info;
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<AuthenticationInfo> duplicate = executor.submit(() -> ledger.execute("code", CLIENT, () -> {
+			exchanges.incrementAndGet();
+			return null;
+		}));
+		release.countDown();
+		assertSame(info, first.get(5, TimeUnit.SECONDS));
+		// 重复提交得到副本，合并其认证信息不影响首次提交
+		AuthenticationInfo joined = duplicate.get(5, TimeUnit.SECONDS);
+		assertNotSame(info, joined);
+		assertNotSame(info.getPrincipals(), joined.getPrincipals());
+		assertEquals(info.getPrincipals(), joined.getPrincipals());
+		assertEquals("unionid", ledger.execute("code", CLIENT, () -> null).getPrincipals().getPrimaryPrincipal());
+		assertEquals(1, exchanges.get());
+		assertEquals(2, ledger.getDuplicateCount());
+	}
+
+	@Test
+	void localFailureIsSharedButNotRetained() throws Exception {
+		LocalDingTalkAuthCodeLedger ledger = new LocalDingTalkAuthCodeLedger(properties);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<AuthenticationInfo> first = executor.submit(() -> ledger.execute("code", CLIENT, () -> {
+			started.countDown();
+			await(release);
+			throw new AuthenticationException("errcode 40078");
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Future<AuthenticationInfo> duplicate = executor.submit(() -> ledger.execute("code", CLIENT, () -> null));
+		// 等待重复提交加入首次提交
+		while (ledger.getDuplicateCount() == 0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		assertFailedWith("errcode 40078", first);
+		assertFailedWith("errcode 40078", duplicate);
+		assertEquals(0, ledger.estimatedSize());
+
+		AuthenticationInfo info = new SimpleAuthenticationInfo("unionid", "code", "realm");
+		assertSame(info, ledger.execute("code", CLIENT, () -> info));
+	}
+
+	@Test
+	void sharedFailureIsNotRecorded() {
+		SharedDingTalkAuthCodeLedger ledger = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		assertThrows(AuthenticationException.class, () -> ledger.execute("code", CLIENT, () -> {
+			throw new AuthenticationException("errcode 40078");
+		}));
+		assertNull(sharedStore.get(SharedDingTalkAuthCodeLedger.DEFAULT_KEY_PREFIX + SharedDingTalkAuthCodeLedger.digest("code")));
+
+		SharedDingTalkAuthCodeLedger otherNode = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		AuthenticationInfo info = new SimpleAuthenticationInfo("unionid", "code", "realm");
+		assertSame(info, otherNode.execute("code", CLIENT, () -> info));
+	}
+
+	@Test
+	void sharedSuccessIsReplayedOnOtherNode() {
+		SharedDingTalkAuthCodeLedger nodeA = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		SharedDingTalkAuthCodeLedger nodeB = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		nodeA.execute("code", CLIENT, () -> new SimpleAuthenticationInfo("unionid", "code", "realm"));
+		AuthenticationInfo replayed = nodeB.execute("code", CLIENT, () -> {
+			throw new AuthenticationException("code already used");
+		});
+		assertEquals("unionid", replayed.getPrincipals().getPrimaryPrincipal());
+		assertEquals(1, nodeB.getRemoteDuplicateCount());
+	}
+
+	@Test
+	void sharedNonSerializableSuccessIsNotRecorded() {
+		SharedDingTalkAuthCodeLedger ledger = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		AuthenticationInfo info = new SimpleAuthenticationInfo(new Object(), "code", "realm");
+		assertSame(info, ledger.execute("code", CLIENT, () -> info));
+		assertNull(sharedStore.get(SharedDingTalkAuthCodeLedger.DEFAULT_KEY_PREFIX + SharedDingTalkAuthCodeLedger.digest("code")));
+	}
+
+	@Test
+	void localCodeIsBoundToFirstSubmitter() {
+		LocalDingTalkAuthCodeLedger ledger = new LocalDingTalkAuthCodeLedger(properties);
+		AuthenticationInfo info = new SimpleAuthenticationInfo("unionid", "code", "realm");
+		assertSame(info, ledger.execute("code", CLIENT, () -> info));
+		assertThrows(DingTalkCodeIncorrectException.class, () -> ledger.execute("code", "10.0.0.2", () -> info));
+		assertEquals(1, ledger.getRejectedCount());
+		assertEquals(0, ledger.getDuplicateCount());
+	}
+
+	@Test
+	void localResultIsKeptOnlyForDedupWindow() throws Exception {
+		properties.setDedupWindow(Duration.ofMillis(50));
+		LocalDingTalkAuthCodeLedger ledger = new LocalDingTalkAuthCodeLedger(properties);
+		AtomicInteger exchanges = new AtomicInteger();
+		ledger.execute("code", CLIENT, () -> {
+			exchanges.incrementAndGet();
+			return new SimpleAuthenticationInfo("unionid", "code", "realm");
+		});
+		Thread.sleep(200);
+		// 去重窗口之后的提交不再重放结果，交给钉钉校验授权码
+		assertThrows(AuthenticationException.class, () -> ledger.execute("code", CLIENT, () -> {
+			exchanges.incrementAndGet();
+			throw new AuthenticationException("code already used");
+		}));
+		assertEquals(2, exchanges.get());
+	}
+
+	@Test
+	void sharedEntryIsHashedAndBoundToFirstSubmitter() {
+		SharedDingTalkAuthCodeLedger nodeA = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		SharedDingTalkAuthCodeLedger nodeB = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		nodeA.execute("code", CLIENT, () -> new SimpleAuthenticationInfo("unionid", "code", "realm"));
+
+		String value = sharedStore.get(SharedDingTalkAuthCodeLedger.DEFAULT_KEY_PREFIX + SharedDingTalkAuthCodeLedger.digest("code"));
+		assertNotNull(value);
+		assertFalse(value.contains(CLIENT));
+		assertNull(sharedStore.get(SharedDingTalkAuthCodeLedger.DEFAULT_KEY_PREFIX + "code"));
+
+		assertThrows(DingTalkCodeIncorrectException.class, () -> nodeB.execute("code", "10.0.0.2", () -> null));
+		assertEquals(1, nodeB.getRejectedCount());
+		assertEquals(0, nodeB.getRemoteDuplicateCount());
+	}
+
+	@Test
+	void sharedResultIsKeptOnlyForDedupWindow() throws Exception {
+		properties.setDedupWindow(Duration.ofMillis(50));
+		SharedDingTalkAuthCodeLedger ledger = new SharedDingTalkAuthCodeLedger(sharedStore, properties);
+		ledger.execute("code", CLIENT, () -> new SimpleAuthenticationInfo("unionid", "code", "realm"));
+		Thread.sleep(200);
+		assertNull(sharedStore.get(SharedDingTalkAuthCodeLedger.DEFAULT_KEY_PREFIX + SharedDingTalkAuthCodeLedger.digest("code")));
+	}
+
+	private static void assertFailedWith(String message, Future<AuthenticationInfo> future) throws Exception {
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertEquals(message, e.getCause().getMessage());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
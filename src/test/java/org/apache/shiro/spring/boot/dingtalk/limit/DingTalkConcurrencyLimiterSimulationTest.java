@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.spring.boot.dingtalk.authc.AbstractDingTalkAuthenticatingFilter;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 	{@link DingTalkConcurrencyLimiter} 的虚拟时钟模拟：按固定节奏回放突发登录请求，钉钉桩的 RTT 先平稳后持续上升，
+ * 	验证并发上限随延迟上升收缩，超出上限的请求由登录过滤器以 503 与 Retry-After 立即拒绝
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkConcurrencyLimiterSimulationTest {
+
+	private static final String LOGIN_URL = "/login/dingtalk";
+	/** 每 20ms 一次突发，每次 100 个登录请求 */
+	private static final long BURST_INTERVAL_MILLIS = 20;
+	private static final int BURST_SIZE = 100;
+	/** 前 3 秒 RTT 稳定在 10ms，之后每 500ms 翻倍，3 秒内升至 640ms，最后 5 秒恢复到 10ms */
+	private static final long STEADY_MILLIS = 3000;
+	private static final long RISING_MILLIS = 3000;
+	private static final long RECOVERY_MILLIS = 5000;
+	private static final long DOUBLING_MILLIS = 500;
+
+	private final ShiroDingTalkConcurrencyLimitProperties properties = new ShiroDingTalkConcurrencyLimitProperties();
+	/** 按完成时间排序的进行中的钉钉调用 */
+	private final PriorityQueue<Call> calls = new PriorityQueue<>();
+	private long clockMillis;
+	private long sequence;
+	private SimulatedLimiter limiter;
+	private SimulationFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		SimpleAccountRealm realm = new SimpleAccountRealm();
+		realm.addAccount("user", "code");
+		DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager(realm);
+		DefaultSessionStorageEvaluator sessionStorageEvaluator = new DefaultSessionStorageEvaluator();
+		sessionStorageEvaluator.setSessionStorageEnabled(false);
+		((DefaultSubjectDAO) securityManager.getSubjectDAO()).setSessionStorageEvaluator(sessionStorageEvaluator);
+		securityManager.setRememberMeManager(null);
+		SecurityUtils.setSecurityManager(securityManager);
+
+		limiter = new SimulatedLimiter(properties);
+		filter = new SimulationFilter(new ObjectMapper());
+		filter.setLoginUrl(LOGIN_URL);
+		filter.setConcurrencyLimiter(limiter);
+		// 认证任务不立即执行，按桩的 RTT 在虚拟时钟到期后执行
+		filter.setAsyncExecutor(task -> calls.add(new Call(clockMillis + rttMillis(clockMillis), sequence++, task)));
+		filter.setAsyncTimeout(TimeUnit.MINUTES.toMillis(1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		ThreadContext.remove();
+		SecurityUtils.setSecurityManager(null);
+	}
+
+	@Test
+	void limitShrinksAndExcessIsShedWhileRttRises() throws Exception {
+		List<MockHttpServletResponse> shed = new ArrayList<>();
+		int steadyLimit = 0;
+		int risenLimit = 0;
+		long steadyShed = 0;
+		long risenShed = 0;
+		long succeeded = 0;
+		for (clockMillis = 0; clockMillis < STEADY_MILLIS + RISING_MILLIS + RECOVERY_MILLIS; clockMillis++) {
+			succeeded += completeDueCalls();
+			if (clockMillis % BURST_INTERVAL_MILLIS == 0) {
+				for (int i = 0; i < BURST_SIZE; i++) {
+					MockHttpServletResponse response = new MockHttpServletResponse();
+					filter.login(request(), response);
+					if (response.getStatus() == 503) {
+						shed.add(response);
+					}
+				}
+			}
+			if (clockMillis == STEADY_MILLIS - 1) {
+				steadyLimit = limiter.getLimit();
+				steadyShed = limiter.getRejectedCount();
+			}
+			if (clockMillis == STEADY_MILLIS + RISING_MILLIS - 1) {
+				risenLimit = limiter.getLimit();
+				risenShed = limiter.getRejectedCount();
+			}
+		}
+
+		// 稳定阶段上限增长到足以容纳突发，此后不再拒绝
+		assertTrue(steadyLimit >= BURST_SIZE, "steady limit " + steadyLimit);
+		// RTT 持续上升时上限收缩到稳定阶段的四分之一以下，但不低于下限；超出上限的请求被立即拒绝
+		assertTrue(risenLimit * 4 < steadyLimit, "limit " + steadyLimit + " -> " + risenLimit);
+		assertTrue(risenLimit >= properties.getMinLimit());
+		assertTrue(risenShed - steadyShed > BURST_SIZE * RISING_MILLIS / BURST_INTERVAL_MILLIS / 2,
+				"shed while rising " + (risenShed - steadyShed));
+		// RTT 恢复后上限重新增长
+		assertTrue(limiter.getLimit() > risenLimit * 2, "limit " + risenLimit + " -> " + limiter.getLimit());
+		assertTrue(succeeded > 0);
+		assertEquals(limiter.getRejectedCount(), shed.size());
+		for (MockHttpServletResponse response : shed) {
+			assertEquals(String.valueOf(properties.getRetryAfter().getSeconds()), response.getHeader("Retry-After"));
+			assertTrue(response.getContentType().startsWith("application/json"));
+			assertTrue(response.getContentAsByteArray().length > 0);
+		}
+	}
+
+	/**
+	 * 执行虚拟时钟已到期的钉钉调用，完成登录并释放并发许可
+	 */
+	private int completeDueCalls() {
+		int completed = 0;
+		while (!calls.isEmpty() && calls.peek().completeAt <= clockMillis) {
+			calls.poll().task.run();
+			completed++;
+		}
+		return completed;
+	}
+
+	private static long rttMillis(long nowMillis) {
+		if (nowMillis < STEADY_MILLIS || nowMillis >= STEADY_MILLIS + RISING_MILLIS) {
+			return 10;
+		}
+		return 10L << (1 + (nowMillis - STEADY_MILLIS) / DOUBLING_MILLIS);
+	}
+
+	private static MockHttpServletRequest request() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN_URL);
+		request.setServletPath(LOGIN_URL);
+		request.setAsyncSupported(true);
+		request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	private static final class Call implements Comparable<Call> {
+
+		private final long completeAt;
+		private final long sequence;
+		private final Runnable task;
+
+		Call(long completeAt, long sequence, Runnable task) {
+			this.completeAt = completeAt;
+			this.sequence = sequence;
+			this.task = task;
+		}
+
+		@Override
+		public int compareTo(Call other) {
+			int result = Long.compare(completeAt, other.completeAt);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+
+	}
+
+	/**
+	 * 以模拟的虚拟时钟计算请求延迟
+	 */
+	private class SimulatedLimiter extends DingTalkConcurrencyLimiter {
+
+		SimulatedLimiter(ShiroDingTalkConcurrencyLimitProperties properties) {
+			super(properties);
+		}
+
+		@Override
+		protected long nanoTime() {
+			return TimeUnit.MILLISECONDS.toNanos(clockMillis);
+		}
+
+	}
+
+	static class SimulationFilter extends AbstractDingTalkAuthenticatingFilter {
+
+		SimulationFilter(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		boolean login(ServletRequest request, ServletResponse response) throws Exception {
+			return executeLogin(request, response);
+		}
+
+		@Override
+		protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) {
+			return new UsernamePasswordToken("user", "code");
+		}
+
+		@Override
+		protected boolean onAccessSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
+				ServletResponse response) {
+			((MockHttpServletResponse) response).setStatus(200);
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.biz.realm.AuthorizingRealmListener;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkListenerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkRealmListenerDispatcher} 的批量通知、缓冲区已满时的各 {@link DingTalkOverflowPolicy} 与关闭时排空：
+ * 	消费线程被首个事件的监听器阻塞，缓冲区（容量 2）随后写满
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkRealmListenerDispatcherTest {
+
+	private final ShiroDingTalkListenerProperties properties = new ShiroDingTalkListenerProperties();
+	private final ExecutorService callers = Executors.newSingleThreadExecutor();
+	private final GateListener gate = new GateListener();
+	private final RecordingListener listener = new RecordingListener();
+	private DingTalkRealmListenerDispatcher dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		properties.setCapacity(2);
+		properties.setConsumers(1);
+		properties.setBatchSize(16);
+		properties.setIdleWait(Duration.ofMillis(1));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		gate.open();
+		callers.shutdownNow();
+		if (dispatcher != null) {
+			dispatcher.destroy();
+		}
+	}
+
+	@Test
+	void batchListenerReceivesQueuedEventsTogether() throws Exception {
+		BatchListener batchListener = new BatchListener();
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		blockConsumer();
+		dispatcher.dispatch(null, null, info(), null, Arrays.asList(batchListener, listener));
+		dispatcher.dispatch(null, token(), null, new AuthenticationException("failed"), Arrays.asList(batchListener, listener));
+
+		gate.open();
+		awaitDelivered(3);
+		assertEquals(1, batchListener.batches.size());
+		assertEquals(2, batchListener.batches.get(0).size());
+		assertTrue(batchListener.batches.get(0).get(0).isSuccess());
+		assertFalse(batchListener.batches.get(0).get(1).isSuccess());
+		// 普通监听器逐个通知
+		assertEquals(Arrays.asList("success", "failure"), listener.outcomes);
+	}
+
+	@Test
+	void deliverGroupsEventsByBatchListener() {
+		BatchListener first = new BatchListener();
+		BatchListener second = new BatchListener();
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		List<DingTalkRealmEvent> batch = new ArrayList<>();
+		batch.add(new DingTalkRealmEvent(null, null, info(), null, Arrays.asList(first, listener)));
+		batch.add(new DingTalkRealmEvent(null, null, info(), null, Arrays.asList(first, second)));
+		batch.add(new DingTalkRealmEvent(null, null, info(), null, Collections.singletonList(second)));
+
+		dispatcher.deliver(batch);
+		assertEquals(1, first.batches.size());
+		assertEquals(2, first.batches.get(0).size());
+		assertEquals(1, second.batches.size());
+		assertEquals(2, second.batches.get(0).size());
+		assertEquals(1, listener.outcomes.size());
+		assertEquals(1, dispatcher.getBatchCount());
+		assertEquals(3, dispatcher.getDeliveredCount());
+	}
+
+	@Test
+	void failingListenerDoesNotStopOthers() throws Exception {
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		AuthorizingRealmListener failing = new RecordingListener() {
+
+			@Override
+			public void onSuccess(Realm realm, AuthenticationInfo info) {
+				throw new IllegalStateException("listener failed");
+			}
+
+		};
+		dispatcher.dispatch(null, null, info(), null, Arrays.asList(failing, listener));
+		awaitDelivered(1);
+		assertEquals(1, listener.outcomes.size());
+		assertEquals(1, dispatcher.getListenerErrorCount());
+	}
+
+	@Test
+	void dropPolicyDiscardsEventWhenFull() throws Exception {
+		properties.setOverflowPolicy(DingTalkOverflowPolicy.DROP);
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		fillBuffer();
+
+		dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener));
+		assertEquals(1, dispatcher.getDroppedCount());
+
+		gate.open();
+		awaitDelivered(3);
+		assertEquals(2, listener.outcomes.size());
+	}
+
+	@Test
+	void callerRunsPolicyNotifiesOnCallingThread() throws Exception {
+		properties.setOverflowPolicy(DingTalkOverflowPolicy.CALLER_RUNS);
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		fillBuffer();
+
+		dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener));
+		assertEquals(1, dispatcher.getCallerRunsCount());
+		assertEquals(Collections.singletonList(Thread.currentThread().getName()), listener.threads);
+		assertEquals(0, dispatcher.getDroppedCount());
+	}
+
+	@Test
+	void blockPolicyWaitsForFreeSlot() throws Exception {
+		properties.setOverflowPolicy(DingTalkOverflowPolicy.BLOCK);
+		properties.setBlockTimeout(Duration.ofSeconds(5));
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		fillBuffer();
+
+		Future<?> blocked = callers.submit(() -> dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener)));
+		TimeUnit.MILLISECONDS.sleep(50);
+		assertFalse(blocked.isDone());
+
+		gate.open();
+		blocked.get(5, TimeUnit.SECONDS);
+		awaitDelivered(4);
+		assertEquals(3, listener.outcomes.size());
+		assertEquals(0, dispatcher.getDroppedCount());
+	}
+
+	@Test
+	void blockPolicyDropsAfterTimeout() throws Exception {
+		properties.setOverflowPolicy(DingTalkOverflowPolicy.BLOCK);
+		properties.setBlockTimeout(Duration.ofMillis(20));
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		fillBuffer();
+
+		dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener));
+		assertEquals(1, dispatcher.getDroppedCount());
+	}
+
+	@Test
+	void destroyDrainsQueuedEvents() throws Exception {
+		dispatcher = new DingTalkRealmListenerDispatcher(properties);
+		fillBuffer();
+		assertEquals(2, dispatcher.getQueueDepth());
+
+		Future<?> destroyed = callers.submit(() -> {
+			dispatcher.destroy();
+			return null;
+		});
+		TimeUnit.MILLISECONDS.sleep(20);
+		gate.open();
+		destroyed.get(5, TimeUnit.SECONDS);
+		assertEquals(2, listener.outcomes.size());
+		assertEquals(0, dispatcher.getQueueDepth());
+
+		// 关闭后不再接收新事件
+		dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener));
+		assertEquals(1, dispatcher.getDroppedCount());
+		assertEquals(2, listener.outcomes.size());
+	}
+
+	/**
+	 * 消费线程取出首个事件后阻塞在 gate 上，缓冲区此时为空
+	 */
+	private void blockConsumer() throws InterruptedException {
+		dispatcher.dispatch(null, null, info(), null, Collections.singletonList(gate));
+		assertTrue(gate.entered.await(5, TimeUnit.SECONDS));
+	}
+
+	private void fillBuffer() throws InterruptedException {
+		blockConsumer();
+		for (int i = 0; i < dispatcher.getCapacity(); i++) {
+			dispatcher.dispatch(null, null, info(), null, Collections.singletonList(listener));
+		}
+	}
+
+	private void awaitDelivered(long count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dispatcher.getDeliveredCount() < count && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(1);
+		}
+		assertEquals(count, dispatcher.getDeliveredCount());
+	}
+
+	private static AuthenticationInfo info() {
+		return new SimpleAuthenticationInfo("principal", "code", "realm");
+	}
+
+	private static AuthenticationToken token() {
+		return new UsernamePasswordToken("principal", "code");
+	}
+
+	static class RecordingListener implements AuthorizingRealmListener {
+
+		final List<String> outcomes = new CopyOnWriteArrayList<>();
+		final List<String> threads = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onSuccess(Realm realm, AuthenticationInfo info) {
+			record("success");
+		}
+
+		@Override
+		public void onFailure(Realm realm, AuthenticationToken token, AuthenticationException ex) {
+			record("failure");
+		}
+
+		private void record(String outcome) {
+			outcomes.add(outcome);
+			threads.add(Thread.currentThread().getName());
+		}
+
+	}
+
+	static class BatchListener extends RecordingListener implements DingTalkBatchRealmListener {
+
+		final List<List<DingTalkRealmEvent>> batches = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onBatch(List<DingTalkRealmEvent> events) {
+			batches.add(new ArrayList<>(events));
+		}
+
+	}
+
+	static class GateListener extends RecordingListener {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch released = new CountDownLatch(1);
+		private final AtomicBoolean first = new AtomicBoolean(true);
+
+		@Override
+		public void onSuccess(Realm realm, AuthenticationInfo info) {
+			if (first.compareAndSet(true, false)) {
+				entered.countDown();
+				try {
+					released.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		void open() {
+			released.countDown();
+		}
+
+	}
+
+}
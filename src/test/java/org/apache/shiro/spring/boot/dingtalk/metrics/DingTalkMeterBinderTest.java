@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.limit.DingTalkConcurrencyLimiter;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkConcurrencyLimitProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkHedgingProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkMetricsProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.apache.shiro.spring.boot.dingtalk.remote.HedgingDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.ResilientDingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.RetryingDingTalkRemoteInvoker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 	{@link DingTalkMeterBinder} 沿远程调用装饰链注册指标：同名指标以标签区分，未配置的组件不注册
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkMeterBinderTest {
+
+	private static final String PREFIX = MicrometerDingTalkMetrics.METRIC_PREFIX;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private HedgingDingTalkRemoteInvoker hedging;
+
+	@AfterEach
+	void tearDown() {
+		if (hedging != null) {
+			hedging.destroy();
+		}
+	}
+
+	@Test
+	void remoteInvokerChainIsBound() throws Exception {
+		ShiroDingTalkHedgingProperties hedgingProperties = new ShiroDingTalkHedgingProperties();
+		hedgingProperties.setMaxThreads(2);
+		hedgingProperties.setBudgetRatio(1.0);
+		hedgingProperties.setMinHedgeDelay(Duration.ofMillis(20));
+		ShiroDingTalkRetryProperties retryProperties = new ShiroDingTalkRetryProperties();
+		retryProperties.setBaseDelay(Duration.ofMillis(1));
+		retryProperties.setBudgetRatio(5);
+		ResilientDingTalkRemoteInvoker resilient = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT,
+				new ShiroDingTalkResilienceProperties());
+		hedging = new HedgingDingTalkRemoteInvoker(resilient, hedgingProperties);
+		RetryingDingTalkRemoteInvoker retrying = new RetryingDingTalkRemoteInvoker(hedging, retryProperties);
+		MeteredDingTalkRemoteInvoker metered = new MeteredDingTalkRemoteInvoker(retrying,
+				new MicrometerDingTalkMetrics(registry, new ShiroDingTalkMetricsProperties()));
+		DingTalkMeterBinder meterBinder = new DingTalkMeterBinder();
+		meterBinder.setRemoteInvoker(metered);
+		meterBinder.bindTo(registry);
+
+		// 首次请求阻塞，对冲请求先返回
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		assertEquals("hedge", metered.invoke("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> {
+			if (attempts.incrementAndGet() == 1) {
+				await(release);
+				return "primary";
+			}
+			return "hedge";
+		}));
+		release.countDown();
+		assertEquals(2, registry.find(PREFIX + ".remote.hedges").functionCounters().size());
+		assertEquals(1, count(PREFIX + ".remote.hedges", "result", "sent"));
+		assertEquals(1, count(PREFIX + ".remote.hedges", "result", "won"));
+
+		assertThrows(ApiException.class, () -> metered.invoke("app", DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, () -> {
+			throw new ApiException("-1", "busy");
+		}));
+		assertTrue(count(PREFIX + ".remote.retries") >= 1);
+		assertNotNull(registry.find(PREFIX + ".remote.retry.budget.exhausted").functionCounter());
+		assertNotNull(registry.find(PREFIX + ".remote.timeouts").functionCounter());
+		assertNotNull(registry.find(PREFIX + ".remote.hedge.threads").gauge());
+		assertEquals(0, registry.find(PREFIX + ".circuit.open").gauge().value());
+		assertNotNull(registry.find(PREFIX + ".circuit.not-permitted").functionCounter());
+	}
+
+	@Test
+	void configuredComponentsOnlyAreBound() {
+		DingTalkConcurrencyLimiter limiter = new DingTalkConcurrencyLimiter(new ShiroDingTalkConcurrencyLimitProperties());
+		DingTalkMeterBinder meterBinder = new DingTalkMeterBinder();
+		meterBinder.setConcurrencyLimiter(limiter);
+		meterBinder.bindTo(registry);
+
+		assertEquals(limiter.getLimit(), registry.find(PREFIX + ".limit").gauge().value());
+		assertNotNull(registry.find(PREFIX + ".limit.inflight").gauge());
+		assertNotNull(registry.find(PREFIX + ".limit.rejected").functionCounter());
+		assertEquals(3, registry.getMeters().size());
+	}
+
+	@Test
+	void nothingIsBoundWithoutComponents() {
+		new DingTalkMeterBinder().bindTo(registry);
+		assertTrue(registry.getMeters().isEmpty());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private double count(String name, String... tags) {
+		FunctionCounter counter = registry.find(name).tags(tags).functionCounter();
+		assertNotNull(counter, name);
+		return counter.count();
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.spring.boot.dingtalk.audit.DingTalkLoginAuditEvent;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkScanCodeLoginRequest;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeIncorrectException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkMetricsProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteInvoker;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkRemoteOperation;
+import org.apache.shiro.spring.boot.dingtalk.token.DingTalkScanCodeAuthenticationToken;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 	{@link MicrometerDingTalkMetrics} 的计时器、计数器名称与标签，以及标签取值数量上限
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class MicrometerDingTalkMetricsTest {
+
+	private static final String PREFIX = MicrometerDingTalkMetrics.METRIC_PREFIX;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ShiroDingTalkMetricsProperties properties = new ShiroDingTalkMetricsProperties();
+
+	@Test
+	void remoteTimerIsTaggedByOperationAppKeyAndException() {
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		metrics.recordRemote("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, TimeUnit.MILLISECONDS.toNanos(5), null);
+		metrics.recordRemote("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, TimeUnit.MILLISECONDS.toNanos(7), null);
+		metrics.recordRemote("app", DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, 1, new ApiException("-1", "busy"));
+
+		Timer success = registry.find(PREFIX + ".remote")
+				.tags("operation", "GET_ACCESS_TOKEN", "appKey", "app", "exception", MicrometerDingTalkMetrics.NONE).timer();
+		assertNotNull(success);
+		assertEquals(2, success.count());
+		assertEquals(12, success.totalTime(TimeUnit.MILLISECONDS), 0.001);
+		Timer failure = registry.find(PREFIX + ".remote")
+				.tags("operation", "GET_USERINFO_BY_TMP_CODE", "exception", "ApiException").timer();
+		assertNotNull(failure);
+		assertEquals(1, failure.count());
+	}
+
+	@Test
+	void meteredInvokerRecordsRemoteCalls() {
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		MeteredDingTalkRemoteInvoker invoker = new MeteredDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, metrics);
+		assertThrows(ApiException.class, () -> invoker.invoke("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> {
+			throw new ApiException("-1", "busy");
+		}));
+		assertEquals(1, registry.find(PREFIX + ".remote").tags("appKey", "app", "exception", "ApiException").timer().count());
+	}
+
+	@Test
+	void stageTimersAreTaggedByTypeAndFlow() {
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		DingTalkScanCodeAuthenticationToken token = new DingTalkScanCodeAuthenticationToken(
+				new DingTalkScanCodeLoginRequest("key", "code", null), "127.0.0.1");
+		metrics.recordParse(DingTalkScanCodeLoginRequest.class, 1, null);
+		metrics.recordRepository(token, 1, null);
+		metrics.recordJwtIssue(token, 1, new IllegalStateException("signing failed"));
+
+		assertNotNull(registry.find(PREFIX + ".login.parse").tags("type", "DingTalkScanCodeLoginRequest", "exception", "none").timer());
+		assertNotNull(registry.find(PREFIX + ".repository").tags("flow", DingTalkLoginAuditEvent.FLOW_SCAN_CODE).timer());
+		assertNotNull(registry.find(PREFIX + ".jwt.issue")
+				.tags("flow", DingTalkLoginAuditEvent.FLOW_SCAN_CODE, "exception", "IllegalStateException").timer());
+	}
+
+	@Test
+	void outcomeCounterIsTaggedByFlowOutcomeAndException() {
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		UsernamePasswordToken token = new UsernamePasswordToken("user", "code");
+		metrics.recordOutcome(token, null);
+		metrics.recordOutcome(token, null);
+		metrics.recordOutcome(token, DingTalkCodeIncorrectException.stackless("code used"));
+
+		Counter success = registry.find(PREFIX + ".login")
+				.tags("flow", "UsernamePasswordToken", "outcome", "success", "exception", "none").counter();
+		assertEquals(2, success.count(), 0.001);
+		Counter failure = registry.find(PREFIX + ".login")
+				.tags("outcome", "failure", "exception", "DingTalkCodeIncorrectException").counter();
+		assertEquals(1, failure.count(), 0.001);
+	}
+
+	@Test
+	void metersAreRegisteredOnce() {
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		metrics.recordRemote("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, 1, null);
+		Timer timer = registry.find(PREFIX + ".remote").timer();
+		metrics.recordRemote("app", DingTalkRemoteOperation.GET_ACCESS_TOKEN, 1, null);
+		assertSame(timer, registry.find(PREFIX + ".remote").timer());
+		assertEquals(1, registry.getMeters().size());
+	}
+
+	@Test
+	void tagValuesAreBounded() {
+		properties.setMaxAppKeyTags(2);
+		properties.setPercentileHistogram(false);
+		MicrometerDingTalkMetrics metrics = new MicrometerDingTalkMetrics(registry, properties);
+		for (String appKey : new String[] { "a", "b", "c", "d", "a" }) {
+			metrics.recordRemote(appKey, DingTalkRemoteOperation.GET_ACCESS_TOKEN, 1, null);
+		}
+		assertEquals(2, registry.find(PREFIX + ".remote").tag("appKey", "a").timer().count());
+		assertEquals(1, registry.find(PREFIX + ".remote").tag("appKey", "b").timer().count());
+		assertNull(registry.find(PREFIX + ".remote").tag("appKey", "c").timer());
+		assertEquals(2, registry.find(PREFIX + ".remote").tag("appKey", MicrometerDingTalkMetrics.OTHER).timer().count());
+	}
+
+}
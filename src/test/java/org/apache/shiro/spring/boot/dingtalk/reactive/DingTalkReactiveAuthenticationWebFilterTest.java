@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.spring.boot.dingtalk.authc.DingTalkAuthenticationFailureHandler;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkCodeExpiredException;
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkLoginRequestTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 	{@link DingTalkReactiveAuthenticationWebFilter} 的失败响应：请求体上限与各类错误统一由失败处理器生成 JSON 响应
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkReactiveAuthenticationWebFilterTest {
+
+	private static final String LOGIN_URL = "/authz/login/dingtalk/scan";
+	private static final byte[] FAILURE_BODY = "{\"code\":\"fail\"}".getBytes(StandardCharsets.UTF_8);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CapturingFailureHandler failureHandler = new CapturingFailureHandler(objectMapper);
+
+	@Test
+	void oversizedBodyIsRejectedWithTooLargeFailure() {
+		DingTalkReactiveAuthenticationWebFilter filter = filter(token -> Mono.error(new IllegalStateException("not reached")));
+		filter.setMaxBodySize(64);
+		char[] padding = new char[256];
+		Arrays.fill(padding, 'x');
+		MockServerWebExchange exchange = login("{\"key\":\"app\",\"loginTmpCode\":\"" + new String(padding) + "\"}");
+
+		filter.filter(exchange, e -> Mono.error(new IllegalStateException("chain reached"))).block(Duration.ofSeconds(5));
+
+		assertInstanceOf(DingTalkLoginRequestTooLargeException.class, failureHandler.failure);
+		assertFailureWritten(exchange);
+	}
+
+	@Test
+	void authenticationFailureKeepsItsType() {
+		DingTalkReactiveAuthenticationWebFilter filter = filter(token -> Mono.error(new DingTalkCodeExpiredException("expired")));
+		MockServerWebExchange exchange = login("{\"key\":\"app\",\"loginTmpCode\":\"code\"}");
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertInstanceOf(DingTalkCodeExpiredException.class, failureHandler.failure);
+		assertEquals("expired", failureHandler.failure.getMessage());
+		assertFailureWritten(exchange);
+	}
+
+	@Test
+	void remoteErrorIsMappedToServiceFailure() {
+		DingTalkReactiveAuthenticationWebFilter filter = filter(token -> Mono.error(WebClientResponseException.create(
+				502, "Bad Gateway", null, "upstream detail".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+		MockServerWebExchange exchange = login("{\"key\":\"app\",\"loginTmpCode\":\"code\"}");
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertInstanceOf(DingTalkAuthenticationServiceException.class, failureHandler.failure);
+		assertFalse(failureHandler.failure.getMessage().contains("upstream detail"));
+		assertFailureWritten(exchange);
+	}
+
+	@Test
+	void malformedBodyIsAnAuthenticationFailure() {
+		DingTalkReactiveAuthenticationWebFilter filter = filter(token -> Mono.error(new IllegalStateException("not reached")));
+		MockServerWebExchange exchange = login("{\"key\":");
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertInstanceOf(AuthenticationException.class, failureHandler.failure);
+		assertFailureWritten(exchange);
+	}
+
+	@Test
+	void otherRequestsPassThrough() {
+		DingTalkReactiveAuthenticationWebFilter filter = filter(token -> Mono.error(new IllegalStateException("not reached")));
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/other").body("{}"));
+
+		filter.filter(exchange, e -> Mono.empty()).block(Duration.ofSeconds(5));
+
+		assertNull(failureHandler.failure);
+	}
+
+	private void assertFailureWritten(MockServerWebExchange exchange) {
+		assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+		assertArrayEquals(FAILURE_BODY, exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5)).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MockServerWebExchange login(String body) {
+		return MockServerWebExchange.from(MockServerHttpRequest.post(LOGIN_URL).contentType(MediaType.APPLICATION_JSON).body(body));
+	}
+
+	private DingTalkReactiveAuthenticationWebFilter filter(Function<AuthenticationToken, Mono<AuthenticationInfo>> authenticator) {
+		ReactiveDingTalkRealm realm = new ReactiveDingTalkRealm(null, null, null) {
+
+			@Override
+			public Mono<AuthenticationInfo> authenticate(AuthenticationToken token) {
+				return authenticator.apply(token);
+			}
+
+		};
+		DingTalkReactiveAuthenticationWebFilter filter = new DingTalkReactiveAuthenticationWebFilter(objectMapper, realm, null,
+				new DefaultSecurityManager());
+		filter.setScanCodeLoginUrl(LOGIN_URL);
+		filter.setFailureHandler(failureHandler);
+		return filter;
+	}
+
+	/**
+	 * 记录传入的认证异常并返回固定的响应体
+	 */
+	static class CapturingFailureHandler extends DingTalkAuthenticationFailureHandler {
+
+		private volatile AuthenticationException failure;
+
+		CapturingFailureHandler(ObjectMapper objectMapper) {
+			super(objectMapper);
+		}
+
+		@Override
+		public byte[] responseBody(AuthenticationException e) {
+			this.failure = e;
+			return FAILURE_BODY;
+		}
+
+	}
+
+}
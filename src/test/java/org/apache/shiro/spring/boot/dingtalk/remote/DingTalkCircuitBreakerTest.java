@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkCircuitBreaker} 的状态转换：失败率、慢调用率超过阈值后打开，等待结束后半开，探测结果决定关闭或再次打开
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkCircuitBreakerTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long SLOW = TimeUnit.SECONDS.toNanos(5);
+
+	private final ShiroDingTalkResilienceProperties properties = new ShiroDingTalkResilienceProperties();
+
+	@BeforeEach
+	void setUp() {
+		properties.setSlidingWindowSize(4);
+		properties.setMinimumNumberOfCalls(4);
+		properties.setFailureRateThreshold(50);
+		properties.setSlowCallRateThreshold(75);
+		properties.setSlowCallDuration(Duration.ofSeconds(1));
+		properties.setWaitDurationInOpenState(Duration.ofMillis(30));
+		properties.setPermittedCallsInHalfOpenState(2);
+	}
+
+	@Test
+	void opensWhenFailureRateExceedsThreshold() {
+		DingTalkCircuitBreaker circuitBreaker = new DingTalkCircuitBreaker(properties);
+		circuitBreaker.onResult(FAST, true);
+		circuitBreaker.onResult(FAST, false);
+		circuitBreaker.onResult(FAST, true);
+		// 调用次数不足时不计算失败率
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		assertEquals(-1f, circuitBreaker.getFailureRate());
+
+		circuitBreaker.onResult(FAST, false);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(1, circuitBreaker.getOpenCount());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		assertEquals(1, circuitBreaker.getNotPermittedCount());
+		assertTrue(circuitBreaker.getRemainingOpenMillis() > 0);
+	}
+
+	@Test
+	void staysClosedBelowFailureRateThreshold() {
+		DingTalkCircuitBreaker circuitBreaker = new DingTalkCircuitBreaker(properties);
+		circuitBreaker.onResult(FAST, true);
+		for (int i = 0; i < 10; i++) {
+			circuitBreaker.onResult(FAST, false);
+		}
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		// 早先的失败已滑出窗口
+		assertEquals(0f, circuitBreaker.getFailureRate());
+	}
+
+	@Test
+	void opensWhenSlowCallRateExceedsThreshold() {
+		DingTalkCircuitBreaker circuitBreaker = new DingTalkCircuitBreaker(properties);
+		circuitBreaker.onResult(SLOW, false);
+		circuitBreaker.onResult(SLOW, false);
+		circuitBreaker.onResult(FAST, false);
+		circuitBreaker.onResult(SLOW, false);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	@Test
+	void halfOpensAfterWaitAndClosesOnSuccessfulProbes() throws Exception {
+		DingTalkCircuitBreaker circuitBreaker = open();
+		TimeUnit.MILLISECONDS.sleep(40);
+
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		// 半开状态只放行配置数量的探测调用
+		assertFalse(circuitBreaker.tryAcquirePermission());
+
+		circuitBreaker.onResult(FAST, false);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		circuitBreaker.onResult(FAST, false);
+		assertEquals(State.CLOSED, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+	}
+
+	@Test
+	void reopensOnFailedProbes() throws Exception {
+		DingTalkCircuitBreaker circuitBreaker = open();
+		TimeUnit.MILLISECONDS.sleep(40);
+
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onResult(FAST, true);
+		circuitBreaker.onResult(FAST, false);
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		assertEquals(2, circuitBreaker.getOpenCount());
+	}
+
+	@Test
+	void releasedPermissionCanBeReused() throws Exception {
+		DingTalkCircuitBreaker circuitBreaker = open();
+		TimeUnit.MILLISECONDS.sleep(40);
+
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.releasePermission();
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+	}
+
+	private DingTalkCircuitBreaker open() {
+		DingTalkCircuitBreaker circuitBreaker = new DingTalkCircuitBreaker(properties);
+		for (int i = 0; i < 4; i++) {
+			circuitBreaker.onResult(FAST, true);
+		}
+		assertEquals(State.OPEN, circuitBreaker.getState());
+		return circuitBreaker;
+	}
+
+}
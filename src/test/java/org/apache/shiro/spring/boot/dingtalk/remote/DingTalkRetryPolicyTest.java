@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	{@link DingTalkRetryPolicy} 的错误分类
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkRetryPolicyTest {
+
+	private final ShiroDingTalkRetryProperties properties = new ShiroDingTalkRetryProperties();
+
+	@Test
+	void errcodesAreClassifiedByConfiguration() {
+		DingTalkRetryPolicy retryPolicy = new DingTalkRetryPolicy(properties);
+		assertTrue(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, new ApiException("-1", "busy")));
+		assertTrue(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_ACCESS_TOKEN, new ApiException("90018", "rate limited")));
+		assertFalse(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, new ApiException("40078", "code used")));
+		assertFalse(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_ACCESS_TOKEN, new ApiException("40089", "invalid appkey")));
+	}
+
+	@Test
+	void errorsWithoutErrcodeAreRetryableOnlyForIdempotentOperations() {
+		ApiException disconnected = new ApiException(new IOException("connection reset"));
+		DingTalkRetryPolicy retryPolicy = new DingTalkRetryPolicy(properties);
+		assertTrue(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_ACCESS_TOKEN, disconnected));
+		assertFalse(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, disconnected));
+
+		properties.setIdempotentOperations(EnumSet.noneOf(DingTalkRemoteOperation.class));
+		properties.setRetryableErrorCodes(Collections.singleton("40078"));
+		retryPolicy = new DingTalkRetryPolicy(properties);
+		assertFalse(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_ACCESS_TOKEN, disconnected));
+		assertTrue(retryPolicy.isRetryable(DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, new ApiException("40078", "code used")));
+	}
+
+}
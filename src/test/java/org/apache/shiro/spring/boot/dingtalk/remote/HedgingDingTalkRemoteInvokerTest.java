@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkHedgingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link HedgingDingTalkRemoteInvoker} 的有界线程池：线程耗尽时首次请求在调用线程中执行，对冲请求放弃
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class HedgingDingTalkRemoteInvokerTest {
+
+	private static final DingTalkRemoteOperation OPERATION = DingTalkRemoteOperation.GET_ACCESS_TOKEN;
+
+	private final ShiroDingTalkHedgingProperties properties = new ShiroDingTalkHedgingProperties();
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+	private HedgingDingTalkRemoteInvoker invoker;
+
+	@BeforeEach
+	void setUp() {
+		properties.setMaxThreads(2);
+		properties.setBudgetRatio(1.0);
+		properties.setMinHedgeDelay(Duration.ofMillis(20));
+	}
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+		if (invoker != null) {
+			invoker.destroy();
+		}
+	}
+
+	@Test
+	void slowPrimaryIsHedged() throws Exception {
+		invoker = new HedgingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		String result = invoker.invoke("app", OPERATION, () -> {
+			if (attempts.incrementAndGet() == 1) {
+				await(release);
+				return "primary";
+			}
+			return "hedge";
+		});
+		release.countDown();
+		assertEquals("hedge", result);
+		assertEquals(1, invoker.getHedgeCount());
+		assertEquals(1, invoker.getHedgeWinCount());
+		assertEquals(0, invoker.getRejectedCount());
+	}
+
+	@Test
+	void saturatedPoolRunsPrimaryOnCallerAndSkipsHedge() throws Exception {
+		invoker = new HedgingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		// 两个首次请求占满线程池，对冲请求因线程耗尽而放弃
+		List<Future<String>> blocked = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			blocked.add(callers.submit(() -> invoker.invoke("app", OPERATION, () -> {
+				started.countDown();
+				await(release);
+				return Thread.currentThread().getName();
+			})));
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals(2, invoker.getActiveThreads());
+
+		String caller = Thread.currentThread().getName();
+		assertEquals(caller, invoker.invoke("app", OPERATION, () -> Thread.currentThread().getName()));
+		// 等待两个阻塞的首次请求超过对冲等待时间并尝试对冲
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (invoker.getRejectedCount() < 3 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+
+		release.countDown();
+		for (Future<String> future : blocked) {
+			assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("dingtalk-hedge-"));
+		}
+		assertEquals(0, invoker.getHedgeCount());
+		// 1 次首次请求在调用线程中执行，2 次对冲被放弃
+		assertEquals(3, invoker.getRejectedCount());
+		assertFalse(invoker.getActiveThreads() > 2);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
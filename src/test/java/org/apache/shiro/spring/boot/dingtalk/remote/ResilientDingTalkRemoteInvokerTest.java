@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.exception.DingTalkAuthenticationServiceException;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkResilienceProperties;
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.apache.shiro.spring.boot.dingtalk.remote.DingTalkCircuitBreaker.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	{@link ResilientDingTalkRemoteInvoker} 的熔断与并发隔离：熔断打开后快速失败，并发已满时归还半开探测许可，
+ * 	配置错误分类后钉钉明确返回的业务错误不计入失败率
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class ResilientDingTalkRemoteInvokerTest {
+
+	private static final String APP_KEY = "app";
+	private static final DingTalkRemoteOperation OPERATION = DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE;
+
+	private final ShiroDingTalkResilienceProperties properties = new ShiroDingTalkResilienceProperties();
+	private final ExecutorService callers = Executors.newSingleThreadExecutor();
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		properties.setSlidingWindowSize(2);
+		properties.setMinimumNumberOfCalls(2);
+		properties.setFailureRateThreshold(50);
+		properties.setWaitDurationInOpenState(Duration.ofMillis(30));
+		properties.setPermittedCallsInHalfOpenState(2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		callers.shutdownNow();
+	}
+
+	@Test
+	void openCircuitFailsFastWithoutCallingDingTalk() throws Exception {
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		open(invoker);
+		int before = calls.get();
+
+		assertThrows(DingTalkAuthenticationServiceException.class, () -> invoker.invoke(APP_KEY, OPERATION, this::succeed));
+		assertEquals(before, calls.get());
+		// 各 AppKey 的熔断器相互独立
+		assertEquals("ok", invoker.invoke("other", OPERATION, this::succeed));
+	}
+
+	@Test
+	void slowCallsOpenCircuit() throws Exception {
+		properties.setSlowCallDuration(Duration.ofMillis(1));
+		properties.setSlowCallRateThreshold(100);
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		for (int i = 0; i < 2; i++) {
+			invoker.invoke(APP_KEY, OPERATION, () -> {
+				pause(5);
+				return succeed();
+			});
+		}
+		assertEquals(State.OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+	}
+
+	@Test
+	void bulkheadRejectionReturnsHalfOpenPermit() throws Exception {
+		properties.setMaxConcurrentCalls(1);
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		open(invoker);
+		TimeUnit.MILLISECONDS.sleep(40);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// 第一个探测调用占用唯一的并发许可
+		Future<String> probe = callers.submit(() -> invoker.invoke(APP_KEY, OPERATION, () -> {
+			started.countDown();
+			pause(release);
+			return succeed();
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		assertThrows(DingTalkAuthenticationServiceException.class, () -> invoker.invoke(APP_KEY, OPERATION, this::succeed));
+		assertEquals(1, invoker.getRejectedCount(APP_KEY));
+
+		release.countDown();
+		assertEquals("ok", probe.get(5, TimeUnit.SECONDS));
+		assertEquals(State.HALF_OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+		// 被并发隔离拒绝的调用归还了探测许可，第二个探测调用仍可执行并关闭熔断器
+		assertEquals("ok", invoker.invoke(APP_KEY, OPERATION, this::succeed));
+		assertEquals(State.CLOSED, invoker.getCircuitBreaker(APP_KEY).getState());
+		assertEquals(1, invoker.getAvailableConcurrentCalls(APP_KEY));
+	}
+
+	@Test
+	void businessErrorsAreNotFailuresWithRetryPolicy() {
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		invoker.setRetryPolicy(new DingTalkRetryPolicy(new ShiroDingTalkRetryProperties()));
+		for (int i = 0; i < 4; i++) {
+			// 授权码已使用等业务错误说明钉钉可用
+			assertThrows(ApiException.class, () -> invoker.invoke(APP_KEY, OPERATION, () -> fail("40078")));
+		}
+		assertEquals(State.CLOSED, invoker.getCircuitBreaker(APP_KEY).getState());
+
+		// 可重试的系统错误计入失败
+		assertThrows(ApiException.class, () -> invoker.invoke(APP_KEY, OPERATION, () -> fail("-1")));
+		assertEquals(State.OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+	}
+
+	@Test
+	void errorsWithoutCodeAreFailuresWithRetryPolicy() throws Exception {
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		invoker.setRetryPolicy(new DingTalkRetryPolicy(new ShiroDingTalkRetryProperties()));
+		assertEquals("ok", invoker.invoke(APP_KEY, OPERATION, this::succeed));
+		// 没有错误码的网络异常：钉钉是否可用未知，计入失败
+		assertThrows(ApiException.class, () -> invoker.invoke(APP_KEY, OPERATION, () -> {
+			throw new ApiException(new IOException("connection reset"));
+		}));
+		assertEquals(State.OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+	}
+
+	@Test
+	void businessErrorsAreFailuresWithoutRetryPolicy() {
+		ResilientDingTalkRemoteInvoker invoker = new ResilientDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		for (int i = 0; i < 2; i++) {
+			assertThrows(ApiException.class, () -> invoker.invoke(APP_KEY, OPERATION, () -> fail("40078")));
+		}
+		assertEquals(State.OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+	}
+
+	private void open(ResilientDingTalkRemoteInvoker invoker) {
+		for (int i = 0; i < 2; i++) {
+			assertThrows(ApiException.class, () -> invoker.invoke(APP_KEY, OPERATION, () -> fail("-1")));
+		}
+		assertEquals(State.OPEN, invoker.getCircuitBreaker(APP_KEY).getState());
+	}
+
+	private static void pause(long millis) {
+		pause(new CountDownLatch(1), millis);
+	}
+
+	private static void pause(CountDownLatch latch) {
+		pause(latch, 5000);
+	}
+
+	private static void pause(CountDownLatch latch, long timeoutMillis) {
+		try {
+			latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private String succeed() {
+		calls.incrementAndGet();
+		return "ok";
+	}
+
+	private String fail(String errCode) throws ApiException {
+		calls.incrementAndGet();
+		throw new ApiException(errCode, "error " + errCode);
+	}
+
+}
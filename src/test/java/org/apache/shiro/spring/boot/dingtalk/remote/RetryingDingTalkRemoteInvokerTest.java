@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.spring.boot.dingtalk.property.ShiroDingTalkRetryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.taobao.api.ApiException;
+
+/**
+ * 	{@link RetryingDingTalkRemoteInvoker} 的重试分类、重试预算与退避范围
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class RetryingDingTalkRemoteInvokerTest {
+
+	private static final String APP_KEY = "app";
+
+	private final ShiroDingTalkRetryProperties properties = new ShiroDingTalkRetryProperties();
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		properties.setMaxAttempts(3);
+		properties.setBaseDelay(Duration.ofMillis(1));
+		properties.setMaxDelay(Duration.ofMillis(2));
+		// 每次调用存入足够的预算，预算不限制重试
+		properties.setBudgetRatio(5);
+		properties.setMaxBudget(10);
+	}
+
+	@Test
+	void retryableErrcodeIsRetriedUntilMaxAttempts() {
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, () -> fail("-1")));
+		assertEquals(3, attempts.get());
+		assertEquals(2, invoker.getRetryCount());
+	}
+
+	@Test
+	void transientErrorRecoversOnRetry() throws Exception {
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		String result = invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE,
+				() -> attempts.get() == 0 ? fail("90018") : "ok");
+		assertEquals("ok", result);
+		assertEquals(1, invoker.getRetryCount());
+	}
+
+	@Test
+	void businessErrcodeIsNotRetried() {
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		// 授权码已使用：重试不会成功
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, () -> fail("40078")));
+		assertEquals(1, attempts.get());
+		assertEquals(0, invoker.getRetryCount());
+	}
+
+	@Test
+	void errorWithoutErrcodeIsRetriedOnlyForAccessToken() {
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_ACCESS_TOKEN, this::disconnect));
+		assertEquals(3, attempts.get());
+
+		attempts.set(0);
+		// 换取用户信息会消耗授权码，请求可能已被钉钉处理，不重试
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_USERINFO_BY_TMP_CODE, this::disconnect));
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	void budgetLimitsRetries() {
+		properties.setBudgetRatio(0.5);
+		properties.setMaxBudget(1);
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+
+		// 预算 0.5：不足一次重试
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> fail("-1")));
+		assertEquals(1, attempts.get());
+		assertEquals(1, invoker.getBudgetExhaustedCount());
+
+		attempts.set(0);
+		// 预算 1.0：只够一次重试，未达到最大尝试次数
+		assertThrows(ApiException.class,
+				() -> invoker.invoke(APP_KEY, DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> fail("-1")));
+		assertEquals(2, attempts.get());
+		assertEquals(1, invoker.getRetryCount());
+		assertEquals(2, invoker.getBudgetExhaustedCount());
+
+		// 各 AppKey 的预算相互独立
+		attempts.set(0);
+		assertThrows(ApiException.class,
+				() -> invoker.invoke("other", DingTalkRemoteOperation.GET_ACCESS_TOKEN, () -> fail("-1")));
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	void backoffStaysWithinBaseAndMaxDelay() {
+		properties.setBaseDelay(Duration.ofMillis(50));
+		properties.setMaxDelay(Duration.ofMillis(1000));
+		RetryingDingTalkRemoteInvoker invoker = new RetryingDingTalkRemoteInvoker(DingTalkRemoteInvoker.DIRECT, properties);
+		long delay = 50;
+		for (int i = 0; i < 1000; i++) {
+			delay = invoker.backoff(delay);
+			assertTrue(delay >= 50 && delay <= 1000, "delay " + delay);
+		}
+		// 上一次退避很长时仍不超过 maxDelay
+		assertTrue(invoker.backoff(Long.MAX_VALUE / 4) <= 1000);
+	}
+
+	private String fail(String errCode) throws ApiException {
+		attempts.incrementAndGet();
+		throw new ApiException(errCode, "error " + errCode);
+	}
+
+	private String disconnect() throws ApiException {
+		attempts.incrementAndGet();
+		throw new ApiException(new IOException("connection reset"));
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.dingtalk.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InvalidClassException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.spring.boot.dingtalk.ShiroDingTalkPrincipal;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 	{@link DingTalkSharedStoreCodec} 解码白名单
+ * @author 		： <a href="https://github.com/hiwepy">wandl</a>
+ */
+class DingTalkSharedStoreCodecTest {
+
+	private final DingTalkSharedStoreCodec codec = new DingTalkSharedStoreCodec();
+
+	@Test
+	void allowedTypesRoundTrip() throws Exception {
+		Map<String, Object> principal = new LinkedHashMap<>();
+		principal.put("unionid", "u-1");
+		principal.put("roles", new String[] { "admin" });
+		principal.put("bytes", new byte[] { 1, 2 });
+		AuthenticationInfo info = codec.decode(codec.encode(new SimpleAuthenticationInfo(principal, "code", "realm")));
+		assertEquals(principal.get("unionid"), ((Map<?, ?>) info.getPrincipals().getPrimaryPrincipal()).get("unionid"));
+		assertEquals("code", info.getCredentials());
+	}
+
+	@Test
+	void dingTalkPrincipalRoundTrip() throws Exception {
+		ShiroDingTalkPrincipal principal = new ShiroDingTalkPrincipal();
+		principal.setUnionid("u-1");
+		principal.setName("name");
+		AuthenticationInfo info = codec.decode(codec.encode(new SimpleAuthenticationInfo(principal, "code", "realm")));
+		assertEquals("u-1", ((ShiroDingTalkPrincipal) info.getPrincipals().getPrimaryPrincipal()).getUnionid());
+	}
+
+	@Test
+	void disallowedTypeIsRejected() throws Exception {
+		// URL 是常见的反序列化探测载体（hashCode 触发 DNS 解析）
+		String encoded = codec.encode(Collections.singletonMap(new URL("http://example.com"), "v"));
+		assertThrows(InvalidClassException.class, () -> codec.decode(encoded));
+		assertThrows(InvalidClassException.class, () -> codec.decode(codec.encode(new URL[0])));
+	}
+
+	@Test
+	void allowListMatchesExactClassNames() {
+		assertTrue(codec.isAllowed("java.lang.String"));
+		assertTrue(codec.isAllowed("[[Ljava.lang.String;"));
+		assertTrue(codec.isAllowed("[J"));
+		assertTrue(codec.isAllowed("org.apache.shiro.subject.SimplePrincipalCollection"));
+		assertFalse(codec.isAllowed("java.lang.Runtime"));
+		assertFalse(codec.isAllowed("java.util.PriorityQueue"));
+		assertFalse(codec.isAllowed("org.apache.commons.collections.functors.InvokerTransformer"));
+		assertFalse(codec.isAllowed("com.example.CustomPrincipal"));
+	}
+
+	@Test
+	void extraClassesArePerInstance() {
+		DingTalkSharedStoreCodec custom = new DingTalkSharedStoreCodec(Arrays.asList("com.example.CustomPrincipal"));
+		assertTrue(custom.isAllowed("com.example.CustomPrincipal"));
+		assertFalse(custom.isAllowed("com.example.OtherPrincipal"));
+		// 其他实例的白名单不受影响
+		assertFalse(codec.isAllowed("com.example.CustomPrincipal"));
+	}
+
+	@Test
+	void packagePrefixIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new DingTalkSharedStoreCodec(Arrays.asList("com.example.")));
+		assertThrows(IllegalArgumentException.class, () -> new DingTalkSharedStoreCodec(Arrays.asList(" ")));
+	}
+
+}